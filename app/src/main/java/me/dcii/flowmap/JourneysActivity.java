@@ -32,12 +32,16 @@ import android.support.v7.widget.LinearLayoutManager;
 import android.support.v7.widget.RecyclerView;
 import android.support.v7.widget.helper.ItemTouchHelper;
 import android.view.MenuItem;
-import android.widget.Toast;
+import android.view.View;
 
 import io.realm.Realm;
+import io.realm.RealmChangeListener;
 import io.realm.RealmResults;
+import io.realm.Sort;
 import me.dcii.flowmap.adapter.JourneyRecyclerViewAdapter;
+import me.dcii.flowmap.model.BackgroundMigrator;
 import me.dcii.flowmap.model.Journey;
+import me.dcii.flowmap.model.StoreOpener;
 import me.dcii.flowmap.util.TouchHelperCallback;
 
 /**
@@ -49,8 +53,57 @@ public class JourneysActivity extends AppCompatActivity
         implements JourneyRecyclerViewAdapter.JourneyClickListener {
 
     private RecyclerView mRecyclerView;
+    private View mProgressView;
+    private View mEmptyView;
     private JourneyRecyclerViewAdapter mJourneyAdapter;
     private Realm mRealm;
+    private RealmResults<Journey> mJourneys;
+
+    /**
+     * Swaps the placeholder for the list once the journeys query completes, and shows the empty
+     * state when no journeys are left.
+     */
+    private final RealmChangeListener<RealmResults<Journey>> mJourneysListener =
+            new RealmChangeListener<RealmResults<Journey>>() {
+                @Override
+                public void onChange(RealmResults<Journey> journeys) {
+                    updatePlaceholder();
+                }
+            };
+
+    /**
+     * Shows the progress of the background migrations in the action bar, since journeys not
+     * rewritten yet may show incomplete details.
+     */
+    private final BackgroundMigrator.ProgressListener mMigrationListener =
+            new BackgroundMigrator.ProgressListener() {
+                @Override
+                public void onMigrationProgress(long version, long migrated, long total) {
+                    if (getSupportActionBar() != null && total > 0) {
+                        getSupportActionBar().setSubtitle(getString(R.string.updating_journeys,
+                                (int) (migrated * 100 / total)));
+                    }
+                }
+
+                @Override
+                public void onMigrationComplete() {
+                    if (getSupportActionBar() != null) {
+                        getSupportActionBar().setSubtitle(null);
+                    }
+                }
+            };
+
+    /**
+     * Runs {@link #onStoreOpen()} unless the activity went away while waiting for the store.
+     */
+    private final Runnable mStoreOpenCallback = new Runnable() {
+        @Override
+        public void run() {
+            if (!isDestroyed()) {
+                onStoreOpen();
+            }
+        }
+    };
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -62,15 +115,32 @@ public class JourneysActivity extends AppCompatActivity
             getSupportActionBar().setDisplayHomeAsUpEnabled(true);
         }
 
-        mRealm = Realm.getDefaultInstance();
         mRecyclerView = findViewById(R.id.journey_recycler_view);
         mRecyclerView.setLayoutManager(new LinearLayoutManager(this));
         mRecyclerView.setHasFixedSize(true);
+        mProgressView = findViewById(R.id.journey_progress);
+        mEmptyView = findViewById(R.id.journey_empty);
+
+        // The progress placeholder shows until the store is open and the journeys are loaded.
+        StoreOpener.getInstance().whenOpen(mStoreOpenCallback);
+    }
 
-        final RealmResults<Journey> realmResults = mRealm.where(Journey.class)
-                .notEqualTo(Journey.FIELD_IS_DELETED, true).findAll();
-        mJourneyAdapter = new JourneyRecyclerViewAdapter(realmResults, this);
+    /**
+     * Opens the store on the main thread once the background open completed, and queries the
+     * journeys.
+     */
+    private void onStoreOpen() {
+        mRealm = Realm.getDefaultInstance();
+
+        // Newest journeys first. Both fields are indexed, and the query runs on a background
+        // thread so the screen renders before the results arrive.
+        mJourneys = mRealm.where(Journey.class)
+                .equalTo(Journey.FIELD_IS_DELETED, false)
+                .findAllSortedAsync(Journey.FIELD_START_TIME, Sort.DESCENDING);
+        mJourneys.addChangeListener(mJourneysListener);
+        mJourneyAdapter = new JourneyRecyclerViewAdapter(mJourneys, this);
         mRecyclerView.setAdapter(mJourneyAdapter);
+        updatePlaceholder();
 
         // Attach touch helper/callback to recycler view.
         final TouchHelperCallback touchHelperCallback = new TouchHelperCallback(mRealm);
@@ -78,6 +148,23 @@ public class JourneysActivity extends AppCompatActivity
         touchHelper.attachToRecyclerView(mRecyclerView);
     }
 
+    @Override
+    protected void onStart() {
+        super.onStart();
+        final BackgroundMigrator migrator = BackgroundMigrator.getInstance(this);
+        migrator.addProgressListener(mMigrationListener);
+        if (migrator.isComplete()) {
+            // The completion may have been reported while stopped.
+            mMigrationListener.onMigrationComplete();
+        }
+    }
+
+    @Override
+    protected void onStop() {
+        super.onStop();
+        BackgroundMigrator.getInstance(this).removeProgressListener(mMigrationListener);
+    }
+
     @Override
     public boolean onOptionsItemSelected(MenuItem item) {
         if (item.getItemId() == android.R.id.home) {
@@ -90,10 +177,24 @@ public class JourneysActivity extends AppCompatActivity
     @Override
     protected void onDestroy() {
         super.onDestroy();
+        StoreOpener.getInstance().cancel(mStoreOpenCallback);
+        if (mRealm == null) {
+            return;
+        }
+        mJourneys.removeChangeListener(mJourneysListener);
         mRecyclerView.setAdapter(null);
         mRealm.close();
     }
 
+    /**
+     * Shows the progress placeholder while the journeys load, then the list or the empty state.
+     */
+    private void updatePlaceholder() {
+        final boolean loaded = mJourneys.isLoaded();
+        mProgressView.setVisibility(loaded ? View.GONE : View.VISIBLE);
+        mEmptyView.setVisibility(loaded && mJourneys.isEmpty() ? View.VISIBLE : View.GONE);
+    }
+
     @Override
     public void journeyClicked(Journey journey) {
         Intent intent = new Intent(this, MapsActivity.class);
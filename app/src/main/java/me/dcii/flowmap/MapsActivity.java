@@ -38,9 +38,8 @@ import android.graphics.PorterDuff;
 import android.location.Location;
 import android.net.Uri;
 import android.os.Bundle;
-import android.os.Handler;
 import android.os.IBinder;
-import android.os.ResultReceiver;
+import android.os.Process;
 import android.provider.Settings;
 import android.support.annotation.NonNull;
 import android.support.annotation.StringRes;
@@ -52,6 +51,8 @@ import android.support.v4.content.ContextCompat;
 import android.support.v7.app.AlertDialog;
 import android.support.v7.app.AppCompatActivity;
 import android.support.v7.widget.Toolbar;
+import android.util.DisplayMetrics;
+import android.util.Log;
 import android.view.Menu;
 import android.view.MenuInflater;
 import android.view.MenuItem;
@@ -63,30 +64,40 @@ import com.google.android.gms.maps.GoogleMap;
 import com.google.android.gms.maps.LocationSource;
 import com.google.android.gms.maps.OnMapReadyCallback;
 import com.google.android.gms.maps.SupportMapFragment;
-import com.google.android.gms.maps.model.BitmapDescriptorFactory;
 import com.google.android.gms.maps.model.CameraPosition;
 import com.google.android.gms.maps.model.LatLng;
-import com.google.android.gms.maps.model.Marker;
-import com.google.android.gms.maps.model.MarkerOptions;
-import com.google.android.gms.maps.model.PolylineOptions;
+import com.google.android.gms.maps.model.LatLngBounds;
+import com.google.android.gms.maps.model.TileOverlay;
+import com.google.android.gms.maps.model.TileOverlayOptions;
+import com.google.android.gms.maps.model.TileProvider;
+
+import java.io.File;
+import java.io.IOException;
 
 import io.realm.Realm;
-import io.realm.RealmList;
+import me.dcii.flowmap.map.HeatmapTileProvider;
+import me.dcii.flowmap.map.HistoryTileProvider;
+import me.dcii.flowmap.map.JourneyTileProvider;
+import me.dcii.flowmap.map.RouteGeometry;
+import me.dcii.flowmap.map.RouteGeometryLoader;
+import me.dcii.flowmap.map.RouteOverlay;
+import me.dcii.flowmap.metrics.IngestMetrics;
 import me.dcii.flowmap.model.Journey;
-import me.dcii.flowmap.service.FetchAddressIntentService;
+import me.dcii.flowmap.model.StoreOpener;
+import me.dcii.flowmap.model.TransportType;
 import me.dcii.flowmap.service.FlowLocationService;
-import me.dcii.flowmap.util.Constants;
 
 /**
  * Presents the map to the user. Implements {@link OnMapReadyCallback} interface for when
  * the map is ready to be used; {@link LocationSource} interface to provide location updates using
- * the {@link GoogleMap#setMyLocationEnabled(boolean)} option; and
+ * the {@link GoogleMap#setMyLocationEnabled(boolean)} option;
+ * {@link GoogleMap.OnCameraIdleListener} to match the route detail to the zoom level; and
  * {@link android.view.View.OnClickListener} to handle the {@link FloatingActionButton} clicks.
  *
  * @author Dogak Cinfwat.
  */
 public class MapsActivity extends AppCompatActivity implements OnMapReadyCallback,
-        LocationSource, View.OnClickListener {
+        LocationSource, GoogleMap.OnCameraIdleListener, View.OnClickListener {
 
     /**
      * Application location service.
@@ -94,6 +105,11 @@ public class MapsActivity extends AppCompatActivity implements OnMapReadyCallbac
     FlowLocationService mFlowLocationService;
     boolean mBound = false;
 
+    /**
+     * Binder of the bound {@link FlowLocationService}, used to (un)register location listeners.
+     */
+    private FlowLocationService.FlowLocationServiceBinder mFlowLocationBinder;
+
     /**
      * Class name tag for debugging.
      */
@@ -118,6 +134,19 @@ public class MapsActivity extends AppCompatActivity implements OnMapReadyCallbac
     private static final String KEY_END_MARKER_POSITION = "end-marker-position";
     private static final String KEY_JOURNEY_ID = "journey-id";
     private static final String KEY_JOURNEY_DETAIL_VIEW = "journey-detail-view";
+    private static final String KEY_HEATMAP = "heatmap";
+    private static final String KEY_HISTORY = "history";
+
+    /**
+     * Zoom level the route of a viewed journey is first simplified for, as the camera is only
+     * framed on the journey once the map is ready.
+     */
+    private static final int DETAIL_ZOOM_HINT = 14;
+
+    /**
+     * Provider name of the locations rebuilt from {@link FlowLocationService} updates.
+     */
+    private static final String LOCATION_PROVIDER = "fused";
 
     /**
      * Represents the Google map object.
@@ -130,20 +159,55 @@ public class MapsActivity extends AppCompatActivity implements OnMapReadyCallbac
     private FloatingActionButton mFab;
 
     /**
-     * Map marker for journey starting location.
+     * Draws the journey route and its start and end markers.
      */
-    private Marker mStartMarker = null;
+    private RouteOverlay mRouteOverlay;
 
     /**
-     * Map marker {@link LatLng} position. Used to rebuild start marker on configuration change when
-     * {@link GoogleMap} is used for journey detail viewing.
+     * Reads the route of a viewed journey off the main thread.
      */
-    private LatLng mStartMarkerPosition = null;
+    private RouteGeometryLoader mRouteGeometryLoader;
+
+    /**
+     * Route of the viewed journey, null until loaded.
+     */
+    private RouteGeometry mRouteGeometry;
+
+    /**
+     * Renders the heatmap of every journey, created when the heatmap is first shown.
+     */
+    private HeatmapTileProvider mHeatmapProvider;
+
+    /**
+     * Heatmap tiles on the map, null when the heatmap is hidden.
+     */
+    private TileOverlay mHeatmapOverlay;
+
+    /**
+     * Flag used to show the heatmap of every journey.
+     */
+    private boolean mIsHeatmapShown;
 
     /**
-     * Map marker for journey end location.
+     * Draws the route of every journey, created when the history is first shown.
      */
-    private Marker mEndMarker = null;
+    private HistoryTileProvider mHistoryProvider;
+
+    /**
+     * History tiles on the map, null when the history is hidden.
+     */
+    private TileOverlay mHistoryOverlay;
+
+    /**
+     * Flag used to show the route of every journey.
+     */
+    private boolean mIsHistoryShown;
+
+    /**
+     * Map marker {@link LatLng} position. Used to rebuild start marker on configuration change when
+     * {@link GoogleMap} is used for journey detail viewing.
+     */
+    private LatLng mStartMarkerPosition = null;
 
     /**
      * Map marker {@link LatLng} position. Used to rebuild end marker on configuration change when
@@ -162,9 +226,9 @@ public class MapsActivity extends AppCompatActivity implements OnMapReadyCallbac
     private Location mCurrentLocation;
 
     /**
-     * Represents the user {@link Journey}.
+     * Bounds of the viewed {@link Journey}, read from its summary.
      */
-    private Journey mJourney;
+    private LatLngBounds mJourneyBounds;
 
     /**
      * Represents the {@link Journey} primary identifier.
@@ -172,9 +236,48 @@ public class MapsActivity extends AppCompatActivity implements OnMapReadyCallbac
     private String mJourneyId;
 
     /**
-     * Represents the {@link Realm} instance.
+     * Shown until the store is open.
      */
-    Realm mRealm;
+    private View mStoreProgressView;
+
+    /**
+     * Flag used to show that the store was opened by the background open. No store instance is
+     * kept open by this activity, so an idle compaction isn't held up while it is in the back
+     * stack.
+     */
+    private boolean mIsStoreOpen;
+
+    /**
+     * Flag used to show that the activity is started, between {@link #onStart()} and
+     * {@link #onStop()}.
+     */
+    private boolean mIsStarted;
+
+    /**
+     * Reads from the store on the main thread once the background open completed; opening it
+     * earlier would wait for the store lock held while it is migrated or compacted.
+     */
+    private final Runnable mStoreOpenCallback = new Runnable() {
+        @Override
+        public void run() {
+            if (isDestroyed()) {
+                return;
+            }
+            mIsStoreOpen = true;
+            mStoreProgressView.setVisibility(View.GONE);
+
+            handleIntent();
+            if (mMap != null && mIsJourneyDetails) {
+                // The map got ready first, frame the journey now.
+                focusBoundsAnimate(mJourneyBounds);
+            }
+
+            // The service opens the store on the main thread too.
+            if (mIsStarted) {
+                startFlowLocationService();
+            }
+        }
+    };
 
     /**
      * flag used to show that map is used to show journey details from the journey's recycler view.
@@ -182,9 +285,47 @@ public class MapsActivity extends AppCompatActivity implements OnMapReadyCallbac
     private boolean mIsJourneyDetails;
 
     /**
-     * Receives the {@link FetchAddressIntentService} results.
+     * Receives location updates from the {@link FlowLocationService}.
      */
-    private LocationResultReceiver mResultReceiver;
+    private final FlowLocationService.LocationListener mLocationListener =
+            new FlowLocationService.LocationListener() {
+                @Override
+                public void onLocationUpdate(double latitude, double longitude, float accuracy,
+                                             float bearing, float speed, long time) {
+                    // Reuse the current location rather than allocating one per update.
+                    if (mCurrentLocation == null) {
+                        mCurrentLocation = new Location(LOCATION_PROVIDER);
+                    }
+                    mCurrentLocation.setLatitude(latitude);
+                    mCurrentLocation.setLongitude(longitude);
+                    mCurrentLocation.setAccuracy(accuracy);
+                    mCurrentLocation.setBearing(bearing);
+                    mCurrentLocation.setSpeed(speed);
+                    mCurrentLocation.setTime(time);
+
+                    updateLocation();
+                    if (mLocationChangeListener != null) {
+                        mLocationChangeListener.onLocationChanged(mCurrentLocation);
+                    }
+                }
+
+                @Override
+                public void onLocationAccepted(String journeyId, double latitude,
+                                               double longitude, long time) {
+                    // End the route at the fix before it is stored, so it keeps up with the dot.
+                    if (mRouteOverlay != null) {
+                        mRouteOverlay.setLatestFix(journeyId, latitude, longitude, time);
+                    }
+                }
+
+                @Override
+                public void onLocationCommitted(String journeyId, double latitude,
+                                                double longitude, long time) {
+                    if (mRouteOverlay != null) {
+                        mRouteOverlay.addPending(journeyId, latitude, longitude, time);
+                    }
+                }
+            };
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -201,19 +342,18 @@ public class MapsActivity extends AppCompatActivity implements OnMapReadyCallbac
         mFab = findViewById(R.id.fab);
         mFab.setOnClickListener(this);
 
-        mJourney = null;
+        mJourneyBounds = null;
         mJourneyId = null;
         mIsJourneyDetails = false;
 
-        // Initialise the location result receiver.
-        mResultReceiver = new LocationResultReceiver(new Handler());
-
-        mRealm = Realm.getDefaultInstance();  // opens the default realm.
+        mStoreProgressView = findViewById(R.id.store_progress);
+        mRouteGeometryLoader = new RouteGeometryLoader();
 
         // Updates values from previous instance of the activity.
         updateValuesFromBundle(savedInstanceState);
 
-        handleIntent();
+        // The intent journey is restored once the store is open.
+        StoreOpener.getInstance().whenOpen(mStoreOpenCallback);
     }
 
     private void handleIntent() {
@@ -230,6 +370,17 @@ public class MapsActivity extends AppCompatActivity implements OnMapReadyCallbac
         // inflate maps menu.
         inflater.inflate(R.menu.maps_menu, menu);
 
+        // Ingest metrics are only dumped from debug builds.
+        menu.findItem(R.id.dump_metrics).setVisible(BuildConfig.DEBUG);
+        menu.findItem(R.id.heatmap).setChecked(mIsHeatmapShown);
+        menu.findItem(R.id.history).setChecked(mIsHistoryShown);
+
+        // The transport type is kept by the service, chosen once it is bound.
+        menu.findItem(R.id.transport_type).setEnabled(mFlowLocationService != null);
+        if (mFlowLocationService != null) {
+            menu.findItem(getTransportTypeItemId(mFlowLocationService.getTransportType()))
+                    .setChecked(true);
+        }
         return true;
     }
 
@@ -239,10 +390,87 @@ public class MapsActivity extends AppCompatActivity implements OnMapReadyCallbac
             final Intent journeysActivity = new Intent(this, JourneysActivity.class);
             startActivity(journeysActivity);
             return true;
+        } else if (item.getItemId() == R.id.dump_metrics) {
+            dumpIngestMetrics();
+            return true;
+        } else if (item.getItemId() == R.id.heatmap) {
+            mIsHeatmapShown = !item.isChecked();
+            item.setChecked(mIsHeatmapShown);
+            updateTileLayers();
+            return true;
+        } else if (getTransportType(item.getItemId()) != null) {
+            if (mFlowLocationService != null) {
+                mFlowLocationService.setTransportType(getTransportType(item.getItemId()));
+                item.setChecked(true);
+            }
+            return true;
+        } else if (item.getItemId() == R.id.history) {
+            mIsHistoryShown = !item.isChecked();
+            item.setChecked(mIsHistoryShown);
+            updateTileLayers();
+            return true;
         }
         return super.onOptionsItemSelected(item);
     }
 
+    /**
+     * Returns the transport type of a transport type menu item.
+     *
+     * @param itemId the menu item id.
+     * @return the transport type, or null if the item is not a transport type item.
+     */
+    private static TransportType getTransportType(int itemId) {
+        switch (itemId) {
+            case R.id.transport_walking:
+                return TransportType.WALKING;
+            case R.id.transport_running:
+                return TransportType.RUNNING;
+            case R.id.transport_cycling:
+                return TransportType.CYCLING;
+            case R.id.transport_driving:
+                return TransportType.DRIVING;
+            case R.id.transport_others:
+                return TransportType.OTHERS;
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Returns the menu item id of a transport type.
+     *
+     * @param transportType the transport type.
+     * @return the menu item id.
+     */
+    private static int getTransportTypeItemId(TransportType transportType) {
+        switch (transportType) {
+            case WALKING:
+                return R.id.transport_walking;
+            case RUNNING:
+                return R.id.transport_running;
+            case CYCLING:
+                return R.id.transport_cycling;
+            case DRIVING:
+                return R.id.transport_driving;
+            default:
+                return R.id.transport_others;
+        }
+    }
+
+    /**
+     * Writes the location ingest metrics to a file and logs them.
+     */
+    private void dumpIngestMetrics() {
+        Log.i(TAG, IngestMetrics.dumpToString());
+        try {
+            final File file = IngestMetrics.dumpToFile(this);
+            Toast.makeText(this, getString(R.string.metrics_dumped, file.getAbsolutePath()),
+                    Toast.LENGTH_LONG).show();
+        } catch (IOException e) {
+            Toast.makeText(this, R.string.error_metrics_dump, Toast.LENGTH_SHORT).show();
+        }
+    }
+
     /**
      * Sets the tint color of the {@link FloatingActionButton} to white.
      *
@@ -262,9 +490,26 @@ public class MapsActivity extends AppCompatActivity implements OnMapReadyCallbac
         mMap = googleMap;
         mMap.getUiSettings().setMyLocationButtonEnabled(false);
         mMap.setLocationSource(this);
+        mRouteOverlay = new RouteOverlay(mMap, Color.BLUE,
+                getResources().getDimension(R.dimen.route_width),
+                getString(R.string.start_location), getString(R.string.end_location),
+                mRouteGeometryLoader);
+        mRouteOverlay.setZoom(mMap.getCameraPosition().zoom);
+        mMap.setOnCameraIdleListener(this);
+        if (mIsJourneyDetails) {
+            // Frame the journey from its summary while the route is still loading.
+            focusBoundsAnimate(mJourneyBounds);
+        }
+        updateTileLayers();
         updateUI();
     }
 
+    @Override
+    public void onCameraIdle() {
+        // Swap the route to the level of detail of the new zoom.
+        mRouteOverlay.setZoom(mMap.getCameraPosition().zoom);
+    }
+
     /**
      * Sets {@link GoogleMap#setMyLocationEnabled(boolean)}.
      */
@@ -311,21 +556,38 @@ public class MapsActivity extends AppCompatActivity implements OnMapReadyCallbac
             if (savedInstanceState.keySet().contains(KEY_JOURNEY_DETAIL_VIEW)) {
                 mIsJourneyDetails = savedInstanceState.getBoolean(KEY_JOURNEY_DETAIL_VIEW);
             }
+
+            // Update the value of mIsHeatmapShown from the Bundle.
+            if (savedInstanceState.keySet().contains(KEY_HEATMAP)) {
+                mIsHeatmapShown = savedInstanceState.getBoolean(KEY_HEATMAP);
+            }
+
+            // Update the value of mIsHistoryShown from the Bundle.
+            if (savedInstanceState.keySet().contains(KEY_HISTORY)) {
+                mIsHistoryShown = savedInstanceState.getBoolean(KEY_HISTORY);
+            }
         }
     }
 
     @Override
     protected void onStart() {
         super.onStart();
+        mIsStarted = true;
         if (!checkLocationPermission()) {
             requestLocationPermission();
         }
 
-        // Bind to FlowLocationService
-        Intent intent = new Intent(this, FlowLocationService.class);
+        // Otherwise the service is started once the store is open.
+        if (mIsStoreOpen) {
+            startFlowLocationService();
+        }
+    }
 
-        // Pass the result receiver as an extra to the service.
-        intent.putExtra(Constants.LOCATION_RECEIVER, mResultReceiver);
+    /**
+     * Starts and binds to the {@link FlowLocationService}.
+     */
+    private void startFlowLocationService() {
+        Intent intent = new Intent(this, FlowLocationService.class);
         startService(intent);
         bindService(intent, mConnection, Context.BIND_AUTO_CREATE);
     }
@@ -366,8 +628,13 @@ public class MapsActivity extends AppCompatActivity implements OnMapReadyCallbac
     @Override
     protected void onStop() {
         super.onStop();
+        mIsStarted = false;
         // Unbind from the FlowLocation service
         if (mBound) {
+            mFlowLocationBinder.unregisterLocationListener(mLocationListener);
+            mFlowLocationBinder = null;
+            // The service may stop once unbound, see FlowLocationService#stopIfIdle.
+            mFlowLocationService = null;
             unbindService(mConnection);
             mBound = false;
         }
@@ -384,6 +651,88 @@ public class MapsActivity extends AppCompatActivity implements OnMapReadyCallbac
         mFlowLocationService.stopLocationUpdates();
         notifyRequestingUpdates(R.string.requesting_location_updates_stop);
         updateUI();
+
+        // The journey just recorded lands in the journey layers.
+        refreshTileLayers();
+    }
+
+    /**
+     * Adds or removes the heatmap and history tiles, following {@link #mIsHeatmapShown} and
+     * {@link #mIsHistoryShown}.
+     */
+    private void updateTileLayers() {
+        // Stop execution if mMap is null.
+        if (mMap == null) return;
+
+        boolean added = false;
+        if (mIsHeatmapShown && mHeatmapOverlay == null) {
+            if (mHeatmapProvider == null) {
+                mHeatmapProvider = new HeatmapTileProvider(getApplicationContext());
+            }
+            mHeatmapOverlay = addTileLayer(mHeatmapProvider);
+            added = true;
+        } else if (!mIsHeatmapShown && mHeatmapOverlay != null) {
+            mHeatmapOverlay.remove();
+            mHeatmapOverlay = null;
+        }
+
+        if (mIsHistoryShown && mHistoryOverlay == null) {
+            if (mHistoryProvider == null) {
+                mHistoryProvider = new HistoryTileProvider(getApplicationContext(),
+                        ContextCompat.getColor(this, R.color.history_route),
+                        getResources().getDimension(R.dimen.history_route_width));
+            }
+            mHistoryOverlay = addTileLayer(mHistoryProvider);
+            added = true;
+        } else if (!mIsHistoryShown && mHistoryOverlay != null) {
+            mHistoryOverlay.remove();
+            mHistoryOverlay = null;
+        }
+
+        if (added) {
+            refreshTileLayers();
+        }
+    }
+
+    private TileOverlay addTileLayer(TileProvider provider) {
+        return mMap.addTileOverlay(new TileOverlayOptions()
+                .tileProvider(provider)
+                .fadeIn(false));
+    }
+
+    /**
+     * Drops the cached tiles of the shown layers the journeys recorded since the last refresh
+     * land in. The store and tile caches are read on a background thread.
+     */
+    private void refreshTileLayers() {
+        final JourneyTileProvider heatmap = mHeatmapOverlay != null ? mHeatmapProvider : null;
+        final JourneyTileProvider history = mHistoryOverlay != null ? mHistoryProvider : null;
+        if (heatmap == null && history == null) {
+            return;
+        }
+
+        new Thread(new Runnable() {
+            @Override
+            public void run() {
+                Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                final boolean heatmapChanged = heatmap != null && heatmap.invalidateNewJourneys();
+                final boolean historyChanged = history != null && history.invalidateNewJourneys();
+                if (heatmapChanged || historyChanged) {
+                    runOnUiThread(new Runnable() {
+                        @Override
+                        public void run() {
+                            // The map keeps its own copy of the tiles.
+                            if (heatmapChanged && mHeatmapOverlay != null) {
+                                mHeatmapOverlay.clearTileCache();
+                            }
+                            if (historyChanged && mHistoryOverlay != null) {
+                                mHistoryOverlay.clearTileCache();
+                            }
+                        }
+                    });
+                }
+            }
+        }, "TileLayerRefresh").start();
     }
 
     /**
@@ -421,6 +770,8 @@ public class MapsActivity extends AppCompatActivity implements OnMapReadyCallbac
         outState.putParcelable(KEY_END_MARKER_POSITION, mEndMarkerPosition);
         outState.putString(KEY_JOURNEY_ID, mJourneyId);
         outState.putBoolean(KEY_JOURNEY_DETAIL_VIEW, mIsJourneyDetails);
+        outState.putBoolean(KEY_HEATMAP, mIsHeatmapShown);
+        outState.putBoolean(KEY_HISTORY, mIsHistoryShown);
         super.onSaveInstanceState(outState);
     }
 
@@ -428,8 +779,9 @@ public class MapsActivity extends AppCompatActivity implements OnMapReadyCallbac
     protected void onDestroy() {
         super.onDestroy();
 
-        // Close Realm distance.
-        mRealm.close();
+        mRouteGeometryLoader.quit();
+        StoreOpener.getInstance().cancel(mStoreOpenCallback);
+
     }
 
     @Override
@@ -479,82 +831,75 @@ public class MapsActivity extends AppCompatActivity implements OnMapReadyCallbac
         mMap.animateCamera(CameraUpdateFactory.newCameraPosition(cameraPosition));
     }
 
+    /**
+     * Moves the camera with some animation to show the provided bounds.
+     *
+     * @param bounds the bounds to show.
+     */
+    private void focusBoundsAnimate(LatLngBounds bounds) {
+        // Stop execution if mMap or bounds is null.
+        if (mMap == null || bounds == null) return;
+
+        // The map may not be laid out yet, so use the display size as the map size.
+        final DisplayMetrics metrics = getResources().getDisplayMetrics();
+        final int padding = getResources().getDimensionPixelSize(R.dimen.route_bounds_padding);
+        mMap.animateCamera(CameraUpdateFactory.newLatLngBounds(bounds, metrics.widthPixels,
+                metrics.heightPixels, padding));
+    }
+
     /**
      * Updates user location with provided location information.
      */
     private void updateLocation() {
         setMyLocationEnabled();
+
+        final long start = IngestMetrics.now();
         drawRoute();
+        IngestMetrics.RENDER_DURATION.record(IngestMetrics.now() - start);
     }
 
     /**
-     * Restores the {@link Journey} instance using the provided {@link Journey#id} identifier. Also,
-     * it restores the marker positions from the journey instance. This is used when view store
+     * Restores the {@link Journey} bounds and marker positions using the provided
+     * {@link Journey#id} identifier, and starts loading the route. This is used when view store
      * journeys.
      *
-     * @param id {@link Journey#id} identifier used to restore the {@link Journey} instance.
+     * @param id {@link Journey#id} identifier used to restore the {@link Journey}.
      */
     private void restoreJourneyFromId(String id) {
         if (id == null) {
             return;
         }
 
-        mJourney = mRealm.where(Journey.class).equalTo(Journey.FIELD_ID, id).findFirst();
-        // Check to make sure the mJourney exist.
-        if (mJourney == null) {
-            return;
+        // Only the summary is read, so the instance is closed right away.
+        final Realm realm = Realm.getDefaultInstance();
+        try {
+            final Journey journey = realm.where(Journey.class)
+                    .equalTo(Journey.FIELD_ID, id).findFirst();
+            // Check to make sure the journey exist.
+            if (journey == null) {
+                return;
+            }
+            mJourneyBounds = journey.getBounds();
+            mStartMarkerPosition = journey.getStartLatLng();
+            mEndMarkerPosition = journey.getEndLatLng();
+        } finally {
+            realm.close();
         }
 
         mJourneyId = id;
-        mStartMarkerPosition = new LatLng(mJourney.getStartLocation().getLatitude(),
-                mJourney.getStartLocation().getLongitude());
-        mEndMarkerPosition = new LatLng(mJourney.getEndLocation().getLatitude(),
-                    mJourney.getEndLocation().getLongitude());
 
         // mMap is used to show journey details.
         mIsJourneyDetails = true;
-    }
 
-    /**
-     * Adds the start location marker to the map.
-     *
-     * @param latLng the start location {@link LatLng}.
-     */
-    private void addLocationStartMarker(LatLng latLng) {
-        // Stop execution if mMap or latLng is null.
-        if (mMap == null || latLng == null) return;
-
-        final MarkerOptions markerOptions = new MarkerOptions();
-        markerOptions.position(latLng);
-        markerOptions.title(getString(R.string.start_location));
-
-        // Set marker position. Used to reposition the marker on configuration change.
-        mStartMarkerPosition = latLng;
-
-        // Set marker end location color to red.
-        markerOptions.icon(BitmapDescriptorFactory.defaultMarker(BitmapDescriptorFactory.HUE_GREEN));
-        mStartMarker = mMap.addMarker(markerOptions);
-    }
-
-    /**
-     * Adds the end location marker to the map and removes the current user location marker.
-     *
-     * @param latLng the end location {@link LatLng}.
-     */
-    private void addLocationEndMarker(LatLng latLng) {
-        // Stop execution if mMap or lat is null.
-        if (mMap == null || latLng == null) return;
-
-        final MarkerOptions markerOptions = new MarkerOptions();
-        markerOptions.position(latLng);
-        markerOptions.title(getString(R.string.end_location));
-
-        // Set marker position. Used to reposition the marker on configuration change.
-        mEndMarkerPosition = latLng;
-
-        // Set marker end location color to red.
-        markerOptions.icon(BitmapDescriptorFactory.defaultMarker(BitmapDescriptorFactory.HUE_RED));
-        mEndMarker = mMap.addMarker(markerOptions);
+        // Decoding and simplifying a long route would stall the first frames.
+        mRouteGeometry = null;
+        mRouteGeometryLoader.load(id, DETAIL_ZOOM_HINT, new RouteGeometryLoader.Callback() {
+            @Override
+            public void onRouteGeometryLoaded(RouteGeometry geometry) {
+                mRouteGeometry = geometry;
+                drawRoute();
+            }
+        });
     }
 
     /**
@@ -564,20 +909,19 @@ public class MapsActivity extends AppCompatActivity implements OnMapReadyCallbac
         // Stop execution if mMap is mull.
         if (mMap == null) return;
 
+        mRouteGeometryLoader.cancel();
+        mRouteGeometry = null;
+        mRouteOverlay.clear();
         mMap.clear();
-        if (mStartMarker != null) {
-            mStartMarker.remove();
-            mStartMarker = null;
-            mStartMarkerPosition = null;
-        }
-        if (mEndMarker != null) {
-            mEndMarker.remove();
-            mEndMarker = null;
-            mEndMarkerPosition = null;
-        }
+        // Cleared with the rest of the map.
+        mHeatmapOverlay = null;
+        mHistoryOverlay = null;
+        updateTileLayers();
+        mStartMarkerPosition = null;
+        mEndMarkerPosition = null;
         // Prepare for new Journey. set journey and journeyId to null. These are only used for
         // viewing saved journeys.
-        mJourney = null;
+        mJourneyBounds = null;
         mJourneyId = null;
         mIsJourneyDetails = false;
     }
@@ -620,70 +964,49 @@ public class MapsActivity extends AppCompatActivity implements OnMapReadyCallbac
     }
 
     /**
-     * Draws the user's route on the map using the locations stored in Realm store.
+     * Draws the user's route on the map using the locations stored in Realm store. Only the
+     * positions stored since the last call are added to the map.
      */
     private void drawRoute() {
-        RealmList<me.dcii.flowmap.model.Location> journeyLocations = null;
+        if (mRouteOverlay == null) {
+            return;
+        }
+
+        Journey journey = null;
         boolean showEndMaker = false;
         if (mFlowLocationService != null && mFlowLocationService.getJourney() != null) {
-            // Get active journey locations.
-            journeyLocations = mFlowLocationService.getJourney().getLocations();
+            // Get active journey.
+            journey = mFlowLocationService.getJourney();
 
             // Show end marker when user just stopped tracking.
             showEndMaker = !mFlowLocationService.isRequestingLocationUpdates();
-        } else if (mIsJourneyDetails && mJourney != null) {
-            // Get old (currently viewed) journey's locations.
-            journeyLocations = mJourney.getLocations();
-
-            // Show end marker since mMap is used to view old journey.
-            showEndMaker = true;
+        } else if (mIsJourneyDetails) {
+            // The viewed journey is drawn from the route loaded off the main thread, the camera
+            // was framed on its bounds when the map got ready.
+            if (mRouteGeometry != null && mRouteOverlay.isEmpty()) {
+                mRouteOverlay.setGeometry(mRouteGeometry, true);
+                mStartMarkerPosition = mRouteGeometry.getStart();
+                mEndMarkerPosition = mRouteGeometry.getEnd();
+            }
+            return;
         }
 
         // Check to make sure journey locations are provided.
-        if (journeyLocations == null) {
+        if (journey == null || journey.getPointCount() == 0) {
             return;
         }
 
-        // Add location markers.
-        final int firstIndex = 0;
-        final LatLng firstMarkerLatLng = new LatLng(journeyLocations.get(firstIndex).getLatitude(),
-                journeyLocations.get(firstIndex).getLongitude());
-        if (mStartMarker == null) {
+        // Focus the camera when the journey is first drawn. Marker positions come from the
+        // journey summary.
+        final LatLng firstMarkerLatLng = journey.getStartLatLng();
+        if (mRouteOverlay.isEmpty()) {
             focusLocationAnimate(firstMarkerLatLng);
         }
-        addLocationStartMarker(firstMarkerLatLng);
 
-        // Check if to show the end marker.
         // Show endMarker when mMap is used to view journey or when the user just stopped tracking.
-        if (showEndMaker) {
-            final int lastIndex = journeyLocations.size() - 1;
-            // Not requesting location updates and journey is not null hence, show the endMarker.
-            addLocationEndMarker(new LatLng(journeyLocations.get(lastIndex).getLatitude(),
-                    journeyLocations.get(lastIndex).getLongitude()));
-        }
-
-        // Draw polylines.
-        drawRoute(journeyLocations);
-    }
-
-    /**
-     * Does the actual drawing of polylines on the map.
-     *
-     * @param journeyLocations {@link me.dcii.flowmap.model.Location} to draw on the map.
-     */
-    private void drawRoute(RealmList<me.dcii.flowmap.model.Location> journeyLocations) {
-        if (mMap == null || journeyLocations.size() == 0) {
-            return;
-        }
-
-        final PolylineOptions options = new PolylineOptions().width(5).color(Color.BLUE).geodesic(true);
-        for (int index = 0; index < journeyLocations.size(); index++) {
-
-            final me.dcii.flowmap.model.Location location = journeyLocations.get(index);
-            final LatLng point = new LatLng(location.getLatitude(), location.getLongitude());
-            options.add(point);
-        }
-        mMap.addPolyline(options);
+        mRouteOverlay.update(journey, showEndMaker);
+        mStartMarkerPosition = firstMarkerLatLng;
+        mEndMarkerPosition = showEndMaker ? journey.getEndLatLng() : null;
     }
 
     /**
@@ -753,31 +1076,6 @@ public class MapsActivity extends AppCompatActivity implements OnMapReadyCallbac
         mLocationChangeListener = null;
     }
 
-    /**
-     * Receives the location results from the {@link FlowLocationService}.
-     */
-    public class LocationResultReceiver extends ResultReceiver {
-        LocationResultReceiver(Handler handler) {
-            super(handler);
-        }
-
-        @Override
-        protected void onReceiveResult(int resultCode, Bundle resultData) {
-
-            // Location message received.
-            if (resultCode == Constants.SUCCESS_RESULT) {
-                mCurrentLocation = resultData.getParcelable(Constants.LOCATION_DATA_EXTRA);
-
-                if (mCurrentLocation != null) {
-                    updateLocation();
-                }
-                if (mLocationChangeListener != null) {
-                    mLocationChangeListener.onLocationChanged(mCurrentLocation);
-                }
-            }
-        }
-    }
-
     /**
      * Creates a dialog to explain to the user the rationale for requesting location.
      */
@@ -833,13 +1131,19 @@ public class MapsActivity extends AppCompatActivity implements OnMapReadyCallbac
             // We've bound to FlowLocationService, cast the IBinder and get FlowLocationService instance
             FlowLocationService.FlowLocationServiceBinder binder = (FlowLocationService.FlowLocationServiceBinder) service;
             mFlowLocationService = binder.getService();
+            mFlowLocationBinder = binder;
+            binder.registerLocationListener(mLocationListener);
             mBound = true;
             updateUI();
+
+            // Shows the transport type kept by the service.
+            invalidateOptionsMenu();
         }
 
         @Override
         public void onServiceDisconnected(ComponentName arg0) {
             mFlowLocationService = null;
+            mFlowLocationBinder = null;
             mBound = false;
         }
     };
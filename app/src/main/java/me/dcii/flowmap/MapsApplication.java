@@ -28,6 +28,13 @@ import android.app.Application;
 
 import io.realm.Realm;
 import io.realm.RealmConfiguration;
+import me.dcii.flowmap.model.BackgroundMigrator;
+import me.dcii.flowmap.model.FlowMigration;
+import me.dcii.flowmap.model.OrphanSweeper;
+import me.dcii.flowmap.model.StoreCompactor;
+import me.dcii.flowmap.model.StoreOpener;
+import me.dcii.flowmap.service.AddressBackfillJobService;
+import me.dcii.flowmap.service.StoreMaintenanceJobService;
 
 /**
  * Extends {@link Application}.
@@ -39,10 +46,31 @@ public class MapsApplication extends Application {
     public void onCreate() {
         super.onCreate();
         Realm.init(this);
+        final StoreCompactor compactor = StoreCompactor.createDefault(this);
         // Change default Realm file in Context.getFilesDir();
-        RealmConfiguration config = new RealmConfiguration.Builder()
+        final RealmConfiguration config = new RealmConfiguration.Builder()
                 .name("flow-maps.realm")
+                .schemaVersion(FlowMigration.SCHEMA_VERSION)
+                .migration(new FlowMigration())
+                .compactOnLaunch(compactor)
                 .build();
         Realm.setDefaultConfiguration(config);
+
+        // Open the store off the main thread, so migrating or compacting it on launch doesn't
+        // hold up the first activity. Activities open the store once this completes.
+        StoreOpener.getInstance().start(config, compactor);
+
+        // Rewrite rows left in an old form by the schema migration, off the main thread.
+        BackgroundMigrator.getInstance(this).start();
+
+        // Remove positions orphaned by hard deletions made before they cascaded.
+        new OrphanSweeper(this, OrphanSweeper.DEFAULT_CHUNK_SIZE, OrphanSweeper.DEFAULT_INTERVAL)
+                .start();
+
+        // Resolve addresses of journeys whose lookups failed while recording.
+        AddressBackfillJobService.schedule(this);
+
+        // Purge expired soft deleted journeys and compact the store when idle.
+        StoreMaintenanceJobService.schedule(this);
     }
 }
@@ -0,0 +1,342 @@
+/*
+  MIT License
+
+  Copyright (c) 2017 Cinfwat Dogak
+
+  Permission is hereby granted, free of charge, to any person obtaining a copy
+  of this software and associated documentation files (the "Software"), to deal
+  in the Software without restriction, including without limitation the rights
+  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+  copies of the Software, and to permit persons to whom the Software is
+  furnished to do so, subject to the following conditions:
+
+  The above copyright notice and this permission notice shall be included in all
+  copies or substantial portions of the Software.
+
+  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+  SOFTWARE.
+ */
+
+package me.dcii.flowmap.geocode;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Log;
+
+import com.google.android.gms.maps.model.LatLng;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import io.realm.Realm;
+import io.realm.RealmResults;
+import io.realm.Sort;
+import me.dcii.flowmap.model.Journey;
+import me.dcii.flowmap.util.RateLimiter;
+
+/**
+ * Resolves the missing start and end addresses of recorded journeys, newest journeys first.
+ * Lookups run on the {@link GeocodingEngine} at backfill priority, behind a {@link RateLimiter}
+ * and with a bounded number in flight, so live lookups are never queued behind a backlog.
+ * Resolved addresses are written back in grouped transactions.
+ *
+ * Progress is kept as a cursor, the start time of the oldest journey whose lookups are all
+ * written, so a run interrupted by cancellation or process death resumes where it stopped.
+ * Once all journeys are visited the next run starts from the newest journey again.
+ *
+ * @author Dogak Cinfwat.
+ */
+public class AddressBackfill {
+
+    private static final String TAG = AddressBackfill.class.getSimpleName();
+
+    /**
+     * Default maximum number of lookups submitted to the engine and not yet completed.
+     */
+    public static final int DEFAULT_MAX_IN_FLIGHT = 2;
+
+    /**
+     * Default number of lookups started per second.
+     */
+    public static final double DEFAULT_LOOKUPS_PER_SECOND = 1;
+
+    /**
+     * Default number of resolved addresses written per transaction.
+     */
+    public static final int DEFAULT_WRITE_BATCH_SIZE = 10;
+
+    /**
+     * Default maximum number of lookups made per run.
+     */
+    public static final int DEFAULT_MAX_LOOKUPS = 100;
+
+    /**
+     * Time (milliseconds) since its last point before a journey is backfilled. Keeps the
+     * journey being recorded, and its own lookups, out of the backfill.
+     */
+    public static final long QUIET_PERIOD = 30 * 60 * 1000;
+
+    private static final String PREFERENCES_NAME = "address_backfill";
+    private static final String KEY_CURSOR = "cursor";
+
+    private final GeocodingEngine mGeocodingEngine;
+    private final SharedPreferences mPreferences;
+    private final RateLimiter mRateLimiter;
+    private final int mMaxInFlight;
+    private final int mWriteBatchSize;
+    private final int mMaxLookups;
+
+    private volatile boolean mCancelled;
+
+    /**
+     * Constructor.
+     *
+     * @param context the context used to resolve addresses and keep the progress.
+     * @param maxInFlight maximum number of lookups submitted and not yet completed.
+     * @param lookupsPerSecond number of lookups started per second.
+     * @param writeBatchSize number of resolved addresses written per transaction.
+     * @param maxLookups maximum number of lookups made per run.
+     */
+    public AddressBackfill(Context context, int maxInFlight, double lookupsPerSecond,
+                           int writeBatchSize, int maxLookups) {
+        mGeocodingEngine = GeocodingEngine.getInstance(context);
+        mPreferences = context.getSharedPreferences(PREFERENCES_NAME, Context.MODE_PRIVATE);
+        mRateLimiter = new RateLimiter(lookupsPerSecond);
+        mMaxInFlight = maxInFlight;
+        mWriteBatchSize = writeBatchSize;
+        mMaxLookups = maxLookups;
+    }
+
+    /**
+     * Stops the run as soon as possible. Resolved addresses not yet written are dropped and
+     * looked up again by the next run.
+     */
+    public void cancel() {
+        mCancelled = true;
+    }
+
+    /**
+     * Runs the backfill on the calling thread, blocking until done or cancelled.
+     *
+     * @return true if every journey was visited, false if the run was cancelled or stopped at
+     * {@link #mMaxLookups} and more journeys are left.
+     */
+    public boolean run() {
+        final Realm realm = Realm.getDefaultInstance();
+        final BlockingQueue<Lookup> completions = new LinkedBlockingQueue<>();
+        final ArrayList<Lookup> lookups = new ArrayList<>();
+        int submitted = 0;
+        int completed = 0;
+        try {
+            final ArrayList<JourneyLookups> journeys = new ArrayList<>();
+            final boolean visitedAll = collectLookups(realm, lookups, journeys);
+
+            final ArrayList<Lookup> pending = new ArrayList<>(mWriteBatchSize);
+            int written = 0;  // journeys whose lookups are all written, in lookup order.
+            while (completed < lookups.size() && !mCancelled) {
+                while (submitted < lookups.size() && submitted - completed < mMaxInFlight
+                        && !mCancelled) {
+                    mRateLimiter.acquire();
+                    submit(lookups.get(submitted++), completions);
+                }
+                if (mCancelled) {
+                    break;
+                }
+
+                final Lookup lookup = completions.take();
+                completed++;
+                lookup.journey.remaining--;
+                pending.add(lookup);
+                if (pending.size() >= mWriteBatchSize) {
+                    written = write(realm, pending, journeys, written);
+                }
+            }
+            write(realm, pending, journeys, written);
+
+            if (mCancelled) {
+                return false;
+            }
+            if (visitedAll) {
+                // Start from the newest journey next time.
+                saveCursor(Long.MAX_VALUE);
+            }
+            return visitedAll;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            if (submitted > completed) {
+                for (int i = 0; i < submitted; i++) {
+                    mGeocodingEngine.cancel(lookups.get(i).key);
+                }
+            }
+            realm.close();
+        }
+    }
+
+    /**
+     * Collects the missing addresses of journeys older than the cursor, newest journey first.
+     *
+     * @param realm the realm instance.
+     * @param lookups receives the lookups.
+     * @param journeys receives the journeys the lookups are for, in lookup order.
+     * @return true if all journeys older than the cursor were collected.
+     */
+    private boolean collectLookups(Realm realm, List<Lookup> lookups,
+                                   List<JourneyLookups> journeys) {
+        final RealmResults<Journey> results = realm.where(Journey.class)
+                .equalTo(Journey.FIELD_IS_DELETED, false)
+                .greaterThan(Journey.FIELD_POINT_COUNT, 0)
+                .lessThan(Journey.FIELD_END_TIME, System.currentTimeMillis() - QUIET_PERIOD)
+                .lessThan(Journey.FIELD_START_TIME, loadCursor())
+                .beginGroup()
+                    .isNull(Journey.FIELD_START_ADDRESS)
+                    .or().equalTo(Journey.FIELD_START_ADDRESS, "")
+                    .or().isNull(Journey.FIELD_END_ADDRESS)
+                    .or().equalTo(Journey.FIELD_END_ADDRESS, "")
+                .endGroup()
+                .findAllSorted(Journey.FIELD_START_TIME, Sort.DESCENDING);
+
+        for (Journey journey : results) {
+            final int count = (journey.hasStartAddress() ? 0 : 1)
+                    + (journey.hasEndAddress() ? 0 : 1);
+            if (lookups.size() + count > mMaxLookups) {
+                return false;
+            }
+
+            final JourneyLookups journeyLookups = new JourneyLookups(journey.getStartTime(),
+                    count);
+            journeys.add(journeyLookups);
+            if (!journey.hasStartAddress()) {
+                lookups.add(new Lookup(journeyLookups, journey.getId(), true,
+                        journey.getStartLatLng()));
+            }
+            if (!journey.hasEndAddress()) {
+                lookups.add(new Lookup(journeyLookups, journey.getId(), false,
+                        journey.getEndLatLng()));
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Submits a lookup to the engine at backfill priority. The completed lookup is offered to
+     * the given queue; failed lookups keep a null address.
+     *
+     * @param lookup the lookup.
+     * @param completions receives the lookup once completed.
+     */
+    private void submit(final Lookup lookup, final BlockingQueue<Lookup> completions) {
+        mGeocodingEngine.submit(lookup.key, GeocodingEngine.PRIORITY_BACKFILL,
+                lookup.position.latitude, lookup.position.longitude, Locale.getDefault(),
+                new GeocodingEngine.Callback() {
+                    @Override
+                    public void onAddress(String key, String address) {
+                        lookup.address = address;
+                        completions.offer(lookup);
+                    }
+
+                    @Override
+                    public void onError(String key, int error) {
+                        Log.w(TAG, "Address lookup failed for journey " + lookup.journeyId
+                                + " with error " + error);
+                        completions.offer(lookup);
+                    }
+                });
+    }
+
+    /**
+     * Writes resolved addresses in a single transaction, then moves the cursor past the journeys
+     * whose lookups are all written. Addresses set since the lookups were collected are kept.
+     *
+     * @param realm the realm instance.
+     * @param lookups the completed lookups, cleared once written.
+     * @param journeys the journeys the lookups are for, in lookup order.
+     * @param written the number of leading journeys already written.
+     * @return the number of leading journeys written.
+     */
+    private int write(Realm realm, final List<Lookup> lookups, List<JourneyLookups> journeys,
+                      int written) {
+        if (lookups.isEmpty()) {
+            return written;
+        }
+        realm.executeTransaction(new Realm.Transaction() {
+            @Override
+            public void execute(Realm realm) {
+                for (Lookup lookup : lookups) {
+                    if (lookup.address == null) {
+                        continue;
+                    }
+                    final Journey journey = realm.where(Journey.class)
+                            .equalTo(Journey.FIELD_ID, lookup.journeyId).findFirst();
+                    if (journey == null) {
+                        continue;
+                    }
+                    if (lookup.isStart && !journey.hasStartAddress()) {
+                        journey.setStartAddress(lookup.address);
+                    } else if (!lookup.isStart && !journey.hasEndAddress()) {
+                        journey.setEndAddress(lookup.address);
+                    }
+                }
+            }
+        });
+        lookups.clear();
+
+        while (written < journeys.size() && journeys.get(written).remaining == 0) {
+            written++;
+        }
+        if (written > 0) {
+            saveCursor(journeys.get(written - 1).startTime);
+        }
+        return written;
+    }
+
+    private long loadCursor() {
+        return mPreferences.getLong(KEY_CURSOR, Long.MAX_VALUE);
+    }
+
+    private void saveCursor(long startTime) {
+        mPreferences.edit().putLong(KEY_CURSOR, startTime).apply();
+    }
+
+    /**
+     * Lookups of one journey.
+     */
+    private static class JourneyLookups {
+        final long startTime;
+        int remaining;
+
+        JourneyLookups(long startTime, int remaining) {
+            this.startTime = startTime;
+            this.remaining = remaining;
+        }
+    }
+
+    /**
+     * A start or end address lookup.
+     */
+    private static class Lookup {
+        final JourneyLookups journey;
+        final String journeyId;
+        final boolean isStart;
+        final LatLng position;
+        final String key;
+        volatile String address;
+
+        Lookup(JourneyLookups journey, String journeyId, boolean isStart, LatLng position) {
+            this.journey = journey;
+            this.journeyId = journeyId;
+            this.isStart = isStart;
+            this.position = position;
+            this.key = "backfill|" + journeyId + (isStart ? "|start" : "|end");
+        }
+    }
+}
@@ -0,0 +1,206 @@
+/*
+  MIT License
+
+  Copyright (c) 2017 Cinfwat Dogak
+
+  Permission is hereby granted, free of charge, to any person obtaining a copy
+  of this software and associated documentation files (the "Software"), to deal
+  in the Software without restriction, including without limitation the rights
+  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+  copies of the Software, and to permit persons to whom the Software is
+  furnished to do so, subject to the following conditions:
+
+  The above copyright notice and this permission notice shall be included in all
+  copies or substantial portions of the Software.
+
+  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+  SOFTWARE.
+ */
+
+package me.dcii.flowmap.geocode;
+
+import android.util.LruCache;
+
+import java.util.Locale;
+
+import io.realm.Realm;
+import io.realm.RealmResults;
+import me.dcii.flowmap.model.CachedAddress;
+import me.dcii.flowmap.util.GeoHash;
+
+/**
+ * Two tier reverse geocode cache. Addresses are kept in an in-memory LRU backed by the
+ * {@link CachedAddress} table in the Realm store, both keyed by the geohash cell of the position
+ * and the address locale. Entries older than the time to live are treated as missing; stored
+ * ones are deleted by {@link #purgeExpired(Realm)}.
+ *
+ * Thread safe; the Realm store is opened on the calling thread for each lookup.
+ *
+ * @author Dogak Cinfwat.
+ */
+public class AddressCache {
+
+    /**
+     * Default geohash length of the cache cells, about 150m by 150m.
+     */
+    public static final int DEFAULT_PRECISION = 7;
+
+    /**
+     * Default time (milliseconds) an address is served from the cache, 30 days.
+     */
+    public static final long DEFAULT_TTL = 30L * 24 * 60 * 60 * 1000;
+
+    /**
+     * Default number of addresses kept in memory.
+     */
+    public static final int DEFAULT_MEMORY_ENTRIES = 64;
+
+    private static AddressCache sInstance;
+
+    private final LruCache<String, Entry> mMemoryCache;
+    private final int mPrecision;
+    private final long mTtl;
+
+    /**
+     * Returns the process wide cache, created with the default settings on first use.
+     *
+     * @return the address cache.
+     */
+    public static synchronized AddressCache getInstance() {
+        if (sInstance == null) {
+            sInstance = new AddressCache(DEFAULT_PRECISION, DEFAULT_TTL, DEFAULT_MEMORY_ENTRIES);
+        }
+        return sInstance;
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param precision geohash length of the cache cells.
+     * @param ttl time in milliseconds an address is served from the cache.
+     * @param memoryEntries number of addresses kept in memory.
+     */
+    public AddressCache(int precision, long ttl, int memoryEntries) {
+        mPrecision = precision;
+        mTtl = ttl;
+        mMemoryCache = new LruCache<>(memoryEntries);
+    }
+
+    /**
+     * Returns the cached address of the cell holding the provided position.
+     *
+     * @param latitude the position latitude.
+     * @param longitude the position longitude.
+     * @param locale the address locale.
+     * @return the address or null if none or only an expired one is cached.
+     */
+    public String get(double latitude, double longitude, Locale locale) {
+        final String key = createKey(latitude, longitude, locale);
+        final long now = System.currentTimeMillis();
+
+        final Entry entry = mMemoryCache.get(key);
+        if (entry != null) {
+            if (isFresh(entry.fetchedAt, now)) {
+                return entry.address;
+            }
+            mMemoryCache.remove(key);
+            return null;
+        }
+
+        final Realm realm = Realm.getDefaultInstance();
+        try {
+            final CachedAddress cachedAddress = realm.where(CachedAddress.class)
+                    .equalTo(CachedAddress.FIELD_KEY, key).findFirst();
+            if (cachedAddress == null || !isFresh(cachedAddress.getFetchedAt(), now)) {
+                return null;
+            }
+
+            // Promote to the memory tier.
+            mMemoryCache.put(key, new Entry(cachedAddress.getAddress(),
+                    cachedAddress.getFetchedAt()));
+            return cachedAddress.getAddress();
+        } finally {
+            realm.close();
+        }
+    }
+
+    /**
+     * Caches the address of the cell holding the provided position, replacing any previous
+     * address of the cell.
+     *
+     * @param latitude the position latitude.
+     * @param longitude the position longitude.
+     * @param locale the address locale.
+     * @param address the address.
+     */
+    public void put(double latitude, double longitude, Locale locale, String address) {
+        final String geohash = GeoHash.encode(latitude, longitude, mPrecision);
+        final String localeTag = locale.toString();
+        final long now = System.currentTimeMillis();
+
+        mMemoryCache.put(CachedAddress.createKey(geohash, localeTag), new Entry(address, now));
+
+        final CachedAddress cachedAddress = new CachedAddress(geohash, localeTag, address, now);
+        final Realm realm = Realm.getDefaultInstance();
+        try {
+            realm.executeTransaction(new Realm.Transaction() {
+                @Override
+                public void execute(Realm realm) {
+                    realm.copyToRealmOrUpdate(cachedAddress);
+                }
+            });
+        } finally {
+            realm.close();
+        }
+    }
+
+    /**
+     * Deletes the stored addresses older than the time to live on the calling thread. Expired
+     * addresses are never served, so they only take space in the store.
+     *
+     * @param realm the realm instance.
+     * @return the number of deleted addresses.
+     */
+    public int purgeExpired(Realm realm) {
+        final long cutoff = System.currentTimeMillis() - mTtl;
+        final int[] deleted = new int[1];
+        realm.executeTransaction(new Realm.Transaction() {
+            @Override
+            public void execute(Realm realm) {
+                final RealmResults<CachedAddress> expired = realm.where(CachedAddress.class)
+                        .lessThanOrEqualTo(CachedAddress.FIELD_FETCHED_AT, cutoff)
+                        .findAll();
+                deleted[0] = expired.size();
+                expired.deleteAllFromRealm();
+            }
+        });
+        return deleted[0];
+    }
+
+    private String createKey(double latitude, double longitude, Locale locale) {
+        return CachedAddress.createKey(GeoHash.encode(latitude, longitude, mPrecision),
+                locale.toString());
+    }
+
+    private boolean isFresh(long fetchedAt, long now) {
+        return now - fetchedAt < mTtl;
+    }
+
+    /**
+     * Address held in the memory tier.
+     */
+    private static class Entry {
+        final String address;
+        final long fetchedAt;
+
+        Entry(String address, long fetchedAt) {
+            this.address = address;
+            this.fetchedAt = fetchedAt;
+        }
+    }
+}
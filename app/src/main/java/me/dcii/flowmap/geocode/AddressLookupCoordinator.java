@@ -0,0 +1,302 @@
+/*
+  MIT License
+
+  Copyright (c) 2017 Cinfwat Dogak
+
+  Permission is hereby granted, free of charge, to any person obtaining a copy
+  of this software and associated documentation files (the "Software"), to deal
+  in the Software without restriction, including without limitation the rights
+  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+  copies of the Software, and to permit persons to whom the Software is
+  furnished to do so, subject to the following conditions:
+
+  The above copyright notice and this permission notice shall be included in all
+  copies or substantial portions of the Software.
+
+  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+  SOFTWARE.
+ */
+
+package me.dcii.flowmap.geocode;
+
+import android.location.Location;
+import android.os.Handler;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+import me.dcii.flowmap.util.Constants;
+
+/**
+ * Coordinates journey address lookups. Keeps at most one outstanding lookup per journey and
+ * address role (start or end): requests for a lookup already in flight are coalesced into it,
+ * keeping the first location of a start address and the latest of an end address, and failed
+ * lookups are retried with a bounded exponential backoff. Once a lookup is given up,
+ * later requests for the same journey and role are ignored, leaving the address to the backfill.
+ *
+ * Not thread safe; all calls are expected on the thread of the provided {@link Handler}.
+ *
+ * @author Dogak Cinfwat.
+ */
+public class AddressLookupCoordinator {
+
+    /**
+     * Default delay (milliseconds) before the first retry of a failed lookup.
+     */
+    public static final long DEFAULT_INITIAL_BACKOFF = 5000;
+
+    /**
+     * Default upper bound (milliseconds) of the retry delay.
+     */
+    public static final long DEFAULT_MAX_BACKOFF = 5 * 60 * 1000;
+
+    /**
+     * Default number of attempts made before a lookup is given up.
+     */
+    public static final int DEFAULT_MAX_ATTEMPTS = 6;
+
+    /**
+     * Starts the actual address lookups.
+     */
+    public interface Dispatcher {
+
+        /**
+         * Starts an address lookup. The outcome must be reported back through
+         * {@link #onSuccess(String, int)} or {@link #onFailure(String, int)}.
+         *
+         * @param journeyId the journey the address is for.
+         * @param addressRequestCode the address role, start or end.
+         * @param location the location to look up.
+         */
+        void dispatch(String journeyId, int addressRequestCode, Location location);
+
+        /**
+         * Cancels a dispatched address lookup. Its outcome must not be reported.
+         *
+         * @param journeyId the journey the address is for.
+         * @param addressRequestCode the address role, start or end.
+         */
+        void cancel(String journeyId, int addressRequestCode);
+    }
+
+    private final Handler mHandler;
+    private final Dispatcher mDispatcher;
+    private final long mInitialBackoff;
+    private final long mMaxBackoff;
+    private final int mMaxAttempts;
+
+    /**
+     * Lookups by journey, either outstanding or given up after using up their attempts. A journey
+     * has a lookup per role, so they are found by a scan without building a key.
+     */
+    private final HashMap<String, ArrayList<Lookup>> mLookups = new HashMap<>();
+
+    /**
+     * Number of lookups in flight or waiting for a retry.
+     */
+    private int mOutstanding;
+
+    /**
+     * Constructor.
+     *
+     * @param handler handler used to schedule the retries.
+     * @param initialBackoff delay in milliseconds before the first retry.
+     * @param maxBackoff upper bound in milliseconds of the retry delay.
+     * @param maxAttempts number of attempts made before a lookup is given up.
+     * @param dispatcher starts the lookups.
+     */
+    public AddressLookupCoordinator(Handler handler, long initialBackoff, long maxBackoff,
+                                    int maxAttempts, Dispatcher dispatcher) {
+        mHandler = handler;
+        mInitialBackoff = initialBackoff;
+        mMaxBackoff = maxBackoff;
+        mMaxAttempts = maxAttempts;
+        mDispatcher = dispatcher;
+    }
+
+    /**
+     * Requests an address lookup. If a lookup for the same journey and role is outstanding the
+     * request is coalesced into it; a pending retry of an end address then uses the provided
+     * location, while a start address keeps the location it was first requested with. Requests
+     * for a lookup that was given up are ignored.
+     *
+     * @param journeyId the journey the address is for.
+     * @param addressRequestCode the address role, start or end.
+     * @param location the location to look up.
+     * @return true if a new lookup was dispatched.
+     */
+    public boolean request(String journeyId, int addressRequestCode, Location location) {
+        if (journeyId == null || location == null) {
+            return false;
+        }
+        Lookup lookup = find(journeyId, addressRequestCode);
+        if (lookup != null) {
+            if (!lookup.givenUp && addressRequestCode == Constants.END_ADDRESS_LOOK_UP) {
+                lookup.location.set(location);
+            }
+            return false;
+        }
+
+        lookup = new Lookup(journeyId, addressRequestCode, new Location(location));
+        ArrayList<Lookup> lookups = mLookups.get(journeyId);
+        if (lookups == null) {
+            lookups = new ArrayList<>(2);
+            mLookups.put(journeyId, lookups);
+        }
+        lookups.add(lookup);
+        mOutstanding++;
+        dispatch(lookup);
+        return true;
+    }
+
+    /**
+     * Reports a successful lookup.
+     *
+     * @param journeyId the journey the address is for.
+     * @param addressRequestCode the address role, start or end.
+     */
+    public void onSuccess(String journeyId, int addressRequestCode) {
+        final Lookup lookup = find(journeyId, addressRequestCode);
+        if (lookup == null || lookup.givenUp) {
+            return;
+        }
+        mHandler.removeCallbacks(lookup);
+        final ArrayList<Lookup> lookups = mLookups.get(journeyId);
+        lookups.remove(lookup);
+        if (lookups.isEmpty()) {
+            mLookups.remove(journeyId);
+        }
+        mOutstanding--;
+    }
+
+    /**
+     * Reports a failed lookup, scheduling a retry unless the attempts are used up. A lookup that
+     * used up its attempts is given up for good.
+     *
+     * @param journeyId the journey the address is for.
+     * @param addressRequestCode the address role, start or end.
+     * @return true if the lookup will be retried.
+     */
+    public boolean onFailure(String journeyId, int addressRequestCode) {
+        final Lookup lookup = find(journeyId, addressRequestCode);
+        if (lookup == null || lookup.givenUp) {
+            return false;
+        }
+        if (!lookup.inFlight) {
+            // A retry is already scheduled.
+            return true;
+        }
+        lookup.inFlight = false;
+
+        if (lookup.attempts >= mMaxAttempts) {
+            lookup.givenUp = true;
+            mOutstanding--;
+            return false;
+        }
+
+        // Double the delay on every failed attempt: initial, 2 x initial, 4 x initial, ...
+        final long backoff = mInitialBackoff << Math.min(lookup.attempts - 1, 30);
+        mHandler.postDelayed(lookup, Math.min(backoff, mMaxBackoff));
+        return true;
+    }
+
+    /**
+     * Returns whether a lookup for the journey and role is in flight or waiting for a retry.
+     *
+     * @param journeyId the journey the address is for.
+     * @param addressRequestCode the address role, start or end.
+     * @return true if the lookup is outstanding.
+     */
+    public boolean isPending(String journeyId, int addressRequestCode) {
+        final Lookup lookup = find(journeyId, addressRequestCode);
+        return lookup != null && !lookup.givenUp;
+    }
+
+    /**
+     * Returns whether no lookup is in flight or waiting for a retry.
+     *
+     * @return true if no lookup is outstanding.
+     */
+    public boolean isIdle() {
+        return mOutstanding == 0;
+    }
+
+    /**
+     * Returns whether the lookup for the journey and role was given up after using up its
+     * attempts.
+     *
+     * @param journeyId the journey the address is for.
+     * @param addressRequestCode the address role, start or end.
+     * @return true if the lookup was given up.
+     */
+    public boolean isGivenUp(String journeyId, int addressRequestCode) {
+        final Lookup lookup = find(journeyId, addressRequestCode);
+        return lookup != null && lookup.givenUp;
+    }
+
+    /**
+     * Forgets all lookups, cancelling the ones in flight and their retries.
+     */
+    public void cancelAll() {
+        for (ArrayList<Lookup> lookups : mLookups.values()) {
+            for (Lookup lookup : lookups) {
+                mHandler.removeCallbacks(lookup);
+                if (lookup.inFlight) {
+                    mDispatcher.cancel(lookup.journeyId, lookup.addressRequestCode);
+                }
+            }
+        }
+        mLookups.clear();
+        mOutstanding = 0;
+    }
+
+    private Lookup find(String journeyId, int addressRequestCode) {
+        final ArrayList<Lookup> lookups = mLookups.get(journeyId);
+        if (lookups == null) {
+            return null;
+        }
+        for (int index = 0; index < lookups.size(); index++) {
+            final Lookup lookup = lookups.get(index);
+            if (lookup.addressRequestCode == addressRequestCode) {
+                return lookup;
+            }
+        }
+        return null;
+    }
+
+    private void dispatch(Lookup lookup) {
+        lookup.attempts++;
+        lookup.inFlight = true;
+        mDispatcher.dispatch(lookup.journeyId, lookup.addressRequestCode, lookup.location);
+    }
+
+    /**
+     * A lookup. Runs as the retry of the lookup.
+     */
+    private class Lookup implements Runnable {
+        final String journeyId;
+        final int addressRequestCode;
+        final Location location;
+        int attempts;
+        boolean inFlight;
+        boolean givenUp;
+
+        Lookup(String journeyId, int addressRequestCode, Location location) {
+            this.journeyId = journeyId;
+            this.addressRequestCode = addressRequestCode;
+            this.location = location;
+        }
+
+        @Override
+        public void run() {
+            if (!givenUp && find(journeyId, addressRequestCode) == this) {
+                dispatch(this);
+            }
+        }
+    }
+}
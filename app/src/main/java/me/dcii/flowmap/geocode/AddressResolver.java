@@ -0,0 +1,113 @@
+/*
+  MIT License
+
+  Copyright (c) 2017 Cinfwat Dogak
+
+  Permission is hereby granted, free of charge, to any person obtaining a copy
+  of this software and associated documentation files (the "Software"), to deal
+  in the Software without restriction, including without limitation the rights
+  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+  copies of the Software, and to permit persons to whom the Software is
+  furnished to do so, subject to the following conditions:
+
+  The above copyright notice and this permission notice shall be included in all
+  copies or substantial portions of the Software.
+
+  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+  SOFTWARE.
+ */
+
+package me.dcii.flowmap.geocode;
+
+import android.content.Context;
+import android.location.Geocoder;
+import android.util.Log;
+
+import java.io.IOException;
+import java.util.Locale;
+
+/**
+ * Resolves positions to addresses. The {@link AddressCache} is checked first, then the platform
+ * {@link Geocoder} if present, then the offline {@link PlaceIndex}. Only Geocoder addresses are
+ * cached; the place index answers faster than the cache and a later Geocoder lookup may find a
+ * better address.
+ *
+ * Thread safe.
+ *
+ * @author Dogak Cinfwat.
+ */
+public class AddressResolver implements ReverseGeocoder {
+
+    private static final String TAG = AddressResolver.class.getSimpleName();
+
+    private final AddressCache mAddressCache;
+    private final ReverseGeocoder mPlatformGeocoder;
+    private final ReverseGeocoder mOfflineGeocoder;
+
+    /**
+     * Constructor.
+     *
+     * @param context the context used by the backends.
+     */
+    public AddressResolver(Context context) {
+        mAddressCache = AddressCache.getInstance();
+        mPlatformGeocoder = new PlatformReverseGeocoder(context);
+        mOfflineGeocoder = new OfflineReverseGeocoder(context,
+                OfflineReverseGeocoder.DEFAULT_MAX_DISTANCE);
+    }
+
+    /**
+     * Returns the address of the provided position.
+     *
+     * @param latitude the position latitude.
+     * @param longitude the position longitude.
+     * @param locale the preferred address locale.
+     * @return the address or null if no backend knows one.
+     * @throws IOException if the Geocoder failed and the place index has no address either.
+     * @throws IllegalArgumentException if the position is invalid.
+     */
+    @Override
+    public String getAddress(double latitude, double longitude, Locale locale)
+            throws IOException {
+        // Most journeys start and end at the same places, serve those without the Geocoder.
+        final String cachedAddress = mAddressCache.get(latitude, longitude, locale);
+        if (cachedAddress != null) {
+            return cachedAddress;
+        }
+
+        // Errors could still arise from using the Geocoder (for example, if there is no
+        // connectivity). Or, the Geocoder may simply not have an address for a location. The
+        // offline place index is used then.
+        IOException geocoderException = null;
+        if (Geocoder.isPresent()) {
+            try {
+                final String address = mPlatformGeocoder.getAddress(latitude, longitude, locale);
+                if (address != null) {
+                    mAddressCache.put(latitude, longitude, locale, address);
+                    return address;
+                }
+            } catch (IOException ioException) {
+                geocoderException = ioException;
+            }
+        }
+
+        try {
+            final String address = mOfflineGeocoder.getAddress(latitude, longitude, locale);
+            if (address != null) {
+                return address;
+            }
+        } catch (IOException ioException) {
+            Log.e(TAG, "Offline place index unavailable", ioException);
+        }
+
+        if (geocoderException != null) {
+            throw geocoderException;
+        }
+        return null;
+    }
+}
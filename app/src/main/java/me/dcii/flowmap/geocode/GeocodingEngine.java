@@ -0,0 +1,361 @@
+/*
+  MIT License
+
+  Copyright (c) 2017 Cinfwat Dogak
+
+  Permission is hereby granted, free of charge, to any person obtaining a copy
+  of this software and associated documentation files (the "Software"), to deal
+  in the Software without restriction, including without limitation the rights
+  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+  copies of the Software, and to permit persons to whom the Software is
+  furnished to do so, subject to the following conditions:
+
+  The above copyright notice and this permission notice shall be included in all
+  copies or substantial portions of the Software.
+
+  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+  SOFTWARE.
+ */
+
+package me.dcii.flowmap.geocode;
+
+import android.content.Context;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.concurrent.Executors;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import me.dcii.flowmap.metrics.GeocodeMetrics;
+
+/**
+ * Runs reverse geocode requests on a fixed pool of worker threads. Queued requests are served by
+ * priority, then in submission order, so the end address of the journey just recorded isn't
+ * held up by start address or backfill lookups.
+ *
+ * Every request has a key. Submitting a request supersedes the outstanding request with the same
+ * key, which is cancelled and never reported. Requests not answered within the timeout, counted
+ * from submission, fail with {@link #ERROR_TIMEOUT}; a lookup that is already running can't be
+ * interrupted, its late result is dropped.
+ *
+ * Thread safe. Results are reported on a worker or timer thread.
+ *
+ * @author Dogak Cinfwat.
+ */
+public class GeocodingEngine {
+
+    /**
+     * Request priorities, lower values are served first.
+     */
+    public static final int PRIORITY_END_ADDRESS = 0;
+    public static final int PRIORITY_START_ADDRESS = 1;
+    public static final int PRIORITY_BACKFILL = 2;
+
+    /**
+     * Request errors.
+     */
+    public static final int ERROR_NO_ADDRESS = 1;
+    public static final int ERROR_SERVICE_NOT_AVAILABLE = 2;
+    public static final int ERROR_INVALID_LOCATION = 3;
+    public static final int ERROR_TIMEOUT = 4;
+    public static final int ERROR_QUEUE_FULL = 5;
+
+    /**
+     * Default number of worker threads.
+     */
+    public static final int DEFAULT_WORKERS = 2;
+
+    /**
+     * Default time (milliseconds) from submission a request is answered within.
+     */
+    public static final long DEFAULT_TIMEOUT = 20000;
+
+    /**
+     * Default number of requests that can be queued.
+     */
+    public static final int DEFAULT_MAX_QUEUED = 256;
+
+    /**
+     * Receives request results.
+     */
+    public interface Callback {
+
+        /**
+         * Called with the resolved address.
+         *
+         * @param key the request key.
+         * @param address the address.
+         */
+        void onAddress(String key, String address);
+
+        /**
+         * Called if no address was resolved.
+         *
+         * @param key the request key.
+         * @param error the error, one of the {@code ERROR_} constants.
+         */
+        void onError(String key, int error);
+    }
+
+    private static GeocodingEngine sInstance;
+
+    private final ReverseGeocoder mGeocoder;
+    private final ThreadPoolExecutor mExecutor;
+    private final ScheduledExecutorService mTimer;
+    private final long mTimeout;
+    private final int mMaxQueued;
+    private final AtomicLong mSequence = new AtomicLong();
+
+    /**
+     * Outstanding requests by key.
+     */
+    private final HashMap<String, Request> mRequests = new HashMap<>();
+
+    /**
+     * Returns the process wide engine, created with the default settings on first use.
+     *
+     * @param context the context used to resolve addresses.
+     * @return the geocoding engine.
+     */
+    public static synchronized GeocodingEngine getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = new GeocodingEngine(new AddressResolver(context.getApplicationContext()),
+                    DEFAULT_WORKERS, DEFAULT_TIMEOUT, DEFAULT_MAX_QUEUED);
+        }
+        return sInstance;
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param geocoder resolves the addresses.
+     * @param workers number of worker threads.
+     * @param timeout time in milliseconds from submission a request is answered within.
+     * @param maxQueued number of requests that can be queued.
+     */
+    public GeocodingEngine(ReverseGeocoder geocoder, int workers, long timeout, int maxQueued) {
+        mGeocoder = geocoder;
+        mTimeout = timeout;
+        mMaxQueued = maxQueued;
+        mExecutor = new ThreadPoolExecutor(workers, workers, 0, TimeUnit.MILLISECONDS,
+                new PriorityBlockingQueue<Runnable>(), new NamedThreadFactory("geocoder"));
+        mTimer = Executors.newSingleThreadScheduledExecutor(
+                new NamedThreadFactory("geocoder-timer"));
+    }
+
+    /**
+     * Submits a request, superseding the outstanding request with the same key.
+     *
+     * @param key the request key.
+     * @param priority the request priority, one of the {@code PRIORITY_} constants.
+     * @param latitude the position latitude.
+     * @param longitude the position longitude.
+     * @param locale the preferred address locale.
+     * @param callback receives the result. Called with {@link #ERROR_QUEUE_FULL} before this
+     *                 method returns if the queue is full.
+     */
+    public void submit(String key, int priority, double latitude, double longitude,
+                       Locale locale, Callback callback) {
+        final Request request = new Request(key, priority, mSequence.getAndIncrement(),
+                latitude, longitude, locale, callback);
+        if (mExecutor.getQueue().size() >= mMaxQueued) {
+            GeocodeMetrics.REJECTED.incrementAndGet();
+            callback.onError(key, ERROR_QUEUE_FULL);
+            return;
+        }
+
+        final Request superseded;
+        synchronized (mRequests) {
+            superseded = mRequests.put(key, request);
+        }
+        if (superseded != null) {
+            cancel(superseded);
+        }
+
+        GeocodeMetrics.SUBMITTED.incrementAndGet();
+        GeocodeMetrics.addQueueDepth(1);
+        request.timeout = mTimer.schedule(new Runnable() {
+            @Override
+            public void run() {
+                if (request.finish()) {
+                    dequeue(request);
+                    GeocodeMetrics.TIMED_OUT.incrementAndGet();
+                    request.callback.onError(request.key, ERROR_TIMEOUT);
+                }
+            }
+        }, mTimeout, TimeUnit.MILLISECONDS);
+        mExecutor.execute(request);
+    }
+
+    /**
+     * Cancels the outstanding request with the provided key. Its result is never reported.
+     *
+     * @param key the request key.
+     */
+    public void cancel(String key) {
+        final Request request;
+        synchronized (mRequests) {
+            request = mRequests.get(key);
+        }
+        if (request != null) {
+            cancel(request);
+        }
+    }
+
+    /**
+     * Returns the number of queued requests.
+     *
+     * @return the queue depth.
+     */
+    public int getQueueDepth() {
+        return mExecutor.getQueue().size();
+    }
+
+    /**
+     * Stops the worker threads. Outstanding requests are dropped.
+     */
+    public void shutdown() {
+        mExecutor.shutdownNow();
+        mTimer.shutdownNow();
+    }
+
+    private void cancel(Request request) {
+        if (request.finish()) {
+            dequeue(request);
+            GeocodeMetrics.CANCELLED.incrementAndGet();
+        }
+    }
+
+    /**
+     * Removes a finished request from the queue, if it didn't start yet.
+     */
+    private void dequeue(Request request) {
+        if (mExecutor.remove(request)) {
+            GeocodeMetrics.addQueueDepth(-1);
+        }
+    }
+
+    /**
+     * A queued request, run by a worker thread.
+     */
+    private class Request implements Runnable, Comparable<Request> {
+        final String key;
+        final int priority;
+        final long sequence;
+        final double latitude;
+        final double longitude;
+        final Locale locale;
+        final Callback callback;
+        final long submittedAt;
+        final AtomicBoolean finished = new AtomicBoolean();
+        volatile ScheduledFuture<?> timeout;
+
+        Request(String key, int priority, long sequence, double latitude, double longitude,
+                Locale locale, Callback callback) {
+            this.key = key;
+            this.priority = priority;
+            this.sequence = sequence;
+            this.latitude = latitude;
+            this.longitude = longitude;
+            this.locale = locale;
+            this.callback = callback;
+            this.submittedAt = System.nanoTime();
+        }
+
+        /**
+         * Marks the request finished, so it is reported at most once.
+         *
+         * @return true if the request wasn't finished yet.
+         */
+        boolean finish() {
+            if (!finished.compareAndSet(false, true)) {
+                return false;
+            }
+            synchronized (mRequests) {
+                if (mRequests.get(key) == this) {
+                    mRequests.remove(key);
+                }
+            }
+            final ScheduledFuture<?> scheduledTimeout = timeout;
+            if (scheduledTimeout != null) {
+                scheduledTimeout.cancel(false);
+            }
+            return true;
+        }
+
+        @Override
+        public void run() {
+            GeocodeMetrics.addQueueDepth(-1);
+            if (finished.get()) {
+                // Cancelled or timed out while queued.
+                return;
+            }
+            final long startedAt = System.nanoTime();
+            GeocodeMetrics.QUEUE_WAIT.record(startedAt - submittedAt);
+
+            String address = null;
+            int error = ERROR_NO_ADDRESS;
+            try {
+                address = mGeocoder.getAddress(latitude, longitude, locale);
+            } catch (IOException e) {
+                error = ERROR_SERVICE_NOT_AVAILABLE;
+            } catch (IllegalArgumentException e) {
+                error = ERROR_INVALID_LOCATION;
+            }
+            GeocodeMetrics.LOOKUP_DURATION.record(System.nanoTime() - startedAt);
+
+            if (!finish()) {
+                // Cancelled or timed out while running, drop the result.
+                return;
+            }
+            if (address != null) {
+                GeocodeMetrics.RESOLVED.incrementAndGet();
+                callback.onAddress(key, address);
+            } else {
+                GeocodeMetrics.FAILED.incrementAndGet();
+                callback.onError(key, error);
+            }
+        }
+
+        @Override
+        public int compareTo(Request other) {
+            if (priority != other.priority) {
+                return priority < other.priority ? -1 : 1;
+            }
+            return sequence < other.sequence ? -1 : (sequence == other.sequence ? 0 : 1);
+        }
+    }
+
+    /**
+     * Creates named daemon threads.
+     */
+    private static class NamedThreadFactory implements ThreadFactory {
+        private final String mName;
+        private final AtomicInteger mCount = new AtomicInteger();
+
+        NamedThreadFactory(String name) {
+            mName = name;
+        }
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            final Thread thread = new Thread(runnable, mName + "-" + mCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
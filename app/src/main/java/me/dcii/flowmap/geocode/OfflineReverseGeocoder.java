@@ -0,0 +1,137 @@
+/*
+  MIT License
+
+  Copyright (c) 2017 Cinfwat Dogak
+
+  Permission is hereby granted, free of charge, to any person obtaining a copy
+  of this software and associated documentation files (the "Software"), to deal
+  in the Software without restriction, including without limitation the rights
+  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+  copies of the Software, and to permit persons to whom the Software is
+  furnished to do so, subject to the following conditions:
+
+  The above copyright notice and this permission notice shall be included in all
+  copies or substantial portions of the Software.
+
+  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+  SOFTWARE.
+ */
+
+package me.dcii.flowmap.geocode;
+
+import android.content.Context;
+import android.content.pm.PackageManager;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Locale;
+
+/**
+ * {@link ReverseGeocoder} answering from the bundled {@link PlaceIndex}, without network access.
+ * Resolves a position to the nearest named place within {@link #mMaxDistance}.
+ *
+ * The index ships as the {@link #ASSET_NAME} asset. Assets can't be memory-mapped in place, so
+ * it is copied to the files directory on first use and whenever the app is updated.
+ *
+ * @author Dogak Cinfwat.
+ */
+public class OfflineReverseGeocoder implements ReverseGeocoder {
+
+    /**
+     * Name of the place index asset and its copy in the files directory.
+     */
+    public static final String ASSET_NAME = "places.idx";
+
+    /**
+     * Default maximum distance (meters) of the place a position is resolved to.
+     */
+    public static final double DEFAULT_MAX_DISTANCE = 5000;
+
+    private static PlaceIndex sPlaceIndex;
+
+    private final Context mContext;
+    private final double mMaxDistance;
+
+    /**
+     * Constructor.
+     *
+     * @param context the context used to read the place index.
+     * @param maxDistance maximum distance in meters of the place a position is resolved to.
+     */
+    public OfflineReverseGeocoder(Context context, double maxDistance) {
+        mContext = context.getApplicationContext();
+        mMaxDistance = maxDistance;
+    }
+
+    @Override
+    public String getAddress(double latitude, double longitude, Locale locale)
+            throws IOException {
+        // Place names aren't localised, the locale is ignored.
+        return getPlaceIndex(mContext).findNearest(latitude, longitude, mMaxDistance);
+    }
+
+    /**
+     * Returns the process wide place index, mapping it on first use.
+     *
+     * @param context the context used to read the place index.
+     * @return the place index.
+     * @throws IOException if the index can't be copied or read.
+     */
+    private static synchronized PlaceIndex getPlaceIndex(Context context) throws IOException {
+        if (sPlaceIndex == null) {
+            final File file = new File(context.getFilesDir(), ASSET_NAME);
+            if (!file.exists() || file.lastModified() < getLastUpdateTime(context)) {
+                copyAsset(context, file);
+            }
+            sPlaceIndex = PlaceIndex.open(file);
+        }
+        return sPlaceIndex;
+    }
+
+    /**
+     * Copies the place index asset to the provided file. The copy is written to a temporary file
+     * first so a partial copy is never mapped.
+     *
+     * @param context the context used to read the asset.
+     * @param file the destination file.
+     * @throws IOException if the copy fails.
+     */
+    private static void copyAsset(Context context, File file) throws IOException {
+        final File temporary = new File(file.getPath() + ".tmp");
+        final InputStream in = context.getAssets().open(ASSET_NAME);
+        try {
+            final OutputStream out = new FileOutputStream(temporary);
+            try {
+                final byte[] buffer = new byte[8192];
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    out.write(buffer, 0, read);
+                }
+            } finally {
+                out.close();
+            }
+        } finally {
+            in.close();
+        }
+        if (!temporary.renameTo(file)) {
+            throw new IOException("Unable to write " + file);
+        }
+    }
+
+    private static long getLastUpdateTime(Context context) {
+        try {
+            return context.getPackageManager()
+                    .getPackageInfo(context.getPackageName(), 0).lastUpdateTime;
+        } catch (PackageManager.NameNotFoundException e) {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,247 @@
+/*
+  MIT License
+
+  Copyright (c) 2017 Cinfwat Dogak
+
+  Permission is hereby granted, free of charge, to any person obtaining a copy
+  of this software and associated documentation files (the "Software"), to deal
+  in the Software without restriction, including without limitation the rights
+  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+  copies of the Software, and to permit persons to whom the Software is
+  furnished to do so, subject to the following conditions:
+
+  The above copyright notice and this permission notice shall be included in all
+  copies or substantial portions of the Software.
+
+  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+  SOFTWARE.
+ */
+
+package me.dcii.flowmap.geocode;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+
+import me.dcii.flowmap.util.GeoUtils;
+
+/**
+ * Read only index of named places, answering nearest place queries. The index is a compact
+ * binary file, written by {@link PlaceIndexBuilder}, that is memory-mapped rather than loaded.
+ *
+ * Places are bucketed in a uniform latitude/longitude grid. A query scans the cells in rings
+ * around the cell of the position until no unscanned cell can hold a nearer place, so only a
+ * handful of places are compared per query.
+ *
+ * File layout, big endian:
+ * <pre>
+ * header    int magic, int version, int placeCount, int rows, int columns,
+ *           int minLatitudeE6, int minLongitudeE6, int cellSizeE6
+ * cells     int[rows * columns + 1] index of the first place of each cell, row major
+ * places    placeCount x (int latitudeE6, int longitudeE6, int nameOffset), ordered by cell
+ * names     unsigned short length + UTF-8 bytes per name, offsets relative to this section
+ * </pre>
+ *
+ * Thread safe; the index is immutable and only read with absolute reads.
+ *
+ * @author Dogak Cinfwat.
+ */
+public class PlaceIndex {
+
+    static final int MAGIC = 0x464D5049;  // "FMPI"
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 32;
+    static final int PLACE_BYTES = 12;
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final ByteBuffer mBuffer;
+    private final int mPlaceCount;
+    private final int mRows;
+    private final int mColumns;
+    private final int mMinLatitudeE6;
+    private final int mMinLongitudeE6;
+    private final int mCellSizeE6;
+    private final int mPlacesStart;
+    private final int mNamesStart;
+
+    /**
+     * Memory-maps the index file.
+     *
+     * @param file the index file.
+     * @return the place index.
+     * @throws IOException if the file can't be read or isn't a place index.
+     */
+    public static PlaceIndex open(File file) throws IOException {
+        final RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+        try {
+            final FileChannel channel = randomAccessFile.getChannel();
+
+            // The mapping stays valid after the channel is closed.
+            return new PlaceIndex(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        } finally {
+            randomAccessFile.close();
+        }
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param buffer the index data, big endian.
+     * @throws IOException if the data isn't a place index.
+     */
+    public PlaceIndex(ByteBuffer buffer) throws IOException {
+        mBuffer = buffer;
+        if (buffer.capacity() < HEADER_BYTES || buffer.getInt(0) != MAGIC
+                || buffer.getInt(4) != VERSION) {
+            throw new IOException("Not a place index.");
+        }
+        mPlaceCount = buffer.getInt(8);
+        mRows = buffer.getInt(12);
+        mColumns = buffer.getInt(16);
+        mMinLatitudeE6 = buffer.getInt(20);
+        mMinLongitudeE6 = buffer.getInt(24);
+        mCellSizeE6 = buffer.getInt(28);
+        mPlacesStart = HEADER_BYTES + 4 * (mRows * mColumns + 1);
+        mNamesStart = mPlacesStart + PLACE_BYTES * mPlaceCount;
+        if (mPlaceCount < 0 || mRows < 1 || mColumns < 1 || mCellSizeE6 < 1
+                || mNamesStart > buffer.capacity()) {
+            throw new IOException("Corrupt place index.");
+        }
+    }
+
+    /**
+     * Returns the number of places in the index.
+     *
+     * @return the place count.
+     */
+    public int size() {
+        return mPlaceCount;
+    }
+
+    /**
+     * Returns the name of the place nearest to the provided position.
+     *
+     * @param latitude the position latitude.
+     * @param longitude the position longitude.
+     * @param maxDistance the maximum distance in meters of the place.
+     * @return the place name or null if no place is within the maximum distance.
+     */
+    public String findNearest(double latitude, double longitude, double maxDistance) {
+        final int place = findNearestPlace(latitude, longitude, maxDistance);
+        return place < 0 ? null : getName(place);
+    }
+
+    /**
+     * Returns the index of the place nearest to the provided position.
+     *
+     * @param latitude the position latitude.
+     * @param longitude the position longitude.
+     * @param maxDistance the maximum distance in meters of the place.
+     * @return the place index or -1 if no place is within the maximum distance.
+     */
+    int findNearestPlace(double latitude, double longitude, double maxDistance) {
+        final double cellSize = mCellSizeE6 / 1e6;
+        final int row = (int) Math.floor((latitude - mMinLatitudeE6 / 1e6) / cellSize);
+        final int column = (int) Math.floor((longitude - mMinLongitudeE6 / 1e6) / cellSize);
+
+        // Places in ring r are at least r - 1 cells away from the position. Rings past the
+        // farthest grid corner hold no cells.
+        final double cellMeters = cellSize * Math.min(GeoUtils.METERS_PER_DEGREE,
+                GeoUtils.metersPerDegreeLongitude(latitude));
+        final int lastRing = Math.max(Math.abs(row), Math.abs(row - mRows))
+                + Math.max(Math.abs(column), Math.abs(column - mColumns));
+        final int maxRing = cellMeters <= 0 ? lastRing
+                : (int) Math.min(Math.ceil(maxDistance / cellMeters) + 1, lastRing);
+
+        // Skip the rings that don't reach the grid.
+        final int firstRing = Math.max(Math.max(-row, row - mRows + 1),
+                Math.max(Math.max(-column, column - mColumns + 1), 0));
+
+        final Nearest nearest = new Nearest(maxDistance);
+        for (int ring = firstRing; ring <= maxRing; ring++) {
+            if (nearest.place >= 0 && nearest.distance <= (ring - 1) * cellMeters) {
+                break;
+            }
+            final int firstRow = Math.max(row - ring, 0);
+            final int lastRow = Math.min(row + ring, mRows - 1);
+            final int firstColumn = Math.max(column - ring, 0);
+            final int lastColumn = Math.min(column + ring, mColumns - 1);
+            for (int r = firstRow; r <= lastRow; r++) {
+                if (r == row - ring || r == row + ring) {
+                    // Top and bottom rows of the ring, scan every cell.
+                    for (int c = firstColumn; c <= lastColumn; c++) {
+                        scanCell(r * mColumns + c, latitude, longitude, nearest);
+                    }
+                } else {
+                    // Inner rows of the ring, only the two edge cells.
+                    if (column - ring >= 0 && column - ring < mColumns) {
+                        scanCell(r * mColumns + column - ring, latitude, longitude, nearest);
+                    }
+                    if (ring > 0 && column + ring >= 0 && column + ring < mColumns) {
+                        scanCell(r * mColumns + column + ring, latitude, longitude, nearest);
+                    }
+                }
+            }
+        }
+        return nearest.place;
+    }
+
+    /**
+     * Compares the places of a grid cell against the nearest place found so far.
+     *
+     * @param cell the cell index.
+     * @param latitude the position latitude.
+     * @param longitude the position longitude.
+     * @param nearest the nearest place found so far, updated in place.
+     */
+    private void scanCell(int cell, double latitude, double longitude, Nearest nearest) {
+        final int end = mBuffer.getInt(HEADER_BYTES + 4 * (cell + 1));
+        for (int place = mBuffer.getInt(HEADER_BYTES + 4 * cell); place < end; place++) {
+            final int offset = mPlacesStart + PLACE_BYTES * place;
+            final double distance = GeoUtils.distance(latitude, longitude,
+                    mBuffer.getInt(offset) / 1e6, mBuffer.getInt(offset + 4) / 1e6);
+            if (distance <= nearest.distance) {
+                nearest.place = place;
+                nearest.distance = distance;
+            }
+        }
+    }
+
+    /**
+     * Returns the name of a place.
+     *
+     * @param place the place index.
+     * @return the place name.
+     */
+    String getName(int place) {
+        final int offset = mNamesStart
+                + mBuffer.getInt(mPlacesStart + PLACE_BYTES * place + 8);
+        final int length = mBuffer.getShort(offset) & 0xFFFF;
+        final byte[] bytes = new byte[length];
+        for (int index = 0; index < length; index++) {
+            bytes[index] = mBuffer.get(offset + 2 + index);
+        }
+        return new String(bytes, UTF_8);
+    }
+
+    /**
+     * Nearest place found by a query.
+     */
+    private static class Nearest {
+        int place = -1;
+        double distance;
+
+        Nearest(double maxDistance) {
+            distance = maxDistance;
+        }
+    }
+}
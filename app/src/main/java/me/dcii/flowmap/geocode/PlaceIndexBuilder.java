@@ -0,0 +1,182 @@
+/*
+  MIT License
+
+  Copyright (c) 2017 Cinfwat Dogak
+
+  Permission is hereby granted, free of charge, to any person obtaining a copy
+  of this software and associated documentation files (the "Software"), to deal
+  in the Software without restriction, including without limitation the rights
+  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+  copies of the Software, and to permit persons to whom the Software is
+  furnished to do so, subject to the following conditions:
+
+  The above copyright notice and this permission notice shall be included in all
+  copies or substantial portions of the Software.
+
+  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+  SOFTWARE.
+ */
+
+package me.dcii.flowmap.geocode;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+
+import me.dcii.flowmap.util.GeoUtils;
+
+/**
+ * Writes {@link PlaceIndex} files from named places. Index files are built off the device by the
+ * {@code PlaceIndexTool} of the {@code tools} module.
+ *
+ * @author Dogak Cinfwat.
+ */
+public class PlaceIndexBuilder {
+
+    /**
+     * Smallest grid cell size in degrees picked when no cell size is provided.
+     */
+    public static final double MIN_CELL_SIZE = 0.001;
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final ArrayList<Place> mPlaces = new ArrayList<>();
+
+    /**
+     * Adds a named place.
+     *
+     * @param latitude the place latitude.
+     * @param longitude the place longitude.
+     * @param name the place name.
+     */
+    public void add(double latitude, double longitude, String name) {
+        final byte[] bytes = name.getBytes(UTF_8);
+        if (bytes.length > 0xFFFF) {
+            throw new IllegalArgumentException("Place name too long: " + name);
+        }
+        mPlaces.add(new Place(GeoUtils.toE6(latitude), GeoUtils.toE6(longitude), bytes));
+    }
+
+    /**
+     * Returns the number of places added.
+     *
+     * @return the place count.
+     */
+    public int size() {
+        return mPlaces.size();
+    }
+
+    /**
+     * Writes the index with a cell size picked so there is about one place per cell.
+     *
+     * @param out the stream the index is written to.
+     * @throws IOException if writing fails.
+     */
+    public void write(OutputStream out) throws IOException {
+        write(out, 0);
+    }
+
+    /**
+     * Writes the index.
+     *
+     * @param out the stream the index is written to.
+     * @param cellSize the grid cell size in degrees, or 0 to pick one.
+     * @throws IOException if writing fails.
+     */
+    public void write(OutputStream out, double cellSize) throws IOException {
+        int minLatitudeE6 = Integer.MAX_VALUE;
+        int minLongitudeE6 = Integer.MAX_VALUE;
+        int maxLatitudeE6 = Integer.MIN_VALUE;
+        int maxLongitudeE6 = Integer.MIN_VALUE;
+        for (Place place : mPlaces) {
+            minLatitudeE6 = Math.min(minLatitudeE6, place.latitudeE6);
+            minLongitudeE6 = Math.min(minLongitudeE6, place.longitudeE6);
+            maxLatitudeE6 = Math.max(maxLatitudeE6, place.latitudeE6);
+            maxLongitudeE6 = Math.max(maxLongitudeE6, place.longitudeE6);
+        }
+        if (mPlaces.isEmpty()) {
+            minLatitudeE6 = maxLatitudeE6 = minLongitudeE6 = maxLongitudeE6 = 0;
+        }
+
+        if (cellSize <= 0) {
+            final double area = (maxLatitudeE6 - minLatitudeE6 + 1) / 1e6
+                    * ((maxLongitudeE6 - minLongitudeE6 + 1) / 1e6);
+            cellSize = Math.max(Math.sqrt(area / Math.max(mPlaces.size(), 1)), MIN_CELL_SIZE);
+        }
+        final int cellSizeE6 = Math.max(GeoUtils.toE6(cellSize), 1);
+        final int rows = (maxLatitudeE6 - minLatitudeE6) / cellSizeE6 + 1;
+        final int columns = (maxLongitudeE6 - minLongitudeE6) / cellSizeE6 + 1;
+
+        // Order the places by cell so each cell is a contiguous range.
+        final Place[] places = mPlaces.toArray(new Place[mPlaces.size()]);
+        for (Place place : places) {
+            place.cell = (place.latitudeE6 - minLatitudeE6) / cellSizeE6 * columns
+                    + (place.longitudeE6 - minLongitudeE6) / cellSizeE6;
+        }
+        Arrays.sort(places, new Comparator<Place>() {
+            @Override
+            public int compare(Place place1, Place place2) {
+                return place1.cell < place2.cell ? -1 : (place1.cell == place2.cell ? 0 : 1);
+            }
+        });
+
+        final DataOutputStream data = new DataOutputStream(new BufferedOutputStream(out));
+        data.writeInt(PlaceIndex.MAGIC);
+        data.writeInt(PlaceIndex.VERSION);
+        data.writeInt(places.length);
+        data.writeInt(rows);
+        data.writeInt(columns);
+        data.writeInt(minLatitudeE6);
+        data.writeInt(minLongitudeE6);
+        data.writeInt(cellSizeE6);
+
+        // First place of every cell, followed by the place count as the end of the last cell.
+        int place = 0;
+        for (int cell = 0; cell < rows * columns; cell++) {
+            while (place < places.length && places[place].cell < cell) {
+                place++;
+            }
+            data.writeInt(place);
+        }
+        data.writeInt(places.length);
+
+        final ByteArrayOutputStream names = new ByteArrayOutputStream();
+        final DataOutputStream namesData = new DataOutputStream(names);
+        for (Place entry : places) {
+            data.writeInt(entry.latitudeE6);
+            data.writeInt(entry.longitudeE6);
+            data.writeInt(namesData.size());
+            namesData.writeShort(entry.name.length);
+            namesData.write(entry.name);
+        }
+        names.writeTo(data);
+        data.flush();
+    }
+
+    /**
+     * A place waiting to be written.
+     */
+    private static class Place {
+        final int latitudeE6;
+        final int longitudeE6;
+        final byte[] name;
+        int cell;
+
+        Place(int latitudeE6, int longitudeE6, byte[] name) {
+            this.latitudeE6 = latitudeE6;
+            this.longitudeE6 = longitudeE6;
+            this.name = name;
+        }
+    }
+}
@@ -0,0 +1,78 @@
+/*
+  MIT License
+
+  Copyright (c) 2017 Cinfwat Dogak
+
+  Permission is hereby granted, free of charge, to any person obtaining a copy
+  of this software and associated documentation files (the "Software"), to deal
+  in the Software without restriction, including without limitation the rights
+  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+  copies of the Software, and to permit persons to whom the Software is
+  furnished to do so, subject to the following conditions:
+
+  The above copyright notice and this permission notice shall be included in all
+  copies or substantial portions of the Software.
+
+  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+  SOFTWARE.
+ */
+
+package me.dcii.flowmap.geocode;
+
+import android.content.Context;
+import android.location.Address;
+import android.location.Geocoder;
+import android.text.TextUtils;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * {@link ReverseGeocoder} backed by the platform {@link Geocoder}. Needs network access and is
+ * only available if {@link Geocoder#isPresent()}.
+ *
+ * @author Dogak Cinfwat.
+ */
+public class PlatformReverseGeocoder implements ReverseGeocoder {
+
+    private final Context mContext;
+
+    /**
+     * Constructor.
+     *
+     * @param context the context used to create the {@link Geocoder}.
+     */
+    public PlatformReverseGeocoder(Context context) {
+        mContext = context;
+    }
+
+    @Override
+    public String getAddress(double latitude, double longitude, Locale locale)
+            throws IOException {
+        // The Geocoder's responses are localized for the given Locale, which represents a
+        // specific geographical or linguistic region.
+        final Geocoder geocoder = new Geocoder(mContext, locale);
+
+        // Get a single address. The results are a best guess and are not guaranteed to be
+        // accurate.
+        final List<Address> addresses = geocoder.getFromLocation(latitude, longitude, 1);
+        if (addresses == null || addresses.size() == 0) {
+            return null;
+        }
+
+        // Fetch the address lines using {@code getAddressLine} and join them.
+        final Address address = addresses.get(0);
+        final ArrayList<String> addressFragments = new ArrayList<>();
+        for (int index = 0; index <= address.getMaxAddressLineIndex(); index++) {
+            addressFragments.add(address.getAddressLine(index));
+        }
+        return TextUtils.join(System.getProperty("line.separator"), addressFragments);
+    }
+}
@@ -0,0 +1,210 @@
+/*
+  MIT License
+
+  Copyright (c) 2017 Cinfwat Dogak
+
+  Permission is hereby granted, free of charge, to any person obtaining a copy
+  of this software and associated documentation files (the "Software"), to deal
+  in the Software without restriction, including without limitation the rights
+  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+  copies of the Software, and to permit persons to whom the Software is
+  furnished to do so, subject to the following conditions:
+
+  The above copyright notice and this permission notice shall be included in all
+  copies or substantial portions of the Software.
+
+  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+  SOFTWARE.
+ */
+
+package me.dcii.flowmap.map;
+
+/**
+ * Point density of one heatmap tile. Positions are counted in square cells of
+ * {@link #CELL_SIZE} pixels, each cell is spread over its neighbours by a small kernel and the
+ * result is mapped to a color ramp.
+ *
+ * Cells within {@link #MARGIN} cells around the tile are counted too, so the spread of positions
+ * just outside the tile matches the neighbouring tile and no seams show. The ramp does not
+ * depend on the tile contents for the same reason.
+ *
+ * @author Dogak Cinfwat.
+ */
+public class HeatmapRaster {
+
+    /**
+     * Width and height of a density cell in pixels.
+     */
+    public static final int CELL_SIZE = 4;
+
+    /**
+     * Radius of the spreading kernel, in cells. Also the number of cells counted around the tile.
+     */
+    public static final int MARGIN = 2;
+
+    /**
+     * Kernel weighted density shown at full intensity.
+     */
+    static final double SATURATION = 64;
+
+    /**
+     * Intensity stops of the color ramp, with their colors below.
+     */
+    private static final double[] RAMP_STOPS = {0, 0.25, 0.5, 0.75, 1};
+    private static final int[] RAMP_COLORS = {
+            0x000000ff, 0x990000ff, 0xb300ff00, 0xccffff00, 0xe6ff0000};
+
+    private static final int CELLS = TileProjection.TILE_SIZE / CELL_SIZE;
+    private static final int GRID = CELLS + 2 * MARGIN;
+
+    private final int mZoom;
+    private final double mOriginX;
+    private final double mOriginY;
+    private final int[] mCounts = new int[GRID * GRID];
+    private int mTotal;
+
+    /**
+     * Constructor.
+     *
+     * @param x the tile column.
+     * @param y the tile row.
+     * @param zoom the zoom level.
+     */
+    public HeatmapRaster(int x, int y, int zoom) {
+        mZoom = zoom;
+        mOriginX = (double) x * TileProjection.TILE_SIZE - MARGIN * CELL_SIZE;
+        mOriginY = (double) y * TileProjection.TILE_SIZE - MARGIN * CELL_SIZE;
+    }
+
+    /**
+     * Gets the southern edge of the counted area, the tile and its margin.
+     */
+    public double getSouth() {
+        return TileProjection.yToLatitude(mOriginY + GRID * CELL_SIZE, mZoom);
+    }
+
+    /**
+     * Gets the northern edge of the counted area.
+     */
+    public double getNorth() {
+        return TileProjection.yToLatitude(mOriginY, mZoom);
+    }
+
+    /**
+     * Gets the western edge of the counted area.
+     */
+    public double getWest() {
+        return TileProjection.xToLongitude(mOriginX, mZoom);
+    }
+
+    /**
+     * Gets the eastern edge of the counted area.
+     */
+    public double getEast() {
+        return TileProjection.xToLongitude(mOriginX + GRID * CELL_SIZE, mZoom);
+    }
+
+    /**
+     * Counts a position. Positions outside the counted area are ignored.
+     *
+     * @param latitude the position latitude.
+     * @param longitude the position longitude.
+     */
+    public void add(double latitude, double longitude) {
+        final double column = (TileProjection.longitudeToX(longitude, mZoom) - mOriginX)
+                / CELL_SIZE;
+        final double row = (TileProjection.latitudeToY(latitude, mZoom) - mOriginY) / CELL_SIZE;
+        if (column < 0 || column >= GRID || row < 0 || row >= GRID) {
+            return;
+        }
+        mCounts[(int) row * GRID + (int) column]++;
+        mTotal++;
+    }
+
+    /**
+     * Checks if no position was counted, in which case the tile is blank.
+     *
+     * @return true if nothing was counted.
+     */
+    public boolean isEmpty() {
+        return mTotal == 0;
+    }
+
+    /**
+     * Renders the tile.
+     *
+     * @return {@link TileProjection#TILE_SIZE} rows of ARGB pixels.
+     */
+    public int[] render() {
+        final int size = TileProjection.TILE_SIZE;
+        final int[] pixels = new int[size * size];
+        for (int row = 0; row < CELLS; row++) {
+            for (int column = 0; column < CELLS; column++) {
+                final int color = color(density(row + MARGIN, column + MARGIN));
+                if (color == 0) {
+                    continue;
+                }
+                for (int pixelRow = row * CELL_SIZE; pixelRow < (row + 1) * CELL_SIZE;
+                     pixelRow++) {
+                    final int offset = pixelRow * size + column * CELL_SIZE;
+                    for (int index = offset; index < offset + CELL_SIZE; index++) {
+                        pixels[index] = color;
+                    }
+                }
+            }
+        }
+        return pixels;
+    }
+
+    /**
+     * Gets the kernel weighted density of a grid cell. Weights fall linearly from the center.
+     */
+    double density(int row, int column) {
+        double density = 0;
+        for (int dy = -MARGIN; dy <= MARGIN; dy++) {
+            for (int dx = -MARGIN; dx <= MARGIN; dx++) {
+                final int count = mCounts[(row + dy) * GRID + column + dx];
+                if (count != 0) {
+                    density += count * (MARGIN + 1 - Math.max(Math.abs(dx), Math.abs(dy)));
+                }
+            }
+        }
+        return density;
+    }
+
+    /**
+     * Maps a density to the ramp, on a log scale so single journeys stay visible next to daily
+     * commutes.
+     *
+     * @param density the kernel weighted density.
+     * @return the ARGB color, 0 for no density.
+     */
+    static int color(double density) {
+        if (density <= 0) {
+            return 0;
+        }
+        final double intensity = Math.min(1, Math.log1p(density) / Math.log1p(SATURATION));
+        int stop = 1;
+        while (stop < RAMP_STOPS.length - 1 && intensity > RAMP_STOPS[stop]) {
+            stop++;
+        }
+        final double fraction = (intensity - RAMP_STOPS[stop - 1])
+                / (RAMP_STOPS[stop] - RAMP_STOPS[stop - 1]);
+        return interpolate(RAMP_COLORS[stop - 1], RAMP_COLORS[stop], fraction);
+    }
+
+    private static int interpolate(int from, int to, double fraction) {
+        int color = 0;
+        for (int shift = 0; shift < 32; shift += 8) {
+            final int start = (from >>> shift) & 0xff;
+            final int end = (to >>> shift) & 0xff;
+            color |= ((int) Math.round(start + (end - start) * fraction) & 0xff) << shift;
+        }
+        return color;
+    }
+}
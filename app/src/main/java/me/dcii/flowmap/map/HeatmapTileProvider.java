@@ -0,0 +1,124 @@
+/*
+  MIT License
+
+  Copyright (c) 2017 Cinfwat Dogak
+
+  Permission is hereby granted, free of charge, to any person obtaining a copy
+  of this software and associated documentation files (the "Software"), to deal
+  in the Software without restriction, including without limitation the rights
+  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+  copies of the Software, and to permit persons to whom the Software is
+  furnished to do so, subject to the following conditions:
+
+  The above copyright notice and this permission notice shall be included in all
+  copies or substantial portions of the Software.
+
+  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+  SOFTWARE.
+ */
+
+package me.dcii.flowmap.map;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+
+import io.realm.Realm;
+import io.realm.RealmResults;
+import me.dcii.flowmap.model.Journey;
+import me.dcii.flowmap.model.TrackPoints;
+import me.dcii.flowmap.model.TrackQuery;
+
+/**
+ * Serves heatmap tiles of the positions of every journey. The journeys whose bounds meet a tile
+ * are selected from their summary columns and only the track blocks meeting the tile are
+ * decoded, see {@link TrackQuery}.
+ *
+ * @author Dogak Cinfwat.
+ */
+public class HeatmapTileProvider extends JourneyTileProvider {
+
+    /**
+     * Size of the tiles kept in memory, 4MB.
+     */
+    public static final int DEFAULT_MEMORY_BYTES = 4 * 1024 * 1024;
+
+    /**
+     * Size budget of the tile cache directory, 32MB.
+     */
+    public static final long DEFAULT_DISK_BYTES = 32L * 1024 * 1024;
+
+    /**
+     * Version of the tiles drawn, to be changed with {@link HeatmapRaster}.
+     */
+    private static final int VERSION = 1;
+
+    private static final String NAME = "heatmap";
+
+    /**
+     * Constructor.
+     *
+     * @param context the context.
+     * @param memoryBytes the size of the tiles kept in memory.
+     * @param diskBytes the size budget of the tile cache directory.
+     */
+    public HeatmapTileProvider(Context context, int memoryBytes, long diskBytes) {
+        super(context, NAME, VERSION, memoryBytes, diskBytes);
+    }
+
+    /**
+     * Constructor using the default cache sizes.
+     *
+     * @param context the context.
+     */
+    public HeatmapTileProvider(Context context) {
+        this(context, DEFAULT_MEMORY_BYTES, DEFAULT_DISK_BYTES);
+    }
+
+    @Override
+    protected int getMargin() {
+        return HeatmapRaster.MARGIN * HeatmapRaster.CELL_SIZE;
+    }
+
+    @Override
+    protected byte[] render(int x, int y, int zoom) {
+        final HeatmapRaster raster = new HeatmapRaster(x, y, zoom);
+        final double south = raster.getSouth();
+        final double north = raster.getNorth();
+        // Positions across the antimeridian from the edge tiles are left out.
+        final double west = Math.max(-180, raster.getWest());
+        final double east = Math.min(180, raster.getEast());
+
+        final Realm realm = Realm.getDefaultInstance();
+        try {
+            final RealmResults<Journey> journeys = realm.where(Journey.class)
+                    .equalTo(Journey.FIELD_IS_DELETED, false)
+                    .lessThanOrEqualTo(Journey.FIELD_MIN_LATITUDE, north)
+                    .greaterThanOrEqualTo(Journey.FIELD_MAX_LATITUDE, south)
+                    .lessThanOrEqualTo(Journey.FIELD_MIN_LONGITUDE, east)
+                    .greaterThanOrEqualTo(Journey.FIELD_MAX_LONGITUDE, west)
+                    .findAll();
+            final TrackQuery query = TrackQuery.forViewport(south, west, north, east);
+            final TrackPoints points = new TrackPoints();
+            for (Journey journey : journeys) {
+                points.clear();
+                journey.readTrack(points, query);
+                for (int index = 0; index < points.size(); index++) {
+                    raster.add(points.getLatitude(index), points.getLongitude(index));
+                }
+            }
+        } finally {
+            realm.close();
+        }
+
+        if (raster.isEmpty()) {
+            return new byte[0];
+        }
+        return encode(Bitmap.createBitmap(raster.render(), TileProjection.TILE_SIZE,
+                TileProjection.TILE_SIZE, Bitmap.Config.ARGB_8888));
+    }
+}
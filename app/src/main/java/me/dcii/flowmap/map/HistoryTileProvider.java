@@ -0,0 +1,230 @@
+/*
+  MIT License
+
+  Copyright (c) 2017 Cinfwat Dogak
+
+  Permission is hereby granted, free of charge, to any person obtaining a copy
+  of this software and associated documentation files (the "Software"), to deal
+  in the Software without restriction, including without limitation the rights
+  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+  copies of the Software, and to permit persons to whom the Software is
+  furnished to do so, subject to the following conditions:
+
+  The above copyright notice and this permission notice shall be included in all
+  copies or substantial portions of the Software.
+
+  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+  SOFTWARE.
+ */
+
+package me.dcii.flowmap.map;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Path;
+
+import com.google.android.gms.maps.model.LatLngBounds;
+
+import java.util.Set;
+
+import io.realm.Realm;
+import me.dcii.flowmap.model.Journey;
+import me.dcii.flowmap.model.TrackPoints;
+import me.dcii.flowmap.model.TrackQuery;
+
+/**
+ * Serves tiles drawing the route of every journey. The journeys crossing a tile are found in a
+ * {@link SegmentIndex} of the track block bounds, built on the first tile request and updated
+ * with the changed journeys, so the cost of a tile follows what is drawn in it rather than the
+ * length of the history. Only the track blocks meeting the tile are decoded.
+ *
+ * @author Dogak Cinfwat.
+ */
+public class HistoryTileProvider extends JourneyTileProvider {
+
+    /**
+     * Size of the tiles kept in memory, 4MB.
+     */
+    public static final int DEFAULT_MEMORY_BYTES = 4 * 1024 * 1024;
+
+    /**
+     * Size budget of the tile cache directory, 64MB.
+     */
+    public static final long DEFAULT_DISK_BYTES = 64L * 1024 * 1024;
+
+    /**
+     * Version of the tiles drawn, to be changed with the drawing.
+     */
+    private static final int VERSION = 1;
+
+    private static final String NAME = "history";
+
+    /**
+     * Positions closer than this, in pixels, to the last one drawn are skipped.
+     */
+    private static final double MIN_PIXEL_DISTANCE = 0.5;
+
+    private final int mColor;
+    private final float mWidth;
+    private final SegmentIndex mIndex = new SegmentIndex();
+    private boolean mIndexed;
+
+    /**
+     * Constructor.
+     *
+     * @param context the context.
+     * @param color the route color.
+     * @param width the route width in pixels.
+     * @param memoryBytes the size of the tiles kept in memory.
+     * @param diskBytes the size budget of the tile cache directory.
+     */
+    public HistoryTileProvider(Context context, int color, float width, int memoryBytes,
+                               long diskBytes) {
+        super(context, NAME, VERSION, memoryBytes, diskBytes);
+        mColor = color;
+        mWidth = width;
+    }
+
+    /**
+     * Constructor using the default cache sizes.
+     *
+     * @param context the context.
+     * @param color the route color.
+     * @param width the route width in pixels.
+     */
+    public HistoryTileProvider(Context context, int color, float width) {
+        this(context, color, width, DEFAULT_MEMORY_BYTES, DEFAULT_DISK_BYTES);
+    }
+
+    @Override
+    protected int getMargin() {
+        return (int) Math.ceil(mWidth / 2);
+    }
+
+    @Override
+    protected synchronized void onJourneyChanged(Journey journey) {
+        if (!mIndexed) {
+            // The index is built from the store when first needed.
+            return;
+        }
+        mIndex.remove(journey.getId());
+        if (!journey.isDeleted()) {
+            index(journey);
+        }
+    }
+
+    @Override
+    protected byte[] render(int x, int y, int zoom) {
+        // The tile and its margin, as routes just outside the tile show on its edge.
+        final int margin = getMargin();
+        final double south = TileProjection.yToLatitude(
+                (double) (y + 1) * TileProjection.TILE_SIZE + margin, zoom);
+        final double north = TileProjection.yToLatitude(
+                (double) y * TileProjection.TILE_SIZE - margin, zoom);
+        final double west = Math.max(-180, TileProjection.xToLongitude(
+                (double) x * TileProjection.TILE_SIZE - margin, zoom));
+        final double east = Math.min(180, TileProjection.xToLongitude(
+                (double) (x + 1) * TileProjection.TILE_SIZE + margin, zoom));
+
+        final Path path = new Path();
+        final Realm realm = Realm.getDefaultInstance();
+        try {
+            ensureIndexed(realm);
+            final Set<String> journeyIds = mIndex.query(south, west, north, east);
+            if (journeyIds.isEmpty()) {
+                return new byte[0];
+            }
+
+            final TrackQuery query = TrackQuery.forViewport(south, west, north, east);
+            final TrackPoints points = new TrackPoints();
+            for (String journeyId : journeyIds) {
+                final Journey journey = realm.where(Journey.class)
+                        .equalTo(Journey.FIELD_ID, journeyId).findFirst();
+                if (journey == null || journey.isDeleted()) {
+                    continue;
+                }
+                points.clear();
+                journey.readTrack(points, query);
+                addRuns(path, points, x, y, zoom);
+            }
+        } finally {
+            realm.close();
+        }
+
+        if (path.isEmpty()) {
+            return new byte[0];
+        }
+        final Paint paint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        paint.setStyle(Paint.Style.STROKE);
+        paint.setStrokeWidth(mWidth);
+        paint.setStrokeCap(Paint.Cap.ROUND);
+        paint.setStrokeJoin(Paint.Join.ROUND);
+        paint.setColor(mColor);
+
+        final Bitmap bitmap = Bitmap.createBitmap(TileProjection.TILE_SIZE,
+                TileProjection.TILE_SIZE, Bitmap.Config.ARGB_8888);
+        new Canvas(bitmap).drawPath(path, paint);
+        return encode(bitmap);
+    }
+
+    /**
+     * Builds the index from every journey in the store, once.
+     */
+    private synchronized void ensureIndexed(Realm realm) {
+        if (mIndexed) {
+            return;
+        }
+        for (Journey journey : realm.where(Journey.class)
+                .equalTo(Journey.FIELD_IS_DELETED, false).findAll()) {
+            index(journey);
+        }
+        mIndexed = true;
+    }
+
+    private void index(Journey journey) {
+        for (LatLngBounds bounds : journey.getTrackBounds()) {
+            mIndex.add(journey.getId(), bounds.southwest.latitude, bounds.southwest.longitude,
+                    bounds.northeast.latitude, bounds.northeast.longitude);
+        }
+    }
+
+    /**
+     * Adds the runs of positions to the path, in tile pixels.
+     */
+    private static void addRuns(Path path, TrackPoints points, int x, int y, int zoom) {
+        final double originX = (double) x * TileProjection.TILE_SIZE;
+        final double originY = (double) y * TileProjection.TILE_SIZE;
+        for (int run = 0; run < points.getRunCount(); run++) {
+            final int start = points.getRunStart(run);
+            final int end = points.getRunEnd(run);
+            if (end - start < 2) {
+                continue;
+            }
+
+            double lastX = TileProjection.longitudeToX(points.getLongitude(start), zoom) - originX;
+            double lastY = TileProjection.latitudeToY(points.getLatitude(start), zoom) - originY;
+            path.moveTo((float) lastX, (float) lastY);
+            for (int index = start + 1; index < end; index++) {
+                final double pointX = TileProjection.longitudeToX(points.getLongitude(index), zoom)
+                        - originX;
+                final double pointY = TileProjection.latitudeToY(points.getLatitude(index), zoom)
+                        - originY;
+                // The last position of the run is always drawn.
+                if (index < end - 1 && Math.abs(pointX - lastX) < MIN_PIXEL_DISTANCE
+                        && Math.abs(pointY - lastY) < MIN_PIXEL_DISTANCE) {
+                    continue;
+                }
+                path.lineTo((float) pointX, (float) pointY);
+                lastX = pointX;
+                lastY = pointY;
+            }
+        }
+    }
+}
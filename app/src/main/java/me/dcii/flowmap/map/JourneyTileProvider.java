@@ -0,0 +1,223 @@
+/*
+  MIT License
+
+  Copyright (c) 2017 Cinfwat Dogak
+
+  Permission is hereby granted, free of charge, to any person obtaining a copy
+  of this software and associated documentation files (the "Software"), to deal
+  in the Software without restriction, including without limitation the rights
+  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+  copies of the Software, and to permit persons to whom the Software is
+  furnished to do so, subject to the following conditions:
+
+  The above copyright notice and this permission notice shall be included in all
+  copies or substantial portions of the Software.
+
+  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+  SOFTWARE.
+ */
+
+package me.dcii.flowmap.map;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.graphics.Bitmap;
+
+import com.google.android.gms.maps.model.LatLngBounds;
+import com.google.android.gms.maps.model.Tile;
+import com.google.android.gms.maps.model.TileProvider;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import io.realm.Realm;
+import io.realm.RealmResults;
+import me.dcii.flowmap.model.Journey;
+
+/**
+ * Serves map tiles drawn from the positions of every journey. Tiles are rendered by the
+ * subclass on the map tile threads and kept in a {@link TileCache}.
+ *
+ * Cached tiles stay valid until a journey lands in them, see {@link #invalidateNewJourneys()}.
+ *
+ * @author Dogak Cinfwat.
+ */
+public abstract class JourneyTileProvider implements TileProvider {
+
+    private static final String KEY_LAST_END_TIME = "last_end_time";
+    private static final String KEY_LAST_REFRESH = "last_refresh";
+
+    private final TileCache mCache;
+    private final SharedPreferences mPreferences;
+
+    /**
+     * Constructor.
+     *
+     * @param context the context.
+     * @param name names the cache directory and preferences of the layer.
+     * @param version the version of the tiles drawn, see {@link TileCache}.
+     * @param memoryBytes the size of the tiles kept in memory.
+     * @param diskBytes the size budget of the tile cache directory.
+     */
+    protected JourneyTileProvider(Context context, String name, int version, int memoryBytes,
+                                  long diskBytes) {
+        mCache = new TileCache(new File(context.getCacheDir(), name + "_tiles"), version,
+                memoryBytes, diskBytes);
+        mPreferences = context.getSharedPreferences(name, Context.MODE_PRIVATE);
+    }
+
+    @Override
+    public Tile getTile(int x, int y, int zoom) {
+        byte[] data = mCache.get(x, y, zoom);
+        if (data == null) {
+            final int generation = mCache.getGeneration();
+            data = render(x, y, zoom);
+            if (data == null) {
+                // Asks the map to try again later.
+                return null;
+            }
+            mCache.put(x, y, zoom, data, generation);
+        }
+        return data.length == 0 ? NO_TILE
+                : new Tile(TileProjection.TILE_SIZE, TileProjection.TILE_SIZE, data);
+    }
+
+    /**
+     * Invalidates the tiles of the journeys recorded or deleted since the last call. Reads the
+     * store and the cache directory, so must not be called on the main thread.
+     *
+     * @return true if tiles were invalidated.
+     */
+    public boolean invalidateNewJourneys() {
+        // Positions are compared on their own clock, as buffered positions may be written after
+        // the call; deletions on the wall clock.
+        final long now = System.currentTimeMillis();
+        final long lastRefresh = mPreferences.getLong(KEY_LAST_REFRESH, 0);
+        long lastEndTime = mPreferences.getLong(KEY_LAST_END_TIME, 0);
+
+        final BoundsFilter filter = new BoundsFilter(getMargin());
+        final Realm realm = Realm.getDefaultInstance();
+        try {
+            // Deleted journeys are included, their positions have to leave the tiles.
+            final RealmResults<Journey> journeys = realm.where(Journey.class)
+                    .beginGroup()
+                    .greaterThan(Journey.FIELD_END_TIME, lastEndTime)
+                    .or()
+                    .greaterThan(Journey.FIELD_DATE_DELETED, new Date(lastRefresh))
+                    .endGroup()
+                    .findAll();
+            for (Journey journey : journeys) {
+                final LatLngBounds bounds = journey.getBounds();
+                if (bounds != null) {
+                    filter.add(bounds);
+                }
+                lastEndTime = Math.max(lastEndTime, journey.getEndTime());
+                onJourneyChanged(journey);
+            }
+        } finally {
+            realm.close();
+        }
+
+        if (!filter.isEmpty()) {
+            mCache.invalidate(filter);
+        }
+        mPreferences.edit()
+                .putLong(KEY_LAST_END_TIME, lastEndTime)
+                .putLong(KEY_LAST_REFRESH, now)
+                .apply();
+        return !filter.isEmpty();
+    }
+
+    /**
+     * Renders a tile. Called on the map tile threads.
+     *
+     * @param x the tile column.
+     * @param y the tile row.
+     * @param zoom the zoom level.
+     * @return the encoded tile, no bytes for an empty tile or null if rendering failed.
+     */
+    protected abstract byte[] render(int x, int y, int zoom);
+
+    /**
+     * Gets how far, in pixels, a position may show outside of its tile.
+     *
+     * @return the margin in pixels.
+     */
+    protected abstract int getMargin();
+
+    /**
+     * Called by {@link #invalidateNewJourneys()} for each journey recorded or deleted since the
+     * last call, before the tiles are invalidated.
+     *
+     * @param journey the journey.
+     */
+    protected void onJourneyChanged(Journey journey) {
+    }
+
+    /**
+     * Encodes a rendered tile, recycling the bitmap.
+     *
+     * @param bitmap the tile bitmap.
+     * @return the PNG encoded tile or null if encoding failed.
+     */
+    protected static byte[] encode(Bitmap bitmap) {
+        try {
+            final ByteArrayOutputStream output = new ByteArrayOutputStream();
+            return bitmap.compress(Bitmap.CompressFormat.PNG, 100, output)
+                    ? output.toByteArray() : null;
+        } finally {
+            bitmap.recycle();
+        }
+    }
+
+    /**
+     * Selects the tiles whose rendering may draw positions within any of a set of bounds.
+     */
+    private static class BoundsFilter implements TileCache.Filter {
+
+        private final int mMargin;
+
+        /**
+         * The south, west, north and east edges of each bounds.
+         */
+        private final List<double[]> mBounds = new ArrayList<>();
+
+        BoundsFilter(int margin) {
+            mMargin = margin;
+        }
+
+        void add(LatLngBounds bounds) {
+            mBounds.add(new double[]{bounds.southwest.latitude, bounds.southwest.longitude,
+                    bounds.northeast.latitude, bounds.northeast.longitude});
+        }
+
+        boolean isEmpty() {
+            return mBounds.isEmpty();
+        }
+
+        @Override
+        public boolean matches(int x, int y, int zoom) {
+            final double left = (double) x * TileProjection.TILE_SIZE - mMargin;
+            final double right = (double) (x + 1) * TileProjection.TILE_SIZE + mMargin;
+            final double top = (double) y * TileProjection.TILE_SIZE - mMargin;
+            final double bottom = (double) (y + 1) * TileProjection.TILE_SIZE + mMargin;
+            for (double[] bounds : mBounds) {
+                if (TileProjection.longitudeToX(bounds[1], zoom) <= right
+                        && TileProjection.longitudeToX(bounds[3], zoom) >= left
+                        && TileProjection.latitudeToY(bounds[2], zoom) <= bottom
+                        && TileProjection.latitudeToY(bounds[0], zoom) >= top) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,92 @@
+/*
+  MIT License
+
+  Copyright (c) 2017 Cinfwat Dogak
+
+  Permission is hereby granted, free of charge, to any person obtaining a copy
+  of this software and associated documentation files (the "Software"), to deal
+  in the Software without restriction, including without limitation the rights
+  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+  copies of the Software, and to permit persons to whom the Software is
+  furnished to do so, subject to the following conditions:
+
+  The above copyright notice and this permission notice shall be included in all
+  copies or substantial portions of the Software.
+
+  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+  SOFTWARE.
+ */
+
+package me.dcii.flowmap.map;
+
+import com.google.android.gms.maps.model.LatLng;
+import com.google.android.gms.maps.model.LatLngBounds;
+
+import me.dcii.flowmap.model.Journey;
+import me.dcii.flowmap.model.TrackPoints;
+
+/**
+ * Route geometry of a {@link Journey} prepared off the main thread by the
+ * {@link RouteGeometryLoader}: the decoded positions, their {@link RoutePyramid} and the summary
+ * values the map needs. Not backed by Realm, so it can be handed between threads.
+ *
+ * @author Dogak Cinfwat.
+ */
+public class RouteGeometry {
+
+    private final String mJourneyId;
+    private final TrackPoints mPoints;
+    private final RoutePyramid mPyramid;
+    private final LatLng mStart;
+    private final LatLng mEnd;
+    private final LatLngBounds mBounds;
+
+    /**
+     * Constructor.
+     *
+     * @param journeyId the {@link Journey} identifier.
+     * @param points the decoded positions.
+     * @param pyramid the levels of the positions.
+     * @param start the start position.
+     * @param end the end position.
+     * @param bounds the bounding box of the positions.
+     */
+    public RouteGeometry(String journeyId, TrackPoints points, RoutePyramid pyramid,
+                         LatLng start, LatLng end, LatLngBounds bounds) {
+        mJourneyId = journeyId;
+        mPoints = points;
+        mPyramid = pyramid;
+        mStart = start;
+        mEnd = end;
+        mBounds = bounds;
+    }
+
+    public String getJourneyId() {
+        return mJourneyId;
+    }
+
+    public TrackPoints getPoints() {
+        return mPoints;
+    }
+
+    public RoutePyramid getPyramid() {
+        return mPyramid;
+    }
+
+    public LatLng getStart() {
+        return mStart;
+    }
+
+    public LatLng getEnd() {
+        return mEnd;
+    }
+
+    public LatLngBounds getBounds() {
+        return mBounds;
+    }
+}
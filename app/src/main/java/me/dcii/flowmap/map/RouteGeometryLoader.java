@@ -0,0 +1,203 @@
+/*
+  MIT License
+
+  Copyright (c) 2017 Cinfwat Dogak
+
+  Permission is hereby granted, free of charge, to any person obtaining a copy
+  of this software and associated documentation files (the "Software"), to deal
+  in the Software without restriction, including without limitation the rights
+  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+  copies of the Software, and to permit persons to whom the Software is
+  furnished to do so, subject to the following conditions:
+
+  The above copyright notice and this permission notice shall be included in all
+  copies or substantial portions of the Software.
+
+  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+  SOFTWARE.
+ */
+
+package me.dcii.flowmap.map;
+
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.os.Process;
+
+import io.realm.Realm;
+import me.dcii.flowmap.model.Journey;
+import me.dcii.flowmap.model.TrackPoints;
+
+/**
+ * Prepares {@link RouteGeometry} on a background thread with its own {@link Realm} instance, so
+ * opening a long journey never decodes its track on the main thread. The track is decoded into
+ * primitive arrays and the {@link RoutePyramid} level for the expected zoom is built before the
+ * result is posted to the main thread.
+ *
+ * Only the latest load is delivered; starting a load or calling {@link #cancel()} drops the
+ * result of the previous one. The loader also rebuilds the pyramid of a route drawn while it is
+ * recorded, see {@link #buildPyramid}.
+ *
+ * @author Dogak Cinfwat.
+ */
+public class RouteGeometryLoader {
+
+    /**
+     * Class name tag for debugging. Also used to name the loader thread.
+     */
+    private static final String TAG = RouteGeometryLoader.class.getSimpleName();
+
+    /**
+     * Receives the loaded geometry on the main thread.
+     */
+    public interface Callback {
+
+        /**
+         * Called with the loaded geometry.
+         *
+         * @param geometry the route geometry, or null if the journey has no positions or was
+         *                 deleted.
+         */
+        void onRouteGeometryLoaded(RouteGeometry geometry);
+    }
+
+    /**
+     * Receives a built pyramid on the main thread.
+     */
+    public interface PyramidCallback {
+
+        /**
+         * Called with the built pyramid.
+         *
+         * @param pyramid the pyramid.
+         */
+        void onPyramidBuilt(RoutePyramid pyramid);
+    }
+
+    private final HandlerThread mThread;
+    private final Handler mHandler;
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+
+    /**
+     * Incremented by every load and cancellation. A result is only delivered if no load or
+     * cancellation happened since its load started. Only accessed from the main thread.
+     */
+    private int mGeneration;
+
+    /**
+     * Set once the loader thread is stopped, no result is delivered afterwards. Only accessed
+     * from the main thread.
+     */
+    private boolean mIsQuit;
+
+    /**
+     * Constructor. Starts the loader thread.
+     */
+    public RouteGeometryLoader() {
+        mThread = new HandlerThread(TAG, Process.THREAD_PRIORITY_BACKGROUND);
+        mThread.start();
+        mHandler = new Handler(mThread.getLooper());
+    }
+
+    /**
+     * Loads the geometry of a journey. Call from the main thread.
+     *
+     * @param journeyId the {@link Journey} identifier.
+     * @param zoom the zoom level the route is expected to be drawn at.
+     * @param callback receives the geometry on the main thread.
+     */
+    public void load(final String journeyId, final int zoom, final Callback callback) {
+        final int generation = ++mGeneration;
+        mHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                final RouteGeometry geometry = read(journeyId, zoom);
+                mMainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (generation == mGeneration) {
+                            callback.onRouteGeometryLoaded(geometry);
+                        }
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Builds the pyramid of the first positions of a route, and the level for a zoom. The points
+     * are read on the loader thread, so the caller must only append to them meanwhile. Call from
+     * the main thread.
+     *
+     * @param points the route positions.
+     * @param count the number of positions to build the pyramid of.
+     * @param zoom the zoom level the route is expected to be drawn at.
+     * @param callback receives the pyramid on the main thread.
+     */
+    public void buildPyramid(TrackPoints points, final int count, final int zoom,
+                             final PyramidCallback callback) {
+        // Appending only writes past the count, or to new arrays once the arrays grow.
+        final double[] latitudes = points.getLatitudes();
+        final double[] longitudes = points.getLongitudes();
+        mHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                final RoutePyramid pyramid = new RoutePyramid(latitudes, longitudes, count);
+                pyramid.getLevel(zoom);
+                mMainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (!mIsQuit) {
+                            callback.onPyramidBuilt(pyramid);
+                        }
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Drops the result of the pending load. Call from the main thread.
+     */
+    public void cancel() {
+        mGeneration++;
+    }
+
+    /**
+     * Drops the pending load and stops the loader thread. Call from the main thread.
+     */
+    public void quit() {
+        cancel();
+        mIsQuit = true;
+        mThread.quitSafely();
+    }
+
+    /**
+     * Reads the journey geometry on the loader thread.
+     */
+    private static RouteGeometry read(String journeyId, int zoom) {
+        final Realm realm = Realm.getDefaultInstance();
+        try {
+            final Journey journey = realm.where(Journey.class)
+                    .equalTo(Journey.FIELD_ID, journeyId).findFirst();
+            if (journey == null || journey.getPointCount() == 0) {
+                return null;
+            }
+
+            final TrackPoints points = journey.readTrack(
+                    new TrackPoints(journey.getPointCount()));
+            final RoutePyramid pyramid = new RoutePyramid(points.getLatitudes(),
+                    points.getLongitudes(), points.size());
+            pyramid.getLevel(zoom);  // Built here rather than when first drawn.
+            return new RouteGeometry(journeyId, points, pyramid, journey.getStartLatLng(),
+                    journey.getEndLatLng(), journey.getBounds());
+        } finally {
+            realm.close();
+        }
+    }
+}
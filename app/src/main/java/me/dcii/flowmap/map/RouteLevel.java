@@ -0,0 +1,120 @@
+/*
+  MIT License
+
+  Copyright (c) 2017 Cinfwat Dogak
+
+  Permission is hereby granted, free of charge, to any person obtaining a copy
+  of this software and associated documentation files (the "Software"), to deal
+  in the Software without restriction, including without limitation the rights
+  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+  copies of the Software, and to permit persons to whom the Software is
+  furnished to do so, subject to the following conditions:
+
+  The above copyright notice and this permission notice shall be included in all
+  copies or substantial portions of the Software.
+
+  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+  SOFTWARE.
+ */
+
+package me.dcii.flowmap.map;
+
+/**
+ * Chooses the route positions drawn at a zoom level. Below
+ * {@link RoutePyramid#FULL_RESOLUTION_ZOOM} they are the level of a {@link RoutePyramid},
+ * followed at full resolution by the positions appended since the pyramid was built. So the
+ * level drawn stays valid while the route grows, and a pyramid covering the new positions can be
+ * built off the main thread and swapped in once it is ready.
+ *
+ * @author Dogak Cinfwat.
+ */
+public class RouteLevel {
+
+    private RoutePyramid mPyramid;
+    private int mZoom = RoutePyramid.FULL_RESOLUTION_ZOOM;
+
+    /**
+     * Sets the zoom level.
+     *
+     * @param zoom the map zoom level.
+     * @return true if the level changed.
+     */
+    public boolean setZoom(float zoom) {
+        final int level = Math.min((int) zoom, RoutePyramid.FULL_RESOLUTION_ZOOM);
+        if (level == mZoom) {
+            return false;
+        }
+        mZoom = level;
+        return true;
+    }
+
+    public int getZoom() {
+        return mZoom;
+    }
+
+    /**
+     * Checks if every position is drawn at the current zoom.
+     *
+     * @return true from {@link RoutePyramid#FULL_RESOLUTION_ZOOM} on.
+     */
+    public boolean isFullResolution() {
+        return mZoom >= RoutePyramid.FULL_RESOLUTION_ZOOM;
+    }
+
+    /**
+     * Sets the pyramid of the first positions of the route.
+     *
+     * @param pyramid the pyramid, or null to forget it.
+     */
+    public void setPyramid(RoutePyramid pyramid) {
+        mPyramid = pyramid;
+    }
+
+    public RoutePyramid getPyramid() {
+        return mPyramid;
+    }
+
+    /**
+     * Checks if the positions drawn at the current zoom would be reduced further by a pyramid
+     * covering the whole route.
+     *
+     * @param pointCount the number of route positions.
+     * @return true if a pyramid of the route should be built.
+     */
+    public boolean isStale(int pointCount) {
+        return !isFullResolution()
+                && (mPyramid == null || mPyramid.getPointCount() != pointCount);
+    }
+
+    /**
+     * Gets the indexes of the positions drawn at the current zoom: the pyramid level and the
+     * positions appended since the pyramid was built, or every position at full resolution or
+     * without a pyramid.
+     *
+     * @param pointCount the number of route positions.
+     * @return the position indexes in route order.
+     */
+    public int[] getIndexes(int pointCount) {
+        if (isFullResolution() || mPyramid == null || mPyramid.getPointCount() > pointCount) {
+            final int[] indexes = new int[pointCount];
+            for (int index = 0; index < pointCount; index++) {
+                indexes[index] = index;
+            }
+            return indexes;
+        }
+
+        final int[] level = mPyramid.getLevel(mZoom);
+        final int covered = mPyramid.getPointCount();
+        final int[] indexes = new int[level.length + pointCount - covered];
+        System.arraycopy(level, 0, indexes, 0, level.length);
+        for (int index = covered; index < pointCount; index++) {
+            indexes[level.length + index - covered] = index;
+        }
+        return indexes;
+    }
+}
@@ -0,0 +1,471 @@
+/*
+  MIT License
+
+  Copyright (c) 2017 Cinfwat Dogak
+
+  Permission is hereby granted, free of charge, to any person obtaining a copy
+  of this software and associated documentation files (the "Software"), to deal
+  in the Software without restriction, including without limitation the rights
+  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+  copies of the Software, and to permit persons to whom the Software is
+  furnished to do so, subject to the following conditions:
+
+  The above copyright notice and this permission notice shall be included in all
+  copies or substantial portions of the Software.
+
+  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+  SOFTWARE.
+ */
+
+package me.dcii.flowmap.map;
+
+import com.google.android.gms.maps.GoogleMap;
+import com.google.android.gms.maps.model.BitmapDescriptorFactory;
+import com.google.android.gms.maps.model.LatLng;
+import com.google.android.gms.maps.model.Marker;
+import com.google.android.gms.maps.model.MarkerOptions;
+import com.google.android.gms.maps.model.Polyline;
+import com.google.android.gms.maps.model.PolylineOptions;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import me.dcii.flowmap.model.Journey;
+import me.dcii.flowmap.model.TrackPoints;
+
+/**
+ * Draws the route of one {@link Journey} on a {@link GoogleMap} and keeps it up to date as
+ * positions are appended, without redrawing what is already on the map.
+ *
+ * The route is a chain of {@link Polyline}s: a short tail that new positions are appended to, and
+ * the full polylines before it, which are never touched again. Setting the points of a polyline
+ * copies all of them to the map, so capping the tail at {@link #MAX_TAIL_POINTS} keeps the cost
+ * of an update independent of the route length. The start and end {@link Marker}s are added once
+ * and moved in place.
+ *
+ * Below {@link RoutePyramid#FULL_RESOLUTION_ZOOM} the route is drawn from its level in a
+ * {@link RoutePyramid}, so the points on the map scale with the route's size on screen. Positions
+ * appended after the pyramid was built are added at full resolution (see {@link RouteLevel}).
+ * The pyramid of a growing route is rebuilt on the {@link RouteGeometryLoader} thread when the
+ * camera stops, and its level is swapped in once built.
+ *
+ * Positions are stored some time after they are recorded, as the simplifier and the write buffer
+ * hold them back. The positions the simplifier committed but that are not stored yet are passed
+ * to {@link #addPending}, and the latest accepted fix to {@link #setLatestFix}. They are drawn as
+ * a provisional end segment from the last stored position, so the route keeps up with the
+ * location dot. The fixes the simplifier still holds lie within its tolerance of the segment to
+ * the latest fix, so they are not drawn. Pending positions are dropped once stored positions as
+ * recent are drawn.
+ *
+ * Not thread safe; use from the main thread.
+ *
+ * @author Dogak Cinfwat.
+ */
+public class RouteOverlay {
+
+    /**
+     * Maximum number of points of the tail polyline. A full tail is left as it is and a new tail
+     * continues from its last point.
+     */
+    static final int MAX_TAIL_POINTS = 256;
+
+    /**
+     * Maximum number of pending positions kept, the oldest are dropped first.
+     */
+    static final int MAX_PENDING_POINTS = 256;
+
+    private final GoogleMap mMap;
+    private final int mColor;
+    private final float mWidth;
+    private final String mStartTitle;
+    private final String mEndTitle;
+
+    /**
+     * Every position of the journey drawn, the source of the levels.
+     */
+    private TrackPoints mPoints = new TrackPoints();
+    private final RouteLevel mLevel = new RouteLevel();
+
+    /**
+     * Builds the pyramids off the main thread.
+     */
+    private final RouteGeometryLoader mLoader;
+
+    /**
+     * Flag used to show that a pyramid of {@link #mPoints} is being built.
+     */
+    private boolean mIsBuildingPyramid;
+
+    private final List<Polyline> mFullPolylines = new ArrayList<>();
+    private ArrayList<LatLng> mTailPoints = new ArrayList<>();
+    private Polyline mTail;
+
+    /**
+     * Committed positions not stored yet and their map points, and the latest accepted fix.
+     */
+    private final TrackPoints mPendingPoints = new TrackPoints();
+    private final ArrayList<LatLng> mPendingLatLngs = new ArrayList<>();
+    private LatLng mLatestFix;
+    private long mLatestFixTime;
+
+    /**
+     * The provisional segment, and its points list reused by every update.
+     */
+    private final ArrayList<LatLng> mPendingLinePoints = new ArrayList<>();
+    private Polyline mPendingLine;
+
+    private Marker mStartMarker;
+    private Marker mEndMarker;
+
+    /**
+     * Identifier of the journey drawn.
+     */
+    private String mJourneyId;
+
+    /**
+     * Constructor.
+     *
+     * @param map the map to draw on.
+     * @param color the route color.
+     * @param width the route width in pixels.
+     * @param startTitle the start marker title.
+     * @param endTitle the end marker title.
+     * @param loader builds the pyramids of routes drawn while recorded.
+     */
+    public RouteOverlay(GoogleMap map, int color, float width, String startTitle,
+                        String endTitle, RouteGeometryLoader loader) {
+        mMap = map;
+        mLoader = loader;
+        mColor = color;
+        mWidth = width;
+        mStartTitle = startTitle;
+        mEndTitle = endTitle;
+    }
+
+    /**
+     * Checks if a route is drawn.
+     *
+     * @return true if no journey positions are on the map.
+     */
+    public boolean isEmpty() {
+        return mPoints.size() == 0;
+    }
+
+    /**
+     * Draws the journey positions appended since the last update, and places the markers. A
+     * different journey than the one drawn replaces it.
+     *
+     * @param journey the journey.
+     * @param showEndMarker whether to show the end marker.
+     */
+    public void update(Journey journey, boolean showEndMarker) {
+        if (!journey.getId().equals(mJourneyId)) {
+            clear();
+            mJourneyId = journey.getId();
+        }
+
+        final int drawn = mPoints.size();
+        if (journey.getPointCount() > drawn) {
+            // Only the block holding the first new position and the blocks after it are decoded.
+            journey.readTrack(mPoints, drawn);
+            if (drawn == 0) {
+                draw();
+            } else {
+                for (int index = drawn; index < mPoints.size(); index++) {
+                    append(new LatLng(mPoints.getLatitude(index), mPoints.getLongitude(index)));
+                }
+                updateTail();
+            }
+            removeStoredPending();
+        }
+
+        updateMarkers(journey.getStartLatLng(), journey.getEndLatLng(), showEndMarker);
+    }
+
+    /**
+     * Draws a position the simplifier committed but that is not stored yet at the end of the
+     * route. A different journey than the one drawn replaces it.
+     *
+     * @param journeyId identifier of the journey the position belongs to.
+     * @param latitude the position latitude.
+     * @param longitude the position longitude.
+     * @param time the position time in epoch milliseconds.
+     */
+    public void addPending(String journeyId, double latitude, double longitude, long time) {
+        setJourneyId(journeyId);
+        if (mPendingPoints.size() >= MAX_PENDING_POINTS) {
+            mPendingPoints.remove(0, 1);
+            mPendingLatLngs.remove(0);
+        }
+        mPendingPoints.add(latitude, longitude, time);
+        mPendingLatLngs.add(new LatLng(latitude, longitude));
+        updatePendingLine();
+    }
+
+    /**
+     * Ends the route with the latest accepted fix until a stored position as recent is drawn. A
+     * different journey than the one drawn replaces it.
+     *
+     * @param journeyId identifier of the journey the fix belongs to.
+     * @param latitude the fix latitude.
+     * @param longitude the fix longitude.
+     * @param time the fix time in epoch milliseconds.
+     */
+    public void setLatestFix(String journeyId, double latitude, double longitude, long time) {
+        setJourneyId(journeyId);
+        mLatestFix = new LatLng(latitude, longitude);
+        mLatestFixTime = time;
+        updatePendingLine();
+    }
+
+    /**
+     * Replaces the route drawn if it belongs to another journey.
+     */
+    private void setJourneyId(String journeyId) {
+        if (!journeyId.equals(mJourneyId)) {
+            clear();
+            mJourneyId = journeyId;
+        }
+    }
+
+    /**
+     * Draws a route geometry loaded off the main thread, replacing the route drawn. The overlay
+     * takes over the geometry points, so later updates of the same journey append to them.
+     *
+     * @param geometry the route geometry.
+     * @param showEndMarker whether to show the end marker.
+     */
+    public void setGeometry(RouteGeometry geometry, boolean showEndMarker) {
+        clear();
+        mJourneyId = geometry.getJourneyId();
+        mPoints = geometry.getPoints();
+        mLevel.setPyramid(geometry.getPyramid());
+        draw();
+        removeStoredPending();
+        updateMarkers(geometry.getStart(), geometry.getEnd(), showEndMarker);
+    }
+
+    /**
+     * Places the start marker once and moves the end marker to the last position.
+     */
+    private void updateMarkers(LatLng start, LatLng end, boolean showEndMarker) {
+        if (start != null && mStartMarker == null) {
+            mStartMarker = mMap.addMarker(new MarkerOptions()
+                    .position(start)
+                    .title(mStartTitle)
+                    .icon(BitmapDescriptorFactory.defaultMarker(
+                            BitmapDescriptorFactory.HUE_GREEN)));
+        }
+
+        if (showEndMarker && end != null) {
+            if (mEndMarker == null) {
+                mEndMarker = mMap.addMarker(new MarkerOptions()
+                        .position(end)
+                        .title(mEndTitle)
+                        .icon(BitmapDescriptorFactory.defaultMarker(
+                                BitmapDescriptorFactory.HUE_RED)));
+            } else {
+                mEndMarker.setPosition(end);
+            }
+        } else if (mEndMarker != null) {
+            mEndMarker.remove();
+            mEndMarker = null;
+        }
+    }
+
+    /**
+     * Draws the route level for a zoom, called when the camera stops moving. If positions were
+     * appended since the pyramid was built, a new pyramid is built in the background and the
+     * level drawn is kept until it is ready.
+     *
+     * @param zoom the map zoom level.
+     */
+    public void setZoom(float zoom) {
+        if (mLevel.setZoom(zoom)) {
+            draw();
+        } else if (mLevel.isStale(mPoints.size())) {
+            buildPyramid();
+        }
+    }
+
+    /**
+     * Removes the route and markers from the map.
+     */
+    public void clear() {
+        removePolylines();
+        // A new list, as the points may be those of a geometry the caller still holds.
+        mPoints = new TrackPoints();
+        mLevel.setPyramid(null);
+        mIsBuildingPyramid = false;
+        mPendingPoints.clear();
+        mPendingLatLngs.clear();
+        mLatestFix = null;
+        if (mPendingLine != null) {
+            mPendingLine.remove();
+            mPendingLine = null;
+        }
+        if (mStartMarker != null) {
+            mStartMarker.remove();
+            mStartMarker = null;
+        }
+        if (mEndMarker != null) {
+            mEndMarker.remove();
+            mEndMarker = null;
+        }
+        mJourneyId = null;
+    }
+
+    /**
+     * Drops the pending positions no more recent than the last stored one, which are stored now,
+     * and redraws the provisional segment. Called once stored positions were drawn.
+     */
+    private void removeStoredPending() {
+        if (mPoints.size() == 0) {
+            return;
+        }
+
+        final long lastStored = mPoints.getTime(mPoints.size() - 1);
+        int stored = 0;
+        while (stored < mPendingPoints.size() && mPendingPoints.getTime(stored) <= lastStored) {
+            stored++;
+        }
+        mPendingPoints.remove(0, stored);
+        mPendingLatLngs.subList(0, stored).clear();
+        if (mLatestFix != null && mLatestFixTime <= lastStored) {
+            mLatestFix = null;
+        }
+        // The segment starts at the new last stored position.
+        updatePendingLine();
+    }
+
+    /**
+     * Copies the last stored position, the committed positions and the latest fix to the
+     * provisional polyline, removing it if there is nothing pending.
+     */
+    private void updatePendingLine() {
+        if (mPendingLatLngs.isEmpty() && mLatestFix == null) {
+            if (mPendingLine != null) {
+                mPendingLine.remove();
+                mPendingLine = null;
+            }
+            return;
+        }
+
+        // The tail ends with the last stored position.
+        mPendingLinePoints.clear();
+        if (!mTailPoints.isEmpty()) {
+            mPendingLinePoints.add(mTailPoints.get(mTailPoints.size() - 1));
+        }
+        for (int index = 0; index < mPendingLatLngs.size(); index++) {
+            mPendingLinePoints.add(mPendingLatLngs.get(index));
+        }
+        if (mLatestFix != null) {
+            mPendingLinePoints.add(mLatestFix);
+        }
+
+        if (mPendingLine == null) {
+            mPendingLine = mMap.addPolyline(new PolylineOptions()
+                    .width(mWidth)
+                    .color(mColor)
+                    .geodesic(true)
+                    .addAll(mPendingLinePoints));
+        } else {
+            mPendingLine.setPoints(mPendingLinePoints);
+        }
+    }
+
+    /**
+     * Replaces the polylines with the level for the current zoom, and starts building a pyramid
+     * covering the whole route if the level is stale.
+     */
+    private void draw() {
+        removePolylines();
+        if (mPoints.size() == 0) {
+            return;
+        }
+
+        for (int index : mLevel.getIndexes(mPoints.size())) {
+            append(new LatLng(mPoints.getLatitude(index), mPoints.getLongitude(index)));
+        }
+        updateTail();
+
+        if (mLevel.isStale(mPoints.size())) {
+            buildPyramid();
+        }
+    }
+
+    /**
+     * Builds the pyramid of the positions drawn on the loader thread, unless one is being built.
+     */
+    private void buildPyramid() {
+        if (mIsBuildingPyramid) {
+            return;
+        }
+        mIsBuildingPyramid = true;
+        final TrackPoints points = mPoints;
+        mLoader.buildPyramid(points, points.size(), mLevel.getZoom(),
+                new RouteGeometryLoader.PyramidCallback() {
+                    @Override
+                    public void onPyramidBuilt(RoutePyramid pyramid) {
+                        // Dropped if the route was cleared or replaced meanwhile.
+                        if (points != mPoints) {
+                            return;
+                        }
+                        mIsBuildingPyramid = false;
+                        mLevel.setPyramid(pyramid);
+                        if (!mLevel.isFullResolution()) {
+                            draw();
+                        }
+                    }
+                });
+    }
+
+    private void removePolylines() {
+        for (Polyline polyline : mFullPolylines) {
+            polyline.remove();
+        }
+        mFullPolylines.clear();
+        if (mTail != null) {
+            mTail.remove();
+            mTail = null;
+        }
+        mTailPoints = new ArrayList<>();
+    }
+
+    /**
+     * Appends a point to the tail, first starting a new tail if it is full.
+     */
+    private void append(LatLng point) {
+        if (mTailPoints.size() >= MAX_TAIL_POINTS) {
+            updateTail();
+            mFullPolylines.add(mTail);
+            mTail = null;
+
+            // The new tail starts at the end of the full one, so the route stays connected.
+            final LatLng last = mTailPoints.get(mTailPoints.size() - 1);
+            mTailPoints = new ArrayList<>(MAX_TAIL_POINTS);
+            mTailPoints.add(last);
+        }
+        mTailPoints.add(point);
+    }
+
+    /**
+     * Copies the tail points to the tail polyline, adding it to the map if needed.
+     */
+    private void updateTail() {
+        if (mTail == null) {
+            mTail = mMap.addPolyline(new PolylineOptions()
+                    .width(mWidth)
+                    .color(mColor)
+                    .geodesic(true)
+                    .addAll(mTailPoints));
+        } else {
+            mTail.setPoints(mTailPoints);
+        }
+    }
+}
@@ -0,0 +1,235 @@
+/*
+  MIT License
+
+  Copyright (c) 2017 Cinfwat Dogak
+
+  Permission is hereby granted, free of charge, to any person obtaining a copy
+  of this software and associated documentation files (the "Software"), to deal
+  in the Software without restriction, including without limitation the rights
+  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+  copies of the Software, and to permit persons to whom the Software is
+  furnished to do so, subject to the following conditions:
+
+  The above copyright notice and this permission notice shall be included in all
+  copies or substantial portions of the Software.
+
+  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+  SOFTWARE.
+ */
+
+package me.dcii.flowmap.map;
+
+import java.util.Arrays;
+
+import me.dcii.flowmap.util.GeoUtils;
+
+/**
+ * Multi-resolution route geometry. Douglas-Peucker is run once over the route, recording for
+ * every point the largest tolerance at which it is still kept (its significance). The level for
+ * a zoom keeps the points more significant than the ground size of {@link #PIXEL_TOLERANCE}
+ * pixels at that zoom, which is exactly what Douglas-Peucker at that tolerance keeps. Levels are
+ * nested, so a point on a coarse level is on every finer level.
+ *
+ * The number of points of a level grows with the route's size on screen, not with the number of
+ * recorded points.
+ *
+ * @author Dogak Cinfwat.
+ */
+public class RoutePyramid {
+
+    /**
+     * Largest deviation, in screen pixels, of a level from the full route.
+     */
+    public static final double PIXEL_TOLERANCE = 1;
+
+    /**
+     * Zoom level from which the full route is drawn.
+     */
+    public static final int FULL_RESOLUTION_ZOOM = 18;
+
+    /**
+     * Ground size in meters of a pixel at the equator at zoom level 0.
+     */
+    private static final double EQUATOR_METERS_PER_PIXEL = 156543.03392;
+
+    private final int mCount;
+    private final double mLatitude;
+    private final double[] mSignificance;
+    private final int[][] mLevels = new int[FULL_RESOLUTION_ZOOM + 1][];
+
+    /**
+     * Constructor. Builds the pyramid of the first {@code count} points.
+     *
+     * @param latitudes point latitudes.
+     * @param longitudes point longitudes.
+     * @param count number of points.
+     */
+    public RoutePyramid(double[] latitudes, double[] longitudes, int count) {
+        mCount = count;
+        mLatitude = count > 0 ? latitudes[0] : 0;
+        mSignificance = computeSignificance(latitudes, longitudes, count);
+    }
+
+    /**
+     * Gets the number of points of the full route.
+     *
+     * @return the point count.
+     */
+    public int getPointCount() {
+        return mCount;
+    }
+
+    /**
+     * Gets the level for a zoom, the indexes of the points kept at that zoom in route order. Levels
+     * are computed on first use and cached.
+     *
+     * @param zoom the map zoom level.
+     * @return the point indexes, every index for {@link #FULL_RESOLUTION_ZOOM} and above.
+     */
+    public int[] getLevel(int zoom) {
+        zoom = Math.max(0, Math.min(FULL_RESOLUTION_ZOOM, zoom));
+        if (mLevels[zoom] == null) {
+            mLevels[zoom] = buildLevel(zoom >= FULL_RESOLUTION_ZOOM ? -1
+                    : toleranceForZoom(zoom, mLatitude));
+        }
+        return mLevels[zoom];
+    }
+
+    /**
+     * Gets the ground size of {@link #PIXEL_TOLERANCE} pixels.
+     *
+     * @param zoom the map zoom level.
+     * @param latitude the latitude, the ground size of a pixel shrinks away from the equator.
+     * @return the tolerance in meters.
+     */
+    public static double toleranceForZoom(int zoom, double latitude) {
+        return PIXEL_TOLERANCE * EQUATOR_METERS_PER_PIXEL * Math.cos(Math.toRadians(latitude))
+                / (1 << zoom);
+    }
+
+    /**
+     * Gets the significance of a point.
+     *
+     * @param index the point index.
+     * @return the largest tolerance in meters the point is kept at, infinite for the end points.
+     */
+    double getSignificance(int index) {
+        return mSignificance[index];
+    }
+
+    private int[] buildLevel(double tolerance) {
+        int size = 0;
+        for (int index = 0; index < mCount; index++) {
+            if (mSignificance[index] > tolerance) {
+                size++;
+            }
+        }
+        final int[] level = new int[size];
+        size = 0;
+        for (int index = 0; index < mCount; index++) {
+            if (mSignificance[index] > tolerance) {
+                level[size++] = index;
+            }
+        }
+        return level;
+    }
+
+    /**
+     * Runs Douglas-Peucker without a tolerance. A point's significance is its distance from the
+     * segment it splits, capped by the significance of the point that split the segment before,
+     * since it is only reached if that point is kept. Iterative, long routes would overflow the
+     * stack.
+     */
+    private static double[] computeSignificance(double[] latitudes, double[] longitudes,
+                                                int count) {
+        final double[] significance = new double[count];
+        if (count == 0) {
+            return significance;
+        }
+        significance[0] = Double.POSITIVE_INFINITY;
+        significance[count - 1] = Double.POSITIVE_INFINITY;
+
+        // Project to meters on a plane around the first point.
+        final double metersPerDegreeLongitude = GeoUtils.metersPerDegreeLongitude(latitudes[0]);
+        final double[] x = new double[count];
+        final double[] y = new double[count];
+        for (int index = 0; index < count; index++) {
+            x[index] = (longitudes[index] - longitudes[0]) * metersPerDegreeLongitude;
+            y[index] = (latitudes[index] - latitudes[0]) * GeoUtils.METERS_PER_DEGREE;
+        }
+
+        // Segments left to split: start, end and the cap of their points.
+        int[] starts = new int[32];
+        int[] ends = new int[32];
+        double[] caps = new double[32];
+        int size = 0;
+        if (count > 2) {
+            starts[0] = 0;
+            ends[0] = count - 1;
+            caps[0] = Double.POSITIVE_INFINITY;
+            size = 1;
+        }
+
+        while (size > 0) {
+            size--;
+            final int start = starts[size];
+            final int end = ends[size];
+            final double cap = caps[size];
+
+            int farthest = -1;
+            double maxDistance = -1;
+            for (int index = start + 1; index < end; index++) {
+                final double distance = segmentDistance(x[index], y[index], x[start], y[start],
+                        x[end], y[end]);
+                if (distance > maxDistance) {
+                    maxDistance = distance;
+                    farthest = index;
+                }
+            }
+            if (farthest < 0) {
+                continue;
+            }
+            final double value = Math.min(maxDistance, cap);
+            significance[farthest] = value;
+
+            if (size + 2 > starts.length) {
+                starts = Arrays.copyOf(starts, starts.length * 2);
+                ends = Arrays.copyOf(ends, ends.length * 2);
+                caps = Arrays.copyOf(caps, caps.length * 2);
+            }
+            if (farthest - start > 1) {
+                starts[size] = start;
+                ends[size] = farthest;
+                caps[size] = value;
+                size++;
+            }
+            if (end - farthest > 1) {
+                starts[size] = farthest;
+                ends[size] = end;
+                caps[size] = value;
+                size++;
+            }
+        }
+        return significance;
+    }
+
+    /**
+     * Gets the distance from a point to a segment, on the projected plane.
+     */
+    private static double segmentDistance(double x, double y, double startX, double startY,
+                                          double endX, double endY) {
+        final double dx = endX - startX;
+        final double dy = endY - startY;
+        final double lengthSquared = dx * dx + dy * dy;
+        double t = lengthSquared == 0 ? 0 : ((x - startX) * dx + (y - startY) * dy) / lengthSquared;
+        t = Math.max(0, Math.min(1, t));
+        final double px = x - startX - t * dx;
+        final double py = y - startY - t * dy;
+        return Math.sqrt(px * px + py * py);
+    }
+}
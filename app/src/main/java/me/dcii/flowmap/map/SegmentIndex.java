@@ -0,0 +1,229 @@
+/*
+  MIT License
+
+  Copyright (c) 2017 Cinfwat Dogak
+
+  Permission is hereby granted, free of charge, to any person obtaining a copy
+  of this software and associated documentation files (the "Software"), to deal
+  in the Software without restriction, including without limitation the rights
+  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+  copies of the Software, and to permit persons to whom the Software is
+  furnished to do so, subject to the following conditions:
+
+  The above copyright notice and this permission notice shall be included in all
+  copies or substantial portions of the Software.
+
+  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+  SOFTWARE.
+ */
+
+package me.dcii.flowmap.map;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * In-memory spatial index of journey segments. Each segment is the bounding box of a part of a
+ * journey, usually a track block, and is listed in the cells of a fixed grid it overlaps. The
+ * grid cells are the map tiles at {@link #INDEX_ZOOM}.
+ *
+ * Finding the journeys to draw in a tile only looks at the segments listed in the cells the
+ * tile overlaps, however long the history is.
+ *
+ * Thread safe.
+ *
+ * @author Dogak Cinfwat.
+ */
+public class SegmentIndex {
+
+    /**
+     * Zoom level of the grid, cells are about 10km wide at the equator.
+     */
+    public static final int INDEX_ZOOM = 12;
+
+    /**
+     * Segments overlapping more cells are kept in a separate list, scanned by every query.
+     * Keeps long jumps, such as a flight with the tracking left on, out of thousands of cells.
+     */
+    static final int MAX_CELLS = 64;
+
+    /**
+     * Bounding box of a journey segment.
+     */
+    private static final class Segment {
+        final String journeyId;
+        final double south;
+        final double west;
+        final double north;
+        final double east;
+
+        Segment(String journeyId, double south, double west, double north, double east) {
+            this.journeyId = journeyId;
+            this.south = south;
+            this.west = west;
+            this.north = north;
+            this.east = east;
+        }
+
+        boolean intersects(double south, double west, double north, double east) {
+            return this.south <= north && this.north >= south && this.west <= east
+                    && this.east >= west;
+        }
+    }
+
+    private final Map<Long, List<Segment>> mCells = new HashMap<>();
+    private final List<Segment> mWideSegments = new ArrayList<>();
+    private final Map<String, List<Segment>> mJourneys = new HashMap<>();
+    private int mSize;
+
+    /**
+     * Adds a segment.
+     *
+     * @param journeyId the journey identifier.
+     * @param south the southern edge of the segment.
+     * @param west the western edge.
+     * @param north the northern edge.
+     * @param east the eastern edge.
+     */
+    public synchronized void add(String journeyId, double south, double west, double north,
+                                 double east) {
+        final Segment segment = new Segment(journeyId, south, west, north, east);
+        List<Segment> segments = mJourneys.get(journeyId);
+        if (segments == null) {
+            segments = new ArrayList<>();
+            mJourneys.put(journeyId, segments);
+        }
+        segments.add(segment);
+        mSize++;
+
+        final int[] cells = cells(south, west, north, east);
+        if ((long) (cells[2] - cells[0] + 1) * (cells[3] - cells[1] + 1) > MAX_CELLS) {
+            mWideSegments.add(segment);
+            return;
+        }
+        for (int x = cells[0]; x <= cells[2]; x++) {
+            for (int y = cells[1]; y <= cells[3]; y++) {
+                final long key = key(x, y);
+                List<Segment> cell = mCells.get(key);
+                if (cell == null) {
+                    cell = new ArrayList<>();
+                    mCells.put(key, cell);
+                }
+                cell.add(segment);
+            }
+        }
+    }
+
+    /**
+     * Removes the segments of a journey.
+     *
+     * @param journeyId the journey identifier.
+     */
+    public synchronized void remove(String journeyId) {
+        final List<Segment> segments = mJourneys.remove(journeyId);
+        if (segments == null) {
+            return;
+        }
+        mSize -= segments.size();
+        for (Segment segment : segments) {
+            if (mWideSegments.remove(segment)) {
+                continue;
+            }
+            final int[] cells = cells(segment.south, segment.west, segment.north, segment.east);
+            for (int x = cells[0]; x <= cells[2]; x++) {
+                for (int y = cells[1]; y <= cells[3]; y++) {
+                    final long key = key(x, y);
+                    final List<Segment> cell = mCells.get(key);
+                    if (cell != null && cell.remove(segment) && cell.isEmpty()) {
+                        mCells.remove(key);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Gets the number of segments.
+     *
+     * @return the number of segments.
+     */
+    public synchronized int size() {
+        return mSize;
+    }
+
+    /**
+     * Finds the journeys with a segment overlapping an area.
+     *
+     * @param south the southern edge of the area.
+     * @param west the western edge.
+     * @param north the northern edge.
+     * @param east the eastern edge.
+     * @return the journey identifiers.
+     */
+    public synchronized Set<String> query(double south, double west, double north,
+                                          double east) {
+        final Set<String> journeys = new HashSet<>();
+        for (Segment segment : mWideSegments) {
+            if (segment.intersects(south, west, north, east)) {
+                journeys.add(segment.journeyId);
+            }
+        }
+
+        final int[] cells = cells(south, west, north, east);
+        if ((long) (cells[2] - cells[0] + 1) * (cells[3] - cells[1] + 1) > mCells.size()) {
+            // Zoomed out, fewer cells are filled than the area overlaps.
+            for (List<Segment> cell : mCells.values()) {
+                collect(cell, south, west, north, east, journeys);
+            }
+            return journeys;
+        }
+        for (int x = cells[0]; x <= cells[2]; x++) {
+            for (int y = cells[1]; y <= cells[3]; y++) {
+                final List<Segment> cell = mCells.get(key(x, y));
+                if (cell != null) {
+                    collect(cell, south, west, north, east, journeys);
+                }
+            }
+        }
+        return journeys;
+    }
+
+    private static void collect(List<Segment> cell, double south, double west, double north,
+                                double east, Set<String> journeys) {
+        for (Segment segment : cell) {
+            if (!journeys.contains(segment.journeyId)
+                    && segment.intersects(south, west, north, east)) {
+                journeys.add(segment.journeyId);
+            }
+        }
+    }
+
+    /**
+     * Gets the first column, first row, last column and last row of the cells overlapping an
+     * area.
+     */
+    private static int[] cells(double south, double west, double north, double east) {
+        return new int[]{
+                TileProjection.tileIndex(TileProjection.longitudeToX(west, INDEX_ZOOM),
+                        INDEX_ZOOM),
+                TileProjection.tileIndex(TileProjection.latitudeToY(north, INDEX_ZOOM),
+                        INDEX_ZOOM),
+                TileProjection.tileIndex(TileProjection.longitudeToX(east, INDEX_ZOOM),
+                        INDEX_ZOOM),
+                TileProjection.tileIndex(TileProjection.latitudeToY(south, INDEX_ZOOM),
+                        INDEX_ZOOM)};
+    }
+
+    private static long key(int x, int y) {
+        return (long) x << 32 | y;
+    }
+}
@@ -0,0 +1,331 @@
+/*
+  MIT License
+
+  Copyright (c) 2017 Cinfwat Dogak
+
+  Permission is hereby granted, free of charge, to any person obtaining a copy
+  of this software and associated documentation files (the "Software"), to deal
+  in the Software without restriction, including without limitation the rights
+  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+  copies of the Software, and to permit persons to whom the Software is
+  furnished to do so, subject to the following conditions:
+
+  The above copyright notice and this permission notice shall be included in all
+  copies or substantial portions of the Software.
+
+  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+  SOFTWARE.
+ */
+
+package me.dcii.flowmap.map;
+
+import android.util.Log;
+import android.util.LruCache;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Two tier cache of rendered map tiles. Encoded tiles are kept in an in-memory LRU backed by
+ * files in a cache directory, both keyed by zoom, column, row and the version of the data
+ * drawn. The directory is trimmed to a size budget, least recently used files first, and files
+ * of other generations are deleted. An empty tile is stored as no bytes.
+ *
+ * Thread safe, tiles are read and written from the map tile threads.
+ *
+ * @author Dogak Cinfwat.
+ */
+public class TileCache {
+
+    private static final String TAG = TileCache.class.getSimpleName();
+
+    /**
+     * Cache directory size, as a fraction of the budget, left after trimming.
+     */
+    private static final double TRIM_RATIO = 0.75;
+
+    /**
+     * Selects the tiles to invalidate.
+     */
+    public interface Filter {
+
+        /**
+         * Checks if a tile is selected.
+         *
+         * @param x the tile column.
+         * @param y the tile row.
+         * @param zoom the zoom level.
+         * @return true to invalidate the tile.
+         */
+        boolean matches(int x, int y, int zoom);
+    }
+
+    private final LruCache<String, byte[]> mMemoryCache;
+    private final File mDirectory;
+    private final int mVersion;
+    private final long mDiskBytes;
+
+    /**
+     * Size of the cache directory, -1 until the directory is first read.
+     */
+    private long mDiskSize = -1;
+
+    /**
+     * Incremented by every invalidation. See {@link #put(int, int, int, byte[], int)}.
+     */
+    private int mGeneration;
+
+    /**
+     * Constructor.
+     *
+     * @param directory the cache directory, created on first write.
+     * @param version the version of the data drawn, changed when tiles are drawn differently
+     *                or from differently stored data.
+     * @param memoryBytes the size of the tiles kept in memory.
+     * @param diskBytes the size budget of the cache directory.
+     */
+    public TileCache(File directory, int version, int memoryBytes, long diskBytes) {
+        mDirectory = directory;
+        mVersion = version;
+        mDiskBytes = diskBytes;
+        mMemoryCache = new LruCache<String, byte[]>(memoryBytes) {
+            @Override
+            protected int sizeOf(String key, byte[] value) {
+                // Empty tiles still take an entry.
+                return Math.max(value.length, 16);
+            }
+        };
+    }
+
+    /**
+     * Gets the generation to pass to {@link #put(int, int, int, byte[], int)}, read before the
+     * tile is rendered.
+     *
+     * @return the current generation.
+     */
+    public synchronized int getGeneration() {
+        return mGeneration;
+    }
+
+    /**
+     * Gets a tile, from memory or else from disk.
+     *
+     * @param x the tile column.
+     * @param y the tile row.
+     * @param zoom the zoom level.
+     * @return the encoded tile, or null if it is not cached.
+     */
+    public byte[] get(int x, int y, int zoom) {
+        final String key = key(x, y, zoom);
+        byte[] data = mMemoryCache.get(key);
+        if (data != null) {
+            return data;
+        }
+
+        synchronized (this) {
+            final File file = new File(mDirectory, key);
+            if (!file.exists()) {
+                return null;
+            }
+            try {
+                data = read(file);
+            } catch (IOException ex) {
+                Log.w(TAG, "Unreadable tile " + key, ex);
+                deleteFile(file);
+                return null;
+            }
+            // Marks the file as recently used for trimming.
+            file.setLastModified(System.currentTimeMillis());
+            // Under the lock, so an invalidation can not be undone.
+            mMemoryCache.put(key, data);
+        }
+        return data;
+    }
+
+    /**
+     * Stores a tile. The tile is dropped if it was rendered before an invalidation, as it may
+     * miss the invalidated data.
+     *
+     * @param x the tile column.
+     * @param y the tile row.
+     * @param zoom the zoom level.
+     * @param data the encoded tile, no bytes for an empty tile.
+     * @param generation the generation read before the tile was rendered.
+     */
+    public synchronized void put(int x, int y, int zoom, byte[] data, int generation) {
+        if (generation != mGeneration) {
+            return;
+        }
+        final String key = key(x, y, zoom);
+        mMemoryCache.put(key, data);
+
+        if (!mDirectory.isDirectory() && !mDirectory.mkdirs()) {
+            return;
+        }
+        final File file = new File(mDirectory, key);
+        final long previous = file.length();
+        try {
+            write(file, data);
+        } catch (IOException ex) {
+            Log.w(TAG, "Tile not written " + key, ex);
+            deleteFile(file);
+            return;
+        }
+        if (mDiskSize >= 0) {
+            mDiskSize += data.length - previous;
+        }
+        trim();
+    }
+
+    /**
+     * Removes the selected tiles from memory and disk.
+     *
+     * @param filter selects the tiles.
+     */
+    public synchronized void invalidate(Filter filter) {
+        mGeneration++;
+        for (String key : mMemoryCache.snapshot().keySet()) {
+            final int[] tile = parseKey(key);
+            if (tile != null && filter.matches(tile[0], tile[1], tile[2])) {
+                mMemoryCache.remove(key);
+            }
+        }
+
+        final File[] files = mDirectory.listFiles();
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            final int[] tile = parseKey(file.getName());
+            if (tile != null && filter.matches(tile[0], tile[1], tile[2])) {
+                deleteFile(file);
+            }
+        }
+    }
+
+    /**
+     * Removes every tile from memory and disk.
+     */
+    public synchronized void clear() {
+        invalidate(new Filter() {
+            @Override
+            public boolean matches(int x, int y, int zoom) {
+                return true;
+            }
+        });
+    }
+
+    /**
+     * Deletes the least recently used files once the directory is over budget.
+     */
+    private void trim() {
+        if (mDiskSize < 0) {
+            mDiskSize = 0;
+            final File[] files = mDirectory.listFiles();
+            if (files != null) {
+                for (File file : files) {
+                    if (parseKey(file.getName()) == null) {
+                        // Left by another version.
+                        file.delete();
+                    } else {
+                        mDiskSize += file.length();
+                    }
+                }
+            }
+        }
+        if (mDiskSize <= mDiskBytes) {
+            return;
+        }
+
+        final File[] files = mDirectory.listFiles();
+        if (files == null) {
+            return;
+        }
+        final long[] modified = new long[files.length];
+        final Integer[] order = new Integer[files.length];
+        for (int index = 0; index < files.length; index++) {
+            // Read once, the sort must not see the times change.
+            modified[index] = files[index].lastModified();
+            order[index] = index;
+        }
+        Arrays.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer first, Integer second) {
+                return Long.compare(modified[first], modified[second]);
+            }
+        });
+        final long target = (long) (mDiskBytes * TRIM_RATIO);
+        for (int index = 0; index < order.length && mDiskSize > target; index++) {
+            deleteFile(files[order[index]]);
+        }
+    }
+
+    private void deleteFile(File file) {
+        final long length = file.length();
+        if (file.delete() && mDiskSize >= 0) {
+            mDiskSize -= length;
+        }
+    }
+
+    private String key(int x, int y, int zoom) {
+        return zoom + "_" + x + "_" + y + "_" + mVersion;
+    }
+
+    /**
+     * Parses a key.
+     *
+     * @return the column, row and zoom level, or null if the key is not a tile key of this
+     * version.
+     */
+    private int[] parseKey(String key) {
+        final String[] parts = key.split("_");
+        if (parts.length != 4) {
+            return null;
+        }
+        try {
+            if (Integer.parseInt(parts[3]) != mVersion) {
+                return null;
+            }
+            return new int[]{Integer.parseInt(parts[1]), Integer.parseInt(parts[2]),
+                    Integer.parseInt(parts[0])};
+        } catch (NumberFormatException ex) {
+            return null;
+        }
+    }
+
+    private static byte[] read(File file) throws IOException {
+        final InputStream input = new FileInputStream(file);
+        try {
+            final ByteArrayOutputStream output = new ByteArrayOutputStream((int) file.length());
+            final byte[] buffer = new byte[8192];
+            int read;
+            while ((read = input.read(buffer)) != -1) {
+                output.write(buffer, 0, read);
+            }
+            return output.toByteArray();
+        } finally {
+            input.close();
+        }
+    }
+
+    private static void write(File file, byte[] data) throws IOException {
+        final OutputStream output = new FileOutputStream(file);
+        try {
+            output.write(data);
+        } finally {
+            output.close();
+        }
+    }
+}
@@ -0,0 +1,118 @@
+/*
+  MIT License
+
+  Copyright (c) 2017 Cinfwat Dogak
+
+  Permission is hereby granted, free of charge, to any person obtaining a copy
+  of this software and associated documentation files (the "Software"), to deal
+  in the Software without restriction, including without limitation the rights
+  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+  copies of the Software, and to permit persons to whom the Software is
+  furnished to do so, subject to the following conditions:
+
+  The above copyright notice and this permission notice shall be included in all
+  copies or substantial portions of the Software.
+
+  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+  SOFTWARE.
+ */
+
+package me.dcii.flowmap.map;
+
+/**
+ * Web Mercator projection used by map tiles. World pixel coordinates grow east and south from
+ * the north west corner of the world, which is {@link #TILE_SIZE} pixels wide at zoom level 0
+ * and doubles with every zoom level.
+ *
+ * @author Dogak Cinfwat.
+ */
+public final class TileProjection {
+
+    /**
+     * Width and height of a tile in pixels.
+     */
+    public static final int TILE_SIZE = 256;
+
+    /**
+     * Latitude at which the projected world is square, positions further north or south are
+     * clamped to it.
+     */
+    public static final double MAX_LATITUDE = 85.05112878;
+
+    private TileProjection() {
+    }
+
+    /**
+     * Gets the world width in pixels.
+     *
+     * @param zoom the zoom level.
+     * @return the world width.
+     */
+    public static double worldSize(int zoom) {
+        return (double) TILE_SIZE * (1L << zoom);
+    }
+
+    /**
+     * Projects a longitude.
+     *
+     * @param longitude the longitude.
+     * @param zoom the zoom level.
+     * @return the world pixel x coordinate.
+     */
+    public static double longitudeToX(double longitude, int zoom) {
+        return (longitude + 180) / 360 * worldSize(zoom);
+    }
+
+    /**
+     * Projects a latitude.
+     *
+     * @param latitude the latitude.
+     * @param zoom the zoom level.
+     * @return the world pixel y coordinate.
+     */
+    public static double latitudeToY(double latitude, int zoom) {
+        final double clamped = Math.max(-MAX_LATITUDE, Math.min(MAX_LATITUDE, latitude));
+        final double sin = Math.sin(Math.toRadians(clamped));
+        return (0.5 - Math.log((1 + sin) / (1 - sin)) / (4 * Math.PI)) * worldSize(zoom);
+    }
+
+    /**
+     * Inverse of {@link #longitudeToX(double, int)}.
+     *
+     * @param x the world pixel x coordinate.
+     * @param zoom the zoom level.
+     * @return the longitude.
+     */
+    public static double xToLongitude(double x, int zoom) {
+        return x / worldSize(zoom) * 360 - 180;
+    }
+
+    /**
+     * Inverse of {@link #latitudeToY(double, int)}.
+     *
+     * @param y the world pixel y coordinate.
+     * @param zoom the zoom level.
+     * @return the latitude.
+     */
+    public static double yToLatitude(double y, int zoom) {
+        final double n = Math.PI * (1 - 2 * y / worldSize(zoom));
+        return Math.toDegrees(Math.atan(Math.sinh(n)));
+    }
+
+    /**
+     * Gets the tile column or row holding a world pixel coordinate, clamped to the world.
+     *
+     * @param coordinate the world pixel x or y coordinate.
+     * @param zoom the zoom level.
+     * @return the tile column or row.
+     */
+    public static int tileIndex(double coordinate, int zoom) {
+        final int index = (int) Math.floor(coordinate / TILE_SIZE);
+        return Math.max(0, Math.min((1 << zoom) - 1, index));
+    }
+}
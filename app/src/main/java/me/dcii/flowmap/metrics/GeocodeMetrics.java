@@ -0,0 +1,114 @@
+/*
+  MIT License
+
+  Copyright (c) 2017 Cinfwat Dogak
+
+  Permission is hereby granted, free of charge, to any person obtaining a copy
+  of this software and associated documentation files (the "Software"), to deal
+  in the Software without restriction, including without limitation the rights
+  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+  copies of the Software, and to permit persons to whom the Software is
+  furnished to do so, subject to the following conditions:
+
+  The above copyright notice and this permission notice shall be included in all
+  copies or substantial portions of the Software.
+
+  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+  SOFTWARE.
+ */
+
+package me.dcii.flowmap.metrics;
+
+import java.io.PrintWriter;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Metrics of the {@link me.dcii.flowmap.geocode.GeocodingEngine}: queue depth, time requests
+ * wait in the queue, lookup duration and request outcomes.
+ *
+ * @author Dogak Cinfwat.
+ */
+public final class GeocodeMetrics {
+
+    /**
+     * Time from the submission of a request to the start of its lookup.
+     */
+    public static final LatencyHistogram QUEUE_WAIT = new LatencyHistogram("geocode-queue-wait");
+
+    /**
+     * Duration of a lookup, from its start to its result.
+     */
+    public static final LatencyHistogram LOOKUP_DURATION = new LatencyHistogram("geocode-lookup");
+
+    /**
+     * Requests currently queued, and the most ever queued.
+     */
+    public static final AtomicInteger QUEUE_DEPTH = new AtomicInteger();
+    public static final AtomicInteger MAX_QUEUE_DEPTH = new AtomicInteger();
+
+    /**
+     * Request outcomes.
+     */
+    public static final AtomicLong SUBMITTED = new AtomicLong();
+    public static final AtomicLong RESOLVED = new AtomicLong();
+    public static final AtomicLong FAILED = new AtomicLong();
+    public static final AtomicLong TIMED_OUT = new AtomicLong();
+    public static final AtomicLong CANCELLED = new AtomicLong();
+    public static final AtomicLong REJECTED = new AtomicLong();
+
+    private GeocodeMetrics() {
+    }
+
+    /**
+     * Records a change of the queue depth.
+     *
+     * @param delta the number of requests added to (positive) or removed from the queue.
+     */
+    public static void addQueueDepth(int delta) {
+        final int depth = QUEUE_DEPTH.addAndGet(delta);
+        int max = MAX_QUEUE_DEPTH.get();
+        while (depth > max && !MAX_QUEUE_DEPTH.compareAndSet(max, depth)) {
+            max = MAX_QUEUE_DEPTH.get();
+        }
+    }
+
+    /**
+     * Writes all metrics.
+     *
+     * @param writer the output writer.
+     */
+    public static void dump(PrintWriter writer) {
+        writer.println("geocode queue depth=" + QUEUE_DEPTH.get()
+                + " max=" + MAX_QUEUE_DEPTH.get());
+        writer.println("geocode submitted=" + SUBMITTED.get()
+                + " resolved=" + RESOLVED.get()
+                + " failed=" + FAILED.get()
+                + " timed-out=" + TIMED_OUT.get()
+                + " cancelled=" + CANCELLED.get()
+                + " rejected=" + REJECTED.get());
+        QUEUE_WAIT.dump(writer);
+        LOOKUP_DURATION.dump(writer);
+        writer.flush();
+    }
+
+    /**
+     * Clears all metrics but the current queue depth.
+     */
+    public static void reset() {
+        QUEUE_WAIT.reset();
+        LOOKUP_DURATION.reset();
+        MAX_QUEUE_DEPTH.set(QUEUE_DEPTH.get());
+        SUBMITTED.set(0);
+        RESOLVED.set(0);
+        FAILED.set(0);
+        TIMED_OUT.set(0);
+        CANCELLED.set(0);
+        REJECTED.set(0);
+    }
+}
@@ -0,0 +1,192 @@
+/*
+  MIT License
+
+  Copyright (c) 2017 Cinfwat Dogak
+
+  Permission is hereby granted, free of charge, to any person obtaining a copy
+  of this software and associated documentation files (the "Software"), to deal
+  in the Software without restriction, including without limitation the rights
+  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+  copies of the Software, and to permit persons to whom the Software is
+  furnished to do so, subject to the following conditions:
+
+  The above copyright notice and this permission notice shall be included in all
+  copies or substantial portions of the Software.
+
+  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+  SOFTWARE.
+ */
+
+package me.dcii.flowmap.metrics;
+
+import android.content.Context;
+import android.os.SystemClock;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+
+import me.dcii.flowmap.tracking.RejectReason;
+
+/**
+ * Hot path metrics of the location ingest pipeline, from the location callback to the committed
+ * Realm row and the drawn route. Recording doesn't allocate; the metrics are dumped on demand.
+ *
+ * @author Dogak Cinfwat.
+ */
+public final class IngestMetrics {
+
+    /**
+     * Time from the location callback to the commit of the transaction holding the fix.
+     */
+    public static final LatencyHistogram CALLBACK_TO_COMMIT =
+            new LatencyHistogram("callback-to-commit");
+
+    /**
+     * Duration of the Realm transaction writing a batch of fixes.
+     */
+    public static final LatencyHistogram COMMIT_DURATION = new LatencyHistogram("commit");
+
+    /**
+     * Duration of drawing the route on the map.
+     */
+    public static final LatencyHistogram RENDER_DURATION = new LatencyHistogram("render");
+
+    /**
+     * Fixes received from the location callback.
+     */
+    public static final AtomicLong FIXES_RECEIVED = new AtomicLong();
+
+    /**
+     * Fixes rejected by the location filter.
+     */
+    public static final AtomicLong FIXES_DROPPED = new AtomicLong();
+
+    /**
+     * Fixes rejected by the location filter, indexed by {@link RejectReason#ordinal()}.
+     */
+    private static final AtomicLong[] FIXES_REJECTED =
+            new AtomicLong[RejectReason.values().length];
+
+    static {
+        for (int index = 0; index < FIXES_REJECTED.length; index++) {
+            FIXES_REJECTED[index] = new AtomicLong();
+        }
+    }
+
+    /**
+     * Fixes written to the Realm store. Fixes that are neither dropped nor persisted were removed
+     * by the trajectory simplification.
+     */
+    public static final AtomicLong FIXES_PERSISTED = new AtomicLong();
+
+    private static final String DUMP_FILE_NAME = "ingest-metrics.txt";
+
+    private IngestMetrics() {
+    }
+
+    /**
+     * Returns the current time used for latency measurements.
+     *
+     * @return the monotonic time in nanoseconds.
+     */
+    public static long now() {
+        return SystemClock.elapsedRealtimeNanos();
+    }
+
+    /**
+     * Counts a fix rejected by the location filter, in {@link #FIXES_DROPPED} and per reason.
+     *
+     * @param reason the rejection reason.
+     */
+    public static void recordRejected(RejectReason reason) {
+        FIXES_DROPPED.incrementAndGet();
+        FIXES_REJECTED[reason.ordinal()].incrementAndGet();
+    }
+
+    /**
+     * Returns the number of fixes rejected for a reason.
+     *
+     * @param reason the rejection reason.
+     * @return the rejected fix count.
+     */
+    public static long getRejectedCount(RejectReason reason) {
+        return FIXES_REJECTED[reason.ordinal()].get();
+    }
+
+    /**
+     * Writes all metrics, including the {@link GeocodeMetrics}.
+     *
+     * @param writer the output writer.
+     */
+    public static void dump(PrintWriter writer) {
+        writer.println("fixes received=" + FIXES_RECEIVED.get()
+                + " dropped=" + FIXES_DROPPED.get()
+                + " persisted=" + FIXES_PERSISTED.get());
+        final StringBuilder rejected = new StringBuilder("fixes rejected");
+        for (RejectReason reason : RejectReason.values()) {
+            rejected.append(' ').append(reason.name().toLowerCase(Locale.US)).append('=')
+                    .append(getRejectedCount(reason));
+        }
+        writer.println(rejected);
+        CALLBACK_TO_COMMIT.dump(writer);
+        COMMIT_DURATION.dump(writer);
+        RENDER_DURATION.dump(writer);
+        GeocodeMetrics.dump(writer);
+        writer.flush();
+    }
+
+    /**
+     * Returns all metrics as a string, for instance to show on a debug screen.
+     *
+     * @return the metrics dump.
+     */
+    public static String dumpToString() {
+        final StringWriter writer = new StringWriter();
+        dump(new PrintWriter(writer));
+        return writer.toString();
+    }
+
+    /**
+     * Writes all metrics to a file in the application files directory.
+     *
+     * @param context context used to access the files directory.
+     * @return the written file.
+     * @throws IOException if the file can't be written.
+     */
+    public static File dumpToFile(Context context) throws IOException {
+        final File file = new File(context.getFilesDir(), DUMP_FILE_NAME);
+        final PrintWriter writer = new PrintWriter(new FileWriter(file));
+        try {
+            dump(writer);
+        } finally {
+            writer.close();
+        }
+        return file;
+    }
+
+    /**
+     * Clears all metrics, including the {@link GeocodeMetrics}.
+     */
+    public static void reset() {
+        CALLBACK_TO_COMMIT.reset();
+        COMMIT_DURATION.reset();
+        RENDER_DURATION.reset();
+        FIXES_RECEIVED.set(0);
+        FIXES_DROPPED.set(0);
+        for (AtomicLong count : FIXES_REJECTED) {
+            count.set(0);
+        }
+        FIXES_PERSISTED.set(0);
+        GeocodeMetrics.reset();
+    }
+}
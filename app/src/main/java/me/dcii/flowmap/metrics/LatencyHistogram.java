@@ -0,0 +1,138 @@
+/*
+  MIT License
+
+  Copyright (c) 2017 Cinfwat Dogak
+
+  Permission is hereby granted, free of charge, to any person obtaining a copy
+  of this software and associated documentation files (the "Software"), to deal
+  in the Software without restriction, including without limitation the rights
+  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+  copies of the Software, and to permit persons to whom the Software is
+  furnished to do so, subject to the following conditions:
+
+  The above copyright notice and this permission notice shall be included in all
+  copies or substantial portions of the Software.
+
+  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+  SOFTWARE.
+ */
+
+package me.dcii.flowmap.metrics;
+
+import java.io.PrintWriter;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Latency histogram with power of two microsecond buckets. Bucket {@code i} counts durations in
+ * {@code [2^(i-1), 2^i)} microseconds, bucket 0 durations below one microsecond. Recording is
+ * thread safe and doesn't allocate.
+ *
+ * @author Dogak Cinfwat.
+ */
+public class LatencyHistogram {
+
+    private static final int BUCKET_COUNT = 40;
+
+    private final String mName;
+    private final AtomicLongArray mBuckets;
+    private final AtomicLong mCount;
+    private final AtomicLong mTotalMicros;
+    private final AtomicLong mMaxMicros;
+
+    /**
+     * Constructor.
+     *
+     * @param name the histogram name used when dumping.
+     */
+    public LatencyHistogram(String name) {
+        mName = name;
+        mBuckets = new AtomicLongArray(BUCKET_COUNT);
+        mCount = new AtomicLong();
+        mTotalMicros = new AtomicLong();
+        mMaxMicros = new AtomicLong();
+    }
+
+    /**
+     * Records a duration.
+     *
+     * @param nanos the duration in nanoseconds.
+     */
+    public void record(long nanos) {
+        final long micros = Math.max(0, nanos / 1000);
+        final int bucket = Math.min(BUCKET_COUNT - 1, 64 - Long.numberOfLeadingZeros(micros));
+        mBuckets.incrementAndGet(bucket);
+        mCount.incrementAndGet();
+        mTotalMicros.addAndGet(micros);
+
+        long max = mMaxMicros.get();
+        while (micros > max && !mMaxMicros.compareAndSet(max, micros)) {
+            max = mMaxMicros.get();
+        }
+    }
+
+    public long getCount() {
+        return mCount.get();
+    }
+
+    /**
+     * Returns the upper bound of the bucket holding the provided percentile.
+     *
+     * @param percentile the percentile, between 0 and 100.
+     * @return the upper bound in microseconds, 0 if nothing was recorded.
+     */
+    public long getPercentileMicros(double percentile) {
+        final long count = mCount.get();
+        if (count == 0) {
+            return 0;
+        }
+        final long rank = (long) Math.ceil(count * percentile / 100);
+        long seen = 0;
+        for (int bucket = 0; bucket < BUCKET_COUNT; bucket++) {
+            seen += mBuckets.get(bucket);
+            if (seen >= rank) {
+                return 1L << bucket;
+            }
+        }
+        return mMaxMicros.get();
+    }
+
+    /**
+     * Clears all recorded durations.
+     */
+    public void reset() {
+        for (int bucket = 0; bucket < BUCKET_COUNT; bucket++) {
+            mBuckets.set(bucket, 0);
+        }
+        mCount.set(0);
+        mTotalMicros.set(0);
+        mMaxMicros.set(0);
+    }
+
+    /**
+     * Writes the summary and non-empty buckets of the histogram.
+     *
+     * @param writer the output writer.
+     */
+    public void dump(PrintWriter writer) {
+        final long count = mCount.get();
+        writer.println(String.format(Locale.US,
+                "%s: count=%d mean=%dus p50<%dus p90<%dus p99<%dus max=%dus",
+                mName, count, count == 0 ? 0 : mTotalMicros.get() / count,
+                getPercentileMicros(50), getPercentileMicros(90), getPercentileMicros(99),
+                mMaxMicros.get()));
+        for (int bucket = 0; bucket < BUCKET_COUNT; bucket++) {
+            final long bucketCount = mBuckets.get(bucket);
+            if (bucketCount > 0) {
+                writer.println(String.format(Locale.US, "  <%dus: %d", 1L << bucket,
+                        bucketCount));
+            }
+        }
+    }
+}
@@ -0,0 +1,64 @@
+/*
+  MIT License
+
+  Copyright (c) 2017 Cinfwat Dogak
+
+  Permission is hereby granted, free of charge, to any person obtaining a copy
+  of this software and associated documentation files (the "Software"), to deal
+  in the Software without restriction, including without limitation the rights
+  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+  copies of the Software, and to permit persons to whom the Software is
+  furnished to do so, subject to the following conditions:
+
+  The above copyright notice and this permission notice shall be included in all
+  copies or substantial portions of the Software.
+
+  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+  SOFTWARE.
+ */
+
+package me.dcii.flowmap.model;
+
+import io.realm.Realm;
+
+/**
+ * A data migration run by the {@link BackgroundMigrator} after the {@link FlowMigration} schema
+ * migration. The schema migration only changes columns; rows are rewritten here in chunks, each
+ * chunk in its own transaction, so opening the store never waits for the rewrite.
+ *
+ * Readers must accept rows in both the old and the new form until the migration completes.
+ *
+ * @author Dogak Cinfwat.
+ */
+public interface BackgroundMigration {
+
+    /**
+     * Gets the schema version whose rows this migration rewrites. Migrations are run in version
+     * order, and a migration is run until it completes once per install.
+     *
+     * @return the schema version.
+     */
+    long getVersion();
+
+    /**
+     * Counts the rows left to rewrite.
+     *
+     * @param realm the realm instance.
+     * @return the number of rows left.
+     */
+    long countRemaining(Realm realm);
+
+    /**
+     * Rewrites the next chunk of rows. Called inside a write transaction.
+     *
+     * @param realm the realm instance.
+     * @param limit the maximum number of rows to rewrite.
+     * @return the number of rows rewritten or found rewritten already, 0 once none are left.
+     */
+    int migrateChunk(Realm realm, int limit);
+}
@@ -0,0 +1,246 @@
+/*
+  MIT License
+
+  Copyright (c) 2017 Cinfwat Dogak
+
+  Permission is hereby granted, free of charge, to any person obtaining a copy
+  of this software and associated documentation files (the "Software"), to deal
+  in the Software without restriction, including without limitation the rights
+  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+  copies of the Software, and to permit persons to whom the Software is
+  furnished to do so, subject to the following conditions:
+
+  The above copyright notice and this permission notice shall be included in all
+  copies or substantial portions of the Software.
+
+  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+  SOFTWARE.
+ */
+
+package me.dcii.flowmap.model;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import io.realm.Realm;
+
+/**
+ * Runs the {@link BackgroundMigration}s on a background thread after app startup. Each chunk of
+ * rows is rewritten in its own transaction, so writers are never held up for long and an
+ * interrupted run resumes with the rows left. The last completed version is kept in
+ * {@link SharedPreferences}; completed migrations are not counted again.
+ *
+ * Progress is reported to the registered {@link ProgressListener}s on the main thread.
+ *
+ * @author Dogak Cinfwat.
+ */
+public class BackgroundMigrator {
+
+    private static final String TAG = BackgroundMigrator.class.getSimpleName();
+
+    /**
+     * Default number of rows rewritten per transaction.
+     */
+    public static final int DEFAULT_CHUNK_SIZE = 500;
+
+    private static final String PREFERENCES_NAME = "background_migration";
+    private static final String KEY_COMPLETED_VERSION = "completed_version";
+
+    /**
+     * Receives the migration progress.
+     */
+    public interface ProgressListener {
+
+        /**
+         * Called after each chunk.
+         *
+         * @param version the schema version being migrated.
+         * @param migrated the number of rows rewritten so far.
+         * @param total the number of rows to rewrite.
+         */
+        void onMigrationProgress(long version, long migrated, long total);
+
+        /**
+         * Called once every migration is complete.
+         */
+        void onMigrationComplete();
+    }
+
+    private static BackgroundMigrator sInstance;
+
+    private final SharedPreferences mPreferences;
+    private final List<BackgroundMigration> mMigrations;
+    private final int mChunkSize;
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+    private final List<ProgressListener> mListeners = new ArrayList<>();
+
+    private Thread mThread;
+    private volatile boolean mComplete;
+
+    /**
+     * Returns the process wide migrator, created with the app migrations on first use.
+     *
+     * @param context the context used to keep the progress.
+     * @return the background migrator.
+     */
+    public static synchronized BackgroundMigrator getInstance(Context context) {
+        if (sInstance == null) {
+            final List<BackgroundMigration> migrations = new ArrayList<>();
+            migrations.add(new JourneySummaryMigration());
+            migrations.add(new LocationTimeMigration());
+            migrations.add(new TrackBlockBoundsMigration());
+            sInstance = new BackgroundMigrator(context.getApplicationContext(), migrations,
+                    DEFAULT_CHUNK_SIZE);
+        }
+        return sInstance;
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param context the context used to keep the progress.
+     * @param migrations the migrations, in version order.
+     * @param chunkSize number of rows rewritten per transaction.
+     */
+    public BackgroundMigrator(Context context, List<BackgroundMigration> migrations,
+                              int chunkSize) {
+        mPreferences = context.getSharedPreferences(PREFERENCES_NAME, Context.MODE_PRIVATE);
+        mMigrations = migrations;
+        mChunkSize = chunkSize;
+    }
+
+    /**
+     * Starts the pending migrations on a background thread. Does nothing if they are already
+     * running or complete.
+     */
+    public synchronized void start() {
+        if (mThread != null || mComplete) {
+            return;
+        }
+        mThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                migrate();
+            }
+        }, TAG);
+        mThread.start();
+    }
+
+    /**
+     * Returns whether every migration is complete.
+     *
+     * @return true once every row is rewritten.
+     */
+    public boolean isComplete() {
+        return mComplete;
+    }
+
+    public void addProgressListener(ProgressListener listener) {
+        synchronized (mListeners) {
+            mListeners.add(listener);
+        }
+    }
+
+    public void removeProgressListener(ProgressListener listener) {
+        synchronized (mListeners) {
+            mListeners.remove(listener);
+        }
+    }
+
+    /**
+     * Runs the pending migrations on the calling thread.
+     */
+    private void migrate() {
+        final Realm realm = Realm.getDefaultInstance();
+        try {
+            long completedVersion = mPreferences.getLong(KEY_COMPLETED_VERSION, 0);
+            for (BackgroundMigration migration : mMigrations) {
+                if (migration.getVersion() <= completedVersion) {
+                    continue;
+                }
+                run(realm, migration);
+                completedVersion = migration.getVersion();
+                mPreferences.edit().putLong(KEY_COMPLETED_VERSION, completedVersion).apply();
+            }
+            mComplete = true;
+            notifyComplete();
+        } catch (RuntimeException e) {
+            // Left for the next start; readers accept rows not yet rewritten.
+            Log.e(TAG, "Background migration failed", e);
+        } finally {
+            realm.close();
+            synchronized (this) {
+                mThread = null;
+            }
+        }
+    }
+
+    /**
+     * Rewrites the rows of a migration, a chunk per transaction.
+     *
+     * @param realm the realm instance.
+     * @param migration the migration.
+     */
+    private void run(Realm realm, final BackgroundMigration migration) {
+        final long total = migration.countRemaining(realm);
+        Log.i(TAG, "Migrating " + total + " rows to version " + migration.getVersion());
+
+        final int[] chunk = new int[1];
+        long migrated = 0;
+        while (migrated < total) {
+            realm.executeTransaction(new Realm.Transaction() {
+                @Override
+                public void execute(Realm realm) {
+                    chunk[0] = migration.migrateChunk(realm, mChunkSize);
+                }
+            });
+            if (chunk[0] == 0) {
+                break;
+            }
+            migrated += chunk[0];
+            Log.d(TAG, "Migrated " + migrated + " of " + total + " rows");
+            notifyProgress(migration.getVersion(), Math.min(migrated, total), total);
+        }
+    }
+
+    private void notifyProgress(final long version, final long migrated, final long total) {
+        mMainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                for (ProgressListener listener : copyListeners()) {
+                    listener.onMigrationProgress(version, migrated, total);
+                }
+            }
+        });
+    }
+
+    private void notifyComplete() {
+        mMainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                for (ProgressListener listener : copyListeners()) {
+                    listener.onMigrationComplete();
+                }
+            }
+        });
+    }
+
+    private List<ProgressListener> copyListeners() {
+        synchronized (mListeners) {
+            return new ArrayList<>(mListeners);
+        }
+    }
+}
@@ -0,0 +1,111 @@
+/*
+  MIT License
+
+  Copyright (c) 2017 Cinfwat Dogak
+
+  Permission is hereby granted, free of charge, to any person obtaining a copy
+  of this software and associated documentation files (the "Software"), to deal
+  in the Software without restriction, including without limitation the rights
+  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+  copies of the Software, and to permit persons to whom the Software is
+  furnished to do so, subject to the following conditions:
+
+  The above copyright notice and this permission notice shall be included in all
+  copies or substantial portions of the Software.
+
+  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+  SOFTWARE.
+ */
+
+package me.dcii.flowmap.model;
+
+import io.realm.RealmObject;
+import io.realm.annotations.PrimaryKey;
+
+/**
+ * A reverse geocoded address stored in the persistent address cache. Addresses are stored per
+ * geohash cell and locale.
+ *
+ * @author Dogak Cinfwat.
+ */
+public class CachedAddress extends RealmObject {
+
+    /**
+     * Represents the names of the fields. These are used in querying the Realm store.
+     */
+    public static final String FIELD_KEY = "key";
+    public static final String FIELD_FETCHED_AT = "fetchedAt";
+
+    /**
+     * Cache key, the geohash and locale tag. See {@link #createKey(String, String)}.
+     */
+    @PrimaryKey
+    private String key;
+
+    private String geohash;
+    private String locale;
+    private String address;
+
+    /**
+     * Time the address was fetched, in epoch milliseconds.
+     */
+    private long fetchedAt;
+
+    /**
+     * Empty constructor.
+     */
+    public CachedAddress() {
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param geohash the geohash of the address cell.
+     * @param locale the address locale tag.
+     * @param address the address.
+     * @param fetchedAt time the address was fetched, in epoch milliseconds.
+     */
+    public CachedAddress(String geohash, String locale, String address, long fetchedAt) {
+        this.key = createKey(geohash, locale);
+        this.geohash = geohash;
+        this.locale = locale;
+        this.address = address;
+        this.fetchedAt = fetchedAt;
+    }
+
+    /**
+     * Returns the cache key of the address of a geohash cell in a locale.
+     *
+     * @param geohash the geohash of the address cell.
+     * @param locale the address locale tag.
+     * @return the cache key.
+     */
+    public static String createKey(String geohash, String locale) {
+        return geohash + '|' + locale;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public String getGeohash() {
+        return geohash;
+    }
+
+    public String getLocale() {
+        return locale;
+    }
+
+    public String getAddress() {
+        return address;
+    }
+
+    public long getFetchedAt() {
+        return fetchedAt;
+    }
+}
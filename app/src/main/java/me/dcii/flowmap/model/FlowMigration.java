@@ -0,0 +1,124 @@
+/*
+  MIT License
+
+  Copyright (c) 2017 Cinfwat Dogak
+
+  Permission is hereby granted, free of charge, to any person obtaining a copy
+  of this software and associated documentation files (the "Software"), to deal
+  in the Software without restriction, including without limitation the rights
+  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+  copies of the Software, and to permit persons to whom the Software is
+  furnished to do so, subject to the following conditions:
+
+  The above copyright notice and this permission notice shall be included in all
+  copies or substantial portions of the Software.
+
+  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+  SOFTWARE.
+ */
+
+package me.dcii.flowmap.model;
+
+import io.realm.DynamicRealm;
+import io.realm.FieldAttribute;
+import io.realm.RealmMigration;
+import io.realm.RealmObjectSchema;
+import io.realm.RealmSchema;
+
+/**
+ * Migrates the {@link io.realm.Realm} store schema between versions.
+ *
+ * @author Dogak Cinfwat.
+ */
+public class FlowMigration implements RealmMigration {
+
+    /**
+     * Current schema version.
+     *
+     * 1: compact {@link Journey} track stored in {@link TrackBlock} objects.
+     * 2: {@link Journey} summary columns; filled by {@link JourneySummaryMigration}.
+     * 3: {@link CachedAddress} reverse geocode cache.
+     * 4: primitive {@link Location} time; rows are rewritten by {@link LocationTimeMigration}.
+     * 5: {@link Journey} deleted flag and start time indexes.
+     * 6: {@link TrackBlock} time range and bounding box; set by {@link TrackBlockBoundsMigration}.
+     */
+    public static final long SCHEMA_VERSION = 6;
+
+    @Override
+    public void migrate(DynamicRealm realm, long oldVersion, long newVersion) {
+        final RealmSchema schema = realm.getSchema();
+
+        if (oldVersion == 0) {
+            final RealmObjectSchema trackBlockSchema = schema.create("TrackBlock")
+                    .addField("data", byte[].class)
+                    .addField("pointCount", int.class)
+                    .addField("lastLatitudeE6", int.class)
+                    .addField("lastLongitudeE6", int.class)
+                    .addField("lastTime", long.class);
+            schema.get("Journey").addRealmListField("track", trackBlockSchema);
+            oldVersion++;
+        }
+
+        if (oldVersion == 1) {
+            // Filling the summaries decodes every track, so it is left to the background, see
+            // BackgroundMigrator.
+            schema.get("Journey")
+                    .addField("startTime", long.class)
+                    .addField("endTime", long.class)
+                    .addField("distance", double.class)
+                    .addField("pointCount", int.class)
+                    .addField("minLatitude", double.class)
+                    .addField("maxLatitude", double.class)
+                    .addField("minLongitude", double.class)
+                    .addField("maxLongitude", double.class)
+                    .addField("startLatitude", double.class)
+                    .addField("startLongitude", double.class)
+                    .addField("endLatitude", double.class)
+                    .addField("endLongitude", double.class)
+                    .addField("maxSpeed", double.class);
+            oldVersion++;
+        }
+
+        if (oldVersion == 2) {
+            schema.create("CachedAddress")
+                    .addField("key", String.class, FieldAttribute.PRIMARY_KEY)
+                    .addField("geohash", String.class)
+                    .addField("locale", String.class)
+                    .addField("address", String.class)
+                    .addField("fetchedAt", long.class);
+            oldVersion++;
+        }
+
+        if (oldVersion == 3) {
+            // Only the columns change here, so opening the store stays fast. The rows are
+            // rewritten in the background, see BackgroundMigrator.
+            schema.get("Location")
+                    .renameField("time", "legacyTime")
+                    .addField("time", long.class);
+            oldVersion++;
+        }
+
+        if (oldVersion == 4) {
+            schema.get("Journey")
+                    .addIndex("isDeleted")
+                    .addIndex("startTime");
+            oldVersion++;
+        }
+
+        if (oldVersion == 5) {
+            schema.get("TrackBlock")
+                    .addField("firstTime", long.class)
+                    .addField("minLatitudeE6", int.class)
+                    .addField("maxLatitudeE6", int.class)
+                    .addField("minLongitudeE6", int.class)
+                    .addField("maxLongitudeE6", int.class)
+                    .addField("hasBounds", boolean.class);
+            oldVersion++;
+        }
+    }
+}
@@ -29,8 +29,11 @@ import android.content.res.Resources;
 import android.text.TextUtils;
 
 import com.google.android.gms.maps.model.LatLng;
+import com.google.android.gms.maps.model.LatLngBounds;
 
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
 import java.util.Locale;
 import java.util.UUID;
 
@@ -38,6 +41,7 @@ import io.realm.Realm;
 import io.realm.RealmList;
 import io.realm.RealmObject;
 import io.realm.annotations.Ignore;
+import io.realm.annotations.Index;
 import io.realm.annotations.PrimaryKey;
 import me.dcii.flowmap.R;
 
@@ -69,21 +73,42 @@ public class Journey extends RealmObject {
      */
     public static String FIELD_ID = "id";
     public static String FIELD_IS_DELETED = "isDeleted";
+    public static String FIELD_START_TIME = "startTime";
+    public static String FIELD_END_TIME = "endTime";
+    public static String FIELD_POINT_COUNT = "pointCount";
+    public static String FIELD_START_ADDRESS = "startAddress";
+    public static String FIELD_END_ADDRESS = "endAddress";
+    public static String FIELD_DATE_DELETED = "dateDeleted";
+    public static String FIELD_MIN_LATITUDE = "minLatitude";
+    public static String FIELD_MAX_LATITUDE = "maxLatitude";
+    public static String FIELD_MIN_LONGITUDE = "minLongitude";
+    public static String FIELD_MAX_LONGITUDE = "maxLongitude";
+    public static String FIELD_LOCATIONS = "locations";
+    public static String FIELD_TRACK = "track";
 
 
     /**
-     * RealmList of intermediate {@link } positions during user journey.
+     * RealmList of intermediate {@link Location} positions during user journey. Only populated
+     * by journeys recorded before the compact {@link #track} was introduced; new positions are
+     * appended to the {@link #track}.
      */
     private RealmList<Location> locations;
 
+    /**
+     * Compact, delta encoded positions during user journey. Only the tail block is rewritten when
+     * positions are appended.
+     */
+    private RealmList<TrackBlock> track;
+
     /**
      * Transportation type string name. Used since custom types are not supported in Realm.
      */
     private String transportTypeName;
 
     /**
-     * Flag used to implement soft deletion.
+     * Flag used to implement soft deletion. Indexed, every journey list query filters on it.
      */
+    @Index
     private boolean isDeleted;
 
     /**
@@ -94,6 +119,25 @@ public class Journey extends RealmObject {
     private String startAddress;
     private String endAddress;
 
+    /**
+     * Track summary, updated as positions are appended so it can be read without decoding the
+     * track. See {@link JourneySummary}. The start time is indexed, journey lists are sorted by it.
+     */
+    @Index
+    private long startTime;
+    private long endTime;
+    private double distance;
+    private int pointCount;
+    private double minLatitude;
+    private double maxLatitude;
+    private double minLongitude;
+    private double maxLongitude;
+    private double startLatitude;
+    private double startLongitude;
+    private double endLatitude;
+    private double endLongitude;
+    private double maxSpeed;
+
     /**
      * Constructor.
      *
@@ -104,6 +148,7 @@ public class Journey extends RealmObject {
     public Journey(String id, RealmList<Location> locations, String transportTypeName) {
         this.id = id;
         this.locations = locations;
+        this.track = new RealmList<>();
         this.transportTypeName = transportTypeName;
         this.isDeleted = false;
         this.dateDeleted = null;
@@ -119,6 +164,14 @@ public class Journey extends RealmObject {
     }
 
     public Location getStartLocation() {
+        if (track.size() != 0) {
+            // Decode only the first point of the first block.
+            final TrackPoints points = new TrackPoints(1);
+            track.get(0).decode(points, 1);
+            return new Location(points.getLatitude(0), points.getLongitude(0),
+                    points.getTime(0));
+        }
+
         // get start location from locations.
         if (locations.size() != 0) {
             return locations.get(0);  // First location is the start location.
@@ -127,6 +180,13 @@ public class Journey extends RealmObject {
     }
 
     public Location getEndLocation() {
+        if (track.size() != 0) {
+            // The tail block keeps the last point values.
+            final TrackBlock tail = track.get(track.size() - 1);
+            return new Location(tail.getLastLatitude(), tail.getLastLongitude(),
+                    tail.getLastTime());
+        }
+
         // If end is null and locations RealmList is not empty, get last location from locations.
         if (locations.size() != 0) {
             return locations.get(locations.size() - 1);  // last location is the end location.
@@ -134,8 +194,156 @@ public class Journey extends RealmObject {
         return null;
     }
 
+    /**
+     * Returns the journey positions. Positions of the compact {@link #track} are decoded into
+     * unmanaged {@link Location} objects; use {@link #readTrack(TrackPoints)} to read them without
+     * allocating an object per position.
+     *
+     * @return the journey positions.
+     */
     public RealmList<Location> getLocations() {
-        return locations;
+        if (track.size() == 0) {
+            return locations;
+        }
+
+        final TrackPoints points = readTrack(new TrackPoints());
+        final RealmList<Location> decoded = new RealmList<>();
+        for (int index = 0; index < points.size(); index++) {
+            decoded.add(new Location(points.getLatitude(index), points.getLongitude(index),
+                    points.getTime(index)));
+        }
+        return decoded;
+    }
+
+    /**
+     * Decodes the journey positions into the provided primitive arrays.
+     *
+     * @param out receives the positions.
+     * @return the provided output.
+     */
+    public TrackPoints readTrack(TrackPoints out) {
+        if (track.size() == 0) {
+            // Journey recorded before the compact track was introduced.
+            for (int index = 0; index < locations.size(); index++) {
+                final Location location = locations.get(index);
+                out.add(location.getLatitude(), location.getLongitude(),
+                        location.getTime());
+            }
+            return out;
+        }
+
+        for (int index = 0; index < track.size(); index++) {
+            track.get(index).decode(out, Integer.MAX_VALUE);
+        }
+        return out;
+    }
+
+    /**
+     * Decodes the journey positions from the provided index on. Blocks before the index are
+     * skipped by their point count without decoding, so reading the positions appended since the
+     * last read only decodes the tail block.
+     *
+     * @param out receives the positions.
+     * @param fromIndex index of the first position to read.
+     * @return the provided output.
+     */
+    public TrackPoints readTrack(TrackPoints out, int fromIndex) {
+        if (track.size() == 0) {
+            // Journey recorded before the compact track was introduced.
+            for (int index = fromIndex; index < locations.size(); index++) {
+                final Location location = locations.get(index);
+                out.add(location.getLatitude(), location.getLongitude(), location.getTime());
+            }
+            return out;
+        }
+
+        int skipped = 0;
+        int blockIndex = 0;
+        while (blockIndex < track.size()
+                && skipped + track.get(blockIndex).getPointCount() <= fromIndex) {
+            skipped += track.get(blockIndex).getPointCount();
+            blockIndex++;
+        }
+        if (blockIndex == track.size()) {
+            return out;
+        }
+
+        // Decode the block holding the index, then drop its positions before the index.
+        final int start = out.size();
+        track.get(blockIndex).decode(out, Integer.MAX_VALUE);
+        out.remove(start, fromIndex - skipped);
+        for (blockIndex++; blockIndex < track.size(); blockIndex++) {
+            track.get(blockIndex).decode(out, Integer.MAX_VALUE);
+        }
+        return out;
+    }
+
+    /**
+     * Decodes the journey positions of the {@link TrackBlock}s the query selects. Positions of
+     * consecutive selected blocks form a run (see {@link TrackPoints#startRun()}); a run after
+     * skipped blocks starts with the last position of the block before it, so it joins up with
+     * the route it continues.
+     *
+     * Journeys recorded before the compact track was introduced are read whole.
+     *
+     * @param out receives the positions.
+     * @param query selects the blocks to decode.
+     * @return the provided output.
+     */
+    public TrackPoints readTrack(TrackPoints out, TrackQuery query) {
+        if (track.size() == 0) {
+            out.startRun();
+            return readTrack(out);
+        }
+
+        boolean previousRead = false;
+        for (int index = 0; index < track.size(); index++) {
+            final TrackBlock block = track.get(index);
+            if (!block.intersects(query)) {
+                previousRead = false;
+                continue;
+            }
+            if (!previousRead) {
+                out.startRun();
+                if (index > 0) {
+                    // Kept with the previous block, no need to decode it.
+                    final TrackBlock previous = track.get(index - 1);
+                    out.add(previous.getLastLatitude(), previous.getLastLongitude(),
+                            previous.getLastTime());
+                }
+            }
+            block.decode(out, Integer.MAX_VALUE);
+            previousRead = true;
+        }
+        return out;
+    }
+
+    /**
+     * Appends positions to the compact {@link #track}. Only the tail block is rewritten; a new
+     * block is started once it is full.
+     *
+     * @param latitudes position latitudes.
+     * @param longitudes position longitudes.
+     * @param times position times in epoch milliseconds.
+     * @param count number of positions to append.
+     */
+    public void appendTrack(double[] latitudes, double[] longitudes, long[] times, int count) {
+        // Update the summary columns.
+        final JourneySummary summary = getSummary();
+        for (int index = 0; index < count; index++) {
+            summary.add(latitudes[index], longitudes[index], times[index]);
+        }
+        setSummary(summary);
+
+        int offset = 0;
+        while (offset < count) {
+            if (track.size() == 0 || track.get(track.size() - 1).isFull()) {
+                // Adding to a managed list copies the block into Realm.
+                track.add(new TrackBlock());
+            }
+            final TrackBlock tail = track.get(track.size() - 1);
+            offset += tail.append(latitudes, longitudes, times, offset, count - offset);
+        }
     }
 
     public void setLocations(RealmList<Location> locations) {
@@ -154,12 +362,188 @@ public class Journey extends RealmObject {
         return this.id;
     }
 
+    /**
+     * Returns the track summary read from the summary columns.
+     *
+     * @return the journey summary.
+     */
+    public JourneySummary getSummary() {
+        final JourneySummary summary = new JourneySummary();
+        summary.startTime = startTime;
+        summary.endTime = endTime;
+        summary.distance = distance;
+        summary.pointCount = pointCount;
+        summary.minLatitude = minLatitude;
+        summary.maxLatitude = maxLatitude;
+        summary.minLongitude = minLongitude;
+        summary.maxLongitude = maxLongitude;
+        summary.startLatitude = startLatitude;
+        summary.startLongitude = startLongitude;
+        summary.endLatitude = endLatitude;
+        summary.endLongitude = endLongitude;
+        summary.maxSpeed = maxSpeed;
+        return summary;
+    }
+
+    /**
+     * Rebuilds the summary columns from the decoded track, for journeys written before they were
+     * kept on append.
+     *
+     * @param scratch decodes the track, cleared first.
+     */
+    void summarise(TrackPoints scratch) {
+        scratch.clear();
+        readTrack(scratch);
+        final JourneySummary summary = new JourneySummary();
+        for (int index = 0; index < scratch.size(); index++) {
+            summary.add(scratch.getLatitude(index), scratch.getLongitude(index),
+                    scratch.getTime(index));
+        }
+        setSummary(summary);
+    }
+
+    /**
+     * Writes the track summary to the summary columns.
+     *
+     * @param summary the journey summary.
+     */
+    private void setSummary(JourneySummary summary) {
+        startTime = summary.startTime;
+        endTime = summary.endTime;
+        distance = summary.distance;
+        pointCount = summary.pointCount;
+        minLatitude = summary.minLatitude;
+        maxLatitude = summary.maxLatitude;
+        minLongitude = summary.minLongitude;
+        maxLongitude = summary.maxLongitude;
+        startLatitude = summary.startLatitude;
+        startLongitude = summary.startLongitude;
+        endLatitude = summary.endLatitude;
+        endLongitude = summary.endLongitude;
+        maxSpeed = summary.maxSpeed;
+    }
+
+    public long getStartTime() {
+        return startTime;
+    }
+
+    public long getEndTime() {
+        return endTime;
+    }
+
+    /**
+     * Returns the travelled distance.
+     *
+     * @return the distance in meters.
+     */
+    public double getDistance() {
+        return distance;
+    }
+
+    public int getPointCount() {
+        return pointCount;
+    }
+
+    /**
+     * Returns the highest speed between two consecutive positions.
+     *
+     * @return the speed in meters per second.
+     */
+    public double getMaxSpeed() {
+        return maxSpeed;
+    }
+
+    /**
+     * Returns the average speed over the whole journey.
+     *
+     * @return the speed in meters per second.
+     */
+    public double getAverageSpeed() {
+        final long duration = endTime - startTime;
+        return duration > 0 ? distance * 1000 / duration : 0;
+    }
+
+    /**
+     * Returns the first position of the journey.
+     *
+     * @return the start {@link LatLng} or null if the journey has no positions.
+     */
+    public LatLng getStartLatLng() {
+        return pointCount > 0 ? new LatLng(startLatitude, startLongitude) : null;
+    }
+
+    /**
+     * Returns the last position of the journey.
+     *
+     * @return the end {@link LatLng} or null if the journey has no positions.
+     */
+    public LatLng getEndLatLng() {
+        return pointCount > 0 ? new LatLng(endLatitude, endLongitude) : null;
+    }
+
+    /**
+     * Returns the bounding box of the journey positions.
+     *
+     * @return the bounds or null if the journey has no positions.
+     */
+    public LatLngBounds getBounds() {
+        if (pointCount == 0) {
+            return null;
+        }
+        return new LatLngBounds(new LatLng(minLatitude, minLongitude),
+                new LatLng(maxLatitude, maxLongitude));
+    }
+
+    /**
+     * Returns the bounding box of every track block, read without decoding the track. Each box
+     * includes the last position of the previous block, so it also covers the segment joining
+     * the blocks. Journeys without a compact track or with blocks the bounds migration has not
+     * reached yet report their whole bounds.
+     *
+     * @return the boxes, empty if the journey has no positions.
+     */
+    public List<LatLngBounds> getTrackBounds() {
+        final List<LatLngBounds> boxes = new ArrayList<>();
+        if (pointCount == 0) {
+            return boxes;
+        }
+
+        for (int index = 0; index < track.size(); index++) {
+            final TrackBlock block = track.get(index);
+            if (!block.hasBounds()) {
+                boxes.clear();
+                break;
+            }
+            double south = block.getMinLatitude();
+            double north = block.getMaxLatitude();
+            double west = block.getMinLongitude();
+            double east = block.getMaxLongitude();
+            if (index > 0) {
+                final TrackBlock previous = track.get(index - 1);
+                south = Math.min(south, previous.getLastLatitude());
+                north = Math.max(north, previous.getLastLatitude());
+                west = Math.min(west, previous.getLastLongitude());
+                east = Math.max(east, previous.getLastLongitude());
+            }
+            boxes.add(new LatLngBounds(new LatLng(south, west), new LatLng(north, east)));
+        }
+        if (boxes.isEmpty()) {
+            boxes.add(getBounds());
+        }
+        return boxes;
+    }
+
     public void addLocation(Location location) {
-        locations.add(location);
+        appendTrack(new double[]{location.getLatitude()}, new double[]{location.getLongitude()},
+                new long[]{location.getTime()}, 1);
     }
 
     public void addLocation(LatLng location) {
-        locations.add(new Location(location.latitude, location.longitude));
+        addLocation(new Location(location.latitude, location.longitude));
+    }
+
+    public boolean isDeleted() {
+        return isDeleted;
     }
 
     public void setIsDeleted(boolean isDeleted) {
@@ -171,18 +555,19 @@ public class Journey extends RealmObject {
     }
 
     /**
-     * Gets the total travel time from the first and last locations recorded in {@link #locations}.
+     * Gets the total travel time from the {@link #startTime} and {@link #endTime} summary columns,
+     * or from the first and last positions while the summary of a legacy journey is not filled.
      *
      * @param context context used to access application resources.
-     * @return
+     * @return the travel time string.
      */
     public String getTravelTime(Context context) {
 
-        final Location start = getStartLocation();
-        final Location end = getEndLocation();
-
         // time in milliseconds.
-        long timeDifference = end.getTravelTime().getTime() - start.getTravelTime().getTime();
+        long timeDifference = endTime - startTime;
+        if (isSummaryPending()) {
+            timeDifference = getEndLocation().getTime() - getStartLocation().getTime();
+        }
 
         // Get days elapsed take that out from the total timeDifference.
         final long daysElapsed = timeDifference / mDaysInMilliseconds;
@@ -219,7 +604,8 @@ public class Journey extends RealmObject {
     }
 
     /**
-     * Provides helper method to delete {@link Journey} from {@link Realm} store.
+     * Provides helper method to delete {@link Journey} from {@link Realm} store. A hard deletion
+     * also deletes the journey {@link Location} and {@link TrackBlock} objects.
      *
      * @param realm the realm instance.
      * @param id the {@link Journey#id} identifier.
@@ -235,6 +621,9 @@ public class Journey extends RealmObject {
                 journey.setDateDeleted(new Date());
                 realm.insertOrUpdate(journey);
             } else {
+                // Cascade, the positions are only listed by this journey.
+                journey.locations.deleteAllFromRealm();
+                journey.track.deleteAllFromRealm();
                 journey.deleteFromRealm();
             }
         }
@@ -262,12 +651,25 @@ public class Journey extends RealmObject {
      */
     public String getStartAddress() {
         if (TextUtils.isEmpty(startAddress)) {
-            // return the location co-ordinates toString if startAddress is empty.
-            return getStartLocation().toString();
+            // return the location co-ordinates if startAddress is empty.
+            if (isSummaryPending()) {
+                final Location start = getStartLocation();
+                return formatCoordinates(start.getLatitude(), start.getLongitude());
+            }
+            return formatCoordinates(startLatitude, startLongitude);
         }
         return startAddress;
     }
 
+    /**
+     * Returns whether the start address was resolved.
+     *
+     * @return true if the start address is set.
+     */
+    public boolean hasStartAddress() {
+        return !TextUtils.isEmpty(startAddress);
+    }
+
     /**
      * Sets the start {@link android.location.Address} string address.
      *
@@ -284,12 +686,25 @@ public class Journey extends RealmObject {
      */
     public String getEndAddress() {
         if (TextUtils.isEmpty(endAddress)) {
-            // return the location co-ordinates toString if endAddress is empty.
-            return getEndLocation().toString();
+            // return the location co-ordinates if endAddress is empty.
+            if (isSummaryPending()) {
+                final Location end = getEndLocation();
+                return formatCoordinates(end.getLatitude(), end.getLongitude());
+            }
+            return formatCoordinates(endLatitude, endLongitude);
         }
         return endAddress;
     }
 
+    /**
+     * Returns whether the end address was resolved.
+     *
+     * @return true if the end address is set.
+     */
+    public boolean hasEndAddress() {
+        return !TextUtils.isEmpty(endAddress);
+    }
+
     /**
      * Sets the end {@link android.location.Address} string address.
      *
@@ -298,4 +713,25 @@ public class Journey extends RealmObject {
     public void setEndAddress(String address) {
         this.endAddress = address;
     }
+
+    /**
+     * Returns whether the journey has positions but its summary columns are not filled yet, as
+     * for journeys recorded before the summary until {@link JourneySummaryMigration} reaches them.
+     *
+     * @return true if the summary must not be read.
+     */
+    private boolean isSummaryPending() {
+        return pointCount == 0 && (track.size() != 0 || locations.size() != 0);
+    }
+
+    /**
+     * Formats co-ordinates for display when no address is available.
+     *
+     * @param latitude the latitude.
+     * @param longitude the longitude.
+     * @return the co-ordinates string.
+     */
+    private static String formatCoordinates(double latitude, double longitude) {
+        return String.format(Locale.getDefault(), "%.5f, %.5f", latitude, longitude);
+    }
 }
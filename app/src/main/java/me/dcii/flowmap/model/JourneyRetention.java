@@ -0,0 +1,105 @@
+/*
+  MIT License
+
+  Copyright (c) 2017 Cinfwat Dogak
+
+  Permission is hereby granted, free of charge, to any person obtaining a copy
+  of this software and associated documentation files (the "Software"), to deal
+  in the Software without restriction, including without limitation the rights
+  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+  copies of the Software, and to permit persons to whom the Software is
+  furnished to do so, subject to the following conditions:
+
+  The above copyright notice and this permission notice shall be included in all
+  copies or substantial portions of the Software.
+
+  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+  SOFTWARE.
+ */
+
+package me.dcii.flowmap.model;
+
+import android.util.Log;
+
+import java.util.Date;
+
+import io.realm.OrderedRealmCollectionSnapshot;
+import io.realm.Realm;
+import io.realm.Sort;
+
+/**
+ * Hard deletes journeys soft deleted longer ago than the retention period, oldest deletions
+ * first. Soft deleted journeys can be restored until then. Journeys are deleted in batches, each
+ * batch in its own transaction, since a hard deletion also deletes the journey positions.
+ *
+ * @author Dogak Cinfwat.
+ */
+public class JourneyRetention {
+
+    private static final String TAG = JourneyRetention.class.getSimpleName();
+
+    /**
+     * Default time (milliseconds) soft deleted journeys are kept, 30 days.
+     */
+    public static final long DEFAULT_RETENTION = 30L * 24 * 60 * 60 * 1000;
+
+    /**
+     * Default number of journeys deleted per transaction.
+     */
+    public static final int DEFAULT_BATCH_SIZE = 20;
+
+    private final long mRetention;
+    private final int mBatchSize;
+
+    /**
+     * Constructor.
+     *
+     * @param retention time in milliseconds soft deleted journeys are kept.
+     * @param batchSize number of journeys deleted per transaction.
+     */
+    public JourneyRetention(long retention, int batchSize) {
+        mRetention = retention;
+        mBatchSize = batchSize;
+    }
+
+    /**
+     * Deletes the expired journeys on the calling thread.
+     *
+     * @param realm the realm instance.
+     * @return the number of deleted journeys.
+     */
+    public int purge(Realm realm) {
+        final Date cutoff = new Date(System.currentTimeMillis() - mRetention);
+        final int[] deleted = new int[1];
+        int total = 0;
+        do {
+            realm.executeTransaction(new Realm.Transaction() {
+                @Override
+                public void execute(Realm realm) {
+                    final OrderedRealmCollectionSnapshot<Journey> expired =
+                            realm.where(Journey.class)
+                                    .equalTo(Journey.FIELD_IS_DELETED, true)
+                                    .lessThan(Journey.FIELD_DATE_DELETED, cutoff)
+                                    .findAllSorted(Journey.FIELD_DATE_DELETED, Sort.ASCENDING)
+                                    .createSnapshot();
+                    final int count = Math.min(mBatchSize, expired.size());
+                    for (int index = 0; index < count; index++) {
+                        Journey.delete(realm, expired.get(index).getId(), false);
+                    }
+                    deleted[0] = count;
+                }
+            });
+            total += deleted[0];
+        } while (deleted[0] == mBatchSize);
+
+        if (total > 0) {
+            Log.i(TAG, "Deleted " + total + " journeys soft deleted before " + cutoff);
+        }
+        return total;
+    }
+}
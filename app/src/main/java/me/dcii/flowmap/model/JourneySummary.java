@@ -0,0 +1,135 @@
+/*
+  MIT License
+
+  Copyright (c) 2017 Cinfwat Dogak
+
+  Permission is hereby granted, free of charge, to any person obtaining a copy
+  of this software and associated documentation files (the "Software"), to deal
+  in the Software without restriction, including without limitation the rights
+  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+  copies of the Software, and to permit persons to whom the Software is
+  furnished to do so, subject to the following conditions:
+
+  The above copyright notice and this permission notice shall be included in all
+  copies or substantial portions of the Software.
+
+  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+  SOFTWARE.
+ */
+
+package me.dcii.flowmap.model;
+
+import me.dcii.flowmap.util.GeoUtils;
+
+/**
+ * Running summary of a journey track: time range, distance, point count, bounding box and speed.
+ * Each added point updates the summary in constant time.
+ *
+ * @author Dogak Cinfwat.
+ */
+public class JourneySummary {
+
+    long startTime;
+    long endTime;
+    double distance;
+    int pointCount;
+    double minLatitude;
+    double maxLatitude;
+    double minLongitude;
+    double maxLongitude;
+    double startLatitude;
+    double startLongitude;
+    double endLatitude;
+    double endLongitude;
+    double maxSpeed;
+
+    /**
+     * Adds the next track point to the summary.
+     *
+     * @param latitude point latitude.
+     * @param longitude point longitude.
+     * @param time point time in epoch milliseconds.
+     */
+    public void add(double latitude, double longitude, long time) {
+        if (pointCount == 0) {
+            startTime = time;
+            startLatitude = latitude;
+            startLongitude = longitude;
+            minLatitude = maxLatitude = latitude;
+            minLongitude = maxLongitude = longitude;
+        } else {
+            final double segment = GeoUtils.distance(endLatitude, endLongitude,
+                    latitude, longitude);
+            distance += segment;
+            final long elapsed = time - endTime;
+            if (elapsed > 0) {
+                maxSpeed = Math.max(maxSpeed, segment * 1000 / elapsed);
+            }
+            minLatitude = Math.min(minLatitude, latitude);
+            maxLatitude = Math.max(maxLatitude, latitude);
+            minLongitude = Math.min(minLongitude, longitude);
+            maxLongitude = Math.max(maxLongitude, longitude);
+        }
+        endTime = time;
+        endLatitude = latitude;
+        endLongitude = longitude;
+        pointCount++;
+    }
+
+    public long getStartTime() {
+        return startTime;
+    }
+
+    public long getEndTime() {
+        return endTime;
+    }
+
+    public double getDistance() {
+        return distance;
+    }
+
+    public int getPointCount() {
+        return pointCount;
+    }
+
+    public double getMinLatitude() {
+        return minLatitude;
+    }
+
+    public double getMaxLatitude() {
+        return maxLatitude;
+    }
+
+    public double getMinLongitude() {
+        return minLongitude;
+    }
+
+    public double getMaxLongitude() {
+        return maxLongitude;
+    }
+
+    public double getStartLatitude() {
+        return startLatitude;
+    }
+
+    public double getStartLongitude() {
+        return startLongitude;
+    }
+
+    public double getEndLatitude() {
+        return endLatitude;
+    }
+
+    public double getEndLongitude() {
+        return endLongitude;
+    }
+
+    public double getMaxSpeed() {
+        return maxSpeed;
+    }
+}
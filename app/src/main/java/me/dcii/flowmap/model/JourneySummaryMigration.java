@@ -0,0 +1,62 @@
+/*
+  MIT License
+
+  Copyright (c) 2017 Cinfwat Dogak
+
+  Permission is hereby granted, free of charge, to any person obtaining a copy
+  of this software and associated documentation files (the "Software"), to deal
+  in the Software without restriction, including without limitation the rights
+  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+  copies of the Software, and to permit persons to whom the Software is
+  furnished to do so, subject to the following conditions:
+
+  The above copyright notice and this permission notice shall be included in all
+  copies or substantial portions of the Software.
+
+  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+  SOFTWARE.
+ */
+
+package me.dcii.flowmap.model;
+
+import io.realm.Realm;
+import io.realm.RealmQuery;
+
+/**
+ * Fills the summary columns added by schema version 2 for the {@link Journey}s written before
+ * they were kept on append. Until then such journeys read as empty summaries.
+ *
+ * @author Dogak Cinfwat.
+ */
+public class JourneySummaryMigration extends SnapshotMigration<Journey> {
+
+    private final TrackPoints mScratch = new TrackPoints();
+
+    @Override
+    public long getVersion() {
+        return 2;
+    }
+
+    @Override
+    protected RealmQuery<Journey> whereRemaining(Realm realm) {
+        return realm.where(Journey.class)
+                .equalTo(Journey.FIELD_POINT_COUNT, 0)
+                .beginGroup()
+                .isNotEmpty(Journey.FIELD_TRACK)
+                .or()
+                .isNotEmpty(Journey.FIELD_LOCATIONS)
+                .endGroup();
+    }
+
+    @Override
+    protected void migrate(Journey journey) {
+        if (journey.getPointCount() == 0) {
+            journey.summarise(mScratch);
+        }
+    }
+}
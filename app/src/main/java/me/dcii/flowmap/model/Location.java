@@ -27,6 +27,8 @@ package me.dcii.flowmap.model;
 import java.util.Date;
 
 import io.realm.RealmObject;
+import io.realm.RealmResults;
+import io.realm.annotations.LinkingObjects;
 
 /**
  * Represents user {@link com.google.android.gms.maps.model.LatLng} locations.
@@ -36,21 +38,54 @@ import io.realm.RealmObject;
 
 public class Location extends RealmObject {
 
+    /**
+     * Represents the names of the fields. These are used in querying the Realm store.
+     */
+    public static final String FIELD_TIME = "time";
+    public static final String FIELD_LEGACY_TIME = "legacyTime";
+    public static final String FIELD_JOURNEYS = "journeys";
+
     private double latitude;
     private double longitude;
-    private Date time;
+
+    /**
+     * Time at the location in epoch milliseconds.
+     */
+    private long time;
+
+    /**
+     * Time stored by schema versions before 4. Copied to {@link #time} and cleared by
+     * {@link LocationTimeMigration} in the background; null once migrated.
+     */
+    private Date legacyTime;
+
+    /**
+     * Journeys listing the location, empty for orphaned rows. See {@link OrphanSweeper}.
+     */
+    @LinkingObjects("locations")
+    private final RealmResults<Journey> journeys = null;
 
     /**
      * Constructor.
      *
      * @param latitude location latitude.
      * @param longitude location longitude.
-     * @param {@link Date} time at particular location.
+     * @param time time at particular location in epoch milliseconds.
      */
-    public Location(double latitude, double longitude) {
+    public Location(double latitude, double longitude, long time) {
         this.latitude = latitude;
         this.longitude = longitude;
-        this.time = new Date();
+        this.time = time;
+    }
+
+    /**
+     * Constructor. Uses the current time as the location time.
+     *
+     * @param latitude location latitude.
+     * @param longitude location longitude.
+     */
+    public Location(double latitude, double longitude) {
+        this(latitude, longitude, System.currentTimeMillis());
     }
 
     /**
@@ -77,7 +112,29 @@ public class Location extends RealmObject {
         this.longitude = longitude;
     }
 
-    public Date getTravelTime() {
-        return time;
+    /**
+     * Gets the time at the location. Falls back to the {@link #legacyTime} of rows the background
+     * migration has not reached yet.
+     *
+     * @return the time in epoch milliseconds.
+     */
+    public long getTime() {
+        final Date legacy = legacyTime;
+        return legacy != null ? legacy.getTime() : time;
+    }
+
+    /**
+     * Moves the {@link #legacyTime} to the primitive {@link #time} column.
+     *
+     * @return true if the location had a legacy time.
+     */
+    boolean migrateLegacyTime() {
+        final Date legacy = legacyTime;
+        if (legacy == null) {
+            return false;
+        }
+        time = legacy.getTime();
+        legacyTime = null;
+        return true;
     }
 }
@@ -0,0 +1,235 @@
+/*
+  MIT License
+
+  Copyright (c) 2017 Cinfwat Dogak
+
+  Permission is hereby granted, free of charge, to any person obtaining a copy
+  of this software and associated documentation files (the "Software"), to deal
+  in the Software without restriction, including without limitation the rights
+  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+  copies of the Software, and to permit persons to whom the Software is
+  furnished to do so, subject to the following conditions:
+
+  The above copyright notice and this permission notice shall be included in all
+  copies or substantial portions of the Software.
+
+  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+  SOFTWARE.
+ */
+
+package me.dcii.flowmap.model;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Process;
+import android.util.Log;
+
+import io.realm.OrderedRealmCollectionSnapshot;
+import io.realm.Realm;
+
+/**
+ * Removes {@link Location} and {@link TrackBlock} objects no {@link Journey} lists, left behind
+ * by hard deletions made before they cascaded. Orphans are found through the objects' linking
+ * journeys and deleted in chunks, each chunk in its own transaction, so writers are never held
+ * up for long.
+ *
+ * The reclaimed bytes are estimated from the column sizes. The file itself only shrinks once the
+ * store is compacted.
+ *
+ * @author Dogak Cinfwat.
+ */
+public class OrphanSweeper {
+
+    private static final String TAG = OrphanSweeper.class.getSimpleName();
+
+    /**
+     * Default number of rows deleted per transaction.
+     */
+    public static final int DEFAULT_CHUNK_SIZE = 500;
+
+    /**
+     * Default time (milliseconds) between sweeps, 7 days.
+     */
+    public static final long DEFAULT_INTERVAL = 7L * 24 * 60 * 60 * 1000;
+
+    /**
+     * Estimated size of a {@link Location} row: latitude, longitude, time and legacy time.
+     */
+    private static final int LOCATION_BYTES = 4 * 8;
+
+    /**
+     * Estimated size of a {@link TrackBlock} row besides its data: point count, last latitude,
+     * last longitude and last time.
+     */
+    private static final int TRACK_BLOCK_BYTES = 3 * 4 + 8;
+
+    private static final String PREFERENCES_NAME = "orphan_sweeper";
+    private static final String KEY_LAST_SWEEP = "last_sweep";
+
+    private final SharedPreferences mPreferences;
+    private final int mChunkSize;
+    private final long mInterval;
+
+    private Thread mThread;
+
+    /**
+     * Result of a sweep.
+     */
+    public static class Result {
+        private long mRows;
+        private long mBytes;
+
+        /**
+         * Gets the number of deleted rows.
+         *
+         * @return the row count.
+         */
+        public long getRows() {
+            return mRows;
+        }
+
+        /**
+         * Gets the estimated size of the deleted rows.
+         *
+         * @return the size in bytes.
+         */
+        public long getBytes() {
+            return mBytes;
+        }
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param context the context used to keep the time of the last sweep.
+     * @param chunkSize number of rows deleted per transaction.
+     * @param interval time in milliseconds between sweeps.
+     */
+    public OrphanSweeper(Context context, int chunkSize, long interval) {
+        mPreferences = context.getSharedPreferences(PREFERENCES_NAME, Context.MODE_PRIVATE);
+        mChunkSize = chunkSize;
+        mInterval = interval;
+    }
+
+    /**
+     * Sweeps on a background thread if the last sweep is older than the interval. Does nothing
+     * if a sweep is already running.
+     */
+    public synchronized void start() {
+        if (mThread != null) {
+            return;
+        }
+        final long lastSweep = mPreferences.getLong(KEY_LAST_SWEEP, 0);
+        if (System.currentTimeMillis() - lastSweep < mInterval) {
+            return;
+        }
+        mThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                try {
+                    sweep();
+                } catch (RuntimeException e) {
+                    Log.e(TAG, "Orphan sweep failed", e);
+                } finally {
+                    synchronized (OrphanSweeper.this) {
+                        mThread = null;
+                    }
+                }
+            }
+        }, TAG);
+        mThread.start();
+    }
+
+    /**
+     * Sweeps on the calling thread. The orphans of each type are found by one query, and the
+     * snapshot of its results is deleted a chunk at a time.
+     *
+     * @return the deleted rows and their estimated size.
+     */
+    public Result sweep() {
+        final Result result = new Result();
+        final Realm realm = Realm.getDefaultInstance();
+        try {
+            final OrderedRealmCollectionSnapshot<Location> locations = realm.where(Location.class)
+                    .isEmpty(Location.FIELD_JOURNEYS)
+                    .findAll()
+                    .createSnapshot();
+            for (int from = 0; from < locations.size(); from += mChunkSize) {
+                deleteLocations(realm, locations, from, result);
+                Log.d(TAG, "Deleted " + result.mRows + " orphaned rows");
+            }
+
+            final OrderedRealmCollectionSnapshot<TrackBlock> blocks = realm.where(TrackBlock.class)
+                    .isEmpty(TrackBlock.FIELD_JOURNEYS)
+                    .findAll()
+                    .createSnapshot();
+            for (int from = 0; from < blocks.size(); from += mChunkSize) {
+                deleteTrackBlocks(realm, blocks, from, result);
+                Log.d(TAG, "Deleted " + result.mRows + " orphaned rows");
+            }
+        } finally {
+            realm.close();
+        }
+
+        mPreferences.edit().putLong(KEY_LAST_SWEEP, System.currentTimeMillis()).apply();
+        Log.i(TAG, "Deleted " + result.mRows + " orphaned rows, about " + result.mBytes
+                + " bytes");
+        return result;
+    }
+
+    /**
+     * Deletes a chunk of orphaned {@link Location} objects. Objects deleted since the snapshot
+     * was taken are skipped.
+     *
+     * @param from index of the first snapshot object of the chunk.
+     */
+    private void deleteLocations(Realm realm,
+                                 final OrderedRealmCollectionSnapshot<Location> orphans,
+                                 final int from, final Result result) {
+        realm.executeTransaction(new Realm.Transaction() {
+            @Override
+            public void execute(Realm realm) {
+                final int end = Math.min(from + mChunkSize, orphans.size());
+                for (int index = from; index < end; index++) {
+                    final Location location = orphans.get(index);
+                    if (location.isValid()) {
+                        location.deleteFromRealm();
+                        result.mRows++;
+                        result.mBytes += LOCATION_BYTES;
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Deletes a chunk of orphaned {@link TrackBlock} objects. Objects deleted since the snapshot
+     * was taken are skipped.
+     *
+     * @param from index of the first snapshot object of the chunk.
+     */
+    private void deleteTrackBlocks(Realm realm,
+                                   final OrderedRealmCollectionSnapshot<TrackBlock> orphans,
+                                   final int from, final Result result) {
+        realm.executeTransaction(new Realm.Transaction() {
+            @Override
+            public void execute(Realm realm) {
+                final int end = Math.min(from + mChunkSize, orphans.size());
+                for (int index = from; index < end; index++) {
+                    final TrackBlock block = orphans.get(index);
+                    if (block.isValid()) {
+                        result.mBytes += TRACK_BLOCK_BYTES + block.getDataSize();
+                        block.deleteFromRealm();
+                        result.mRows++;
+                    }
+                }
+            }
+        });
+    }
+}
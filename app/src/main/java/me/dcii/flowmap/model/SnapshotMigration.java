@@ -0,0 +1,105 @@
+/*
+  MIT License
+
+  Copyright (c) 2017 Cinfwat Dogak
+
+  Permission is hereby granted, free of charge, to any person obtaining a copy
+  of this software and associated documentation files (the "Software"), to deal
+  in the Software without restriction, including without limitation the rights
+  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+  copies of the Software, and to permit persons to whom the Software is
+  furnished to do so, subject to the following conditions:
+
+  The above copyright notice and this permission notice shall be included in all
+  copies or substantial portions of the Software.
+
+  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+  SOFTWARE.
+ */
+
+package me.dcii.flowmap.model;
+
+import io.realm.OrderedRealmCollectionSnapshot;
+import io.realm.Realm;
+import io.realm.RealmObject;
+import io.realm.RealmQuery;
+
+/**
+ * A {@link BackgroundMigration} that walks a single snapshot of the rows left across all of its
+ * chunks. Querying the rows left again for every chunk scans the table once per chunk, so the
+ * migration would take time quadratic in the row count.
+ *
+ * Rows written after the snapshot is taken are written in the new form and need no rewrite.
+ * Rows deleted since are skipped, and each row is checked again before it is rewritten.
+ *
+ * @param <E> the type of the rows rewritten.
+ * @author Dogak Cinfwat.
+ */
+public abstract class SnapshotMigration<E extends RealmObject> implements BackgroundMigration {
+
+    /**
+     * The realm instance the snapshot was taken on; a new instance takes a new snapshot.
+     */
+    private Realm mRealm;
+    private OrderedRealmCollectionSnapshot<E> mRows;
+
+    /**
+     * Index of the next snapshot row to rewrite.
+     */
+    private int mNext;
+
+    /**
+     * Builds the query of the rows left to rewrite.
+     *
+     * @param realm the realm instance.
+     * @return the query.
+     */
+    protected abstract RealmQuery<E> whereRemaining(Realm realm);
+
+    /**
+     * Rewrites a row. Called inside a write transaction.
+     *
+     * @param row the row, which may have been rewritten already.
+     */
+    protected abstract void migrate(E row);
+
+    @Override
+    public long countRemaining(Realm realm) {
+        return whereRemaining(realm).count();
+    }
+
+    /**
+     * Rewrites the next chunk of snapshot rows.
+     *
+     * @return the number of snapshot rows passed, rewritten or skipped, 0 once none are left.
+     */
+    @Override
+    public int migrateChunk(Realm realm, int limit) {
+        if (mRows == null || mRealm != realm) {
+            mRealm = realm;
+            mRows = whereRemaining(realm).findAll().createSnapshot();
+            mNext = 0;
+        }
+
+        final int end = Math.min(mNext + limit, mRows.size());
+        final int count = end - mNext;
+        for (; mNext < end; mNext++) {
+            final E row = mRows.get(mNext);
+            if (row.isValid()) {
+                migrate(row);
+            }
+        }
+
+        if (count == 0) {
+            // Done, let go of the snapshot.
+            mRealm = null;
+            mRows = null;
+        }
+        return count;
+    }
+}
@@ -0,0 +1,182 @@
+/*
+  MIT License
+
+  Copyright (c) 2017 Cinfwat Dogak
+
+  Permission is hereby granted, free of charge, to any person obtaining a copy
+  of this software and associated documentation files (the "Software"), to deal
+  in the Software without restriction, including without limitation the rights
+  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+  copies of the Software, and to permit persons to whom the Software is
+  furnished to do so, subject to the following conditions:
+
+  The above copyright notice and this permission notice shall be included in all
+  copies or substantial portions of the Software.
+
+  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+  SOFTWARE.
+ */
+
+package me.dcii.flowmap.model;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Log;
+
+import java.io.File;
+
+import io.realm.CompactOnLaunchCallback;
+import io.realm.Realm;
+import io.realm.RealmConfiguration;
+
+/**
+ * Decides when the Realm store is compacted. Compaction rewrites the file without the free space
+ * left by deletions, which Realm otherwise keeps for reuse.
+ *
+ * When the store is first opened, a file with at least {@link #mLaunchThreshold} of its size
+ * free is compacted right away. A file with less, but at least {@link #mIdleThreshold}, is
+ * flagged for compaction the next time the device is idle; see {@link #compactIfPending}. A
+ * flagged file the idle compaction could not reach, because the store was open, is compacted
+ * when it is next opened. Files smaller than {@link #mMinFileSize} are left alone.
+ *
+ * @author Dogak Cinfwat.
+ */
+public class StoreCompactor implements CompactOnLaunchCallback {
+
+    private static final String TAG = StoreCompactor.class.getSimpleName();
+
+    /**
+     * Default size (bytes) below which the file is never compacted.
+     */
+    public static final long DEFAULT_MIN_FILE_SIZE = 4 * 1024 * 1024;
+
+    /**
+     * Default ratio of free space to file size above which the file is compacted on launch.
+     */
+    public static final double DEFAULT_LAUNCH_THRESHOLD = 0.5;
+
+    /**
+     * Default ratio of free space to file size above which the file is compacted when idle.
+     */
+    public static final double DEFAULT_IDLE_THRESHOLD = 0.2;
+
+    private static final String PREFERENCES_NAME = "store_compactor";
+    private static final String KEY_PENDING = "pending";
+
+    private final SharedPreferences mPreferences;
+    private final long mMinFileSize;
+    private final double mLaunchThreshold;
+    private final double mIdleThreshold;
+
+    /**
+     * File size before the compaction on launch, or 0 if the file was not compacted.
+     */
+    private volatile long mLaunchSizeBefore;
+
+    /**
+     * Constructor.
+     *
+     * @param context the context used to keep the idle compaction flag.
+     * @param minFileSize size in bytes below which the file is never compacted.
+     * @param launchThreshold free space ratio above which the file is compacted on launch.
+     * @param idleThreshold free space ratio above which the file is compacted when idle.
+     */
+    public StoreCompactor(Context context, long minFileSize, double launchThreshold,
+                          double idleThreshold) {
+        mPreferences = context.getSharedPreferences(PREFERENCES_NAME, Context.MODE_PRIVATE);
+        mMinFileSize = minFileSize;
+        mLaunchThreshold = launchThreshold;
+        mIdleThreshold = idleThreshold;
+    }
+
+    /**
+     * Creates a compactor with the default settings.
+     *
+     * @param context the context used to keep the idle compaction flag.
+     * @return the store compactor.
+     */
+    public static StoreCompactor createDefault(Context context) {
+        return new StoreCompactor(context, DEFAULT_MIN_FILE_SIZE, DEFAULT_LAUNCH_THRESHOLD,
+                DEFAULT_IDLE_THRESHOLD);
+    }
+
+    @Override
+    public boolean shouldCompact(long totalBytes, long usedBytes) {
+        if (totalBytes < mMinFileSize) {
+            return false;
+        }
+        final double freeRatio = (double) (totalBytes - usedBytes) / totalBytes;
+        if (freeRatio >= mLaunchThreshold || mPreferences.getBoolean(KEY_PENDING, false)) {
+            Log.i(TAG, "Compacting on launch, " + totalBytes + " bytes, " + usedBytes + " used");
+            mLaunchSizeBefore = totalBytes;
+            setPending(false);
+            return true;
+        }
+        if (freeRatio >= mIdleThreshold) {
+            setPending(true);
+        }
+        return false;
+    }
+
+    /**
+     * Logs the file size before and after the compaction on launch, if the file was compacted.
+     * Call once the store was opened.
+     *
+     * @param config the store configuration.
+     */
+    public void reportLaunchCompaction(RealmConfiguration config) {
+        final long before = mLaunchSizeBefore;
+        if (before > 0) {
+            mLaunchSizeBefore = 0;
+            Log.i(TAG, "Compacted on launch from " + before + " to " + getFileSize(config)
+                    + " bytes");
+        }
+    }
+
+    /**
+     * Flags the file for compaction the next time the device is idle, for example after many
+     * rows were deleted.
+     */
+    public void requestIdleCompaction() {
+        setPending(true);
+    }
+
+    /**
+     * Compacts the file if flagged for compaction and no instance of the store is open.
+     *
+     * @param config the store configuration.
+     * @return true if the file was compacted.
+     */
+    public boolean compactIfPending(RealmConfiguration config) {
+        if (!mPreferences.getBoolean(KEY_PENDING, false)) {
+            return false;
+        }
+        if (Realm.getGlobalInstanceCount(config) > 0) {
+            // Stays flagged for the next idle period or launch.
+            Log.d(TAG, "Compaction postponed, the store is open");
+            return false;
+        }
+
+        final long before = getFileSize(config);
+        if (!Realm.compactRealm(config)) {
+            Log.w(TAG, "Compaction failed");
+            return false;
+        }
+        setPending(false);
+        Log.i(TAG, "Compacted from " + before + " to " + getFileSize(config) + " bytes");
+        return true;
+    }
+
+    private void setPending(boolean pending) {
+        mPreferences.edit().putBoolean(KEY_PENDING, pending).apply();
+    }
+
+    private static long getFileSize(RealmConfiguration config) {
+        return new File(config.getPath()).length();
+    }
+}
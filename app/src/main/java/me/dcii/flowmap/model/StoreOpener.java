@@ -0,0 +1,148 @@
+/*
+  MIT License
+
+  Copyright (c) 2017 Cinfwat Dogak
+
+  Permission is hereby granted, free of charge, to any person obtaining a copy
+  of this software and associated documentation files (the "Software"), to deal
+  in the Software without restriction, including without limitation the rights
+  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+  copies of the Software, and to permit persons to whom the Software is
+  furnished to do so, subject to the following conditions:
+
+  The above copyright notice and this permission notice shall be included in all
+  copies or substantial portions of the Software.
+
+  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+  SOFTWARE.
+ */
+
+package me.dcii.flowmap.model;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import io.realm.Realm;
+import io.realm.RealmConfiguration;
+
+/**
+ * Opens the Realm store once on a background thread when the app starts. The first open migrates
+ * and possibly compacts the file while holding the store lock, and any other thread opening the
+ * store meanwhile waits for it. Activities open their main thread instance from
+ * {@link #whenOpen(Runnable)}, so the first frames are drawn while the store is being opened.
+ *
+ * @author Dogak Cinfwat.
+ */
+public class StoreOpener {
+
+    private static final String TAG = StoreOpener.class.getSimpleName();
+
+    private static StoreOpener sInstance;
+
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+    private final List<Runnable> mCallbacks = new ArrayList<>();
+
+    private Thread mThread;
+    private boolean mOpen;
+
+    /**
+     * Returns the process wide store opener.
+     *
+     * @return the store opener.
+     */
+    public static synchronized StoreOpener getInstance() {
+        if (sInstance == null) {
+            sInstance = new StoreOpener();
+        }
+        return sInstance;
+    }
+
+    /**
+     * Opens the store on a background thread. Does nothing if it was opened or is being opened.
+     *
+     * @param config the store configuration.
+     * @param compactor the compactor of the store configuration, reports the launch compaction.
+     */
+    public synchronized void start(final RealmConfiguration config,
+                                   final StoreCompactor compactor) {
+        if (mThread != null || mOpen) {
+            return;
+        }
+        mThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                try {
+                    Realm.getInstance(config).close();
+                    compactor.reportLaunchCompaction(config);
+                } catch (RuntimeException e) {
+                    // Opening again on the main thread reports the error where it is handled.
+                    Log.e(TAG, "Store could not be opened", e);
+                } finally {
+                    onOpen();
+                }
+            }
+        }, TAG);
+        mThread.start();
+    }
+
+    /**
+     * Returns whether the background open completed.
+     *
+     * @return true once the store was opened.
+     */
+    public synchronized boolean isOpen() {
+        return mOpen;
+    }
+
+    /**
+     * Runs a callback on the main thread once the store was opened. Runs it right away if it was
+     * opened already. Call from the main thread.
+     *
+     * @param callback the callback.
+     */
+    public void whenOpen(Runnable callback) {
+        synchronized (this) {
+            if (!mOpen) {
+                mCallbacks.add(callback);
+                return;
+            }
+        }
+        callback.run();
+    }
+
+    /**
+     * Removes a callback that has not run yet, for example when its activity is destroyed.
+     *
+     * @param callback the callback.
+     */
+    public void cancel(Runnable callback) {
+        synchronized (this) {
+            mCallbacks.remove(callback);
+        }
+        mMainHandler.removeCallbacks(callback);
+    }
+
+    private void onOpen() {
+        final List<Runnable> callbacks;
+        synchronized (this) {
+            mOpen = true;
+            mThread = null;
+            callbacks = new ArrayList<>(mCallbacks);
+            mCallbacks.clear();
+        }
+        for (Runnable callback : callbacks) {
+            mMainHandler.post(callback);
+        }
+    }
+}
@@ -0,0 +1,275 @@
+/*
+  MIT License
+
+  Copyright (c) 2017 Cinfwat Dogak
+
+  Permission is hereby granted, free of charge, to any person obtaining a copy
+  of this software and associated documentation files (the "Software"), to deal
+  in the Software without restriction, including without limitation the rights
+  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+  copies of the Software, and to permit persons to whom the Software is
+  furnished to do so, subject to the following conditions:
+
+  The above copyright notice and this permission notice shall be included in all
+  copies or substantial portions of the Software.
+
+  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+  SOFTWARE.
+ */
+
+package me.dcii.flowmap.model;
+
+import java.util.Arrays;
+
+import io.realm.RealmObject;
+import io.realm.RealmResults;
+import io.realm.annotations.LinkingObjects;
+import me.dcii.flowmap.util.GeoUtils;
+
+/**
+ * A block of compact, delta encoded journey track points (see {@link TrackCodec}). Blocks are
+ * independently decodable and limited to {@link #MAX_BYTES}, so appending a point only rewrites
+ * the tail block of a journey rather than the whole track. Each block keeps the time range and
+ * bounding box of its points, so readers only decode the blocks a {@link TrackQuery} selects.
+ *
+ * @author Dogak Cinfwat.
+ */
+public class TrackBlock extends RealmObject {
+
+    /**
+     * Size in bytes after which a block is full and a new block is started.
+     */
+    public static final int MAX_BYTES = 2048;
+
+    /**
+     * Represents the names of the fields. These are used in querying the Realm store.
+     */
+    public static final String FIELD_JOURNEYS = "journeys";
+    public static final String FIELD_POINT_COUNT = "pointCount";
+    public static final String FIELD_HAS_BOUNDS = "hasBounds";
+
+    /**
+     * Encoded points.
+     */
+    private byte[] data;
+
+    private int pointCount;
+
+    /**
+     * Last point values, the base of the next delta and the journey end location.
+     */
+    private int lastLatitudeE6;
+    private int lastLongitudeE6;
+    private long lastTime;
+
+    /**
+     * Time of the first point. The block spans {@link #firstTime} to {@link #lastTime}.
+     */
+    private long firstTime;
+
+    /**
+     * Bounding box of the block points.
+     */
+    private int minLatitudeE6;
+    private int maxLatitudeE6;
+    private int minLongitudeE6;
+    private int maxLongitudeE6;
+
+    /**
+     * Whether the time range and bounding box are set. Blocks written before schema version 6
+     * get them from {@link TrackBlockBoundsMigration}; until then they match every query.
+     */
+    private boolean hasBounds;
+
+    /**
+     * Journeys listing the block, empty for orphaned rows. See {@link OrphanSweeper}.
+     */
+    @LinkingObjects("track")
+    private final RealmResults<Journey> journeys = null;
+
+    /**
+     * Empty constructor.
+     */
+    public TrackBlock() {
+        this.data = new byte[0];
+        this.pointCount = 0;
+    }
+
+    /**
+     * Appends points until all are appended or the block is full.
+     *
+     * @param latitudes point latitudes.
+     * @param longitudes point longitudes.
+     * @param times point times in epoch milliseconds.
+     * @param offset index of the first point to append.
+     * @param count number of points to append.
+     * @return the number of points appended.
+     */
+    public int append(double[] latitudes, double[] longitudes, long[] times, int offset,
+                      int count) {
+        final byte[] current = data == null ? new byte[0] : data;
+        final byte[] buffer = new byte[Math.min(MAX_BYTES + TrackCodec.MAX_POINT_BYTES,
+                current.length + count * TrackCodec.MAX_POINT_BYTES)];
+        System.arraycopy(current, 0, buffer, 0, current.length);
+
+        int position = current.length;
+        int latitudeE6 = lastLatitudeE6;
+        int longitudeE6 = lastLongitudeE6;
+        long time = lastTime;
+        int appended = 0;
+
+        if (pointCount == 0 && count > 0) {
+            firstTime = times[offset];
+            minLatitudeE6 = maxLatitudeE6 = GeoUtils.toE6(latitudes[offset]);
+            minLongitudeE6 = maxLongitudeE6 = GeoUtils.toE6(longitudes[offset]);
+            hasBounds = true;
+        }
+
+        while (appended < count && position < MAX_BYTES) {
+            final int index = offset + appended;
+            final int nextLatitudeE6 = GeoUtils.toE6(latitudes[index]);
+            final int nextLongitudeE6 = GeoUtils.toE6(longitudes[index]);
+            position = TrackCodec.encodePoint(buffer, position, nextLatitudeE6 - latitudeE6,
+                    nextLongitudeE6 - longitudeE6, times[index] - time);
+            latitudeE6 = nextLatitudeE6;
+            longitudeE6 = nextLongitudeE6;
+            time = times[index];
+            appended++;
+            if (hasBounds) {
+                extendBounds(latitudeE6, longitudeE6);
+            }
+        }
+
+        data = Arrays.copyOf(buffer, position);
+        pointCount += appended;
+        lastLatitudeE6 = latitudeE6;
+        lastLongitudeE6 = longitudeE6;
+        lastTime = time;
+        return appended;
+    }
+
+    /**
+     * Decodes the block points and appends them to the output.
+     *
+     * @param out receives the decoded points.
+     * @param maxPoints maximum number of points to decode.
+     * @return the number of points decoded.
+     */
+    public int decode(TrackPoints out, int maxPoints) {
+        if (data == null) {
+            return 0;
+        }
+        final byte[] bytes = data;
+        return TrackCodec.decode(bytes, bytes.length, Math.min(maxPoints, pointCount), out);
+    }
+
+    /**
+     * Checks if the block may hold points matching the query, without decoding it.
+     *
+     * @param query the query.
+     * @return true if the block should be read.
+     */
+    public boolean intersects(TrackQuery query) {
+        return !hasBounds || query.intersects(firstTime, lastTime, minLatitudeE6, maxLatitudeE6,
+                minLongitudeE6, maxLongitudeE6);
+    }
+
+    /**
+     * Sets the time range and bounding box from the block points. Used for blocks written
+     * before they were kept on append.
+     *
+     * @param scratch decodes the points, cleared first.
+     */
+    void computeBounds(TrackPoints scratch) {
+        scratch.clear();
+        decode(scratch, Integer.MAX_VALUE);
+        if (scratch.size() == 0) {
+            return;
+        }
+        firstTime = scratch.getTime(0);
+        minLatitudeE6 = maxLatitudeE6 = GeoUtils.toE6(scratch.getLatitude(0));
+        minLongitudeE6 = maxLongitudeE6 = GeoUtils.toE6(scratch.getLongitude(0));
+        for (int index = 1; index < scratch.size(); index++) {
+            extendBounds(GeoUtils.toE6(scratch.getLatitude(index)),
+                    GeoUtils.toE6(scratch.getLongitude(index)));
+        }
+        hasBounds = true;
+    }
+
+    private void extendBounds(int latitudeE6, int longitudeE6) {
+        minLatitudeE6 = Math.min(minLatitudeE6, latitudeE6);
+        maxLatitudeE6 = Math.max(maxLatitudeE6, latitudeE6);
+        minLongitudeE6 = Math.min(minLongitudeE6, longitudeE6);
+        maxLongitudeE6 = Math.max(maxLongitudeE6, longitudeE6);
+    }
+
+    /**
+     * Checks if the block reached its size limit.
+     *
+     * @return true if no more points should be appended.
+     */
+    public boolean isFull() {
+        final byte[] bytes = data;
+        return bytes != null && bytes.length >= MAX_BYTES;
+    }
+
+    /**
+     * Gets the size of the encoded points.
+     *
+     * @return the size in bytes.
+     */
+    public int getDataSize() {
+        final byte[] bytes = data;
+        return bytes == null ? 0 : bytes.length;
+    }
+
+    public int getPointCount() {
+        return pointCount;
+    }
+
+    public double getLastLatitude() {
+        return GeoUtils.fromE6(lastLatitudeE6);
+    }
+
+    public double getLastLongitude() {
+        return GeoUtils.fromE6(lastLongitudeE6);
+    }
+
+    public long getLastTime() {
+        return lastTime;
+    }
+
+    public long getFirstTime() {
+        return firstTime;
+    }
+
+    /**
+     * Checks if the time range and bounding box are set.
+     *
+     * @return false for blocks the bounds migration has not reached yet.
+     */
+    public boolean hasBounds() {
+        return hasBounds;
+    }
+
+    public double getMinLatitude() {
+        return GeoUtils.fromE6(minLatitudeE6);
+    }
+
+    public double getMaxLatitude() {
+        return GeoUtils.fromE6(maxLatitudeE6);
+    }
+
+    public double getMinLongitude() {
+        return GeoUtils.fromE6(minLongitudeE6);
+    }
+
+    public double getMaxLongitude() {
+        return GeoUtils.fromE6(maxLongitudeE6);
+    }
+}
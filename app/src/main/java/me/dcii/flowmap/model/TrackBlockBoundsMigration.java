@@ -0,0 +1,58 @@
+/*
+  MIT License
+
+  Copyright (c) 2017 Cinfwat Dogak
+
+  Permission is hereby granted, free of charge, to any person obtaining a copy
+  of this software and associated documentation files (the "Software"), to deal
+  in the Software without restriction, including without limitation the rights
+  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+  copies of the Software, and to permit persons to whom the Software is
+  furnished to do so, subject to the following conditions:
+
+  The above copyright notice and this permission notice shall be included in all
+  copies or substantial portions of the Software.
+
+  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+  SOFTWARE.
+ */
+
+package me.dcii.flowmap.model;
+
+import io.realm.Realm;
+import io.realm.RealmQuery;
+
+/**
+ * Sets the time range and bounding box of the {@link TrackBlock}s written before schema
+ * version 6 kept them on append.
+ *
+ * @author Dogak Cinfwat.
+ */
+public class TrackBlockBoundsMigration extends SnapshotMigration<TrackBlock> {
+
+    private final TrackPoints mScratch = new TrackPoints();
+
+    @Override
+    public long getVersion() {
+        return 6;
+    }
+
+    @Override
+    protected RealmQuery<TrackBlock> whereRemaining(Realm realm) {
+        return realm.where(TrackBlock.class)
+                .equalTo(TrackBlock.FIELD_HAS_BOUNDS, false)
+                .greaterThan(TrackBlock.FIELD_POINT_COUNT, 0);
+    }
+
+    @Override
+    protected void migrate(TrackBlock block) {
+        if (!block.hasBounds()) {
+            block.computeBounds(mScratch);
+        }
+    }
+}
@@ -0,0 +1,124 @@
+/*
+  MIT License
+
+  Copyright (c) 2017 Cinfwat Dogak
+
+  Permission is hereby granted, free of charge, to any person obtaining a copy
+  of this software and associated documentation files (the "Software"), to deal
+  in the Software without restriction, including without limitation the rights
+  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+  copies of the Software, and to permit persons to whom the Software is
+  furnished to do so, subject to the following conditions:
+
+  The above copyright notice and this permission notice shall be included in all
+  copies or substantial portions of the Software.
+
+  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+  SOFTWARE.
+ */
+
+package me.dcii.flowmap.model;
+
+import me.dcii.flowmap.util.GeoUtils;
+
+/**
+ * Encodes and decodes compact track data. Coordinates are quantised to integer micro degrees (E6)
+ * and times to epoch milliseconds; every point is stored as the zigzag varint encoded delta from
+ * the previous point, the first point as the delta from zero.
+ *
+ * @author Dogak Cinfwat.
+ */
+public final class TrackCodec {
+
+    /**
+     * Largest number of bytes a single encoded point takes: two 32 bit and one 64 bit varint.
+     */
+    public static final int MAX_POINT_BYTES = 5 + 5 + 10;
+
+    private TrackCodec() {
+    }
+
+    /**
+     * Encodes a point as deltas from the previous point. The buffer must have at least
+     * {@link #MAX_POINT_BYTES} bytes left from the position.
+     *
+     * @param buffer the output buffer.
+     * @param position the position to write at.
+     * @param latitudeDelta latitude delta in micro degrees.
+     * @param longitudeDelta longitude delta in micro degrees.
+     * @param timeDelta time delta in milliseconds.
+     * @return the position after the encoded point.
+     */
+    public static int encodePoint(byte[] buffer, int position, int latitudeDelta,
+                                  int longitudeDelta, long timeDelta) {
+        position = writeVarLong(buffer, position, zigzag(latitudeDelta));
+        position = writeVarLong(buffer, position, zigzag(longitudeDelta));
+        return writeVarLong(buffer, position, zigzag(timeDelta));
+    }
+
+    /**
+     * Decodes encoded points and appends them to the output.
+     *
+     * @param data the encoded points.
+     * @param length number of valid bytes in the data.
+     * @param maxPoints maximum number of points to decode.
+     * @param out receives the decoded points.
+     * @return the number of points decoded.
+     */
+    public static int decode(byte[] data, int length, int maxPoints, TrackPoints out) {
+        int position = 0;
+        int latitude = 0;
+        int longitude = 0;
+        long time = 0;
+        int count = 0;
+        final long[] value = new long[1];
+
+        while (position < length && count < maxPoints) {
+            position = readVarLong(data, position, value);
+            latitude += (int) unzigzag(value[0]);
+            position = readVarLong(data, position, value);
+            longitude += (int) unzigzag(value[0]);
+            position = readVarLong(data, position, value);
+            time += unzigzag(value[0]);
+
+            out.add(GeoUtils.fromE6(latitude), GeoUtils.fromE6(longitude), time);
+            count++;
+        }
+        return count;
+    }
+
+    static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static int writeVarLong(byte[] buffer, int position, long value) {
+        while ((value & ~0x7FL) != 0) {
+            buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[position++] = (byte) value;
+        return position;
+    }
+
+    private static int readVarLong(byte[] buffer, int position, long[] out) {
+        long value = 0;
+        int shift = 0;
+        byte current;
+        do {
+            current = buffer[position++];
+            value |= (long) (current & 0x7F) << shift;
+            shift += 7;
+        } while ((current & 0x80) != 0);
+        out[0] = value;
+        return position;
+    }
+}
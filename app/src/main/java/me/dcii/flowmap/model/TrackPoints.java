@@ -0,0 +1,202 @@
+/*
+  MIT License
+
+  Copyright (c) 2017 Cinfwat Dogak
+
+  Permission is hereby granted, free of charge, to any person obtaining a copy
+  of this software and associated documentation files (the "Software"), to deal
+  in the Software without restriction, including without limitation the rights
+  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+  copies of the Software, and to permit persons to whom the Software is
+  furnished to do so, subject to the following conditions:
+
+  The above copyright notice and this permission notice shall be included in all
+  copies or substantial portions of the Software.
+
+  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+  SOFTWARE.
+ */
+
+package me.dcii.flowmap.model;
+
+import java.util.Arrays;
+
+/**
+ * Growable primitive arrays of decoded track points. Used to read a journey track without
+ * allocating an object per point.
+ *
+ * @author Dogak Cinfwat.
+ */
+public class TrackPoints {
+
+    private static final int DEFAULT_CAPACITY = 64;
+
+    private double[] mLatitudes;
+    private double[] mLongitudes;
+    private long[] mTimes;
+    private int mSize;
+
+    /**
+     * Start indexes of the runs of consecutive points. See {@link #startRun()}.
+     */
+    private int[] mRunStarts = new int[4];
+    private int mRunCount;
+
+    public TrackPoints() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param capacity initial point capacity.
+     */
+    public TrackPoints(int capacity) {
+        capacity = Math.max(1, capacity);
+        mLatitudes = new double[capacity];
+        mLongitudes = new double[capacity];
+        mTimes = new long[capacity];
+        mSize = 0;
+    }
+
+    /**
+     * Appends a point, growing the arrays if needed.
+     *
+     * @param latitude point latitude.
+     * @param longitude point longitude.
+     * @param time point time in epoch milliseconds.
+     */
+    public void add(double latitude, double longitude, long time) {
+        if (mSize == mLatitudes.length) {
+            final int capacity = mSize * 2;
+            mLatitudes = Arrays.copyOf(mLatitudes, capacity);
+            mLongitudes = Arrays.copyOf(mLongitudes, capacity);
+            mTimes = Arrays.copyOf(mTimes, capacity);
+        }
+        mLatitudes[mSize] = latitude;
+        mLongitudes[mSize] = longitude;
+        mTimes[mSize] = time;
+        mSize++;
+    }
+
+    /**
+     * Starts a new run: the points added next don't follow on from the points added so far, for
+     * example because the points in between were skipped. Points added before the first run is
+     * started form a run of their own.
+     */
+    public void startRun() {
+        if (mRunCount == mRunStarts.length) {
+            mRunStarts = Arrays.copyOf(mRunStarts, mRunCount * 2);
+        }
+        mRunStarts[mRunCount++] = mSize;
+    }
+
+    /**
+     * Gets the number of runs of consecutive points.
+     *
+     * @return the run count, 1 if no run was started and there are points.
+     */
+    public int getRunCount() {
+        if (mRunCount == 0 || mRunStarts[0] != 0) {
+            return mRunCount + (mSize > 0 ? 1 : 0);
+        }
+        return mRunCount;
+    }
+
+    /**
+     * Gets the index of the first point of a run.
+     *
+     * @param run the run index.
+     * @return the point index.
+     */
+    public int getRunStart(int run) {
+        if (mRunCount == 0 || mRunStarts[0] != 0) {
+            return run == 0 ? 0 : mRunStarts[run - 1];
+        }
+        return mRunStarts[run];
+    }
+
+    /**
+     * Gets the index after the last point of a run.
+     *
+     * @param run the run index.
+     * @return the point index.
+     */
+    public int getRunEnd(int run) {
+        return run + 1 < getRunCount() ? getRunStart(run + 1) : mSize;
+    }
+
+    /**
+     * Removes a range of points, shifting the points after it down. Run starts are kept as they
+     * are, so remove points before starting runs.
+     *
+     * @param from index of the first point to remove.
+     * @param count number of points to remove.
+     */
+    public void remove(int from, int count) {
+        if (count <= 0) {
+            return;
+        }
+        final int tail = mSize - from - count;
+        System.arraycopy(mLatitudes, from + count, mLatitudes, from, tail);
+        System.arraycopy(mLongitudes, from + count, mLongitudes, from, tail);
+        System.arraycopy(mTimes, from + count, mTimes, from, tail);
+        mSize -= count;
+    }
+
+    /**
+     * Removes all points, keeping the allocated arrays.
+     */
+    public void clear() {
+        mSize = 0;
+        mRunCount = 0;
+    }
+
+    public int size() {
+        return mSize;
+    }
+
+    public double getLatitude(int index) {
+        return mLatitudes[index];
+    }
+
+    public double getLongitude(int index) {
+        return mLongitudes[index];
+    }
+
+    public long getTime(int index) {
+        return mTimes[index];
+    }
+
+    /**
+     * Returns the backing latitude array. Only the first {@link #size()} entries are valid.
+     *
+     * @return the latitudes.
+     */
+    public double[] getLatitudes() {
+        return mLatitudes;
+    }
+
+    /**
+     * Returns the backing longitude array. Only the first {@link #size()} entries are valid.
+     *
+     * @return the longitudes.
+     */
+    public double[] getLongitudes() {
+        return mLongitudes;
+    }
+
+    /**
+     * Returns the backing time array. Only the first {@link #size()} entries are valid.
+     *
+     * @return the times in epoch milliseconds.
+     */
+    public long[] getTimes() {
+        return mTimes;
+    }
+}
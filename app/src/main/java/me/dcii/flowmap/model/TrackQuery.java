@@ -0,0 +1,124 @@
+/*
+  MIT License
+
+  Copyright (c) 2017 Cinfwat Dogak
+
+  Permission is hereby granted, free of charge, to any person obtaining a copy
+  of this software and associated documentation files (the "Software"), to deal
+  in the Software without restriction, including without limitation the rights
+  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+  copies of the Software, and to permit persons to whom the Software is
+  furnished to do so, subject to the following conditions:
+
+  The above copyright notice and this permission notice shall be included in all
+  copies or substantial portions of the Software.
+
+  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+  SOFTWARE.
+ */
+
+package me.dcii.flowmap.model;
+
+import me.dcii.flowmap.util.GeoUtils;
+
+/**
+ * Selects the {@link TrackBlock}s of a journey track to read, by time window and viewport. A
+ * block is selected if its time range and bounding box intersect the query, so only the blocks
+ * that can contribute to the result are decoded.
+ *
+ * @author Dogak Cinfwat.
+ */
+public final class TrackQuery {
+
+    /**
+     * Selects every block.
+     */
+    public static final TrackQuery ALL = new TrackQuery(Long.MIN_VALUE, Long.MAX_VALUE,
+            Integer.MIN_VALUE, Integer.MAX_VALUE, Integer.MIN_VALUE, Integer.MAX_VALUE);
+
+    private final long mFromTime;
+    private final long mToTime;
+    private final int mSouthE6;
+    private final int mNorthE6;
+    private final int mWestE6;
+    private final int mEastE6;
+
+    private TrackQuery(long fromTime, long toTime, int southE6, int northE6, int westE6,
+                       int eastE6) {
+        mFromTime = fromTime;
+        mToTime = toTime;
+        mSouthE6 = southE6;
+        mNorthE6 = northE6;
+        mWestE6 = westE6;
+        mEastE6 = eastE6;
+    }
+
+    /**
+     * Creates a query for the points recorded within a time window.
+     *
+     * @param fromTime window start in epoch milliseconds, inclusive.
+     * @param toTime window end in epoch milliseconds, inclusive.
+     * @return the query.
+     */
+    public static TrackQuery forTimeWindow(long fromTime, long toTime) {
+        return new TrackQuery(fromTime, toTime, Integer.MIN_VALUE, Integer.MAX_VALUE,
+                Integer.MIN_VALUE, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Creates a query for the points within a viewport. A viewport whose west edge is east of its
+     * east edge crosses the antimeridian.
+     *
+     * @param south viewport south latitude.
+     * @param west viewport west longitude.
+     * @param north viewport north latitude.
+     * @param east viewport east longitude.
+     * @return the query.
+     */
+    public static TrackQuery forViewport(double south, double west, double north, double east) {
+        return new TrackQuery(Long.MIN_VALUE, Long.MAX_VALUE, GeoUtils.toE6(south),
+                GeoUtils.toE6(north), GeoUtils.toE6(west), GeoUtils.toE6(east));
+    }
+
+    /**
+     * Narrows the query to a time window.
+     *
+     * @param fromTime window start in epoch milliseconds, inclusive.
+     * @param toTime window end in epoch milliseconds, inclusive.
+     * @return the narrowed query.
+     */
+    public TrackQuery withTimeWindow(long fromTime, long toTime) {
+        return new TrackQuery(fromTime, toTime, mSouthE6, mNorthE6, mWestE6, mEastE6);
+    }
+
+    /**
+     * Checks if a block with the provided time range and bounding box intersects the query.
+     *
+     * @param firstTime time of the first block point.
+     * @param lastTime time of the last block point.
+     * @param minLatitudeE6 block south edge.
+     * @param maxLatitudeE6 block north edge.
+     * @param minLongitudeE6 block west edge.
+     * @param maxLongitudeE6 block east edge.
+     * @return true if the block should be read.
+     */
+    public boolean intersects(long firstTime, long lastTime, int minLatitudeE6,
+                              int maxLatitudeE6, int minLongitudeE6, int maxLongitudeE6) {
+        if (lastTime < mFromTime || firstTime > mToTime) {
+            return false;
+        }
+        if (maxLatitudeE6 < mSouthE6 || minLatitudeE6 > mNorthE6) {
+            return false;
+        }
+        if (mWestE6 <= mEastE6) {
+            return maxLongitudeE6 >= mWestE6 && minLongitudeE6 <= mEastE6;
+        }
+        // Crosses the antimeridian: [west, 180] or [-180, east].
+        return maxLongitudeE6 >= mWestE6 || minLongitudeE6 <= mEastE6;
+    }
+}
@@ -30,5 +30,23 @@ package me.dcii.flowmap.model;
  * @author Dogak Cinfwat.
  */
 public enum TransportType {
-    WALKING, RUNNING, CYCLING, DRIVING, OTHERS
+    WALKING(4f), RUNNING(10f), CYCLING(25f), DRIVING(70f), OTHERS(100f);
+
+    /**
+     * Highest plausible speed in meters per second for the transport type.
+     */
+    private final float mMaxSpeed;
+
+    TransportType(float maxSpeed) {
+        mMaxSpeed = maxSpeed;
+    }
+
+    /**
+     * Returns the highest plausible speed for the transport type.
+     *
+     * @return the speed in meters per second.
+     */
+    public float getMaxSpeed() {
+        return mMaxSpeed;
+    }
 }
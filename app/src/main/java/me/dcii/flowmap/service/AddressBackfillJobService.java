@@ -0,0 +1,102 @@
+/*
+  MIT License
+
+  Copyright (c) 2017 Cinfwat Dogak
+
+  Permission is hereby granted, free of charge, to any person obtaining a copy
+  of this software and associated documentation files (the "Software"), to deal
+  in the Software without restriction, including without limitation the rights
+  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+  copies of the Software, and to permit persons to whom the Software is
+  furnished to do so, subject to the following conditions:
+
+  The above copyright notice and this permission notice shall be included in all
+  copies or substantial portions of the Software.
+
+  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+  SOFTWARE.
+ */
+
+package me.dcii.flowmap.service;
+
+import android.annotation.TargetApi;
+import android.app.job.JobInfo;
+import android.app.job.JobParameters;
+import android.app.job.JobScheduler;
+import android.app.job.JobService;
+import android.content.ComponentName;
+import android.content.Context;
+import android.os.Build;
+import android.os.Process;
+
+import me.dcii.flowmap.geocode.AddressBackfill;
+
+/**
+ * Runs the {@link AddressBackfill} while the device is idle. The job is persisted across reboots
+ * and rescheduled until every journey was visited.
+ *
+ * Requires API 21; {@link #schedule(Context)} does nothing on older devices, which only get the
+ * addresses looked up while recording.
+ *
+ * @author Dogak Cinfwat.
+ */
+@TargetApi(Build.VERSION_CODES.LOLLIPOP)
+public class AddressBackfillJobService extends JobService {
+
+    private static final int JOB_ID = 1001;
+
+    private AddressBackfill mBackfill;
+    private Thread mThread;
+
+    /**
+     * Schedules the backfill to run the next time the device is idle. Replaces a pending run.
+     *
+     * @param context the context.
+     */
+    public static void schedule(Context context) {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.LOLLIPOP) {
+            return;
+        }
+        final JobScheduler jobScheduler =
+                (JobScheduler) context.getSystemService(Context.JOB_SCHEDULER_SERVICE);
+        jobScheduler.schedule(new JobInfo.Builder(JOB_ID,
+                new ComponentName(context, AddressBackfillJobService.class))
+                .setRequiresDeviceIdle(true)
+                .setPersisted(true)
+                .build());
+    }
+
+    @Override
+    public boolean onStartJob(final JobParameters params) {
+        mBackfill = new AddressBackfill(this, AddressBackfill.DEFAULT_MAX_IN_FLIGHT,
+                AddressBackfill.DEFAULT_LOOKUPS_PER_SECOND,
+                AddressBackfill.DEFAULT_WRITE_BATCH_SIZE, AddressBackfill.DEFAULT_MAX_LOOKUPS);
+        final AddressBackfill backfill = mBackfill;
+        mThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+
+                // Reschedule if journeys are left for another run.
+                jobFinished(params, !backfill.run());
+            }
+        }, AddressBackfill.class.getSimpleName());
+        mThread.start();
+
+        // The work continues on the thread.
+        return true;
+    }
+
+    @Override
+    public boolean onStopJob(JobParameters params) {
+        // The device left idle, stop and resume from the cursor later.
+        mBackfill.cancel();
+        mThread.interrupt();
+        return true;
+    }
+}
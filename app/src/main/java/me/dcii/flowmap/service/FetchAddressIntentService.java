@@ -1,198 +0,0 @@
-/*
-  MIT License
-
-  Copyright (c) 2017 Cinfwat Dogak
-
-  Permission is hereby granted, free of charge, to any person obtaining a copy
-  of this software and associated documentation files (the "Software"), to deal
-  in the Software without restriction, including without limitation the rights
-  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
-  copies of the Software, and to permit persons to whom the Software is
-  furnished to do so, subject to the following conditions:
-
-  The above copyright notice and this permission notice shall be included in all
-  copies or substantial portions of the Software.
-
-  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
-  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
-  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
-  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
-  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
-  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
-  SOFTWARE.
- */
-
-package me.dcii.flowmap.service;
-
-import android.app.IntentService;
-import android.content.Intent;
-import android.location.Address;
-import android.location.Geocoder;
-import android.location.Location;
-import android.os.Bundle;
-import android.os.ResultReceiver;
-import android.support.annotation.Nullable;
-import android.text.TextUtils;
-
-import java.io.IOException;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Locale;
-
-import me.dcii.flowmap.R;
-import me.dcii.flowmap.util.Constants;
-
-/**
- * Gets {@link Location} {@link Address} from the provided {@link Location#getLatitude()} and
- * {@link Location#getLongitude()}.
- *
- * @author Dogak Cinfwat.
- */
-
-public class FetchAddressIntentService extends IntentService {
-
-    private static final String TAG = FetchAddressIntentService.class.getSimpleName();
-
-    /**
-     * The receiver where results are forwarded from this service.
-     */
-    protected ResultReceiver mReceiver;
-
-    /**
-     * Represents the {@link me.dcii.flowmap.model.Journey#startAddress} or
-     * {@link me.dcii.flowmap.model.Journey#endAddress} request.
-     */
-    private int mAddressRequestCode;
-
-    /**
-     * Represents the {@link me.dcii.flowmap.model.Journey#id} identifier.
-     */
-    private String mJourneyId;
-
-    /**
-     * This constructor is required, and calls the super IntentService(String)
-     * constructor with the name for a worker thread.
-     */
-    public FetchAddressIntentService() {
-        // Use the TAG to name the worker thread.
-        super(TAG);
-    }
-
-    /**
-     * Tries to get the location address using a Geocoder. If successful, sends an address to a
-     * result receiver. If unsuccessful, sends an error message instead.
-
-     * This service calls this method from the default worker thread with the intent that started
-     * the service. When this method returns, the service automatically stops.
-     */
-    @Override
-    protected void onHandleIntent(@Nullable Intent intent) {
-        String errorMessage = "";
-
-        mReceiver = intent.getParcelableExtra(Constants.ADDRESS_RECEIVER);
-
-        // Check if receiver was properly registered.
-        if (mReceiver == null) {
-            return;
-        }
-
-        // Get the location passed to this service through an extra.
-        Location location = intent.getParcelableExtra(Constants.LOCATION_DATA_EXTRA);
-
-        // Make sure that the location data was really sent over through an extra. If it wasn't,
-        // send an error error message and return.
-        if (location == null) {
-            errorMessage = getString(R.string.no_location_data_provided);
-            deliverResultToReceiver(Constants.FAILURE_RESULT, errorMessage);
-            return;
-        }
-
-        // Get the address start or end lookup code. Set the default value to 0 which will
-        // signify that address requst code was not specified.
-        mAddressRequestCode = intent.getIntExtra(Constants.ADDRESS_LOOKUP, 0);
-
-        // Check to make sure the address request code is specified.
-        if (mAddressRequestCode == 0) {
-            errorMessage = getString(R.string.error_no_adddress_request_code);
-            deliverResultToReceiver(Constants.FAILURE_RESULT, errorMessage);
-            return;
-        }
-
-        // Get the journey Id for the address.
-        mJourneyId = intent.getStringExtra(Constants.JOURNEY_ID_ADDRESS_LOOK);
-
-        // Check to make sure the journey Id is not null or empty.
-        if (TextUtils.isEmpty(mJourneyId)) {
-            errorMessage = getString(R.string.error_no_journey_id);
-            deliverResultToReceiver(Constants.FAILURE_RESULT, errorMessage);
-            return;
-        }
-
-        // Errors could still arise from using the Geocoder (for example, if there is no
-        // connectivity, or if the Geocoder is given illegal location data). Or, the Geocoder may
-        // simply not have an address for a location.
-
-        // The Geocoder used in this sample. The Geocoder's responses are localized for the given
-        // Locale, which represents a specific geographical or linguistic region.
-        Geocoder geocoder = new Geocoder(this, Locale.getDefault());
-
-        // Addresses found using the Geocoder.
-        List<Address> addresses = null;
-
-        try {
-            // Get a single address.
-            // Using getFromLocation() returns an array of Addresses for the area immediately
-            // surrounding the given latitude and longitude. The results are a best guess and are
-            // not guaranteed to be accurate.
-            addresses = geocoder.getFromLocation(location.getLatitude(),
-                    location.getLongitude(), 1);
-        } catch (IOException ioException) {
-            // Catch network or other I/O exceptions.
-            errorMessage = getString(R.string.error_service_not_available);
-        } catch (IllegalArgumentException illegalArgException) {
-            // Catch invalid latitude and longitude values.
-            errorMessage = getString(R.string.error_invalid_lat_long_used);
-        }
-
-        // Handle case where no address was found.
-        if (addresses == null || addresses.size() == 0) {
-            if (errorMessage.isEmpty()) {
-                errorMessage = getString(R.string.error_no_address_found);
-            }
-            deliverResultToReceiver(Constants.FAILURE_RESULT, errorMessage);
-        } else  {
-            Address address = addresses.get(0);
-            ArrayList<String> addressFragments = new ArrayList<>();
-
-            // Fetch the address lines using {@code getAddressLine},
-            // join them, and send them to the thread. The {@link android.location.address}
-            // class provides other options for fetching address details that you may prefer
-            // to use.
-            for (int index = 0; index <=  address.getMaxAddressLineIndex(); index++) {
-                addressFragments.add(address.getAddressLine(index));
-
-                deliverResultToReceiver(Constants.SUCCESS_RESULT,
-                        TextUtils.join(System.getProperty("line.separator"), addressFragments));
-            }
-        }
-    }
-
-    /**
-     * Sends a resultCode and message to the receiver.
-     *
-     * @param resultCode resultCode.
-     * @param message the result message.
-     */
-    private void deliverResultToReceiver(int resultCode, String message) {
-        Bundle bundle = new Bundle();
-        bundle.putString(Constants.RESULT_DATA_KEY, message);
-
-        if (resultCode == Constants.SUCCESS_RESULT) {
-            // Set the journey Id and address lookup type: start or end, when successful.
-            bundle.putString(Constants.JOURNEY_ID_ADDRESS_LOOK, mJourneyId);
-            bundle.putInt(Constants.ADDRESS_LOOKUP, mAddressRequestCode);
-        }
-
-        mReceiver.send(resultCode, bundle);
-    }
-}
\ No newline at end of file
@@ -27,16 +27,14 @@ package me.dcii.flowmap.service;
 import android.Manifest;
 import android.app.Service;
 import android.content.Intent;
+import android.content.SharedPreferences;
 import android.content.IntentSender;
 import android.content.pm.PackageManager;
-import android.location.Geocoder;
 import android.location.Location;
 import android.os.Binder;
-import android.os.Bundle;
 import android.os.Handler;
 import android.os.IBinder;
 import android.os.Looper;
-import android.os.ResultReceiver;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 import android.support.v4.app.ActivityCompat;
@@ -54,14 +52,28 @@ import com.google.android.gms.location.LocationSettingsRequest;
 import com.google.android.gms.location.LocationSettingsResponse;
 import com.google.android.gms.location.LocationSettingsStatusCodes;
 import com.google.android.gms.location.SettingsClient;
-import com.google.android.gms.maps.model.LatLng;
 import com.google.android.gms.tasks.OnFailureListener;
 import com.google.android.gms.tasks.OnSuccessListener;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
 import java.util.UUID;
 
 import io.realm.Realm;
+import me.dcii.flowmap.geocode.AddressLookupCoordinator;
+import me.dcii.flowmap.geocode.GeocodingEngine;
+import me.dcii.flowmap.R;
+import me.dcii.flowmap.metrics.IngestMetrics;
 import me.dcii.flowmap.model.Journey;
+import me.dcii.flowmap.model.TransportType;
+import me.dcii.flowmap.tracking.AdaptiveSampler;
+import me.dcii.flowmap.tracking.Fix;
+import me.dcii.flowmap.tracking.JourneyWriter;
+import me.dcii.flowmap.tracking.LocationFilterChain;
+import me.dcii.flowmap.tracking.LocationWriteBuffer;
+import me.dcii.flowmap.tracking.RejectReason;
+import me.dcii.flowmap.tracking.TrajectorySimplifier;
 import me.dcii.flowmap.util.Constants;
 
 /**
@@ -78,21 +90,33 @@ public class FlowLocationService extends Service {
     private final  static String TAG = FlowLocationService.class.getSimpleName();
 
     /**
-     * The desired interval for location updates (milliseconds). Updates maybe more or less
-     * frequent.
+     * Number of location fixes buffered before they are written to the Realm store.
      */
-    private static final long UPDATE_INTERVAL = 10000;
+    private static final int WRITE_BATCH_SIZE = LocationWriteBuffer.DEFAULT_BATCH_SIZE;
 
     /**
-     * The fastest rate for active location updates. Updates will not be more frequent than this
-     * value.
+     * Maximum time (milliseconds) a location fix is buffered before it is written to the Realm
+     * store.
      */
-    private static final long FASTEST_UPDATE_INTERVAL = UPDATE_INTERVAL / 2;
+    private static final long WRITE_FLUSH_INTERVAL = LocationWriteBuffer.DEFAULT_FLUSH_INTERVAL;
 
     /**
-     * The smallest displacement distance in meters between location changed callbacks.
+     * Maximum deviation in meters between the recorded route and the stored (simplified) route.
      */
-    private static final float SMALLEST_DISPLACEMENT = 0.25f;
+    private static final double SIMPLIFICATION_TOLERANCE = TrajectorySimplifier.DEFAULT_TOLERANCE;
+
+    /**
+     * Maximum time (milliseconds) location fixes are held back by the fused location provider
+     * while no client is bound. Batched fixes are delivered together, so the device can sleep
+     * between deliveries.
+     */
+    private static final long BATCHED_MAX_WAIT_TIME = 5 * 60 * 1000;
+
+    /**
+     * Preferences holding the transport type chosen by the user, kept across journeys.
+     */
+    private static final String PREFERENCES_NAME = "flow_location_service";
+    private static final String KEY_TRANSPORT_TYPE = "transport_type";
 
     /**
      * Provides access to the fused location provider API
@@ -115,12 +139,46 @@ public class FlowLocationService extends Service {
      */
     private LocationRequest mLocationRequest;
 
+    /**
+     * Adapts the {@link #mLocationRequest} intervals, displacement and priority to the user's
+     * movement.
+     */
+    private AdaptiveSampler mSampler;
+
+    /**
+     * Filters fixes before they are persisted; rejects bad fixes and smooths the rest.
+     */
+    private LocationFilterChain mLocationFilter;
+
+    /**
+     * Transport type of the journeys recorded. Bounds the jump filter speed and the fastest
+     * sampling profile, and is stored with each journey.
+     */
+    private TransportType mTransportType;
+
+    /**
+     * Reusable fix passed through {@link #mLocationFilter}.
+     */
+    private Fix mFix;
+
     /**
      * Keeps track of the location update request. Allows the user to start and stop
      * the location tracking process.
      */
     private boolean mRequestingLocationUpdates;
 
+    /**
+     * Set while no client is bound. Location fixes are then requested in batches and each batch
+     * is written to the Realm store in a single transaction.
+     */
+    private boolean mBatchedDelivery;
+
+    /**
+     * Set when a processed fix calls for another sampling profile. The location request is
+     * re-issued once the whole {@link LocationResult} is processed.
+     */
+    private boolean mResampleRequired;
+
     /**
      * Callback for the location events.
      */
@@ -131,13 +189,40 @@ public class FlowLocationService extends Service {
      */
     private Location mCurrentLocation;
 
+    /**
+     * Time the {@link #mCurrentLocation} was received, in {@link IngestMetrics#now()} nanoseconds.
+     */
+    private long mReceivedAt;
+
     /**
      * Represents the user {@link Journey}.
      */
     private Journey mJourney;
 
     /**
-     * Represents the {@link Realm} instance.
+     * Represents the {@link Journey#id} of the journey being recorded. Assigned when tracking
+     * starts, the {@link Journey} itself is only created when the first batch of fixes is written.
+     */
+    private String mJourneyId;
+
+    /**
+     * Buffers location fixes so they are written to the Realm store in batches.
+     */
+    private LocationWriteBuffer mWriteBuffer;
+
+    /**
+     * Drops fixes that don't change the route shape before they reach {@link #mWriteBuffer}.
+     */
+    private TrajectorySimplifier mSimplifier;
+
+    /**
+     * Performs all {@link Journey} mutations on a background thread.
+     */
+    private JourneyWriter mJourneyWriter;
+
+    /**
+     * Represents the {@link Realm} instance. Only used for reads on the main thread, all writes
+     * go through {@link #mJourneyWriter}.
      */
     Realm mRealm;
 
@@ -147,14 +232,24 @@ public class FlowLocationService extends Service {
     private IBinder mBinder;
 
     /**
-     * Receives the {@link FetchAddressIntentService} results.
+     * Looks up the journey addresses on its worker threads.
+     */
+    private GeocodingEngine mGeocodingEngine;
+
+    /**
+     * Receives the {@link #mGeocodingEngine} results on the main thread.
      */
-    private AddressResultReceiver mResultReceiver;
+    private Handler mAddressHandler;
 
     /**
-     * The location receiver where results are forwarded from this service.
+     * Keeps at most one address lookup per journey and role outstanding and retries failed ones.
      */
-    private ResultReceiver mLocationResultReceiver;
+    private AddressLookupCoordinator mAddressLookupCoordinator;
+
+    /**
+     * In-process listeners location updates are forwarded to from this service.
+     */
+    private final ArrayList<LocationListener> mLocationListeners = new ArrayList<>();
 
     /**
      * Flags used to check if the address lookup intent service should be dispatched.
@@ -162,6 +257,11 @@ public class FlowLocationService extends Service {
     private boolean mIsStartLocationAddressFetched;
     private boolean mIsEndLocationAddressFetched;
 
+    /**
+     * Flag used to show that a client is bound.
+     */
+    private boolean mIsBound;
+
     /**
      * Class used for the client Binder.  Because we know this service always
      * runs in the same process as its clients, we don't need to deal with IPC.
@@ -171,22 +271,129 @@ public class FlowLocationService extends Service {
             // Return this instance of LocalService so clients can call public methods
             return FlowLocationService.this;
         }
+
+        /**
+         * Registers a listener for location updates. Listeners are called on the main thread.
+         *
+         * @param listener the listener to register.
+         */
+        public void registerLocationListener(LocationListener listener) {
+            if (!mLocationListeners.contains(listener)) {
+                mLocationListeners.add(listener);
+            }
+        }
+
+        /**
+         * Unregisters a previously registered location listener.
+         *
+         * @param listener the listener to unregister.
+         */
+        public void unregisterLocationListener(LocationListener listener) {
+            mLocationListeners.remove(listener);
+        }
+    }
+
+    /**
+     * Receives location updates from this service. Values are passed as primitives so no object
+     * is allocated or parcelled per update.
+     */
+    public interface LocationListener {
+
+        /**
+         * Called on the main thread for every location update.
+         *
+         * @param latitude the location latitude.
+         * @param longitude the location longitude.
+         * @param accuracy the accuracy radius in meters, 0 if unknown.
+         * @param bearing the bearing in degrees, 0 if unknown.
+         * @param speed the speed in meters per second, 0 if unknown.
+         * @param time the location time in epoch milliseconds.
+         */
+        void onLocationUpdate(double latitude, double longitude, float accuracy, float bearing,
+                              float speed, long time);
+
+        /**
+         * Called on the main thread for every fix accepted into the journey being recorded. The
+         * simplifier holds the fix back until it decides whether the route needs it.
+         *
+         * @param journeyId identifier of the journey being recorded.
+         * @param latitude the filtered latitude.
+         * @param longitude the filtered longitude.
+         * @param time the fix time in epoch milliseconds.
+         */
+        void onLocationAccepted(String journeyId, double latitude, double longitude, long time);
+
+        /**
+         * Called on the main thread for every position the simplifier commits to the route of
+         * the journey being recorded. The position is stored later, once the write buffer is
+         * flushed, so listeners can draw it in the meantime.
+         *
+         * @param journeyId identifier of the journey being recorded.
+         * @param latitude the position latitude.
+         * @param longitude the position longitude.
+         * @param time the position time in epoch milliseconds.
+         */
+        void onLocationCommitted(String journeyId, double latitude, double longitude, long time);
     }
 
     @Override
     public void onCreate() {
 
         mJourney = null;
+        mJourneyId = null;
         mIsStartLocationAddressFetched = false;
         mIsEndLocationAddressFetched = false;
 
         mRealm = Realm.getDefaultInstance();  // opens the default realm.
+        mJourneyWriter = new JourneyWriter();
+        mWriteBuffer = new LocationWriteBuffer(new Handler(), WRITE_BATCH_SIZE,
+                WRITE_FLUSH_INTERVAL, new LocationWriteBuffer.Flusher() {
+            @Override
+            public void onFlush(double[] latitudes, double[] longitudes, long[] times,
+                                long[] receivedAt, int count) {
+                persistLocations(latitudes, longitudes, times, receivedAt, count);
+            }
+        });
+        mSimplifier = new TrajectorySimplifier(SIMPLIFICATION_TOLERANCE,
+                TrajectorySimplifier.DEFAULT_WINDOW_CAPACITY,
+                new TrajectorySimplifier.PointSink() {
+            @Override
+            public void onPoint(double latitude, double longitude, long time,
+                                long receivedAt) {
+                mWriteBuffer.add(latitude, longitude, time, receivedAt);
+                deliverCommittedLocation(latitude, longitude, time);
+            }
+        });
+
+        mGeocodingEngine = GeocodingEngine.getInstance(this);
+        mAddressHandler = new Handler();
+        mAddressLookupCoordinator = new AddressLookupCoordinator(new Handler(),
+                AddressLookupCoordinator.DEFAULT_INITIAL_BACKOFF,
+                AddressLookupCoordinator.DEFAULT_MAX_BACKOFF,
+                AddressLookupCoordinator.DEFAULT_MAX_ATTEMPTS,
+                new AddressLookupCoordinator.Dispatcher() {
+            @Override
+            public void dispatch(String journeyId, int addressRequestCode, Location location) {
+                submitAddressLookup(journeyId, addressRequestCode, location);
+            }
 
-        mResultReceiver = new AddressResultReceiver(new Handler());
+            @Override
+            public void cancel(String journeyId, int addressRequestCode) {
+                mGeocodingEngine.cancel(getAddressLookupKey(journeyId, addressRequestCode));
+            }
+        });
         mFusedLocationClient = LocationServices.getFusedLocationProviderClient(this);
         mSettingsClient = LocationServices.getSettingsClient(this);
 
         mBinder = new FlowLocationServiceBinder();
+        mSampler = new AdaptiveSampler();
+        mLocationFilter = new LocationFilterChain();
+        mFix = new Fix();
+
+        // Seed the filter and sampler from the transport type last chosen by the user.
+        mTransportType = loadTransportType();
+        mLocationFilter.setTransportType(mTransportType);
+        mSampler.setTransportType(mTransportType);
 
         // Kick of the process of building the LocationCallback, LocationRequest, and
         // LocationSettingsRequest objects.
@@ -197,9 +404,6 @@ public class FlowLocationService extends Service {
 
     @Override
     public int onStartCommand(Intent intent, int flags, int startId) {
-        // Gets the location receiver from the intent.
-        mLocationResultReceiver = intent.getParcelableExtra(Constants.LOCATION_RECEIVER);
-
         return START_NOT_STICKY;
     }
 
@@ -211,55 +415,214 @@ public class FlowLocationService extends Service {
             @Override
             public void onLocationResult(LocationResult locationResult) {
                 super.onLocationResult(locationResult);
+                mReceivedAt = IngestMetrics.now();
 
-                mCurrentLocation = locationResult.getLastLocation();
-                deliverLocationResult(mCurrentLocation);
-                updateLocation();
+                // A batched result holds every fix since the last delivery, oldest first.
+                final List<Location> locations = locationResult.getLocations();
+                final int count = locations.size();
+                IngestMetrics.FIXES_RECEIVED.addAndGet(count);
+
+                // Write the whole batch in one transaction when fixes are delivered in batches.
+                final boolean batched = mBatchedDelivery;
+                if (batched) {
+                    mWriteBuffer.beginBatch();
+                }
+
+                boolean accepted = false;
+                for (int index = 0; index < count; index++) {
+                    mCurrentLocation = locations.get(index);
+                    deliverLocationResult(mCurrentLocation);
+                    accepted |= updateLocation();
+                }
+
+                if (batched) {
+                    mWriteBuffer.endBatch();
+                }
+                onLocationResultProcessed(accepted);
             }
         };
     }
 
-    private void deliverLocationResult(Location mCurrentLocation) {
-        Bundle bundle = new Bundle();
-        bundle.putParcelable(Constants.LOCATION_DATA_EXTRA, mCurrentLocation);
-        mLocationResultReceiver.send(Constants.SUCCESS_RESULT, bundle);
+    /**
+     * Forwards the location to the registered {@link LocationListener}s.
+     *
+     * @param location the location to forward.
+     */
+    private void deliverLocationResult(Location location) {
+        final double latitude = location.getLatitude();
+        final double longitude = location.getLongitude();
+        final float accuracy = location.getAccuracy();
+        final float bearing = location.getBearing();
+        final float speed = location.getSpeed();
+        final long time = location.getTime();
+
+        // Iterate by index; listeners may unregister while being notified.
+        for (int index = mLocationListeners.size() - 1; index >= 0; index--) {
+            mLocationListeners.get(index).onLocationUpdate(latitude, longitude, accuracy,
+                    bearing, speed, time);
+        }
     }
 
     /**
      * Updates user location with provided location information.
+     *
+     * @return true if the location passed the filters and was handed to the journey.
+     */
+    private boolean updateLocation() {
+        if (mCurrentLocation == null || !mRequestingLocationUpdates) {
+            return false;
+        }
+
+        // Note if the user's movement calls for another sampling rate.
+        if (mSampler.onLocation(mCurrentLocation)) {
+            mResampleRequired = true;
+        }
+
+        // Drop bad fixes, counting them per rejection reason.
+        final RejectReason reason = mLocationFilter.filter(mFix.set(mCurrentLocation, mReceivedAt));
+        if (reason != null) {
+            IngestMetrics.recordRejected(reason);
+            return false;
+        }
+
+        // Pass the filtered position to the simplifier. Positions that shape the route are
+        // buffered and written to the Journey instance in Realm in batches.
+        mSimplifier.add(mFix.latitude, mFix.longitude, mFix.time, mFix.receivedAt);
+        deliverAcceptedLocation();
+        return true;
+    }
+
+    /**
+     * Forwards a position committed to the route to the registered {@link LocationListener}s.
      */
-    private void updateLocation() {
-        if (mCurrentLocation != null && mRequestingLocationUpdates) {
+    private void deliverCommittedLocation(double latitude, double longitude, long time) {
+        for (int index = mLocationListeners.size() - 1; index >= 0; index--) {
+            mLocationListeners.get(index).onLocationCommitted(mJourneyId, latitude, longitude,
+                    time);
+        }
+    }
+
+    /**
+     * Forwards the last accepted fix to the registered {@link LocationListener}s.
+     */
+    private void deliverAcceptedLocation() {
+        for (int index = mLocationListeners.size() - 1; index >= 0; index--) {
+            mLocationListeners.get(index).onLocationAccepted(mJourneyId, mFix.latitude,
+                    mFix.longitude, mFix.time);
+        }
+    }
 
-            final LatLng latLng = new LatLng(mCurrentLocation.getLatitude(),
-                    mCurrentLocation.getLongitude());
-            Toast.makeText(this, latLng.toString(), Toast.LENGTH_SHORT).show();
+    /**
+     * Called once all fixes of a {@link LocationResult} are processed.
+     *
+     * @param accepted true if at least one fix was handed to the journey.
+     */
+    private void onLocationResultProcessed(boolean accepted) {
+        if (!mRequestingLocationUpdates) {
+            return;
+        }
 
-            // Update the Journey instance from Realm.
-            updateRealmObject(latLng);
+        // Re-issue the location request if the user's movement calls for another sampling rate.
+        if (mResampleRequired) {
+            mResampleRequired = false;
+            applyLocationRequest();
+        }
 
-            // Check to ensure the address lookup service is only requested if the current
-            // Journey's start address is not yet found.
-            if (!mIsStartLocationAddressFetched) {
-                // Start the address service to get the Location address for the start location.
-                startAddressIntentService(Constants.START_ADDRESS_LOOKUP);
-            }
+        // Check to ensure the address lookup service is only requested if the current
+        // Journey's start address is not yet found.
+        if (accepted && !mIsStartLocationAddressFetched) {
+            // Start the address service to get the Location address for the start location.
+            requestAddress(Constants.START_ADDRESS_LOOKUP);
         }
     }
 
     /**
-     * Creates the location request and sets the intervals and priority.
+     * Creates the location request and sets the intervals, displacement and priority from the
+     * current {@link AdaptiveSampler} profile. Fixes are batched while no client is bound.
      */
     private void createLocationRequest() {
-        mLocationRequest = new LocationRequest();
+        mLocationRequest = mSampler.getProfile().applyTo(new LocationRequest());
+        if (mBatchedDelivery) {
+            mLocationRequest.setMaxWaitTime(BATCHED_MAX_WAIT_TIME);
+        }
+    }
+
+    /**
+     * Switches between live and batched delivery of location fixes, re-issuing the location
+     * request if the mode changes.
+     *
+     * @param batched true to have fixes delivered in batches.
+     */
+    private void setBatchedDelivery(boolean batched) {
+        if (mBatchedDelivery == batched) {
+            return;
+        }
+        mBatchedDelivery = batched;
+        applyLocationRequest();
+    }
 
-        // Sets the desired interval for active location updates.
-        mLocationRequest.setInterval(UPDATE_INTERVAL);
+    /**
+     * Re-creates the location request from the current {@link AdaptiveSampler} profile and
+     * re-issues it if location updates are being requested. The new request replaces the
+     * previous one registered with {@link #mLocationCallback}.
+     */
+    @SuppressWarnings("MissingPermission")
+    private void applyLocationRequest() {
+        createLocationRequest();
+        buildLocationSettingsRequest();
 
-        // Sets the fastest rate for active location updates.
-        mLocationRequest.setFastestInterval(FASTEST_UPDATE_INTERVAL);
-        mLocationRequest.setSmallestDisplacement(SMALLEST_DISPLACEMENT);
-        mLocationRequest.setPriority(LocationRequest.PRIORITY_HIGH_ACCURACY);
+        if (mRequestingLocationUpdates) {
+            //noinspection MissingPermission
+            mFusedLocationClient.requestLocationUpdates(mLocationRequest,
+                    mLocationCallback, Looper.myLooper());
+        }
+    }
+
+    /**
+     * Sets the transport type of the journeys recorded, including the one being recorded. The
+     * transport type bounds the speed of accepted fixes and limits the fastest location sampling
+     * rate used. It is kept for the next journeys.
+     *
+     * @param transportType the journey transport type.
+     */
+    public void setTransportType(TransportType transportType) {
+        mTransportType = transportType;
+        getSharedPreferences(PREFERENCES_NAME, MODE_PRIVATE).edit()
+                .putString(KEY_TRANSPORT_TYPE, transportType.name())
+                .apply();
+
+        mLocationFilter.setTransportType(transportType);
+        if (mSampler.setTransportType(transportType)) {
+            applyLocationRequest();
+        }
+        if (mRequestingLocationUpdates) {
+            mJourneyWriter.setTransportType(mJourneyId, transportType);
+        }
+    }
+
+    /**
+     * Returns the transport type of the journeys recorded.
+     *
+     * @return the transport type.
+     */
+    public TransportType getTransportType() {
+        return mTransportType;
+    }
+
+    /**
+     * Reads the transport type last chosen by the user.
+     *
+     * @return the transport type, {@link TransportType#OTHERS} if none was chosen.
+     */
+    private TransportType loadTransportType() {
+        final SharedPreferences preferences =
+                getSharedPreferences(PREFERENCES_NAME, MODE_PRIVATE);
+        try {
+            return TransportType.valueOf(preferences.getString(KEY_TRANSPORT_TYPE,
+                    TransportType.OTHERS.name()));
+        } catch (IllegalArgumentException ex) {
+            return TransportType.OTHERS;
+        }
     }
 
     /**
@@ -274,35 +637,64 @@ public class FlowLocationService extends Service {
 
 
     /**
-     * Creates an intent, adds location data to it as an extra, and starts the intent service for
-     * fetching an address from {@link LatLng} locations.
+     * Requests the address of the current location for the current journey. Duplicate requests
+     * are coalesced by the {@link #mAddressLookupCoordinator}.
      *
      * @param addressRequestCode Specifies if start or end location address is requested.
      */
-    private void startAddressIntentService(int addressRequestCode) {
-        // Stop execution if no Geocoder is present.
-        if (!Geocoder.isPresent()) return;
-
-        // Create an intent for passing to the intent service responsible for fetching the address.
-        final Intent intent = new Intent(this, FetchAddressIntentService.class);
-
-        // Pass the result receiver as an extra to the service.
-        intent.putExtra(Constants.ADDRESS_RECEIVER, mResultReceiver);
+    private void requestAddress(int addressRequestCode) {
+        // Addresses are resolved from the offline place index if no Geocoder is present.
+        mAddressLookupCoordinator.request(mJourneyId, addressRequestCode, mCurrentLocation);
+    }
 
-        // Specify the address being requested. Start or end address.
-        intent.putExtra(Constants.ADDRESS_LOOKUP, addressRequestCode);
+    /**
+     * Submits an address lookup to the {@link #mGeocodingEngine}. The result is handled on the
+     * main thread by {@link #onAddressResult(String, int, String, int)}.
+     *
+     * @param journeyId the journey the address is for.
+     * @param addressRequestCode Specifies if start or end location address is requested.
+     * @param location the location to look up.
+     */
+    private void submitAddressLookup(final String journeyId, final int addressRequestCode,
+                                     Location location) {
+        // The end address of a journey is shown as soon as the journey stops, serve it first.
+        final int priority = addressRequestCode == Constants.END_ADDRESS_LOOK_UP
+                ? GeocodingEngine.PRIORITY_END_ADDRESS : GeocodingEngine.PRIORITY_START_ADDRESS;
 
-        // Speficy the journey Id. This enables the address to be passed on to the appropriate
-        // Journey even if the journey was ended before the address was returned.
-        intent.putExtra(Constants.JOURNEY_ID_ADDRESS_LOOK, mJourney.getId());
+        mGeocodingEngine.submit(getAddressLookupKey(journeyId, addressRequestCode), priority,
+                location.getLatitude(), location.getLongitude(), Locale.getDefault(),
+                new GeocodingEngine.Callback() {
+            @Override
+            public void onAddress(String key, final String address) {
+                mAddressHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        onAddressResult(journeyId, addressRequestCode, address, 0);
+                    }
+                });
+            }
 
-        // Pass last location data as an extra to the service.
-        intent.putExtra(Constants.LOCATION_DATA_EXTRA, mCurrentLocation);
+            @Override
+            public void onError(String key, final int error) {
+                mAddressHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        onAddressResult(journeyId, addressRequestCode, null, error);
+                    }
+                });
+            }
+        });
+    }
 
-        // Start the service. If the service isn't already running, it is instantiated and started
-        // (creating a process for it if needed); if it is running then it remains running. The
-        // service kills itself automatically once all intents are processed.
-        startService(intent);
+    /**
+     * Returns the {@link GeocodingEngine} request key of a journey address lookup.
+     *
+     * @param journeyId the journey the address is for.
+     * @param addressRequestCode Specifies if start or end location address is requested.
+     * @return the request key.
+     */
+    private static String getAddressLookupKey(String journeyId, int addressRequestCode) {
+        return journeyId + '|' + addressRequestCode;
     }
 
     /**
@@ -316,6 +708,14 @@ public class FlowLocationService extends Service {
         // Set mRequestingLocationUpdates to true and set mJourney to null.
         setRequestingLocationUpdates(true);
         initialiseJourney();
+
+        // Start the new journey from the initial sampling profile and a clean filter state.
+        mSampler.reset();
+        mLocationFilter.reset();
+        mSimplifier.reset();
+        mResampleRequired = false;
+        createLocationRequest();
+        buildLocationSettingsRequest();
         // Check if the device has the necessary location settings.
         mSettingsClient.checkLocationSettings(mLocationSettingsRequest)
 
@@ -355,14 +755,17 @@ public class FlowLocationService extends Service {
      * Used to make necessary initialisations for a new {@link Journey}.
      */
     private void initialiseJourney() {
-        mJourney = null;  // new Journey is created if the value is null;
-
         if (mIsStartLocationAddressFetched && !mIsEndLocationAddressFetched) {
             // If start address of the just concluded journey is found and the end address is not,
             // make a last request for the end location address lookup before this new journey
             // actually starts (Overrides last location, which is the previous journey's end location).
-            startAddressIntentService(Constants.END_ADDRESS_LOOK_UP);
+            requestAddress(Constants.END_ADDRESS_LOOK_UP);
         }
+
+        mJourney = null;  // new Journey is created on the first write if the value is null;
+        mJourneyId = UUID.randomUUID().toString();
+        mIsStartLocationAddressFetched = false;
+        mIsEndLocationAddressFetched = false;
     }
 
     /**
@@ -378,9 +781,26 @@ public class FlowLocationService extends Service {
         mFusedLocationClient.removeLocationUpdates(mLocationCallback);
         setRequestingLocationUpdates(false);
 
+        // Commit the journey end point and write the remaining buffered fixes so the journey
+        // is complete.
+        mSimplifier.finish();
+        mWriteBuffer.flush();
+
         // Request address lookup with lastLocation as the end location.
         // Start address intent with the last recorded location.
-        startAddressIntentService(Constants.END_ADDRESS_LOOK_UP);
+        requestAddress(Constants.END_ADDRESS_LOOK_UP);
+        stopIfIdle();
+    }
+
+    /**
+     * Stops the service once it is neither recording nor bound and no address lookup is
+     * outstanding. Its store instances are closed with it, which lets the store maintenance
+     * compact the file while the device is idle.
+     */
+    private void stopIfIdle() {
+        if (!mRequestingLocationUpdates && !mIsBound && mAddressLookupCoordinator.isIdle()) {
+            stopSelf();
+        }
     }
 
     /**
@@ -392,7 +812,17 @@ public class FlowLocationService extends Service {
         return mRequestingLocationUpdates;
     }
 
+    /**
+     * Returns the {@link Journey} being recorded, or the last recorded one once tracking stops.
+     *
+     * @return the journey or null if none was written yet.
+     */
     public Journey getJourney() {
+        if (mJourney == null && mJourneyId != null) {
+            // The journey is created by the writer thread. Look it up once it is visible here.
+            mJourney = mRealm.where(Journey.class)
+                    .equalTo(Journey.FIELD_ID, mJourneyId).findFirst();
+        }
         return mJourney;
     }
 
@@ -400,6 +830,13 @@ public class FlowLocationService extends Service {
     public void onDestroy() {
         super.onDestroy();
 
+        // Write any pending fixes before the writer goes away.
+        mSimplifier.finish();
+        mWriteBuffer.flush();
+        mJourneyWriter.quit();
+        mAddressLookupCoordinator.cancelAll();
+        mAddressHandler.removeCallbacksAndMessages(null);
+
         // Close Realm distance.
         mRealm.close();
     }
@@ -407,9 +844,30 @@ public class FlowLocationService extends Service {
     @Nullable
     @Override
     public IBinder onBind(Intent intent) {
+        mIsBound = true;
+        setBatchedDelivery(false);
         return mBinder;
     }
 
+    @Override
+    public void onRebind(Intent intent) {
+        super.onRebind(intent);
+        // A client is back, switch to live delivery.
+        mIsBound = true;
+        setBatchedDelivery(false);
+    }
+
+    @Override
+    public boolean onUnbind(Intent intent) {
+        // No client to show fixes to, let the location provider batch them.
+        mIsBound = false;
+        setBatchedDelivery(true);
+        stopIfIdle();
+
+        // Have onRebind called when a client binds again.
+        return true;
+    }
+
     /**
      * Sets {@link #mRequestingLocationUpdates} status from the provided value.
      *
@@ -420,27 +878,19 @@ public class FlowLocationService extends Service {
     }
 
     /**
-     * Sets the {@link LatLng} journey position in the Realm {@link #mJourney} instance. If Journey
-     * is null, a new Journey is started.
+     * Hands a batch of journey positions to the {@link #mJourneyWriter}, which appends them to the
+     * {@link Journey} in a single transaction. The journey is created on the first write.
      *
-     * @param latLng the location to update.
-     */
-    private void updateRealmObject(LatLng latLng) {
-        // Persist realm objects in a transaction. This is done on the main thread as Realm is
-        // quite fast as specified in the docs but this could be updated to an async transaction.
-        mRealm.beginTransaction();
-        if (mJourney == null) {
-
-            // mJourney is null; Create new journey.
-            mJourney = mRealm.createObject(Journey.class, UUID.randomUUID().toString());
-        }
-
-        // TODO: Check user transport type.
-        // Adds LatLng position in the model list of intermediate locations.
-        mJourney.addLocation(latLng);
-
-        // Commit transaction if all goes well.
-        mRealm.commitTransaction();
+     * @param latitudes the position latitudes.
+     * @param longitudes the position longitudes.
+     * @param times the position times in epoch milliseconds.
+     * @param receivedAt times the positions were received, used for latency metrics.
+     * @param count the number of positions to append.
+     */
+    private void persistLocations(double[] latitudes, double[] longitudes, long[] times,
+                                  long[] receivedAt, int count) {
+        mJourneyWriter.appendLocations(mJourneyId, mTransportType, latitudes, longitudes, times,
+                receivedAt, count);
     }
 
     /**
@@ -466,34 +916,17 @@ public class FlowLocationService extends Service {
 
         // Check if the address is for the current journey. This is because the user could have
         // Started a new journey since the lookup address request.
-        if (mJourney != null && TextUtils.equals(mJourney.getId(), journeyId)) {
-
-            // Begin Realm transaction to update journey. Realm transactions are compulsory.
-            mRealm.beginTransaction();
+        if (TextUtils.equals(mJourneyId, journeyId)) {
 
-            // Update the journey start address.
-            mJourney.setStartAddress(address);
+            // Hand buffered fixes to the writer first, the journey is created on the first write.
+            mWriteBuffer.flush();
 
             // update flag to stop further start location address lookup.
             mIsStartLocationAddressFetched = true;
-
-            // commit transaction if all goes well.
-            mRealm.commitTransaction();
-        } else {
-            // Address belongs to a different journey.
-            // Update the journey from the Realm store.
-
-            mRealm.executeTransactionAsync(new Realm.Transaction() {
-                @Override
-                public void execute(@NonNull Realm realm) {
-                    Journey journey = realm.where(Journey.class)
-                            .equalTo(Journey.FIELD_ID, journeyId).findFirst();
-                    if (journey != null) {
-                        journey.setStartAddress(address);
-                    }
-                }
-            });
         }
+
+        // The writer updates the journey from the Realm store, whichever journey it belongs to.
+        mJourneyWriter.setStartAddress(journeyId, address);
     }
 
     /**
@@ -506,70 +939,64 @@ public class FlowLocationService extends Service {
 
         // Check if the address is for the current journey. This is because the user could have
         // Started a new journey since the lookup address request.
-        if (mJourney != null && TextUtils.equals(mJourney.getId(), journeyId)) {
-
-            //Begin Realm transaction to update the journey. Realm transactions are compulsory.
-            mRealm.beginTransaction();
+        if (TextUtils.equals(mJourneyId, journeyId)) {
 
-            // Update the journey end address asynchronously.
-            mJourney.setEndAddress(address);
+            // Hand buffered fixes to the writer first, the journey is created on the first write.
+            mWriteBuffer.flush();
 
-            // update flag to stop further start location address lookup.
+            // update flag to stop further end location address lookup.
             mIsEndLocationAddressFetched = true;
-
-            // Commit transactions.
-            mRealm.commitTransaction();
-
-        } else {
-            // Address belongs to a different journey.
-            // Update the journey from the Realm store.
-
-            mRealm.executeTransactionAsync(new Realm.Transaction() {
-                @Override
-                public void execute(@NonNull Realm realm) {
-                    Journey journey = realm.where(Journey.class)
-                            .equalTo(Journey.FIELD_ID, journeyId).findFirst();
-                    if (journey != null) {
-                        journey.setEndAddress(address);
-                    }
-                }
-            });
         }
+
+        // The writer updates the journey from the Realm store, whichever journey it belongs to.
+        mJourneyWriter.setEndAddress(journeyId, address);
     }
 
     /**
-     * Receives address results from the {@link FetchAddressIntentService}.
-     */
-    class AddressResultReceiver extends ResultReceiver {
-        AddressResultReceiver(Handler handler) {
-            super(handler);
+     * Handles the result of an address lookup on the main thread.
+     *
+     * @param journeyId the journey the address is for.
+     * @param addressRequestCode Specifies if start or end location address was requested.
+     * @param address the address, or null if the lookup failed.
+     * @param error the {@link GeocodingEngine} error if the lookup failed.
+     */
+    private void onAddressResult(String journeyId, int addressRequestCode, String address,
+                                 int error) {
+        if (address != null) {
+            mAddressLookupCoordinator.onSuccess(journeyId, addressRequestCode);
+
+            switch (addressRequestCode) {
+                case Constants.START_ADDRESS_LOOKUP:
+                    setJourneyStartAddress(journeyId, address);
+                    break;
+                case Constants.END_ADDRESS_LOOK_UP:
+                    setJourneyEndAddress(journeyId, address);
+            }
+        } else if (!mAddressLookupCoordinator.onFailure(journeyId, addressRequestCode)) {
+            // Request failed and won't be retried, leave it to the backfill.
+            Toast.makeText(this, getAddressErrorMessage(error), Toast.LENGTH_SHORT).show();
+            AddressBackfillJobService.schedule(this);
         }
+        stopIfIdle();
+    }
 
-        @Override
-        protected void onReceiveResult(int resultCode, Bundle resultData) {
-
-            // Get the address string
-            // or an error message sent from the intent service.
-            final String resultString = resultData.getString(Constants.RESULT_DATA_KEY);
-
-            if (resultCode == Constants.SUCCESS_RESULT) {
-                // Check the location address lookup requested: Start or end address.
-                final int addressRequestCode = resultData.getInt(Constants.ADDRESS_LOOKUP);
-
-                // Get the journey Id. Used to pass the address to the appropriate journey.
-                final String journeyId = resultData.getString(Constants.JOURNEY_ID_ADDRESS_LOOK);
-
-                switch (addressRequestCode) {
-                    case Constants.START_ADDRESS_LOOKUP:
-                        setJourneyStartAddress(journeyId, resultString);
-                        break;
-                    case Constants.END_ADDRESS_LOOK_UP:
-                        setJourneyEndAddress(journeyId, resultString);
-                }
-            } else {
-                // Request failed.
-                Toast.makeText(FlowLocationService.this, resultString, Toast.LENGTH_SHORT).show();
-            }
+    /**
+     * Returns the message shown for a failed address lookup.
+     *
+     * @param error the {@link GeocodingEngine} error.
+     * @return the error message.
+     */
+    private String getAddressErrorMessage(int error) {
+        switch (error) {
+            case GeocodingEngine.ERROR_SERVICE_NOT_AVAILABLE:
+            case GeocodingEngine.ERROR_QUEUE_FULL:
+                return getString(R.string.error_service_not_available);
+            case GeocodingEngine.ERROR_INVALID_LOCATION:
+                return getString(R.string.error_invalid_lat_long_used);
+            case GeocodingEngine.ERROR_TIMEOUT:
+                return getString(R.string.error_address_lookup_timeout);
+            default:
+                return getString(R.string.error_no_address_found);
         }
     }
-}
\ No newline at end of file
+}
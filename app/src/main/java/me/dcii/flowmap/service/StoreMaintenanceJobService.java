@@ -0,0 +1,130 @@
+/*
+  MIT License
+
+  Copyright (c) 2017 Cinfwat Dogak
+
+  Permission is hereby granted, free of charge, to any person obtaining a copy
+  of this software and associated documentation files (the "Software"), to deal
+  in the Software without restriction, including without limitation the rights
+  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+  copies of the Software, and to permit persons to whom the Software is
+  furnished to do so, subject to the following conditions:
+
+  The above copyright notice and this permission notice shall be included in all
+  copies or substantial portions of the Software.
+
+  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+  SOFTWARE.
+ */
+
+package me.dcii.flowmap.service;
+
+import android.annotation.TargetApi;
+import android.app.job.JobInfo;
+import android.app.job.JobParameters;
+import android.app.job.JobScheduler;
+import android.app.job.JobService;
+import android.content.ComponentName;
+import android.content.Context;
+import android.os.Build;
+import android.os.Process;
+
+import io.realm.Realm;
+import me.dcii.flowmap.geocode.AddressCache;
+import me.dcii.flowmap.model.JourneyRetention;
+import me.dcii.flowmap.model.StoreCompactor;
+
+/**
+ * Runs the Realm store maintenance once a day while the device is idle and charging: hard deletes
+ * expired soft deleted journeys (see {@link JourneyRetention}), deletes expired cached addresses
+ * (see {@link AddressCache}) and compacts the file when flagged by the {@link StoreCompactor}.
+ *
+ * Requires API 21; {@link #schedule(Context)} does nothing on older devices, which only get the
+ * compaction on launch.
+ *
+ * @author Dogak Cinfwat.
+ */
+@TargetApi(Build.VERSION_CODES.LOLLIPOP)
+public class StoreMaintenanceJobService extends JobService {
+
+    private static final int JOB_ID = 1002;
+
+    /**
+     * Time (milliseconds) between runs, a day.
+     */
+    private static final long INTERVAL = 24 * 60 * 60 * 1000;
+
+    private Thread mThread;
+    private volatile boolean mStopped;
+
+    /**
+     * Schedules the maintenance to run daily. Keeps the schedule if already scheduled.
+     *
+     * @param context the context.
+     */
+    public static void schedule(Context context) {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.LOLLIPOP) {
+            return;
+        }
+        final JobScheduler jobScheduler =
+                (JobScheduler) context.getSystemService(Context.JOB_SCHEDULER_SERVICE);
+        for (JobInfo job : jobScheduler.getAllPendingJobs()) {
+            if (job.getId() == JOB_ID) {
+                return;
+            }
+        }
+        jobScheduler.schedule(new JobInfo.Builder(JOB_ID,
+                new ComponentName(context, StoreMaintenanceJobService.class))
+                .setRequiresDeviceIdle(true)
+                .setRequiresCharging(true)
+                .setPeriodic(INTERVAL)
+                .setPersisted(true)
+                .build());
+    }
+
+    @Override
+    public boolean onStartJob(final JobParameters params) {
+        mStopped = false;
+        mThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                final StoreCompactor compactor =
+                        StoreCompactor.createDefault(StoreMaintenanceJobService.this);
+
+                final Realm realm = Realm.getDefaultInstance();
+                try {
+                    int deleted = new JourneyRetention(JourneyRetention.DEFAULT_RETENTION,
+                            JourneyRetention.DEFAULT_BATCH_SIZE).purge(realm);
+                    deleted += AddressCache.getInstance().purgeExpired(realm);
+                    if (deleted > 0) {
+                        compactor.requestIdleCompaction();
+                    }
+                } finally {
+                    realm.close();
+                }
+
+                if (!mStopped) {
+                    compactor.compactIfPending(Realm.getDefaultConfiguration());
+                }
+                jobFinished(params, false);
+            }
+        }, StoreMaintenanceJobService.class.getSimpleName());
+        mThread.start();
+
+        // The work continues on the thread.
+        return true;
+    }
+
+    @Override
+    public boolean onStopJob(JobParameters params) {
+        // The device left idle, skip the compaction and run again in the next period.
+        mStopped = true;
+        return false;
+    }
+}
@@ -0,0 +1,59 @@
+/*
+  MIT License
+
+  Copyright (c) 2017 Cinfwat Dogak
+
+  Permission is hereby granted, free of charge, to any person obtaining a copy
+  of this software and associated documentation files (the "Software"), to deal
+  in the Software without restriction, including without limitation the rights
+  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+  copies of the Software, and to permit persons to whom the Software is
+  furnished to do so, subject to the following conditions:
+
+  The above copyright notice and this permission notice shall be included in all
+  copies or substantial portions of the Software.
+
+  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+  SOFTWARE.
+ */
+
+package me.dcii.flowmap.tracking;
+
+/**
+ * Rejects fixes with an accuracy radius larger than the configured maximum.
+ *
+ * @author Dogak Cinfwat.
+ */
+public class AccuracyFilter implements LocationFilter {
+
+    /**
+     * Default largest accepted accuracy radius in meters.
+     */
+    public static final float DEFAULT_MAX_ACCURACY = 50f;
+
+    private final float mMaxAccuracy;
+
+    /**
+     * Constructor.
+     *
+     * @param maxAccuracy the largest accepted accuracy radius in meters.
+     */
+    public AccuracyFilter(float maxAccuracy) {
+        mMaxAccuracy = maxAccuracy;
+    }
+
+    @Override
+    public RejectReason filter(Fix fix) {
+        return fix.accuracy > mMaxAccuracy ? RejectReason.LOW_ACCURACY : null;
+    }
+
+    @Override
+    public void reset() {
+        // Stateless.
+    }
+}
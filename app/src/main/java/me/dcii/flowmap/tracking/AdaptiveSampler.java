@@ -0,0 +1,241 @@
+/*
+  MIT License
+
+  Copyright (c) 2017 Cinfwat Dogak
+
+  Permission is hereby granted, free of charge, to any person obtaining a copy
+  of this software and associated documentation files (the "Software"), to deal
+  in the Software without restriction, including without limitation the rights
+  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+  copies of the Software, and to permit persons to whom the Software is
+  furnished to do so, subject to the following conditions:
+
+  The above copyright notice and this permission notice shall be included in all
+  copies or substantial portions of the Software.
+
+  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+  SOFTWARE.
+ */
+
+package me.dcii.flowmap.tracking;
+
+import android.location.Location;
+
+import me.dcii.flowmap.model.TransportType;
+import me.dcii.flowmap.util.GeoUtils;
+
+/**
+ * Picks the {@link SamplingProfile} from the recent speed of the user and the journey
+ * {@link TransportType}. The speed is smoothed and profile changes need a margin around the
+ * profile speed bounds, held for several consecutive fixes, so the location request isn't
+ * re-issued on every speed fluctuation.
+ *
+ * @author Dogak Cinfwat.
+ */
+public class AdaptiveSampler {
+
+    /**
+     * Weight of the newest speed sample in the smoothed speed.
+     */
+    private static final float SPEED_SMOOTHING = 0.3f;
+
+    /**
+     * Relative margin around the profile speed bounds that must be crossed to change profile.
+     */
+    private static final float HYSTERESIS_MARGIN = 0.2f;
+
+    /**
+     * Number of consecutive fixes a new profile must be indicated before it is adopted.
+     */
+    private static final int MIN_CONSECUTIVE_FIXES = 3;
+
+    /**
+     * Profile used when tracking starts.
+     */
+    private static final SamplingProfile INITIAL_PROFILE = SamplingProfile.WALKING;
+
+    private SamplingProfile mProfile;
+    private SamplingProfile mCandidate;
+    private int mCandidateCount;
+
+    /**
+     * Fastest profile allowed by the journey transport type.
+     */
+    private SamplingProfile mMaxProfile;
+
+    private float mSmoothedSpeed;
+
+    /**
+     * Previous fix, used to compute the speed when the provider doesn't supply one.
+     */
+    private boolean mHasLastFix;
+    private double mLastLatitude;
+    private double mLastLongitude;
+    private long mLastTime;
+
+    public AdaptiveSampler() {
+        mMaxProfile = SamplingProfile.DRIVING;
+        reset();
+    }
+
+    /**
+     * Resets the sampler for a new journey.
+     */
+    public void reset() {
+        mProfile = INITIAL_PROFILE.compareTo(mMaxProfile) > 0 ? mMaxProfile : INITIAL_PROFILE;
+        mCandidate = null;
+        mCandidateCount = 0;
+        mSmoothedSpeed = -1;
+        mHasLastFix = false;
+    }
+
+    /**
+     * Sets the journey transport type. The transport type limits the fastest profile used, for
+     * instance a walking journey never samples at the driving rate.
+     *
+     * @param transportType the journey transport type.
+     * @return true if the current profile changed.
+     */
+    public boolean setTransportType(TransportType transportType) {
+        switch (transportType) {
+            case WALKING:
+                mMaxProfile = SamplingProfile.WALKING;
+                break;
+            case RUNNING:
+            case CYCLING:
+                mMaxProfile = SamplingProfile.CYCLING;
+                break;
+            default:
+                mMaxProfile = SamplingProfile.DRIVING;
+        }
+
+        if (mProfile.compareTo(mMaxProfile) > 0) {
+            mProfile = mMaxProfile;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Updates the sampler with a new location fix.
+     *
+     * @param location the location fix.
+     * @return true if the profile changed and the location request should be re-issued.
+     */
+    public boolean onLocation(Location location) {
+        return onLocation(location.hasSpeed(), location.getSpeed(), location.getLatitude(),
+                location.getLongitude(), location.getTime());
+    }
+
+    /**
+     * Updates the sampler with the values of a new location fix.
+     *
+     * @param hasSpeed whether the provider supplied the fix speed.
+     * @param speed the fix speed in meters per second, ignored if not supplied.
+     * @param latitude the fix latitude.
+     * @param longitude the fix longitude.
+     * @param time the fix time in epoch milliseconds.
+     * @return true if the profile changed and the location request should be re-issued.
+     */
+    public boolean onLocation(boolean hasSpeed, float speed, double latitude, double longitude,
+                              long time) {
+        if (!hasSpeed) {
+            speed = getSpeed(latitude, longitude, time);
+        }
+        mHasLastFix = true;
+        mLastLatitude = latitude;
+        mLastLongitude = longitude;
+        mLastTime = time;
+        if (speed < 0) {
+            return false;
+        }
+
+        mSmoothedSpeed = mSmoothedSpeed < 0 ? speed
+                : SPEED_SMOOTHING * speed + (1 - SPEED_SMOOTHING) * mSmoothedSpeed;
+
+        final SamplingProfile indicated = indicatedProfile(mSmoothedSpeed);
+        if (indicated == mProfile) {
+            mCandidate = null;
+            mCandidateCount = 0;
+            return false;
+        }
+
+        if (indicated != mCandidate) {
+            mCandidate = indicated;
+            mCandidateCount = 0;
+        }
+        mCandidateCount++;
+
+        if (mCandidateCount >= MIN_CONSECUTIVE_FIXES) {
+            mProfile = indicated;
+            mCandidate = null;
+            mCandidateCount = 0;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Returns the current sampling profile.
+     *
+     * @return the sampling profile.
+     */
+    public SamplingProfile getProfile() {
+        return mProfile;
+    }
+
+    /**
+     * Returns the profile indicated by the speed. The current profile is kept while the speed
+     * stays within the margin around its bounds.
+     *
+     * @param speed the smoothed speed in meters per second.
+     * @return the indicated profile.
+     */
+    private SamplingProfile indicatedProfile(float speed) {
+        final SamplingProfile[] profiles = SamplingProfile.values();
+        final int current = mProfile.ordinal();
+
+        // Lower bound of the current profile is the upper bound of the previous one.
+        final float lowerBound = current == 0 ? 0 : profiles[current - 1].maxSpeed;
+        final float upperBound = mProfile.maxSpeed;
+        if (speed >= lowerBound * (1 - HYSTERESIS_MARGIN)
+                && speed <= upperBound * (1 + HYSTERESIS_MARGIN)) {
+            return mProfile;
+        }
+
+        SamplingProfile indicated = profiles[profiles.length - 1];
+        for (SamplingProfile profile : profiles) {
+            if (speed <= profile.maxSpeed) {
+                indicated = profile;
+                break;
+            }
+        }
+        return indicated.compareTo(mMaxProfile) > 0 ? mMaxProfile : indicated;
+    }
+
+    /**
+     * Returns the fix speed computed from the previous fix, for fixes the provider didn't supply
+     * a speed for.
+     *
+     * @param latitude the fix latitude.
+     * @param longitude the fix longitude.
+     * @param time the fix time in epoch milliseconds.
+     * @return the speed in meters per second or -1 if it can't be determined.
+     */
+    private float getSpeed(double latitude, double longitude, long time) {
+        if (!mHasLastFix) {
+            return -1;
+        }
+        final long elapsed = time - mLastTime;
+        if (elapsed <= 0) {
+            return -1;
+        }
+        return (float) (GeoUtils.distance(mLastLatitude, mLastLongitude, latitude, longitude)
+                * 1000 / elapsed);
+    }
+}
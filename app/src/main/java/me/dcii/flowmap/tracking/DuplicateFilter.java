@@ -0,0 +1,56 @@
+/*
+  MIT License
+
+  Copyright (c) 2017 Cinfwat Dogak
+
+  Permission is hereby granted, free of charge, to any person obtaining a copy
+  of this software and associated documentation files (the "Software"), to deal
+  in the Software without restriction, including without limitation the rights
+  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+  copies of the Software, and to permit persons to whom the Software is
+  furnished to do so, subject to the following conditions:
+
+  The above copyright notice and this permission notice shall be included in all
+  copies or substantial portions of the Software.
+
+  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+  SOFTWARE.
+ */
+
+package me.dcii.flowmap.tracking;
+
+/**
+ * Rejects fixes that don't move forward in time or repeat the previous accepted position.
+ *
+ * @author Dogak Cinfwat.
+ */
+public class DuplicateFilter implements LocationFilter {
+
+    private boolean mHasLast;
+    private double mLastLatitude;
+    private double mLastLongitude;
+    private long mLastTime;
+
+    @Override
+    public RejectReason filter(Fix fix) {
+        if (mHasLast && (fix.time <= mLastTime
+                || (fix.latitude == mLastLatitude && fix.longitude == mLastLongitude))) {
+            return RejectReason.DUPLICATE;
+        }
+        mHasLast = true;
+        mLastLatitude = fix.latitude;
+        mLastLongitude = fix.longitude;
+        mLastTime = fix.time;
+        return null;
+    }
+
+    @Override
+    public void reset() {
+        mHasLast = false;
+    }
+}
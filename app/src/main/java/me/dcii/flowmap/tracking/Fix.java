@@ -0,0 +1,72 @@
+/*
+  MIT License
+
+  Copyright (c) 2017 Cinfwat Dogak
+
+  Permission is hereby granted, free of charge, to any person obtaining a copy
+  of this software and associated documentation files (the "Software"), to deal
+  in the Software without restriction, including without limitation the rights
+  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+  copies of the Software, and to permit persons to whom the Software is
+  furnished to do so, subject to the following conditions:
+
+  The above copyright notice and this permission notice shall be included in all
+  copies or substantial portions of the Software.
+
+  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+  SOFTWARE.
+ */
+
+package me.dcii.flowmap.tracking;
+
+import android.location.Location;
+
+/**
+ * Mutable location fix passed through the {@link LocationFilter} stage. A single instance is
+ * reused for every fix so the ingest path doesn't allocate.
+ *
+ * @author Dogak Cinfwat.
+ */
+public class Fix {
+
+    public double latitude;
+    public double longitude;
+
+    /**
+     * Estimated horizontal accuracy radius in meters, 0 if unknown.
+     */
+    public float accuracy;
+
+    /**
+     * Fix time in epoch milliseconds.
+     */
+    public long time;
+
+    /**
+     * Time the fix was received from the location callback, in
+     * {@link me.dcii.flowmap.metrics.IngestMetrics#now()} nanoseconds.
+     */
+    public long receivedAt;
+
+    /**
+     * Copies the provided {@link Location} values into this fix.
+     *
+     * @param location the location to copy.
+     * @param receivedAt time the fix was received, in
+     *                   {@link me.dcii.flowmap.metrics.IngestMetrics#now()} nanoseconds.
+     * @return this fix.
+     */
+    public Fix set(Location location, long receivedAt) {
+        latitude = location.getLatitude();
+        longitude = location.getLongitude();
+        accuracy = location.hasAccuracy() ? location.getAccuracy() : 0;
+        time = location.getTime();
+        this.receivedAt = receivedAt;
+        return this;
+    }
+}
@@ -0,0 +1,212 @@
+/*
+  MIT License
+
+  Copyright (c) 2017 Cinfwat Dogak
+
+  Permission is hereby granted, free of charge, to any person obtaining a copy
+  of this software and associated documentation files (the "Software"), to deal
+  in the Software without restriction, including without limitation the rights
+  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+  copies of the Software, and to permit persons to whom the Software is
+  furnished to do so, subject to the following conditions:
+
+  The above copyright notice and this permission notice shall be included in all
+  copies or substantial portions of the Software.
+
+  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+  SOFTWARE.
+ */
+
+package me.dcii.flowmap.tracking;
+
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Process;
+import android.support.annotation.NonNull;
+
+import java.util.Arrays;
+
+import io.realm.Realm;
+import me.dcii.flowmap.metrics.IngestMetrics;
+import me.dcii.flowmap.model.Journey;
+import me.dcii.flowmap.model.TransportType;
+
+/**
+ * Performs all {@link Journey} mutations of the tracking service on a single background thread
+ * with its own {@link Realm} instance. Requests are queued as messages, so callers never block on
+ * disk I/O, and are executed in the order they were made.
+ *
+ * @author Dogak Cinfwat.
+ */
+public class JourneyWriter {
+
+    /**
+     * Class name tag for debugging. Also used to name the writer thread.
+     */
+    private final static String TAG = JourneyWriter.class.getSimpleName();
+
+    private final HandlerThread mThread;
+    private final Handler mHandler;
+
+    /**
+     * Realm instance owned by the writer thread. Only accessed from that thread.
+     */
+    private Realm mRealm;
+
+    /**
+     * Constructor. Starts the writer thread and opens its {@link Realm} instance.
+     */
+    public JourneyWriter() {
+        mThread = new HandlerThread(TAG, Process.THREAD_PRIORITY_BACKGROUND);
+        mThread.start();
+        mHandler = new Handler(mThread.getLooper());
+        mHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                mRealm = Realm.getDefaultInstance();  // opens the default realm.
+            }
+        });
+    }
+
+    /**
+     * Appends positions to the {@link Journey} with the given identifier in a single transaction.
+     * The journey is created with the transport type if it doesn't exist yet. The arrays are
+     * copied, so the caller may reuse them once this method returns.
+     *
+     * @param journeyId the {@link Journey} identifier.
+     * @param transportType the transport type of a created journey.
+     * @param latitudes the position latitudes.
+     * @param longitudes the position longitudes.
+     * @param times the position times in epoch milliseconds.
+     * @param receivedAt times the positions were received, used for latency metrics.
+     * @param count the number of positions to append.
+     */
+    public void appendLocations(final String journeyId, final TransportType transportType,
+                                double[] latitudes, double[] longitudes, long[] times,
+                                long[] receivedAt, final int count) {
+        final double[] latitudesCopy = Arrays.copyOf(latitudes, count);
+        final double[] longitudesCopy = Arrays.copyOf(longitudes, count);
+        final long[] timesCopy = Arrays.copyOf(times, count);
+        final long[] receivedAtCopy = Arrays.copyOf(receivedAt, count);
+
+        final Realm.Transaction transaction = new Realm.Transaction() {
+            @Override
+            public void execute(@NonNull Realm realm) {
+                Journey journey = findJourney(realm, journeyId);
+                if (journey == null) {
+                    // Create new journey.
+                    journey = realm.createObject(Journey.class, journeyId);
+                    journey.setTransportType(transportType);
+                }
+
+                journey.appendTrack(latitudesCopy, longitudesCopy, timesCopy, count);
+            }
+        };
+
+        mHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                final long start = IngestMetrics.now();
+                mRealm.executeTransaction(transaction);
+                final long committed = IngestMetrics.now();
+
+                IngestMetrics.COMMIT_DURATION.record(committed - start);
+                for (int index = 0; index < count; index++) {
+                    IngestMetrics.CALLBACK_TO_COMMIT.record(committed - receivedAtCopy[index]);
+                }
+                IngestMetrics.FIXES_PERSISTED.addAndGet(count);
+            }
+        });
+    }
+
+    /**
+     * Sets the transport type of the {@link Journey} with the given identifier. Does nothing if
+     * the journey isn't written yet, it is then created with the transport type.
+     *
+     * @param journeyId the {@link Journey} identifier.
+     * @param transportType the transport type.
+     */
+    public void setTransportType(final String journeyId, final TransportType transportType) {
+        execute(new Realm.Transaction() {
+            @Override
+            public void execute(@NonNull Realm realm) {
+                final Journey journey = findJourney(realm, journeyId);
+                if (journey != null) {
+                    journey.setTransportType(transportType);
+                }
+            }
+        });
+    }
+
+    /**
+     * Sets the start address of the {@link Journey} with the given identifier.
+     *
+     * @param journeyId the {@link Journey} identifier.
+     * @param address the start address.
+     */
+    public void setStartAddress(final String journeyId, final String address) {
+        execute(new Realm.Transaction() {
+            @Override
+            public void execute(@NonNull Realm realm) {
+                final Journey journey = findJourney(realm, journeyId);
+                if (journey != null) {
+                    journey.setStartAddress(address);
+                }
+            }
+        });
+    }
+
+    /**
+     * Sets the end address of the {@link Journey} with the given identifier.
+     *
+     * @param journeyId the {@link Journey} identifier.
+     * @param address the end address.
+     */
+    public void setEndAddress(final String journeyId, final String address) {
+        execute(new Realm.Transaction() {
+            @Override
+            public void execute(@NonNull Realm realm) {
+                final Journey journey = findJourney(realm, journeyId);
+                if (journey != null) {
+                    journey.setEndAddress(address);
+                }
+            }
+        });
+    }
+
+    /**
+     * Stops the writer once all queued requests are executed and closes its {@link Realm}.
+     */
+    public void quit() {
+        mHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                mRealm.close();
+            }
+        });
+        mThread.quitSafely();
+    }
+
+    /**
+     * Queues the transaction for execution on the writer thread.
+     *
+     * @param transaction the transaction to execute.
+     */
+    private void execute(final Realm.Transaction transaction) {
+        mHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                mRealm.executeTransaction(transaction);
+            }
+        });
+    }
+
+    private static Journey findJourney(Realm realm, String journeyId) {
+        return realm.where(Journey.class).equalTo(Journey.FIELD_ID, journeyId).findFirst();
+    }
+}
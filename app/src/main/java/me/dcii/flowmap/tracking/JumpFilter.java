@@ -0,0 +1,89 @@
+/*
+  MIT License
+
+  Copyright (c) 2017 Cinfwat Dogak
+
+  Permission is hereby granted, free of charge, to any person obtaining a copy
+  of this software and associated documentation files (the "Software"), to deal
+  in the Software without restriction, including without limitation the rights
+  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+  copies of the Software, and to permit persons to whom the Software is
+  furnished to do so, subject to the following conditions:
+
+  The above copyright notice and this permission notice shall be included in all
+  copies or substantial portions of the Software.
+
+  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+  SOFTWARE.
+ */
+
+package me.dcii.flowmap.tracking;
+
+import me.dcii.flowmap.model.TransportType;
+import me.dcii.flowmap.util.GeoUtils;
+
+/**
+ * Rejects fixes that imply a speed above {@link TransportType#getMaxSpeed()} from the previous
+ * accepted fix, such as multipath jumps. The accuracy radii of both fixes are allowed as slack.
+ * After {@link #MAX_CONSECUTIVE_REJECTIONS} rejections in a row the fix is accepted anyway, so a
+ * genuine relocation (for instance after a long signal loss) doesn't block the journey.
+ *
+ * @author Dogak Cinfwat.
+ */
+public class JumpFilter implements LocationFilter {
+
+    private static final int MAX_CONSECUTIVE_REJECTIONS = 5;
+
+    private TransportType mTransportType;
+    private int mConsecutiveRejections;
+
+    private boolean mHasLast;
+    private double mLastLatitude;
+    private double mLastLongitude;
+    private float mLastAccuracy;
+    private long mLastTime;
+
+    public JumpFilter() {
+        mTransportType = TransportType.OTHERS;
+    }
+
+    /**
+     * Sets the journey transport type used to bound the speed.
+     *
+     * @param transportType the journey transport type.
+     */
+    public void setTransportType(TransportType transportType) {
+        mTransportType = transportType;
+    }
+
+    @Override
+    public RejectReason filter(Fix fix) {
+        if (mHasLast && mConsecutiveRejections < MAX_CONSECUTIVE_REJECTIONS) {
+            final double distance = GeoUtils.distance(mLastLatitude, mLastLongitude,
+                    fix.latitude, fix.longitude) - mLastAccuracy - fix.accuracy;
+            final double seconds = (fix.time - mLastTime) / 1000d;
+            if (distance > mTransportType.getMaxSpeed() * seconds) {
+                mConsecutiveRejections++;
+                return RejectReason.IMPLAUSIBLE_JUMP;
+            }
+        }
+        mConsecutiveRejections = 0;
+        mHasLast = true;
+        mLastLatitude = fix.latitude;
+        mLastLongitude = fix.longitude;
+        mLastAccuracy = fix.accuracy;
+        mLastTime = fix.time;
+        return null;
+    }
+
+    @Override
+    public void reset() {
+        mHasLast = false;
+        mConsecutiveRejections = 0;
+    }
+}
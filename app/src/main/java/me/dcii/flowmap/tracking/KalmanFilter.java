@@ -0,0 +1,148 @@
+/*
+  MIT License
+
+  Copyright (c) 2017 Cinfwat Dogak
+
+  Permission is hereby granted, free of charge, to any person obtaining a copy
+  of this software and associated documentation files (the "Software"), to deal
+  in the Software without restriction, including without limitation the rights
+  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+  copies of the Software, and to permit persons to whom the Software is
+  furnished to do so, subject to the following conditions:
+
+  The above copyright notice and this permission notice shall be included in all
+  copies or substantial portions of the Software.
+
+  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+  SOFTWARE.
+ */
+
+package me.dcii.flowmap.tracking;
+
+import me.dcii.flowmap.util.GeoUtils;
+
+/**
+ * Smooths fix positions with a constant velocity Kalman filter. Positions are projected to meters
+ * on a local plane around the first fix; both axes share the same covariance since they receive
+ * the same measurement noise (the fix accuracy). Never rejects a fix.
+ *
+ * @author Dogak Cinfwat.
+ */
+public class KalmanFilter implements LocationFilter {
+
+    /**
+     * Default process noise, the expected acceleration standard deviation in meters per second
+     * squared.
+     */
+    public static final double DEFAULT_ACCELERATION_NOISE = 3;
+
+    /**
+     * Accuracy assumed for fixes without one, in meters.
+     */
+    private static final double DEFAULT_ACCURACY = 20;
+
+    private final double mAccelerationVariance;
+
+    private boolean mInitialised;
+
+    /**
+     * Local plane origin and scale.
+     */
+    private double mOriginLatitude;
+    private double mOriginLongitude;
+    private double mMetersPerDegreeLongitude;
+
+    /**
+     * State: position (meters) and velocity (meters per second) per axis.
+     */
+    private double mX;
+    private double mVelocityX;
+    private double mY;
+    private double mVelocityY;
+
+    /**
+     * Shared state covariance matrix [[p00, p01], [p01, p11]].
+     */
+    private double mP00;
+    private double mP01;
+    private double mP11;
+
+    private long mLastTime;
+
+    /**
+     * Constructor.
+     *
+     * @param accelerationNoise expected acceleration standard deviation in meters per second squared.
+     */
+    public KalmanFilter(double accelerationNoise) {
+        mAccelerationVariance = accelerationNoise * accelerationNoise;
+    }
+
+    @Override
+    public RejectReason filter(Fix fix) {
+        final double accuracy = fix.accuracy > 0 ? fix.accuracy : DEFAULT_ACCURACY;
+        final double measurementVariance = accuracy * accuracy;
+
+        if (!mInitialised) {
+            mOriginLatitude = fix.latitude;
+            mOriginLongitude = fix.longitude;
+            mMetersPerDegreeLongitude = GeoUtils.metersPerDegreeLongitude(fix.latitude);
+            mX = 0;
+            mY = 0;
+            mVelocityX = 0;
+            mVelocityY = 0;
+            mP00 = measurementVariance;
+            mP01 = 0;
+            mP11 = mAccelerationVariance;
+            mLastTime = fix.time;
+            mInitialised = true;
+            return null;
+        }
+
+        final double dt = Math.max(0, (fix.time - mLastTime) / 1000d);
+        mLastTime = fix.time;
+
+        // Predict: x = F x, P = F P F' + Q.
+        mX += mVelocityX * dt;
+        mY += mVelocityY * dt;
+        final double dt2 = dt * dt;
+        final double p00 = mP00 + 2 * dt * mP01 + dt2 * mP11
+                + mAccelerationVariance * dt2 * dt2 / 4;
+        final double p01 = mP01 + dt * mP11 + mAccelerationVariance * dt2 * dt / 2;
+        final double p11 = mP11 + mAccelerationVariance * dt2;
+
+        // Update with the measured position.
+        final double measuredX = (fix.longitude - mOriginLongitude) * mMetersPerDegreeLongitude;
+        final double measuredY = (fix.latitude - mOriginLatitude) * GeoUtils.METERS_PER_DEGREE;
+        final double innovationVariance = p00 + measurementVariance;
+        final double positionGain = p00 / innovationVariance;
+        final double velocityGain = p01 / innovationVariance;
+
+        final double innovationX = measuredX - mX;
+        final double innovationY = measuredY - mY;
+        mX += positionGain * innovationX;
+        mVelocityX += velocityGain * innovationX;
+        mY += positionGain * innovationY;
+        mVelocityY += velocityGain * innovationY;
+
+        mP00 = (1 - positionGain) * p00;
+        mP01 = (1 - positionGain) * p01;
+        mP11 = p11 - velocityGain * p01;
+
+        // Write the smoothed position back to the fix.
+        fix.longitude = mOriginLongitude + mX / mMetersPerDegreeLongitude;
+        fix.latitude = mOriginLatitude + mY / GeoUtils.METERS_PER_DEGREE;
+        fix.accuracy = (float) Math.sqrt(mP00);
+        return null;
+    }
+
+    @Override
+    public void reset() {
+        mInitialised = false;
+    }
+}
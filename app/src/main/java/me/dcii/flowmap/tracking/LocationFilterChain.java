@@ -0,0 +1,120 @@
+/*
+  MIT License
+
+  Copyright (c) 2017 Cinfwat Dogak
+
+  Permission is hereby granted, free of charge, to any person obtaining a copy
+  of this software and associated documentation files (the "Software"), to deal
+  in the Software without restriction, including without limitation the rights
+  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+  copies of the Software, and to permit persons to whom the Software is
+  furnished to do so, subject to the following conditions:
+
+  The above copyright notice and this permission notice shall be included in all
+  copies or substantial portions of the Software.
+
+  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+  SOFTWARE.
+ */
+
+package me.dcii.flowmap.tracking;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import me.dcii.flowmap.model.TransportType;
+
+/**
+ * Runs fixes through an ordered list of {@link LocationFilter} stages and counts the rejected
+ * fixes per {@link RejectReason}. A fix is rejected by the first stage that rejects it.
+ *
+ * @author Dogak Cinfwat.
+ */
+public class LocationFilterChain implements LocationFilter {
+
+    private final List<LocationFilter> mFilters;
+    private final JumpFilter mJumpFilter;
+
+    /**
+     * Rejected fix counts indexed by {@link RejectReason#ordinal()}.
+     */
+    private final long[] mRejectedCounts;
+    private long mAcceptedCount;
+
+    /**
+     * Creates the default chain: accuracy, duplicate and jump rejection followed by Kalman
+     * smoothing.
+     */
+    public LocationFilterChain() {
+        mFilters = new ArrayList<>();
+        mJumpFilter = new JumpFilter();
+        mRejectedCounts = new long[RejectReason.values().length];
+
+        addFilter(new AccuracyFilter(AccuracyFilter.DEFAULT_MAX_ACCURACY));
+        addFilter(new DuplicateFilter());
+        addFilter(mJumpFilter);
+        addFilter(new KalmanFilter(KalmanFilter.DEFAULT_ACCELERATION_NOISE));
+    }
+
+    /**
+     * Appends a filter stage to the end of the chain.
+     *
+     * @param filter the filter to add.
+     */
+    public void addFilter(LocationFilter filter) {
+        mFilters.add(filter);
+    }
+
+    /**
+     * Sets the journey transport type used to reject implausible jumps.
+     *
+     * @param transportType the journey transport type.
+     */
+    public void setTransportType(TransportType transportType) {
+        mJumpFilter.setTransportType(transportType);
+    }
+
+    @Override
+    public RejectReason filter(Fix fix) {
+        for (int index = 0; index < mFilters.size(); index++) {
+            final RejectReason reason = mFilters.get(index).filter(fix);
+            if (reason != null) {
+                mRejectedCounts[reason.ordinal()]++;
+                return reason;
+            }
+        }
+        mAcceptedCount++;
+        return null;
+    }
+
+    @Override
+    public void reset() {
+        for (int index = 0; index < mFilters.size(); index++) {
+            mFilters.get(index).reset();
+        }
+    }
+
+    /**
+     * Returns the number of fixes rejected for the provided reason.
+     *
+     * @param reason the rejection reason.
+     * @return the rejected fix count.
+     */
+    public long getRejectedCount(RejectReason reason) {
+        return mRejectedCounts[reason.ordinal()];
+    }
+
+    /**
+     * Returns the number of fixes accepted by all stages.
+     *
+     * @return the accepted fix count.
+     */
+    public long getAcceptedCount() {
+        return mAcceptedCount;
+    }
+}
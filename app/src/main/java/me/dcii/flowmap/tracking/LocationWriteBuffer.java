@@ -0,0 +1,205 @@
+/*
+  MIT License
+
+  Copyright (c) 2017 Cinfwat Dogak
+
+  Permission is hereby granted, free of charge, to any person obtaining a copy
+  of this software and associated documentation files (the "Software"), to deal
+  in the Software without restriction, including without limitation the rights
+  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+  copies of the Software, and to permit persons to whom the Software is
+  furnished to do so, subject to the following conditions:
+
+  The above copyright notice and this permission notice shall be included in all
+  copies or substantial portions of the Software.
+
+  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+  SOFTWARE.
+ */
+
+package me.dcii.flowmap.tracking;
+
+import android.os.Handler;
+
+import java.util.Arrays;
+
+/**
+ * Write-behind buffer for location fixes. Fixes are held in memory and handed over to a
+ * {@link Flusher} as a single batch once {@link #mBatchSize} fixes are buffered, once
+ * {@link #mFlushInterval} milliseconds have passed since the first buffered fix, or when
+ * {@link #flush()} is called explicitly. Fixes added between {@link #beginBatch()} and
+ * {@link #endBatch()} are always handed over together, in a single flush.
+ *
+ * Not thread safe; all calls are expected on the thread of the provided {@link Handler}.
+ *
+ * @author Dogak Cinfwat.
+ */
+public class LocationWriteBuffer {
+
+    /**
+     * Default number of fixes buffered before a flush is forced.
+     */
+    public static final int DEFAULT_BATCH_SIZE = 20;
+
+    /**
+     * Default maximum time (milliseconds) a fix stays in the buffer before it is flushed.
+     */
+    public static final long DEFAULT_FLUSH_INTERVAL = 15000;
+
+    /**
+     * Receives the buffered fixes on flush.
+     */
+    public interface Flusher {
+
+        /**
+         * Persists the buffered fixes. The arrays are reused by the buffer once this method
+         * returns, implementations must consume or copy them synchronously.
+         *
+         * @param latitudes fix latitudes.
+         * @param longitudes fix longitudes.
+         * @param times fix times in epoch milliseconds.
+         * @param receivedAt times the fixes were received, used for latency metrics.
+         * @param count number of valid entries in the arrays.
+         */
+        void onFlush(double[] latitudes, double[] longitudes, long[] times, long[] receivedAt,
+                     int count);
+    }
+
+    private double[] mLatitudes;
+    private double[] mLongitudes;
+    private long[] mTimes;
+    private long[] mReceivedAt;
+
+    /**
+     * Number of fixes currently buffered.
+     */
+    private int mCount;
+
+    /**
+     * Set between {@link #beginBatch()} and {@link #endBatch()}; suspends the batch size flush.
+     */
+    private boolean mHolding;
+
+    private final int mBatchSize;
+    private final long mFlushInterval;
+    private final Handler mHandler;
+    private final Flusher mFlusher;
+
+    /**
+     * Flushes the buffer when the flush interval elapses.
+     */
+    private final Runnable mFlushRunnable = new Runnable() {
+        @Override
+        public void run() {
+            flush();
+        }
+    };
+
+    /**
+     * Constructor.
+     *
+     * @param handler handler used to schedule the interval flush.
+     * @param batchSize number of fixes that triggers a flush.
+     * @param flushInterval maximum time in milliseconds a fix is buffered.
+     * @param flusher receives the buffered fixes.
+     */
+    public LocationWriteBuffer(Handler handler, int batchSize, long flushInterval,
+                               Flusher flusher) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Batch size must be at least 1.");
+        }
+        mHandler = handler;
+        mBatchSize = batchSize;
+        mFlushInterval = flushInterval;
+        mFlusher = flusher;
+        mLatitudes = new double[batchSize];
+        mLongitudes = new double[batchSize];
+        mTimes = new long[batchSize];
+        mReceivedAt = new long[batchSize];
+        mCount = 0;
+    }
+
+    /**
+     * Buffers a fix, flushing the buffer if the batch size is reached.
+     *
+     * @param latitude fix latitude.
+     * @param longitude fix longitude.
+     * @param time fix time in epoch milliseconds.
+     * @param receivedAt time the fix was received, used for latency metrics.
+     */
+    public void add(double latitude, double longitude, long time, long receivedAt) {
+        if (mCount == mLatitudes.length) {
+            // Only reached while holding a batch, make room for the rest of it.
+            grow();
+        }
+        mLatitudes[mCount] = latitude;
+        mLongitudes[mCount] = longitude;
+        mTimes[mCount] = time;
+        mReceivedAt[mCount] = receivedAt;
+        mCount++;
+
+        if (mCount == 1) {
+            // First fix of the batch, start the flush interval countdown.
+            mHandler.postDelayed(mFlushRunnable, mFlushInterval);
+        }
+        if (!mHolding && mCount >= mBatchSize) {
+            flush();
+        }
+    }
+
+    /**
+     * Starts holding fixes so everything added until {@link #endBatch()} is flushed at once,
+     * regardless of the batch size.
+     */
+    public void beginBatch() {
+        mHolding = true;
+    }
+
+    /**
+     * Stops holding fixes and flushes everything buffered since {@link #beginBatch()}.
+     */
+    public void endBatch() {
+        mHolding = false;
+        flush();
+    }
+
+    /**
+     * Hands all buffered fixes to the {@link Flusher}. Does nothing if the buffer is empty.
+     */
+    public void flush() {
+        mHandler.removeCallbacks(mFlushRunnable);
+        if (mCount == 0) {
+            return;
+        }
+        final int count = mCount;
+
+        // Reset before flushing so a failing flush doesn't replay the same batch.
+        mCount = 0;
+        mFlusher.onFlush(mLatitudes, mLongitudes, mTimes, mReceivedAt, count);
+    }
+
+    /**
+     * Returns the number of fixes waiting to be flushed.
+     *
+     * @return the buffered fix count.
+     */
+    public int size() {
+        return mCount;
+    }
+
+    /**
+     * Doubles the buffer capacity.
+     */
+    private void grow() {
+        final int capacity = mLatitudes.length * 2;
+        mLatitudes = Arrays.copyOf(mLatitudes, capacity);
+        mLongitudes = Arrays.copyOf(mLongitudes, capacity);
+        mTimes = Arrays.copyOf(mTimes, capacity);
+        mReceivedAt = Arrays.copyOf(mReceivedAt, capacity);
+    }
+}
@@ -0,0 +1,89 @@
+/*
+  MIT License
+
+  Copyright (c) 2017 Cinfwat Dogak
+
+  Permission is hereby granted, free of charge, to any person obtaining a copy
+  of this software and associated documentation files (the "Software"), to deal
+  in the Software without restriction, including without limitation the rights
+  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+  copies of the Software, and to permit persons to whom the Software is
+  furnished to do so, subject to the following conditions:
+
+  The above copyright notice and this permission notice shall be included in all
+  copies or substantial portions of the Software.
+
+  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+  SOFTWARE.
+ */
+
+package me.dcii.flowmap.tracking;
+
+import com.google.android.gms.location.LocationRequest;
+
+/**
+ * Location sampling profiles used by the {@link AdaptiveSampler}. Profiles are ordered from the
+ * slowest to the fastest movement.
+ *
+ * @author Dogak Cinfwat.
+ */
+public enum SamplingProfile {
+
+    STATIONARY(60000, 30000, 10f, LocationRequest.PRIORITY_BALANCED_POWER_ACCURACY, 0.5f),
+    WALKING(10000, 5000, 2f, LocationRequest.PRIORITY_HIGH_ACCURACY, 2.5f),
+    CYCLING(5000, 2500, 5f, LocationRequest.PRIORITY_HIGH_ACCURACY, 8f),
+    DRIVING(2000, 1000, 10f, LocationRequest.PRIORITY_HIGH_ACCURACY, Float.MAX_VALUE);
+
+    /**
+     * The desired interval for location updates (milliseconds).
+     */
+    public final long interval;
+
+    /**
+     * The fastest rate for location updates (milliseconds).
+     */
+    public final long fastestInterval;
+
+    /**
+     * The smallest displacement distance in meters between location updates.
+     */
+    public final float smallestDisplacement;
+
+    /**
+     * The {@link LocationRequest} priority.
+     */
+    public final int priority;
+
+    /**
+     * Upper speed bound (meters per second) of the profile.
+     */
+    public final float maxSpeed;
+
+    SamplingProfile(long interval, long fastestInterval, float smallestDisplacement,
+                    int priority, float maxSpeed) {
+        this.interval = interval;
+        this.fastestInterval = fastestInterval;
+        this.smallestDisplacement = smallestDisplacement;
+        this.priority = priority;
+        this.maxSpeed = maxSpeed;
+    }
+
+    /**
+     * Applies the profile parameters to the provided {@link LocationRequest}.
+     *
+     * @param request the request to update.
+     * @return the updated request.
+     */
+    public LocationRequest applyTo(LocationRequest request) {
+        request.setInterval(interval);
+        request.setFastestInterval(fastestInterval);
+        request.setSmallestDisplacement(smallestDisplacement);
+        request.setPriority(priority);
+        return request;
+    }
+}
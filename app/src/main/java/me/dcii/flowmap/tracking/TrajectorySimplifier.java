@@ -0,0 +1,200 @@
+/*
+  MIT License
+
+  Copyright (c) 2017 Cinfwat Dogak
+
+  Permission is hereby granted, free of charge, to any person obtaining a copy
+  of this software and associated documentation files (the "Software"), to deal
+  in the Software without restriction, including without limitation the rights
+  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+  copies of the Software, and to permit persons to whom the Software is
+  furnished to do so, subject to the following conditions:
+
+  The above copyright notice and this permission notice shall be included in all
+  copies or substantial portions of the Software.
+
+  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+  SOFTWARE.
+ */
+
+package me.dcii.flowmap.tracking;
+
+import me.dcii.flowmap.util.GeoUtils;
+
+/**
+ * Online trajectory simplifier using the opening window algorithm. Points are kept in a pending
+ * window after the last committed point (the anchor). A new point is added to the window as long
+ * as every pending point lies within the tolerance of the segment from the anchor to the new
+ * point; otherwise the previous point is committed and becomes the new anchor. Committed points
+ * are passed on to the {@link PointSink}, so the stored route never deviates more than the
+ * tolerance from the recorded one.
+ *
+ * Not thread safe.
+ *
+ * @author Dogak Cinfwat.
+ */
+public class TrajectorySimplifier {
+
+    /**
+     * Default maximum deviation in meters between the recorded and the simplified route.
+     */
+    public static final double DEFAULT_TOLERANCE = 5;
+
+    /**
+     * Default number of points held in the pending window. The previous point is committed when
+     * the window is full, which bounds memory and per point work on long straight routes.
+     */
+    public static final int DEFAULT_WINDOW_CAPACITY = 128;
+
+    /**
+     * Receives the committed points.
+     */
+    public interface PointSink {
+
+        /**
+         * Called for every committed point, in order.
+         *
+         * @param latitude point latitude.
+         * @param longitude point longitude.
+         * @param time point time in epoch milliseconds.
+         * @param receivedAt time the point was received, used for latency metrics.
+         */
+        void onPoint(double latitude, double longitude, long time, long receivedAt);
+    }
+
+    private final double mTolerance;
+    private final PointSink mSink;
+
+    private boolean mHasAnchor;
+    private double mAnchorLatitude;
+    private double mAnchorLongitude;
+
+    /**
+     * Pending window of points after the anchor.
+     */
+    private final double[] mLatitudes;
+    private final double[] mLongitudes;
+    private final long[] mTimes;
+    private final long[] mReceivedAt;
+    private int mCount;
+
+    /**
+     * Constructor.
+     *
+     * @param tolerance maximum deviation in meters.
+     * @param windowCapacity maximum number of pending points.
+     * @param sink receives the committed points.
+     */
+    public TrajectorySimplifier(double tolerance, int windowCapacity, PointSink sink) {
+        if (windowCapacity < 1) {
+            throw new IllegalArgumentException("Window capacity must be at least 1.");
+        }
+        mTolerance = tolerance;
+        mSink = sink;
+        mLatitudes = new double[windowCapacity];
+        mLongitudes = new double[windowCapacity];
+        mTimes = new long[windowCapacity];
+        mReceivedAt = new long[windowCapacity];
+        reset();
+    }
+
+    /**
+     * Adds a point to the trajectory. The first point is committed immediately.
+     *
+     * @param latitude point latitude.
+     * @param longitude point longitude.
+     * @param time point time in epoch milliseconds.
+     * @param receivedAt time the point was received, used for latency metrics.
+     */
+    public void add(double latitude, double longitude, long time, long receivedAt) {
+        if (!mHasAnchor) {
+            commit(latitude, longitude, time, receivedAt);
+            return;
+        }
+
+        if (mCount == mLatitudes.length || !fitsWindow(latitude, longitude)) {
+            // The previous point is the last one the simplified route can go through.
+            commitLast();
+        }
+
+        mLatitudes[mCount] = latitude;
+        mLongitudes[mCount] = longitude;
+        mTimes[mCount] = time;
+        mReceivedAt[mCount] = receivedAt;
+        mCount++;
+    }
+
+    /**
+     * Commits the last pending point, which ends the trajectory. Called when recording stops.
+     */
+    public void finish() {
+        if (mCount > 0) {
+            commitLast();
+        }
+    }
+
+    /**
+     * Discards the pending points and the anchor, called when a new trajectory starts.
+     */
+    public void reset() {
+        mHasAnchor = false;
+        mCount = 0;
+    }
+
+    /**
+     * Returns the number of points not committed yet.
+     *
+     * @return the pending point count.
+     */
+    public int getPendingCount() {
+        return mCount;
+    }
+
+    /**
+     * Checks if all pending points lie within the tolerance of the segment from the anchor to the
+     * provided point. Positions are projected to meters on a local plane around the anchor.
+     */
+    private boolean fitsWindow(double latitude, double longitude) {
+        final double metersPerDegreeLongitude = GeoUtils.metersPerDegreeLongitude(mAnchorLatitude);
+        final double endX = (longitude - mAnchorLongitude) * metersPerDegreeLongitude;
+        final double endY = (latitude - mAnchorLatitude) * GeoUtils.METERS_PER_DEGREE;
+        final double lengthSquared = endX * endX + endY * endY;
+        final double toleranceSquared = mTolerance * mTolerance;
+
+        for (int index = 0; index < mCount; index++) {
+            final double x = (mLongitudes[index] - mAnchorLongitude) * metersPerDegreeLongitude;
+            final double y = (mLatitudes[index] - mAnchorLatitude) * GeoUtils.METERS_PER_DEGREE;
+
+            // Project the point on the segment, clamped to its ends.
+            double t = lengthSquared == 0 ? 0 : (x * endX + y * endY) / lengthSquared;
+            t = Math.max(0, Math.min(1, t));
+            final double dx = x - t * endX;
+            final double dy = y - t * endY;
+            if (dx * dx + dy * dy > toleranceSquared) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Commits the last pending point and empties the window.
+     */
+    private void commitLast() {
+        final int last = mCount - 1;
+        mCount = 0;
+        commit(mLatitudes[last], mLongitudes[last], mTimes[last], mReceivedAt[last]);
+    }
+
+    private void commit(double latitude, double longitude, long time, long receivedAt) {
+        mHasAnchor = true;
+        mAnchorLatitude = latitude;
+        mAnchorLongitude = longitude;
+        mSink.onPoint(latitude, longitude, time, receivedAt);
+    }
+}
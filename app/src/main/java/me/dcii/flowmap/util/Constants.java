@@ -31,20 +31,10 @@ package me.dcii.flowmap.util;
  */
 
 public final class Constants {
-    public static final int SUCCESS_RESULT = 0;
-    public static final int FAILURE_RESULT = 1;
     public static final String PACKAGE_NAME =
             "me.dcii.flowmap";
-    public static final String ADDRESS_RECEIVER = PACKAGE_NAME + ".ADDRESS_RECEIVER";
-    public static final String LOCATION_RECEIVER = PACKAGE_NAME + ".LOCATION_RECEIVER";
-    public static final String RESULT_DATA_KEY = PACKAGE_NAME +
-            ".RESULT_DATA_KEY";
-    public static final String LOCATION_DATA_EXTRA = PACKAGE_NAME +
-            ".LOCATION_DATA_EXTRA";
 
     // Request Codes used for address lookup.
-    public static final String ADDRESS_LOOKUP = "ADDRESS_LOOKUP";
-    public static final String JOURNEY_ID_ADDRESS_LOOK = "JOURNEY_ID";
     public static final int START_ADDRESS_LOOKUP = 101;
     public static final int END_ADDRESS_LOOK_UP = 102;
 }
\ No newline at end of file
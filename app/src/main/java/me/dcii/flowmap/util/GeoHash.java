@@ -0,0 +1,93 @@
+/*
+  MIT License
+
+  Copyright (c) 2017 Cinfwat Dogak
+
+  Permission is hereby granted, free of charge, to any person obtaining a copy
+  of this software and associated documentation files (the "Software"), to deal
+  in the Software without restriction, including without limitation the rights
+  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+  copies of the Software, and to permit persons to whom the Software is
+  furnished to do so, subject to the following conditions:
+
+  The above copyright notice and this permission notice shall be included in all
+  copies or substantial portions of the Software.
+
+  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+  SOFTWARE.
+ */
+
+package me.dcii.flowmap.util;
+
+/**
+ * Encodes positions as geohash strings. Each geohash names a cell of the earth's surface, longer
+ * hashes name smaller cells and positions in the same cell share the same hash.
+ *
+ * @author Dogak Cinfwat.
+ */
+public final class GeoHash {
+
+    /**
+     * Longest supported hash length, about 4cm by 2cm cells.
+     */
+    public static final int MAX_PRECISION = 12;
+
+    private static final char[] BASE32 = "0123456789bcdefghjkmnpqrstuvwxyz".toCharArray();
+
+    private GeoHash() {
+    }
+
+    /**
+     * Returns the geohash of the cell holding the provided position.
+     *
+     * @param latitude the position latitude.
+     * @param longitude the position longitude.
+     * @param precision the hash length, 1 to {@link #MAX_PRECISION}.
+     * @return the geohash.
+     */
+    public static String encode(double latitude, double longitude, int precision) {
+        if (precision < 1 || precision > MAX_PRECISION) {
+            throw new IllegalArgumentException("Precision must be between 1 and "
+                    + MAX_PRECISION + ".");
+        }
+
+        double minLatitude = -90;
+        double maxLatitude = 90;
+        double minLongitude = -180;
+        double maxLongitude = 180;
+
+        final char[] hash = new char[precision];
+        boolean isLongitude = true;  // bits alternate, starting with longitude.
+        for (int index = 0; index < precision; index++) {
+            int value = 0;
+            for (int bit = 0; bit < 5; bit++) {
+                value <<= 1;
+                if (isLongitude) {
+                    final double middle = (minLongitude + maxLongitude) / 2;
+                    if (longitude >= middle) {
+                        value |= 1;
+                        minLongitude = middle;
+                    } else {
+                        maxLongitude = middle;
+                    }
+                } else {
+                    final double middle = (minLatitude + maxLatitude) / 2;
+                    if (latitude >= middle) {
+                        value |= 1;
+                        minLatitude = middle;
+                    } else {
+                        maxLatitude = middle;
+                    }
+                }
+                isLongitude = !isLongitude;
+            }
+            hash[index] = BASE32[value];
+        }
+        return new String(hash);
+    }
+}
@@ -0,0 +1,98 @@
+/*
+  MIT License
+
+  Copyright (c) 2017 Cinfwat Dogak
+
+  Permission is hereby granted, free of charge, to any person obtaining a copy
+  of this software and associated documentation files (the "Software"), to deal
+  in the Software without restriction, including without limitation the rights
+  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+  copies of the Software, and to permit persons to whom the Software is
+  furnished to do so, subject to the following conditions:
+
+  The above copyright notice and this permission notice shall be included in all
+  copies or substantial portions of the Software.
+
+  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+  SOFTWARE.
+ */
+
+package me.dcii.flowmap.util;
+
+/**
+ * Geographic helper methods working on primitive latitude and longitude values.
+ *
+ * @author Dogak Cinfwat.
+ */
+public final class GeoUtils {
+
+    /**
+     * Mean earth radius in meters.
+     */
+    public static final double EARTH_RADIUS = 6371008.8;
+
+    /**
+     * Length in meters of one degree of latitude.
+     */
+    public static final double METERS_PER_DEGREE = EARTH_RADIUS * Math.PI / 180;
+
+    private static final double E6 = 1e6;
+
+    private GeoUtils() {
+    }
+
+    /**
+     * Quantises degrees to micro degrees.
+     *
+     * @param degrees the value in degrees.
+     * @return the value in micro degrees.
+     */
+    public static int toE6(double degrees) {
+        return (int) Math.round(degrees * E6);
+    }
+
+    /**
+     * Converts micro degrees to degrees.
+     *
+     * @param e6 the value in micro degrees.
+     * @return the value in degrees.
+     */
+    public static double fromE6(int e6) {
+        return e6 / E6;
+    }
+
+    /**
+     * Returns the great circle distance between two positions using the haversine formula.
+     *
+     * @param latitude1 first position latitude.
+     * @param longitude1 first position longitude.
+     * @param latitude2 second position latitude.
+     * @param longitude2 second position longitude.
+     * @return the distance in meters.
+     */
+    public static double distance(double latitude1, double longitude1,
+                                  double latitude2, double longitude2) {
+        final double dLatitude = Math.toRadians(latitude2 - latitude1);
+        final double dLongitude = Math.toRadians(longitude2 - longitude1);
+        final double sinLatitude = Math.sin(dLatitude / 2);
+        final double sinLongitude = Math.sin(dLongitude / 2);
+        final double a = sinLatitude * sinLatitude + Math.cos(Math.toRadians(latitude1))
+                * Math.cos(Math.toRadians(latitude2)) * sinLongitude * sinLongitude;
+        return 2 * EARTH_RADIUS * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
+    }
+
+    /**
+     * Returns the length in meters of one degree of longitude at the provided latitude.
+     *
+     * @param latitude the latitude.
+     * @return the meters per degree of longitude.
+     */
+    public static double metersPerDegreeLongitude(double latitude) {
+        return METERS_PER_DEGREE * Math.cos(Math.toRadians(latitude));
+    }
+}
@@ -0,0 +1,79 @@
+/*
+  MIT License
+
+  Copyright (c) 2017 Cinfwat Dogak
+
+  Permission is hereby granted, free of charge, to any person obtaining a copy
+  of this software and associated documentation files (the "Software"), to deal
+  in the Software without restriction, including without limitation the rights
+  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+  copies of the Software, and to permit persons to whom the Software is
+  furnished to do so, subject to the following conditions:
+
+  The above copyright notice and this permission notice shall be included in all
+  copies or substantial portions of the Software.
+
+  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+  SOFTWARE.
+ */
+
+package me.dcii.flowmap.util;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Spaces out operations so no more than a fixed number start per second. Callers of
+ * {@link #acquire()} block until their turn.
+ *
+ * Thread safe.
+ *
+ * @author Dogak Cinfwat.
+ */
+public class RateLimiter {
+
+    private final long mIntervalNanos;
+
+    /**
+     * Time, in {@link System#nanoTime()} nanoseconds, the next permit is available.
+     */
+    private long mNextPermit;
+
+    /**
+     * Constructor.
+     *
+     * @param permitsPerSecond number of permits handed out per second.
+     */
+    public RateLimiter(double permitsPerSecond) {
+        if (permitsPerSecond <= 0) {
+            throw new IllegalArgumentException("Rate must be positive.");
+        }
+        mIntervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / permitsPerSecond);
+        mNextPermit = System.nanoTime();
+    }
+
+    /**
+     * Blocks until a permit is available.
+     *
+     * @throws InterruptedException if interrupted while waiting.
+     */
+    public void acquire() throws InterruptedException {
+        final long wait;
+        synchronized (this) {
+            final long now = System.nanoTime();
+            if (mNextPermit - now < 0) {
+                // Idle since the last permit, don't let the unused permits pile up.
+                mNextPermit = now;
+            }
+            wait = mNextPermit - now;
+            mNextPermit += mIntervalNanos;
+        }
+        if (wait > 0) {
+            TimeUnit.NANOSECONDS.sleep(wait);
+        }
+    }
+}
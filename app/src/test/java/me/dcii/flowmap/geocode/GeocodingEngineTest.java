@@ -0,0 +1,168 @@
+/*
+  MIT License
+
+  Copyright (c) 2017 Cinfwat Dogak
+
+  Permission is hereby granted, free of charge, to any person obtaining a copy
+  of this software and associated documentation files (the "Software"), to deal
+  in the Software without restriction, including without limitation the rights
+  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+  copies of the Software, and to permit persons to whom the Software is
+  furnished to do so, subject to the following conditions:
+
+  The above copyright notice and this permission notice shall be included in all
+  copies or substantial portions of the Software.
+
+  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+  SOFTWARE.
+ */
+
+package me.dcii.flowmap.geocode;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit test for {@link GeocodingEngine}.
+ *
+ * @author Dogak Cinfwat.
+ */
+public class GeocodingEngineTest {
+
+    private static final long WAIT = 5000;
+
+    private CountDownLatch mRelease;
+    private CountDownLatch mDone;
+    private List<String> mResults;
+    private GeocodingEngine mEngine;
+
+    /**
+     * Geocoder returning the latitude as the address, blocking until released.
+     */
+    private final ReverseGeocoder mGeocoder = new ReverseGeocoder() {
+        @Override
+        public String getAddress(double latitude, double longitude, Locale locale)
+                throws IOException {
+            try {
+                mRelease.await(WAIT, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                throw new IOException(e);
+            }
+            return String.valueOf((int) latitude);
+        }
+    };
+
+    private final GeocodingEngine.Callback mCallback = new GeocodingEngine.Callback() {
+        @Override
+        public void onAddress(String key, String address) {
+            mResults.add(key + "=" + address);
+            mDone.countDown();
+        }
+
+        @Override
+        public void onError(String key, int error) {
+            mResults.add(key + "!" + error);
+            mDone.countDown();
+        }
+    };
+
+    @Before
+    public void setUp() {
+        mRelease = new CountDownLatch(1);
+        mResults = Collections.synchronizedList(new ArrayList<String>());
+    }
+
+    @After
+    public void tearDown() {
+        mRelease.countDown();
+        if (mEngine != null) {
+            mEngine.shutdown();
+        }
+    }
+
+    @Test
+    public void testPriorityOrder() throws InterruptedException {
+        mEngine = new GeocodingEngine(mGeocoder, 1, WAIT, 16);
+        mDone = new CountDownLatch(4);
+
+        // Occupies the single worker while the others queue up.
+        mEngine.submit("busy", GeocodingEngine.PRIORITY_BACKFILL, 0, 0, Locale.US, mCallback);
+        Thread.sleep(100);
+        mEngine.submit("backfill", GeocodingEngine.PRIORITY_BACKFILL, 1, 0, Locale.US,
+                mCallback);
+        mEngine.submit("start", GeocodingEngine.PRIORITY_START_ADDRESS, 2, 0, Locale.US,
+                mCallback);
+        mEngine.submit("end", GeocodingEngine.PRIORITY_END_ADDRESS, 3, 0, Locale.US, mCallback);
+        assertEquals(3, mEngine.getQueueDepth());
+
+        mRelease.countDown();
+        assertTrue(mDone.await(WAIT, TimeUnit.MILLISECONDS));
+        assertEquals("[busy=0, end=3, start=2, backfill=1]", mResults.toString());
+    }
+
+    @Test
+    public void testSupersede() throws InterruptedException {
+        mEngine = new GeocodingEngine(mGeocoder, 1, WAIT, 16);
+        mDone = new CountDownLatch(2);
+
+        mEngine.submit("busy", GeocodingEngine.PRIORITY_BACKFILL, 0, 0, Locale.US, mCallback);
+        Thread.sleep(100);
+        mEngine.submit("start", GeocodingEngine.PRIORITY_START_ADDRESS, 1, 0, Locale.US,
+                mCallback);
+        mEngine.submit("start", GeocodingEngine.PRIORITY_START_ADDRESS, 2, 0, Locale.US,
+                mCallback);
+        assertEquals(1, mEngine.getQueueDepth());
+
+        mRelease.countDown();
+        assertTrue(mDone.await(WAIT, TimeUnit.MILLISECONDS));
+        Thread.sleep(100);
+        assertEquals("[busy=0, start=2]", mResults.toString());
+    }
+
+    @Test
+    public void testTimeout() throws InterruptedException {
+        mEngine = new GeocodingEngine(mGeocoder, 1, 100, 16);
+        mDone = new CountDownLatch(2);
+
+        mEngine.submit("busy", GeocodingEngine.PRIORITY_BACKFILL, 0, 0, Locale.US, mCallback);
+        mEngine.submit("end", GeocodingEngine.PRIORITY_END_ADDRESS, 1, 0, Locale.US, mCallback);
+
+        assertTrue(mDone.await(WAIT, TimeUnit.MILLISECONDS));
+        mRelease.countDown();
+        Thread.sleep(100);
+        assertEquals(2, mResults.size());
+        assertTrue(mResults.contains("busy!" + GeocodingEngine.ERROR_TIMEOUT));
+        assertTrue(mResults.contains("end!" + GeocodingEngine.ERROR_TIMEOUT));
+    }
+
+    @Test
+    public void testQueueFull() throws InterruptedException {
+        mEngine = new GeocodingEngine(mGeocoder, 1, WAIT, 1);
+        mDone = new CountDownLatch(1);
+
+        mEngine.submit("busy", GeocodingEngine.PRIORITY_BACKFILL, 0, 0, Locale.US, mCallback);
+        Thread.sleep(100);
+        mEngine.submit("queued", GeocodingEngine.PRIORITY_BACKFILL, 1, 0, Locale.US, mCallback);
+        mEngine.submit("rejected", GeocodingEngine.PRIORITY_END_ADDRESS, 2, 0, Locale.US,
+                mCallback);
+
+        assertEquals("[rejected!" + GeocodingEngine.ERROR_QUEUE_FULL + "]",
+                mResults.toString());
+    }
+}
@@ -0,0 +1,116 @@
+/*
+  MIT License
+
+  Copyright (c) 2017 Cinfwat Dogak
+
+  Permission is hereby granted, free of charge, to any person obtaining a copy
+  of this software and associated documentation files (the "Software"), to deal
+  in the Software without restriction, including without limitation the rights
+  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+  copies of the Software, and to permit persons to whom the Software is
+  furnished to do so, subject to the following conditions:
+
+  The above copyright notice and this permission notice shall be included in all
+  copies or substantial portions of the Software.
+
+  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+  SOFTWARE.
+ */
+
+package me.dcii.flowmap.geocode;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import me.dcii.flowmap.util.GeoUtils;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit test for {@link PlaceIndex} and {@link PlaceIndexBuilder}.
+ *
+ * @author Dogak Cinfwat.
+ */
+public class PlaceIndexTest {
+
+    private static PlaceIndex build(PlaceIndexBuilder builder, double cellSize)
+            throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        builder.write(out, cellSize);
+        return new PlaceIndex(ByteBuffer.wrap(out.toByteArray()));
+    }
+
+    @Test
+    public void testFindNearest() throws IOException {
+        final PlaceIndexBuilder builder = new PlaceIndexBuilder();
+        builder.add(9.896527, 8.858331, "Jos");
+        builder.add(10.523, 7.438, "Kaduna");
+        builder.add(9.0765, 7.3986, "Abuja");
+        builder.add(-33.86882, 151.209296, "Sydney \u00e9");
+        final PlaceIndex index = build(builder, 0);
+
+        assertEquals(4, index.size());
+        assertEquals("Jos", index.findNearest(9.9, 8.86, 5000));
+        assertEquals("Abuja", index.findNearest(9.07, 7.40, 5000));
+        assertEquals("Sydney \u00e9", index.findNearest(-33.87, 151.21, 5000));
+    }
+
+    @Test
+    public void testMaxDistance() throws IOException {
+        final PlaceIndexBuilder builder = new PlaceIndexBuilder();
+        builder.add(9.896527, 8.858331, "Jos");
+        final PlaceIndex index = build(builder, 0);
+
+        assertNull(index.findNearest(9.95, 8.858331, 5000));
+        assertEquals("Jos", index.findNearest(9.95, 8.858331, 10000));
+        assertNull(index.findNearest(-60, -120, 5000));
+    }
+
+    @Test
+    public void testMatchesBruteForce() throws IOException {
+        final Random random = new Random(42);
+        final int count = 2000;
+        final double[] latitudes = new double[count];
+        final double[] longitudes = new double[count];
+        final PlaceIndexBuilder builder = new PlaceIndexBuilder();
+        for (int place = 0; place < count; place++) {
+            latitudes[place] = 9 + random.nextDouble();
+            longitudes[place] = 8 + random.nextDouble();
+            builder.add(latitudes[place], longitudes[place], "Place " + place);
+        }
+        final PlaceIndex index = build(builder, 0.01);
+
+        for (int query = 0; query < 500; query++) {
+            // Include positions just outside the indexed area.
+            final double latitude = 8.9 + random.nextDouble() * 1.2;
+            final double longitude = 7.9 + random.nextDouble() * 1.2;
+
+            int nearest = -1;
+            double nearestDistance = 3000;
+            for (int place = 0; place < count; place++) {
+                final double distance = GeoUtils.distance(latitude, longitude,
+                        latitudes[place], longitudes[place]);
+                if (distance <= nearestDistance) {
+                    nearest = place;
+                    nearestDistance = distance;
+                }
+            }
+            assertEquals(nearest < 0 ? null : "Place " + nearest,
+                    index.findNearest(latitude, longitude, 3000));
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void testRejectsOtherData() throws IOException {
+        new PlaceIndex(ByteBuffer.wrap(new byte[64]));
+    }
+}
@@ -0,0 +1,118 @@
+/*
+  MIT License
+
+  Copyright (c) 2017 Cinfwat Dogak
+
+  Permission is hereby granted, free of charge, to any person obtaining a copy
+  of this software and associated documentation files (the "Software"), to deal
+  in the Software without restriction, including without limitation the rights
+  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+  copies of the Software, and to permit persons to whom the Software is
+  furnished to do so, subject to the following conditions:
+
+  The above copyright notice and this permission notice shall be included in all
+  copies or substantial portions of the Software.
+
+  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+  SOFTWARE.
+ */
+
+package me.dcii.flowmap.map;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit test for {@link HeatmapRaster}.
+ *
+ * @author Dogak Cinfwat.
+ */
+public class HeatmapRasterTest {
+
+    private static final int ZOOM = 12;
+
+    /**
+     * Gets the position at the center of a pixel of a tile.
+     *
+     * @return the latitude and longitude.
+     */
+    private static double[] position(int x, int y, double pixelX, double pixelY) {
+        return new double[]{
+                TileProjection.yToLatitude(y * TileProjection.TILE_SIZE + pixelY, ZOOM),
+                TileProjection.xToLongitude(x * TileProjection.TILE_SIZE + pixelX, ZOOM)};
+    }
+
+    private static int alpha(int color) {
+        return color >>> 24;
+    }
+
+    @Test
+    public void testEmpty() {
+        final HeatmapRaster raster = new HeatmapRaster(2000, 1500, ZOOM);
+        final double[] far = position(2010, 1500, 128, 128);
+        raster.add(far[0], far[1]);
+        assertTrue(raster.isEmpty());
+        for (int pixel : raster.render()) {
+            assertEquals(0, pixel);
+        }
+    }
+
+    @Test
+    public void testDensityIsSpread() {
+        final HeatmapRaster raster = new HeatmapRaster(2000, 1500, ZOOM);
+        final double[] center = position(2000, 1500, 130, 130);
+        raster.add(center[0], center[1]);
+        assertFalse(raster.isEmpty());
+
+        final int size = TileProjection.TILE_SIZE;
+        final int[] pixels = raster.render();
+        final int middle = pixels[130 * size + 130];
+        final int near = pixels[130 * size + 130 + HeatmapRaster.CELL_SIZE];
+        final int edge = pixels[130 * size + 130 + 2 * HeatmapRaster.CELL_SIZE];
+        final int outside = pixels[130 * size + 130 + 3 * HeatmapRaster.CELL_SIZE];
+        assertTrue(alpha(middle) > alpha(near));
+        assertTrue(alpha(near) > alpha(edge));
+        assertTrue(alpha(edge) > 0);
+        assertEquals(0, outside);
+        assertEquals(0, pixels[0]);
+    }
+
+    @Test
+    public void testMarginMatchesNeighbour() {
+        // A position in the last cell of the neighbouring tile spreads to the first cell of the
+        // tile as it does to the cell before it on the neighbour.
+        final double[] position = position(2001, 1500, -1, 100);
+        final HeatmapRaster raster = new HeatmapRaster(2001, 1500, ZOOM);
+        raster.add(position[0], position[1]);
+        final HeatmapRaster neighbour = new HeatmapRaster(2000, 1500, ZOOM);
+        neighbour.add(position[0], position[1]);
+
+        final int size = TileProjection.TILE_SIZE;
+        assertEquals(neighbour.render()[100 * size + size - 1 - HeatmapRaster.CELL_SIZE],
+                raster.render()[100 * size]);
+        assertTrue(raster.render()[100 * size] != 0);
+    }
+
+    @Test
+    public void testColorRamp() {
+        assertEquals(0, HeatmapRaster.color(0));
+        assertTrue(alpha(HeatmapRaster.color(1)) < alpha(HeatmapRaster.color(10)));
+        assertEquals(0xe6ff0000, HeatmapRaster.color(HeatmapRaster.SATURATION));
+        assertEquals(0xe6ff0000, HeatmapRaster.color(HeatmapRaster.SATURATION * 100));
+    }
+
+    @Test
+    public void testCountedArea() {
+        final HeatmapRaster raster = new HeatmapRaster(2000, 1500, ZOOM);
+        assertTrue(raster.getWest() < TileProjection.xToLongitude(2000 * 256, ZOOM));
+        assertTrue(raster.getEast() > TileProjection.xToLongitude(2001 * 256, ZOOM));
+        assertTrue(raster.getNorth() > TileProjection.yToLatitude(1500 * 256, ZOOM));
+        assertTrue(raster.getSouth() < TileProjection.yToLatitude(1501 * 256, ZOOM));
+    }
+}
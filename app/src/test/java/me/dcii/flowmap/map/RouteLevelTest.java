@@ -0,0 +1,99 @@
+/*
+  MIT License
+
+  Copyright (c) 2017 Cinfwat Dogak
+
+  Permission is hereby granted, free of charge, to any person obtaining a copy
+  of this software and associated documentation files (the "Software"), to deal
+  in the Software without restriction, including without limitation the rights
+  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+  copies of the Software, and to permit persons to whom the Software is
+  furnished to do so, subject to the following conditions:
+
+  The above copyright notice and this permission notice shall be included in all
+  copies or substantial portions of the Software.
+
+  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+  SOFTWARE.
+ */
+
+package me.dcii.flowmap.map;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit test for {@link RouteLevel}.
+ *
+ * @author Dogak Cinfwat.
+ */
+public class RouteLevelTest {
+
+    private static final int COUNT = 100;
+
+    private double[] mLatitudes;
+    private double[] mLongitudes;
+    private RouteLevel mLevel;
+
+    @Before
+    public void setUp() {
+        // A straight line, every level keeps the ends only.
+        mLatitudes = new double[COUNT * 2];
+        mLongitudes = new double[COUNT * 2];
+        for (int index = 0; index < mLatitudes.length; index++) {
+            mLatitudes[index] = 9.8 + index * 0.0001;
+            mLongitudes[index] = 8.8 + index * 0.0001;
+        }
+        mLevel = new RouteLevel();
+    }
+
+    @Test
+    public void testFullResolutionDrawsEveryPosition() {
+        assertTrue(mLevel.isFullResolution());
+        assertFalse(mLevel.setZoom(RoutePyramid.FULL_RESOLUTION_ZOOM + 2));
+        assertFalse(mLevel.isStale(COUNT));
+        assertEquals(COUNT, mLevel.getIndexes(COUNT).length);
+    }
+
+    @Test
+    public void testWithoutPyramidDrawsEveryPosition() {
+        assertTrue(mLevel.setZoom(12.5f));
+        assertEquals(12, mLevel.getZoom());
+        assertTrue(mLevel.isStale(COUNT));
+        assertEquals(COUNT, mLevel.getIndexes(COUNT).length);
+    }
+
+    @Test
+    public void testStaleLevelKeepsLevelAndAppends() {
+        mLevel.setZoom(12);
+        mLevel.setPyramid(new RoutePyramid(mLatitudes, mLongitudes, COUNT));
+        assertFalse(mLevel.isStale(COUNT));
+        assertArrayEquals(new int[]{0, COUNT - 1}, mLevel.getIndexes(COUNT));
+
+        // Positions appended since the pyramid was built follow its level.
+        assertTrue(mLevel.isStale(COUNT + 3));
+        assertArrayEquals(new int[]{0, COUNT - 1, COUNT, COUNT + 1, COUNT + 2},
+                mLevel.getIndexes(COUNT + 3));
+
+        // A pyramid covering them replaces the level.
+        mLevel.setPyramid(new RoutePyramid(mLatitudes, mLongitudes, COUNT + 3));
+        assertFalse(mLevel.isStale(COUNT + 3));
+        assertArrayEquals(new int[]{0, COUNT + 2}, mLevel.getIndexes(COUNT + 3));
+    }
+
+    @Test
+    public void testStaleOnlyBelowFullResolution() {
+        mLevel.setZoom(12);
+        mLevel.setPyramid(new RoutePyramid(mLatitudes, mLongitudes, COUNT));
+        assertTrue(mLevel.setZoom(RoutePyramid.FULL_RESOLUTION_ZOOM));
+        assertFalse(mLevel.isStale(COUNT + 3));
+        assertEquals(COUNT + 3, mLevel.getIndexes(COUNT + 3).length);
+    }
+}
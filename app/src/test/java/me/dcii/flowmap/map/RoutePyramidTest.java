@@ -0,0 +1,162 @@
+/*
+  MIT License
+
+  Copyright (c) 2017 Cinfwat Dogak
+
+  Permission is hereby granted, free of charge, to any person obtaining a copy
+  of this software and associated documentation files (the "Software"), to deal
+  in the Software without restriction, including without limitation the rights
+  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+  copies of the Software, and to permit persons to whom the Software is
+  furnished to do so, subject to the following conditions:
+
+  The above copyright notice and this permission notice shall be included in all
+  copies or substantial portions of the Software.
+
+  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+  SOFTWARE.
+ */
+
+package me.dcii.flowmap.map;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import me.dcii.flowmap.util.GeoUtils;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit test for {@link RoutePyramid}.
+ *
+ * @author Dogak Cinfwat.
+ */
+public class RoutePyramidTest {
+
+    @Test
+    public void testStraightLineKeepsEnds() {
+        final int count = 100;
+        final double[] latitudes = new double[count];
+        final double[] longitudes = new double[count];
+        for (int index = 0; index < count; index++) {
+            latitudes[index] = 9.8 + index * 0.0001;
+            longitudes[index] = 8.8 + index * 0.0001;
+        }
+        final RoutePyramid pyramid = new RoutePyramid(latitudes, longitudes, count);
+        assertArrayEquals(new int[]{0, count - 1}, pyramid.getLevel(10));
+        assertEquals(count, pyramid.getLevel(RoutePyramid.FULL_RESOLUTION_ZOOM).length);
+        assertEquals(count, pyramid.getLevel(21).length);
+    }
+
+    @Test
+    public void testShortRoutes() {
+        assertEquals(0, new RoutePyramid(new double[0], new double[0], 0).getLevel(5).length);
+        assertArrayEquals(new int[]{0},
+                new RoutePyramid(new double[]{1}, new double[]{2}, 1).getLevel(5));
+        assertArrayEquals(new int[]{0, 1},
+                new RoutePyramid(new double[]{1, 1.1}, new double[]{2, 2}, 2).getLevel(5));
+    }
+
+    @Test
+    public void testMatchesDouglasPeucker() {
+        final Random random = new Random(7);
+        final int count = 500;
+        final double[] latitudes = new double[count];
+        final double[] longitudes = new double[count];
+        double latitude = 9.8;
+        double longitude = 8.8;
+        for (int index = 0; index < count; index++) {
+            latitude += (random.nextDouble() - 0.3) * 0.001;
+            longitude += (random.nextDouble() - 0.5) * 0.001;
+            latitudes[index] = latitude;
+            longitudes[index] = longitude;
+        }
+
+        final RoutePyramid pyramid = new RoutePyramid(latitudes, longitudes, count);
+        for (int zoom = 8; zoom < RoutePyramid.FULL_RESOLUTION_ZOOM; zoom++) {
+            final double tolerance = RoutePyramid.toleranceForZoom(zoom, latitudes[0]);
+            final boolean[] expected = new boolean[count];
+            expected[0] = true;
+            expected[count - 1] = true;
+            douglasPeucker(latitudes, longitudes, 0, count - 1, tolerance, expected);
+
+            final boolean[] actual = new boolean[count];
+            for (int index : pyramid.getLevel(zoom)) {
+                actual[index] = true;
+            }
+            for (int index = 0; index < count; index++) {
+                assertEquals("zoom " + zoom + " point " + index, expected[index], actual[index]);
+            }
+        }
+    }
+
+    @Test
+    public void testLevelsAreNested() {
+        final Random random = new Random(11);
+        final int count = 1000;
+        final double[] latitudes = new double[count];
+        final double[] longitudes = new double[count];
+        for (int index = 0; index < count; index++) {
+            latitudes[index] = 51.5 + random.nextDouble() * 0.05;
+            longitudes[index] = -0.1 + random.nextDouble() * 0.05;
+        }
+        final RoutePyramid pyramid = new RoutePyramid(latitudes, longitudes, count);
+
+        int[] coarser = pyramid.getLevel(0);
+        for (int zoom = 1; zoom <= RoutePyramid.FULL_RESOLUTION_ZOOM; zoom++) {
+            final int[] finer = pyramid.getLevel(zoom);
+            final boolean[] kept = new boolean[count];
+            for (int index : finer) {
+                kept[index] = true;
+            }
+            for (int index : coarser) {
+                assertTrue("zoom " + zoom, kept[index]);
+            }
+            assertTrue(finer.length >= coarser.length);
+            coarser = finer;
+        }
+    }
+
+    @Test
+    public void testToleranceHalvesPerZoom() {
+        final double tolerance = RoutePyramid.toleranceForZoom(10, 0);
+        assertEquals(tolerance / 2, RoutePyramid.toleranceForZoom(11, 0), 1e-9);
+        assertEquals(tolerance / 2, RoutePyramid.toleranceForZoom(10, 60), 1e-9);
+    }
+
+    /**
+     * Reference recursive Douglas-Peucker, on the same projection as the pyramid.
+     */
+    private static void douglasPeucker(double[] latitudes, double[] longitudes, int start,
+                                       int end, double tolerance, boolean[] keep) {
+        final double metersPerDegreeLongitude = GeoUtils.metersPerDegreeLongitude(latitudes[0]);
+        int farthest = -1;
+        double maxDistance = -1;
+        for (int index = start + 1; index < end; index++) {
+            final double x = (longitudes[index] - longitudes[start]) * metersPerDegreeLongitude;
+            final double y = (latitudes[index] - latitudes[start]) * GeoUtils.METERS_PER_DEGREE;
+            final double dx = (longitudes[end] - longitudes[start]) * metersPerDegreeLongitude;
+            final double dy = (latitudes[end] - latitudes[start]) * GeoUtils.METERS_PER_DEGREE;
+            final double lengthSquared = dx * dx + dy * dy;
+            double t = lengthSquared == 0 ? 0 : (x * dx + y * dy) / lengthSquared;
+            t = Math.max(0, Math.min(1, t));
+            final double distance = Math.hypot(x - t * dx, y - t * dy);
+            if (distance > maxDistance) {
+                maxDistance = distance;
+                farthest = index;
+            }
+        }
+        if (farthest < 0 || maxDistance <= tolerance) {
+            return;
+        }
+        keep[farthest] = true;
+        douglasPeucker(latitudes, longitudes, start, farthest, tolerance, keep);
+        douglasPeucker(latitudes, longitudes, farthest, end, tolerance, keep);
+    }
+}
@@ -0,0 +1,92 @@
+/*
+  MIT License
+
+  Copyright (c) 2017 Cinfwat Dogak
+
+  Permission is hereby granted, free of charge, to any person obtaining a copy
+  of this software and associated documentation files (the "Software"), to deal
+  in the Software without restriction, including without limitation the rights
+  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+  copies of the Software, and to permit persons to whom the Software is
+  furnished to do so, subject to the following conditions:
+
+  The above copyright notice and this permission notice shall be included in all
+  copies or substantial portions of the Software.
+
+  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+  SOFTWARE.
+ */
+
+package me.dcii.flowmap.map;
+
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit test for {@link SegmentIndex}.
+ *
+ * @author Dogak Cinfwat.
+ */
+public class SegmentIndexTest {
+
+    @Test
+    public void testQueryFindsOverlappingSegments() {
+        final SegmentIndex index = new SegmentIndex();
+        index.add("a", 9.80, 8.80, 9.81, 8.81);
+        index.add("a", 9.81, 8.81, 9.82, 8.82);
+        index.add("b", 9.90, 8.90, 9.91, 8.91);
+        assertEquals(3, index.size());
+
+        assertEquals(Collections.singleton("a"), index.query(9.805, 8.805, 9.806, 8.806));
+        assertEquals(Collections.singleton("b"), index.query(9.905, 8.905, 9.906, 8.906));
+        assertTrue(index.query(9.85, 8.85, 9.86, 8.86).isEmpty());
+        assertTrue(index.query(-9.85, -8.85, -9.80, -8.80).isEmpty());
+    }
+
+    @Test
+    public void testZoomedOutQuery() {
+        final SegmentIndex index = new SegmentIndex();
+        index.add("a", 9.80, 8.80, 9.81, 8.81);
+        index.add("b", -33.9, 18.4, -33.8, 18.5);
+        final Set<String> expected = new HashSet<>();
+        expected.add("a");
+        expected.add("b");
+        assertEquals(expected, index.query(-85, -180, 85, 180));
+        assertEquals(Collections.singleton("b"), index.query(-85, -180, 0, 180));
+    }
+
+    @Test
+    public void testWideSegments() {
+        final SegmentIndex index = new SegmentIndex();
+        // Spans far more than SegmentIndex.MAX_CELLS cells.
+        index.add("flight", 9.0, 8.0, 51.5, 0.1);
+        index.add("flight", 9.0, -0.5, 51.5, 8.0);
+        assertEquals(Collections.singleton("flight"), index.query(30, 4, 30.01, 4.01));
+        index.remove("flight");
+        assertEquals(0, index.size());
+        assertTrue(index.query(30, 4, 30.01, 4.01).isEmpty());
+    }
+
+    @Test
+    public void testRemove() {
+        final SegmentIndex index = new SegmentIndex();
+        index.add("a", 9.80, 8.80, 9.81, 8.81);
+        index.add("b", 9.80, 8.80, 9.81, 8.81);
+        index.remove("a");
+        index.remove("missing");
+        assertEquals(1, index.size());
+        assertEquals(Collections.singleton("b"), index.query(9.805, 8.805, 9.806, 8.806));
+        index.remove("b");
+        assertTrue(index.query(9.805, 8.805, 9.806, 8.806).isEmpty());
+    }
+}
@@ -0,0 +1,66 @@
+/*
+  MIT License
+
+  Copyright (c) 2017 Cinfwat Dogak
+
+  Permission is hereby granted, free of charge, to any person obtaining a copy
+  of this software and associated documentation files (the "Software"), to deal
+  in the Software without restriction, including without limitation the rights
+  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+  copies of the Software, and to permit persons to whom the Software is
+  furnished to do so, subject to the following conditions:
+
+  The above copyright notice and this permission notice shall be included in all
+  copies or substantial portions of the Software.
+
+  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+  SOFTWARE.
+ */
+
+package me.dcii.flowmap.map;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit test for {@link TileProjection}.
+ *
+ * @author Dogak Cinfwat.
+ */
+public class TileProjectionTest {
+
+    private static final double DELTA = 1e-9;
+
+    @Test
+    public void testWorldCorners() {
+        assertEquals(0, TileProjection.longitudeToX(-180, 0), DELTA);
+        assertEquals(256, TileProjection.longitudeToX(180, 0), DELTA);
+        assertEquals(128, TileProjection.latitudeToY(0, 0), DELTA);
+        assertEquals(0, TileProjection.latitudeToY(TileProjection.MAX_LATITUDE, 0), 1e-6);
+        assertEquals(1024, TileProjection.latitudeToY(-90, 2), 1e-6);
+    }
+
+    @Test
+    public void testInverse() {
+        for (int zoom = 0; zoom <= 21; zoom += 7) {
+            final double x = TileProjection.longitudeToX(8.8765, zoom);
+            final double y = TileProjection.latitudeToY(-9.8765, zoom);
+            assertEquals(8.8765, TileProjection.xToLongitude(x, zoom), 1e-9);
+            assertEquals(-9.8765, TileProjection.yToLatitude(y, zoom), 1e-9);
+        }
+    }
+
+    @Test
+    public void testTileIndex() {
+        assertEquals(0, TileProjection.tileIndex(TileProjection.longitudeToX(-180, 3), 3));
+        assertEquals(4, TileProjection.tileIndex(TileProjection.longitudeToX(0, 3), 3));
+        assertEquals(7, TileProjection.tileIndex(TileProjection.longitudeToX(180, 3), 3));
+        assertEquals(0, TileProjection.tileIndex(-10, 3));
+    }
+}
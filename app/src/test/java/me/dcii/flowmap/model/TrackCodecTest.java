@@ -0,0 +1,101 @@
+/*
+  MIT License
+
+  Copyright (c) 2017 Cinfwat Dogak
+
+  Permission is hereby granted, free of charge, to any person obtaining a copy
+  of this software and associated documentation files (the "Software"), to deal
+  in the Software without restriction, including without limitation the rights
+  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+  copies of the Software, and to permit persons to whom the Software is
+  furnished to do so, subject to the following conditions:
+
+  The above copyright notice and this permission notice shall be included in all
+  copies or substantial portions of the Software.
+
+  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+  SOFTWARE.
+ */
+
+package me.dcii.flowmap.model;
+
+import org.junit.Test;
+
+import me.dcii.flowmap.util.GeoUtils;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit test for {@link TrackCodec}.
+ *
+ * @author Dogak Cinfwat.
+ */
+public class TrackCodecTest {
+
+    private static final double E6_DELTA = 0.5e-6;
+
+    @Test
+    public void testRoundTrip() {
+        final double[] latitudes = {9.896527, 9.896601, -33.868820, 89.999999};
+        final double[] longitudes = {8.858331, 8.858102, 151.209296, -179.999999};
+        final long[] times = {1508236800000L, 1508236801000L, 1508236800500L, 0};
+
+        final byte[] buffer = new byte[latitudes.length * TrackCodec.MAX_POINT_BYTES];
+        int position = 0;
+        int latitudeE6 = 0;
+        int longitudeE6 = 0;
+        long time = 0;
+        for (int index = 0; index < latitudes.length; index++) {
+            final int nextLatitudeE6 = GeoUtils.toE6(latitudes[index]);
+            final int nextLongitudeE6 = GeoUtils.toE6(longitudes[index]);
+            position = TrackCodec.encodePoint(buffer, position, nextLatitudeE6 - latitudeE6,
+                    nextLongitudeE6 - longitudeE6, times[index] - time);
+            latitudeE6 = nextLatitudeE6;
+            longitudeE6 = nextLongitudeE6;
+            time = times[index];
+        }
+
+        final TrackPoints points = new TrackPoints(1);
+        assertEquals(latitudes.length,
+                TrackCodec.decode(buffer, position, Integer.MAX_VALUE, points));
+        for (int index = 0; index < latitudes.length; index++) {
+            assertEquals(latitudes[index], points.getLatitude(index), E6_DELTA);
+            assertEquals(longitudes[index], points.getLongitude(index), E6_DELTA);
+            assertEquals(times[index], points.getTime(index));
+        }
+    }
+
+    @Test
+    public void testSmallDeltasAreCompact() {
+        final byte[] buffer = new byte[TrackCodec.MAX_POINT_BYTES];
+
+        // A one second step of a few meters takes 1 + 1 + 2 bytes.
+        assertEquals(4, TrackCodec.encodePoint(buffer, 0, 30, -25, 1000));
+    }
+
+    @Test
+    public void testDecodeStopsAtMaxPoints() {
+        final byte[] buffer = new byte[3 * TrackCodec.MAX_POINT_BYTES];
+        int position = 0;
+        for (int index = 0; index < 3; index++) {
+            position = TrackCodec.encodePoint(buffer, position, 1, 1, 1);
+        }
+
+        final TrackPoints points = new TrackPoints();
+        assertEquals(1, TrackCodec.decode(buffer, position, 1, points));
+        assertEquals(1, points.size());
+    }
+
+    @Test
+    public void testZigzag() {
+        assertEquals(0, TrackCodec.zigzag(0));
+        assertEquals(1, TrackCodec.zigzag(-1));
+        assertEquals(2, TrackCodec.zigzag(1));
+        assertEquals(Long.MIN_VALUE, TrackCodec.unzigzag(TrackCodec.zigzag(Long.MIN_VALUE)));
+    }
+}
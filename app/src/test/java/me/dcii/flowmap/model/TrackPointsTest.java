@@ -0,0 +1,108 @@
+/*
+  MIT License
+
+  Copyright (c) 2017 Cinfwat Dogak
+
+  Permission is hereby granted, free of charge, to any person obtaining a copy
+  of this software and associated documentation files (the "Software"), to deal
+  in the Software without restriction, including without limitation the rights
+  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+  copies of the Software, and to permit persons to whom the Software is
+  furnished to do so, subject to the following conditions:
+
+  The above copyright notice and this permission notice shall be included in all
+  copies or substantial portions of the Software.
+
+  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+  SOFTWARE.
+ */
+
+package me.dcii.flowmap.model;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit test for {@link TrackPoints}.
+ *
+ * @author Dogak Cinfwat.
+ */
+public class TrackPointsTest {
+
+    @Test
+    public void testGrows() {
+        final TrackPoints points = new TrackPoints(1);
+        for (int index = 0; index < 100; index++) {
+            points.add(index, -index, index * 1000L);
+        }
+        assertEquals(100, points.size());
+        assertEquals(99, points.getLatitude(99), 0);
+        assertEquals(-99, points.getLongitude(99), 0);
+        assertEquals(99000L, points.getTime(99));
+    }
+
+    @Test
+    public void testSingleRun() {
+        final TrackPoints points = new TrackPoints();
+        assertEquals(0, points.getRunCount());
+        points.add(1, 1, 1);
+        points.add(2, 2, 2);
+        assertEquals(1, points.getRunCount());
+        assertEquals(0, points.getRunStart(0));
+        assertEquals(2, points.getRunEnd(0));
+    }
+
+    @Test
+    public void testRuns() {
+        final TrackPoints points = new TrackPoints();
+        points.startRun();
+        points.add(1, 1, 1);
+        points.add(2, 2, 2);
+        points.startRun();
+        points.add(5, 5, 5);
+        assertEquals(2, points.getRunCount());
+        assertEquals(0, points.getRunStart(0));
+        assertEquals(2, points.getRunEnd(0));
+        assertEquals(2, points.getRunStart(1));
+        assertEquals(3, points.getRunEnd(1));
+
+        points.clear();
+        assertEquals(0, points.getRunCount());
+    }
+
+    @Test
+    public void testLeadingPointsFormARun() {
+        final TrackPoints points = new TrackPoints();
+        points.add(1, 1, 1);
+        points.startRun();
+        points.add(2, 2, 2);
+        points.add(3, 3, 3);
+        assertEquals(2, points.getRunCount());
+        assertEquals(0, points.getRunStart(0));
+        assertEquals(1, points.getRunEnd(0));
+        assertEquals(1, points.getRunStart(1));
+        assertEquals(3, points.getRunEnd(1));
+    }
+
+    @Test
+    public void testRemove() {
+        final TrackPoints points = new TrackPoints();
+        for (int index = 0; index < 5; index++) {
+            points.add(index, index, index);
+        }
+        points.remove(1, 2);
+        assertEquals(3, points.size());
+        assertEquals(0, points.getTime(0));
+        assertEquals(3, points.getTime(1));
+        assertEquals(4, points.getTime(2));
+
+        points.remove(0, 0);
+        assertEquals(3, points.size());
+    }
+}
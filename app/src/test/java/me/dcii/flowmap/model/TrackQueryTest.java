@@ -0,0 +1,91 @@
+/*
+  MIT License
+
+  Copyright (c) 2017 Cinfwat Dogak
+
+  Permission is hereby granted, free of charge, to any person obtaining a copy
+  of this software and associated documentation files (the "Software"), to deal
+  in the Software without restriction, including without limitation the rights
+  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+  copies of the Software, and to permit persons to whom the Software is
+  furnished to do so, subject to the following conditions:
+
+  The above copyright notice and this permission notice shall be included in all
+  copies or substantial portions of the Software.
+
+  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+  SOFTWARE.
+ */
+
+package me.dcii.flowmap.model;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit test for {@link TrackQuery}.
+ *
+ * @author Dogak Cinfwat.
+ */
+public class TrackQueryTest {
+
+    private static final int JOS_LATITUDE_E6 = 9896527;
+    private static final int JOS_LONGITUDE_E6 = 8858331;
+
+    private static boolean intersectsJos(TrackQuery query, long firstTime, long lastTime) {
+        return query.intersects(firstTime, lastTime, JOS_LATITUDE_E6 - 1000,
+                JOS_LATITUDE_E6 + 1000, JOS_LONGITUDE_E6 - 1000, JOS_LONGITUDE_E6 + 1000);
+    }
+
+    @Test
+    public void testAll() {
+        assertTrue(intersectsJos(TrackQuery.ALL, 0, 1000));
+        assertTrue(TrackQuery.ALL.intersects(Long.MIN_VALUE, Long.MAX_VALUE, -90000000,
+                90000000, -180000000, 180000000));
+    }
+
+    @Test
+    public void testTimeWindow() {
+        final TrackQuery query = TrackQuery.forTimeWindow(1000, 2000);
+        assertTrue(intersectsJos(query, 500, 1000));
+        assertTrue(intersectsJos(query, 1200, 1800));
+        assertTrue(intersectsJos(query, 2000, 3000));
+        assertTrue(intersectsJos(query, 0, 5000));
+        assertFalse(intersectsJos(query, 0, 999));
+        assertFalse(intersectsJos(query, 2001, 3000));
+    }
+
+    @Test
+    public void testViewport() {
+        assertTrue(intersectsJos(TrackQuery.forViewport(9.8, 8.8, 10, 9), 0, 0));
+        // Viewport inside the block.
+        assertTrue(intersectsJos(TrackQuery.forViewport(9.8965, 8.8583, 9.8966, 8.8584), 0, 0));
+        // Viewport north of the block.
+        assertFalse(intersectsJos(TrackQuery.forViewport(10, 8.8, 11, 9), 0, 0));
+        // Viewport west of the block.
+        assertFalse(intersectsJos(TrackQuery.forViewport(9.8, 7, 10, 8.8), 0, 0));
+    }
+
+    @Test
+    public void testViewportAcrossAntimeridian() {
+        final TrackQuery query = TrackQuery.forViewport(-20, 170, -10, -170);
+        // Fiji, east and west of the antimeridian.
+        assertTrue(query.intersects(0, 0, -18000000, -17000000, 178000000, 179000000));
+        assertTrue(query.intersects(0, 0, -18000000, -17000000, -179000000, -178000000));
+        assertFalse(query.intersects(0, 0, -18000000, -17000000, 0, 1000000));
+    }
+
+    @Test
+    public void testViewportWithTimeWindow() {
+        final TrackQuery query = TrackQuery.forViewport(9.8, 8.8, 10, 9)
+                .withTimeWindow(1000, 2000);
+        assertTrue(intersectsJos(query, 1500, 1600));
+        assertFalse(intersectsJos(query, 3000, 4000));
+    }
+}
@@ -0,0 +1,141 @@
+/*
+  MIT License
+
+  Copyright (c) 2017 Cinfwat Dogak
+
+  Permission is hereby granted, free of charge, to any person obtaining a copy
+  of this software and associated documentation files (the "Software"), to deal
+  in the Software without restriction, including without limitation the rights
+  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+  copies of the Software, and to permit persons to whom the Software is
+  furnished to do so, subject to the following conditions:
+
+  The above copyright notice and this permission notice shall be included in all
+  copies or substantial portions of the Software.
+
+  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+  SOFTWARE.
+ */
+
+package me.dcii.flowmap.tracking;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import me.dcii.flowmap.model.TransportType;
+import me.dcii.flowmap.util.GeoUtils;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit test for {@link AdaptiveSampler}.
+ *
+ * @author Dogak Cinfwat.
+ */
+public class AdaptiveSamplerTest {
+
+    /**
+     * Roughly one meter in degrees of latitude.
+     */
+    private static final double METER = 1 / GeoUtils.METERS_PER_DEGREE;
+
+    private AdaptiveSampler mSampler;
+    private long mTime;
+
+    @Before
+    public void setUp() {
+        mSampler = new AdaptiveSampler();
+        mTime = 0;
+    }
+
+    private boolean speed(float speed) {
+        mTime += 1000;
+        return mSampler.onLocation(true, speed, 9.8, 8.8, mTime);
+    }
+
+    @Test
+    public void testStartsWalking() {
+        assertEquals(SamplingProfile.WALKING, mSampler.getProfile());
+    }
+
+    @Test
+    public void testSpeedIsSmoothed() {
+        assertFalse(speed(2f));
+        // Every other fix is at cycling speed, the smoothed speed stays in the walking margin.
+        for (int index = 0; index < 10; index++) {
+            assertFalse(speed(4f));
+            assertFalse(speed(2f));
+        }
+        assertEquals(SamplingProfile.WALKING, mSampler.getProfile());
+    }
+
+    @Test
+    public void testKeepsProfileWithinMargin() {
+        // Up to 20% above the walking upper bound of 2.5 m/s.
+        for (int index = 0; index < 10; index++) {
+            assertFalse(speed(2.9f));
+        }
+        assertEquals(SamplingProfile.WALKING, mSampler.getProfile());
+
+        // Up to 20% below the walking lower bound of 0.5 m/s.
+        for (int index = 0; index < 10; index++) {
+            assertFalse(speed(0.45f));
+        }
+        assertEquals(SamplingProfile.WALKING, mSampler.getProfile());
+    }
+
+    @Test
+    public void testSwitchesUpAfterConsecutiveFixes() {
+        assertFalse(speed(6f));
+        assertFalse(speed(6f));
+        assertEquals(SamplingProfile.WALKING, mSampler.getProfile());
+        assertTrue(speed(6f));
+        assertEquals(SamplingProfile.CYCLING, mSampler.getProfile());
+    }
+
+    @Test
+    public void testSwitchesDownAfterConsecutiveFixes() {
+        assertFalse(speed(0.1f));
+        assertFalse(speed(0.1f));
+        assertEquals(SamplingProfile.WALKING, mSampler.getProfile());
+        assertTrue(speed(0.1f));
+        assertEquals(SamplingProfile.STATIONARY, mSampler.getProfile());
+    }
+
+    @Test
+    public void testTransportTypeCapsProfile() {
+        assertFalse(mSampler.setTransportType(TransportType.WALKING));
+        for (int index = 0; index < 10; index++) {
+            assertFalse(speed(20f));
+        }
+        assertEquals(SamplingProfile.WALKING, mSampler.getProfile());
+
+        // Lifting the cap lets the profile follow the speed.
+        assertFalse(mSampler.setTransportType(TransportType.DRIVING));
+        for (int index = 0; index < 2; index++) {
+            assertFalse(speed(20f));
+        }
+        assertTrue(speed(20f));
+        assertEquals(SamplingProfile.DRIVING, mSampler.getProfile());
+
+        // Lowering the cap drops the current profile at once.
+        assertTrue(mSampler.setTransportType(TransportType.CYCLING));
+        assertEquals(SamplingProfile.CYCLING, mSampler.getProfile());
+    }
+
+    @Test
+    public void testSpeedFromPositions() {
+        // The first fix without speed has no previous position to compute one from.
+        assertFalse(mSampler.onLocation(false, 0, 9.8, 8.8, 0));
+        // 60 meters every 10 seconds is cycling speed.
+        assertFalse(mSampler.onLocation(false, 0, 9.8 + 60 * METER, 8.8, 10000));
+        assertFalse(mSampler.onLocation(false, 0, 9.8 + 120 * METER, 8.8, 20000));
+        assertTrue(mSampler.onLocation(false, 0, 9.8 + 180 * METER, 8.8, 30000));
+        assertEquals(SamplingProfile.CYCLING, mSampler.getProfile());
+    }
+}
@@ -0,0 +1,106 @@
+/*
+  MIT License
+
+  Copyright (c) 2017 Cinfwat Dogak
+
+  Permission is hereby granted, free of charge, to any person obtaining a copy
+  of this software and associated documentation files (the "Software"), to deal
+  in the Software without restriction, including without limitation the rights
+  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+  copies of the Software, and to permit persons to whom the Software is
+  furnished to do so, subject to the following conditions:
+
+  The above copyright notice and this permission notice shall be included in all
+  copies or substantial portions of the Software.
+
+  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+  SOFTWARE.
+ */
+
+package me.dcii.flowmap.tracking;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import me.dcii.flowmap.model.TransportType;
+import me.dcii.flowmap.util.GeoUtils;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit test for {@link JumpFilter}.
+ *
+ * @author Dogak Cinfwat.
+ */
+public class JumpFilterTest {
+
+    /**
+     * Roughly one meter in degrees of latitude.
+     */
+    private static final double METER = 1 / GeoUtils.METERS_PER_DEGREE;
+
+    private JumpFilter mFilter;
+    private Fix mFix;
+
+    @Before
+    public void setUp() {
+        mFilter = new JumpFilter();
+        mFix = new Fix();
+    }
+
+    private RejectReason filter(double meters, long time) {
+        mFix.latitude = 9.8 + meters * METER;
+        mFix.longitude = 8.8;
+        mFix.accuracy = 0;
+        mFix.time = time;
+        return mFilter.filter(mFix);
+    }
+
+    @Test
+    public void testRejectsJump() {
+        assertNull(filter(0, 0));
+        assertNull(filter(50, 1000));
+        // A kilometer in a second is faster than any transport type.
+        assertEquals(RejectReason.IMPLAUSIBLE_JUMP, filter(1050, 2000));
+        // The next fix is compared with the last accepted one.
+        assertNull(filter(100, 3000));
+    }
+
+    @Test
+    public void testAcceptsAfterConsecutiveRejections() {
+        assertNull(filter(0, 0));
+        for (int index = 1; index <= 5; index++) {
+            assertEquals(RejectReason.IMPLAUSIBLE_JUMP, filter(10000, index * 1000L));
+        }
+        // The sixth jump in a row is taken as a genuine relocation.
+        assertNull(filter(10000, 6000));
+        assertNull(filter(10010, 7000));
+    }
+
+    @Test
+    public void testTransportTypeBoundsSpeed() {
+        assertNull(filter(0, 0));
+        assertNull(filter(20, 1000));
+
+        mFilter.reset();
+        mFilter.setTransportType(TransportType.WALKING);
+        assertNull(filter(0, 0));
+        assertEquals(RejectReason.IMPLAUSIBLE_JUMP, filter(20, 1000));
+        assertNull(filter(3, 2000));
+    }
+
+    @Test
+    public void testAccuracyIsSlack() {
+        mFilter.setTransportType(TransportType.WALKING);
+        assertNull(filter(0, 0));
+        mFix.accuracy = 20;
+        mFix.latitude = 9.8 + 20 * METER;
+        mFix.time = 1000;
+        assertNull(mFilter.filter(mFix));
+    }
+}
@@ -0,0 +1,115 @@
+/*
+  MIT License
+
+  Copyright (c) 2017 Cinfwat Dogak
+
+  Permission is hereby granted, free of charge, to any person obtaining a copy
+  of this software and associated documentation files (the "Software"), to deal
+  in the Software without restriction, including without limitation the rights
+  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+  copies of the Software, and to permit persons to whom the Software is
+  furnished to do so, subject to the following conditions:
+
+  The above copyright notice and this permission notice shall be included in all
+  copies or substantial portions of the Software.
+
+  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+  SOFTWARE.
+ */
+
+package me.dcii.flowmap.tracking;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import me.dcii.flowmap.util.GeoUtils;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit test for {@link KalmanFilter}.
+ *
+ * @author Dogak Cinfwat.
+ */
+public class KalmanFilterTest {
+
+    /**
+     * Roughly one meter in degrees of latitude.
+     */
+    private static final double METER = 1 / GeoUtils.METERS_PER_DEGREE;
+
+    private static final double START_LATITUDE = 9.8;
+    private static final double START_LONGITUDE = 8.8;
+
+    @Test
+    public void testConvergesOnNoisyStraightTrack() {
+        final KalmanFilter filter = new KalmanFilter(KalmanFilter.DEFAULT_ACCELERATION_NOISE);
+        final Random random = new Random(42);
+        final Fix fix = new Fix();
+        final double noise = 10;
+        final int count = 120;
+
+        double rawError = 0;
+        double smoothedError = 0;
+        for (int index = 0; index < count; index++) {
+            // Heading north at 10 m/s, one fix per second.
+            final double trueLatitude = START_LATITUDE + index * 10 * METER;
+            fix.latitude = trueLatitude + random.nextGaussian() * noise * METER;
+            fix.longitude = START_LONGITUDE;
+            fix.accuracy = (float) noise;
+            fix.time = index * 1000L;
+            final double measured = fix.latitude;
+
+            assertNull(filter.filter(fix));
+            if (index >= count / 2) {
+                rawError += Math.abs(measured - trueLatitude) / METER;
+                smoothedError += Math.abs(fix.latitude - trueLatitude) / METER;
+            }
+        }
+
+        // Once converged the smoothed positions are closer to the track than the fixes.
+        assertTrue(smoothedError < rawError * 0.7);
+        assertTrue(smoothedError / (count / 2) < 6);
+        assertTrue(fix.accuracy < noise);
+    }
+
+    @Test
+    public void testFirstFixPassesThrough() {
+        final KalmanFilter filter = new KalmanFilter(KalmanFilter.DEFAULT_ACCELERATION_NOISE);
+        final Fix fix = new Fix();
+        fix.latitude = START_LATITUDE;
+        fix.longitude = START_LONGITUDE;
+        fix.accuracy = 5;
+        fix.time = 1000;
+        assertNull(filter.filter(fix));
+        assertEquals(START_LATITUDE, fix.latitude, 0);
+        assertEquals(START_LONGITUDE, fix.longitude, 0);
+    }
+
+    @Test
+    public void testResetRestartsFromNextFix() {
+        final KalmanFilter filter = new KalmanFilter(KalmanFilter.DEFAULT_ACCELERATION_NOISE);
+        final Fix fix = new Fix();
+        for (int index = 0; index < 10; index++) {
+            fix.latitude = START_LATITUDE;
+            fix.longitude = START_LONGITUDE;
+            fix.accuracy = 5;
+            fix.time = index * 1000L;
+            filter.filter(fix);
+        }
+
+        filter.reset();
+        fix.latitude = -START_LATITUDE;
+        fix.longitude = -START_LONGITUDE;
+        fix.time = 20000;
+        filter.filter(fix);
+        assertEquals(-START_LATITUDE, fix.latitude, 0);
+        assertEquals(-START_LONGITUDE, fix.longitude, 0);
+    }
+}
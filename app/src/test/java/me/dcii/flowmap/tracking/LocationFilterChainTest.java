@@ -0,0 +1,118 @@
+/*
+  MIT License
+
+  Copyright (c) 2017 Cinfwat Dogak
+
+  Permission is hereby granted, free of charge, to any person obtaining a copy
+  of this software and associated documentation files (the "Software"), to deal
+  in the Software without restriction, including without limitation the rights
+  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+  copies of the Software, and to permit persons to whom the Software is
+  furnished to do so, subject to the following conditions:
+
+  The above copyright notice and this permission notice shall be included in all
+  copies or substantial portions of the Software.
+
+  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+  SOFTWARE.
+ */
+
+package me.dcii.flowmap.tracking;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import me.dcii.flowmap.util.GeoUtils;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit test for {@link LocationFilterChain} and its {@link AccuracyFilter} and
+ * {@link DuplicateFilter} stages.
+ *
+ * @author Dogak Cinfwat.
+ */
+public class LocationFilterChainTest {
+
+    /**
+     * Roughly one meter in degrees of latitude.
+     */
+    private static final double METER = 1 / GeoUtils.METERS_PER_DEGREE;
+
+    private LocationFilterChain mChain;
+    private Fix mFix;
+
+    @Before
+    public void setUp() {
+        mChain = new LocationFilterChain();
+        mFix = new Fix();
+    }
+
+    private RejectReason filter(double meters, float accuracy, long time) {
+        mFix.latitude = 9.8 + meters * METER;
+        mFix.longitude = 8.8;
+        mFix.accuracy = accuracy;
+        mFix.time = time;
+        return mChain.filter(mFix);
+    }
+
+    @Test
+    public void testLowAccuracyDropped() {
+        final AccuracyFilter filter = new AccuracyFilter(AccuracyFilter.DEFAULT_MAX_ACCURACY);
+        mFix.accuracy = AccuracyFilter.DEFAULT_MAX_ACCURACY;
+        assertNull(filter.filter(mFix));
+        mFix.accuracy = AccuracyFilter.DEFAULT_MAX_ACCURACY + 1;
+        assertEquals(RejectReason.LOW_ACCURACY, filter.filter(mFix));
+    }
+
+    @Test
+    public void testDuplicatesDropped() {
+        final DuplicateFilter filter = new DuplicateFilter();
+        mFix.latitude = 9.8;
+        mFix.longitude = 8.8;
+        mFix.time = 1000;
+        assertNull(filter.filter(mFix));
+        // Same position later.
+        mFix.time = 2000;
+        assertEquals(RejectReason.DUPLICATE, filter.filter(mFix));
+        // Another position, but not newer.
+        mFix.latitude = 9.9;
+        mFix.time = 1000;
+        assertEquals(RejectReason.DUPLICATE, filter.filter(mFix));
+        mFix.time = 3000;
+        assertNull(filter.filter(mFix));
+
+        filter.reset();
+        mFix.time = 0;
+        assertNull(filter.filter(mFix));
+    }
+
+    @Test
+    public void testCountsPerReason() {
+        assertNull(filter(0, 5, 1000));
+        assertEquals(RejectReason.LOW_ACCURACY, filter(5, 80, 2000));
+        assertEquals(RejectReason.DUPLICATE, filter(0, 5, 1000));
+        assertEquals(RejectReason.DUPLICATE, filter(5, 5, 500));
+        assertEquals(RejectReason.IMPLAUSIBLE_JUMP, filter(5000, 5, 3000));
+        assertNull(filter(10, 5, 4000));
+
+        assertEquals(2, mChain.getAcceptedCount());
+        assertEquals(1, mChain.getRejectedCount(RejectReason.LOW_ACCURACY));
+        assertEquals(2, mChain.getRejectedCount(RejectReason.DUPLICATE));
+        assertEquals(1, mChain.getRejectedCount(RejectReason.IMPLAUSIBLE_JUMP));
+    }
+
+    @Test
+    public void testFirstRejectingStageWins() {
+        assertNull(filter(0, 5, 1000));
+        // Both inaccurate and a duplicate, the accuracy stage runs first.
+        assertEquals(RejectReason.LOW_ACCURACY, filter(0, 80, 1000));
+        assertEquals(1, mChain.getRejectedCount(RejectReason.LOW_ACCURACY));
+        assertEquals(0, mChain.getRejectedCount(RejectReason.DUPLICATE));
+    }
+}
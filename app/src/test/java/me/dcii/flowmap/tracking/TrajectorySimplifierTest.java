@@ -0,0 +1,116 @@
+/*
+  MIT License
+
+  Copyright (c) 2017 Cinfwat Dogak
+
+  Permission is hereby granted, free of charge, to any person obtaining a copy
+  of this software and associated documentation files (the "Software"), to deal
+  in the Software without restriction, including without limitation the rights
+  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+  copies of the Software, and to permit persons to whom the Software is
+  furnished to do so, subject to the following conditions:
+
+  The above copyright notice and this permission notice shall be included in all
+  copies or substantial portions of the Software.
+
+  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+  SOFTWARE.
+ */
+
+package me.dcii.flowmap.tracking;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import me.dcii.flowmap.util.GeoUtils;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit test for {@link TrajectorySimplifier}.
+ *
+ * @author Dogak Cinfwat.
+ */
+public class TrajectorySimplifierTest {
+
+    private static final double TOLERANCE = 5;
+
+    /**
+     * Roughly one meter in degrees of latitude.
+     */
+    private static final double METER = 1 / GeoUtils.METERS_PER_DEGREE;
+
+    private final List<double[]> mCommitted = new ArrayList<>();
+    private TrajectorySimplifier mSimplifier;
+
+    @Before
+    public void setUp() {
+        mCommitted.clear();
+        mSimplifier = new TrajectorySimplifier(TOLERANCE, 16,
+                new TrajectorySimplifier.PointSink() {
+            @Override
+            public void onPoint(double latitude, double longitude, long time,
+                                long receivedAt) {
+                mCommitted.add(new double[]{latitude, longitude, time});
+            }
+        });
+    }
+
+    @Test
+    public void testStraightLineKeepsEnds() {
+        for (int index = 0; index < 10; index++) {
+            mSimplifier.add(index * 10 * METER, 0, index, 0);
+        }
+        mSimplifier.finish();
+
+        assertEquals(2, mCommitted.size());
+        assertEquals(0, mCommitted.get(0)[2], 0);
+        assertEquals(9, mCommitted.get(1)[2], 0);
+    }
+
+    @Test
+    public void testCornerIsCommitted() {
+        // North for 100 meters then east for 100 meters.
+        for (int index = 0; index <= 10; index++) {
+            mSimplifier.add(index * 10 * METER, 0, index, 0);
+        }
+        for (int index = 1; index <= 10; index++) {
+            mSimplifier.add(100 * METER, index * 10 * METER, 10 + index, 0);
+        }
+        mSimplifier.finish();
+
+        assertEquals(3, mCommitted.size());
+        assertEquals(10, mCommitted.get(1)[2], 0);
+    }
+
+    @Test
+    public void testDeviationWithinTolerance() {
+        // Zigzag smaller than the tolerance is dropped.
+        for (int index = 0; index < 10; index++) {
+            mSimplifier.add(index * 10 * METER, (index % 2) * 2 * METER, index, 0);
+        }
+        mSimplifier.finish();
+
+        assertEquals(2, mCommitted.size());
+    }
+
+    @Test
+    public void testWindowCapacityBoundsPending() {
+        for (int index = 0; index < 40; index++) {
+            mSimplifier.add(index * METER, 0, index, 0);
+            assertTrue(mSimplifier.getPendingCount() <= 16);
+        }
+        mSimplifier.finish();
+
+        assertEquals(0, mSimplifier.getPendingCount());
+        assertEquals(39, mCommitted.get(mCommitted.size() - 1)[2], 0);
+    }
+}
@@ -0,0 +1,65 @@
+/*
+  MIT License
+
+  Copyright (c) 2017 Cinfwat Dogak
+
+  Permission is hereby granted, free of charge, to any person obtaining a copy
+  of this software and associated documentation files (the "Software"), to deal
+  in the Software without restriction, including without limitation the rights
+  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+  copies of the Software, and to permit persons to whom the Software is
+  furnished to do so, subject to the following conditions:
+
+  The above copyright notice and this permission notice shall be included in all
+  copies or substantial portions of the Software.
+
+  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+  SOFTWARE.
+ */
+
+package me.dcii.flowmap.util;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit test for {@link GeoHash}.
+ *
+ * @author Dogak Cinfwat.
+ */
+public class GeoHashTest {
+
+    @Test
+    public void testEncode() {
+        assertEquals("u4pruydqqvj", GeoHash.encode(57.64911, 10.40744, 11));
+        assertEquals("ezs42", GeoHash.encode(42.605, -5.603, 5));
+        assertEquals("s0000", GeoHash.encode(0, 0, 5));
+    }
+
+    @Test
+    public void testPrefix() {
+        // A shorter hash names the enclosing cell.
+        final String hash = GeoHash.encode(9.896527, 8.858331, GeoHash.MAX_PRECISION);
+        for (int precision = 1; precision < GeoHash.MAX_PRECISION; precision++) {
+            assertEquals(hash.substring(0, precision),
+                    GeoHash.encode(9.896527, 8.858331, precision));
+        }
+    }
+
+    @Test
+    public void testNearbyPositionsShareCell() {
+        assertEquals(GeoHash.encode(9.896527, 8.858331, 7),
+                GeoHash.encode(9.896530, 8.858340, 7));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidPrecision() {
+        GeoHash.encode(0, 0, 0);
+    }
+}
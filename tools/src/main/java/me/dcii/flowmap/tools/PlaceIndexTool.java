@@ -0,0 +1,101 @@
+/*
+  MIT License
+
+  Copyright (c) 2017 Cinfwat Dogak
+
+  Permission is hereby granted, free of charge, to any person obtaining a copy
+  of this software and associated documentation files (the "Software"), to deal
+  in the Software without restriction, including without limitation the rights
+  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+  copies of the Software, and to permit persons to whom the Software is
+  furnished to do so, subject to the following conditions:
+
+  The above copyright notice and this permission notice shall be included in all
+  copies or substantial portions of the Software.
+
+  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+  SOFTWARE.
+ */
+
+package me.dcii.flowmap.tools;
+
+import java.io.BufferedReader;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+
+import me.dcii.flowmap.geocode.PlaceIndexBuilder;
+
+/**
+ * Command line tool building a place index file from a UTF-8 CSV file of
+ * {@code latitude,longitude,name} lines (lines starting with {@code #} are skipped):
+ * <pre>
+ * ./gradlew :tools:installDist
+ * tools/build/install/tools/bin/tools places.csv places.idx [cellSizeDegrees]
+ * </pre>
+ *
+ * @author Dogak Cinfwat.
+ */
+public final class PlaceIndexTool {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private PlaceIndexTool() {
+    }
+
+    /**
+     * Builds an index file from a CSV file of places.
+     *
+     * @param args the CSV file, the index file and optionally the cell size in degrees.
+     * @throws IOException if reading or writing fails.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: PlaceIndexTool <places.csv> <places.idx> "
+                    + "[cellSizeDegrees]");
+            System.exit(1);
+        }
+
+        final PlaceIndexBuilder builder = new PlaceIndexBuilder();
+        final BufferedReader reader = new BufferedReader(
+                new InputStreamReader(new FileInputStream(args[0]), UTF_8));
+        try {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                final int first = line.indexOf(',');
+                final int second = line.indexOf(',', first + 1);
+                if (first < 0 || second < 0) {
+                    throw new IOException("Line " + lineNumber
+                            + ": expected latitude,longitude,name");
+                }
+                builder.add(Double.parseDouble(line.substring(0, first).trim()),
+                        Double.parseDouble(line.substring(first + 1, second).trim()),
+                        line.substring(second + 1).trim());
+            }
+        } finally {
+            reader.close();
+        }
+
+        final OutputStream out = new FileOutputStream(args[1]);
+        try {
+            builder.write(out, args.length > 2 ? Double.parseDouble(args[2]) : 0);
+        } finally {
+            out.close();
+        }
+        System.out.println("Wrote " + builder.size() + " places to " + args[1]);
+    }
+}